@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends serialized audit documents to a store that supports bulk indexing, like Solr and ElasticSearch:
+ * - documents are split into bulk requests of at most maxRequestBytes bytes and maxRequestDocs documents
+ * - up to maxInFlightRequests bulk requests are sent concurrently
+ * - documents rejected with a retryable status (429 or 503), or not sent due to an error, are resent with
+ *   exponential backoff for up to maxRetryWaitMs. While the store is throttling, other requests wait for the
+ *   backoff period as well, instead of adding to its load.
+ * Documents are serialized once by the caller; the same bytes are sent on every attempt.
+ */
+public class AuditBulkIndexer {
+    private static final Logger LOG = LoggerFactory.getLogger(AuditBulkIndexer.class);
+
+    public static final String PROP_BULK_MAX_REQUEST_BYTES  = "bulk.max.request.bytes";
+    public static final String PROP_BULK_MAX_REQUEST_DOCS   = "bulk.max.request.docs";
+    public static final String PROP_BULK_MAX_IN_FLIGHT      = "bulk.max.in.flight.requests";
+    public static final String PROP_BULK_RETRY_BACKOFF_MS   = "bulk.retry.backoff.ms";
+    public static final String PROP_BULK_RETRY_MAX_BACKOFF  = "bulk.retry.max.backoff.ms";
+    public static final String PROP_BULK_RETRY_MAX_WAIT_MS  = "bulk.retry.max.wait.ms";
+    public static final int    STATUS_OK                    = 200;
+    public static final int    STATUS_TOO_MANY_REQUESTS     = 429;
+    public static final int    STATUS_SERVICE_UNAVAILABLE   = 503;
+
+    private final String                  name;
+    private final BulkRequestSender       sender;
+    private final AuditDestinationMetrics metrics;
+    private final long                    maxRequestBytes;
+    private final int                     maxRequestDocs;
+    private final long                    retryBackoffMs;
+    private final long                    retryMaxBackoffMs;
+    private final long                    retryMaxWaitMs;
+    private final AtomicLong              throttledUntil = new AtomicLong();
+    private final ExecutorService         senderPool;
+
+    public AuditBulkIndexer(String name, Properties props, String propPrefix, BulkRequestSender sender) {
+        int maxInFlight = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_BULK_MAX_IN_FLIGHT, 4);
+
+        this.name              = name;
+        this.sender            = sender;
+        this.metrics           = AuditDestinationMetrics.getInstance(name);
+        this.maxRequestBytes   = Math.max(1, MiscUtil.getLongProperty(props, propPrefix + "." + PROP_BULK_MAX_REQUEST_BYTES, 1024 * 1024));
+        this.maxRequestDocs    = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + PROP_BULK_MAX_REQUEST_DOCS, 500));
+        this.retryBackoffMs    = Math.max(1, MiscUtil.getLongProperty(props, propPrefix + "." + PROP_BULK_RETRY_BACKOFF_MS, 100));
+        this.retryMaxBackoffMs = Math.max(retryBackoffMs, MiscUtil.getLongProperty(props, propPrefix + "." + PROP_BULK_RETRY_MAX_BACKOFF, 5000));
+        this.retryMaxWaitMs    = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_BULK_RETRY_MAX_WAIT_MS, 30000);
+
+        if (maxInFlight > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+
+            senderPool = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+                Thread thread = new Thread(runnable, name + "-bulk-indexer-" + threadCount.incrementAndGet());
+
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        } else {
+            senderPool = null;
+        }
+
+        LOG.info("{}: maxRequestBytes={}, maxRequestDocs={}, maxInFlightRequests={}, retryBackoffMs={}, retryMaxBackoffMs={}, retryMaxWaitMs={}", name, maxRequestBytes, maxRequestDocs, maxInFlight, retryBackoffMs, retryMaxBackoffMs, retryMaxWaitMs);
+    }
+
+    public AuditDestinationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Indexes the given documents, returning after each has either been indexed, rejected or given up on.
+     */
+    public BulkResult index(List<byte[]> docs) {
+        List<List<Integer>> requests = new ArrayList<>();
+        List<Integer>       request  = new ArrayList<>();
+        long                bytes    = 0;
+
+        for (int i = 0; i < docs.size(); i++) {
+            long docBytes = docs.get(i).length;
+
+            if (!request.isEmpty() && (request.size() >= maxRequestDocs || bytes + docBytes > maxRequestBytes)) {
+                requests.add(request);
+
+                request = new ArrayList<>();
+                bytes   = 0;
+            }
+
+            request.add(i);
+
+            bytes += docBytes;
+        }
+
+        if (!request.isEmpty()) {
+            requests.add(request);
+        }
+
+        BulkResult      ret        = new BulkResult();
+        ExecutorService senderPool = this.senderPool;
+
+        if (requests.size() == 1 || senderPool == null) {
+            for (List<Integer> docIndexes : requests) {
+                send(docs, docIndexes, ret);
+            }
+        } else {
+            List<Future<?>> results = new ArrayList<>(requests.size());
+
+            for (List<Integer> docIndexes : requests) {
+                results.add(senderPool.submit(() -> send(docs, docIndexes, ret)));
+            }
+
+            // wait for all requests to complete, as the caller might reuse the documents after this call returns
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException excp) {
+                    LOG.error("{}: error sending bulk request", name, excp.getCause());
+                } catch (InterruptedException excp) {
+                    LOG.warn("{}: interrupted while waiting for bulk requests to complete", name);
+
+                    Thread.currentThread().interrupt();
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    public void stop() {
+        if (senderPool != null) {
+            senderPool.shutdown();
+
+            try {
+                if (!senderPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                    LOG.warn("{}: bulk indexer threads did not terminate in 30 seconds", name);
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static boolean isRetryable(int status) {
+        return status == STATUS_TOO_MANY_REQUESTS || status == STATUS_SERVICE_UNAVAILABLE;
+    }
+
+    private void send(List<byte[]> docs, List<Integer> docIndexes, BulkResult result) {
+        long          startTimeMs = System.currentTimeMillis();
+        long          backoffMs   = retryBackoffMs;
+        List<Integer> pending     = docIndexes;
+
+        while (true) {
+            try {
+                waitIfThrottled();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                result.addPending(pending, "interrupted");
+
+                break;
+            }
+
+            List<byte[]> requestDocs  = new ArrayList<>(pending.size());
+            long         requestBytes = 0;
+
+            for (Integer docIndex : pending) {
+                byte[] doc = docs.get(docIndex);
+
+                requestDocs.add(doc);
+
+                requestBytes += doc.length;
+            }
+
+            int[]  statuses = null;
+            String error    = null;
+
+            metrics.requestStarted();
+
+            long requestStartMs = System.currentTimeMillis();
+
+            try {
+                statuses = sender.send(requestDocs, requestBytes);
+            } catch (Exception excp) {
+                LOG.warn("{}: bulk request of {} documents failed: {}", name, requestDocs.size(), excp.toString());
+
+                error = excp.toString();
+            }
+
+            long          latencyMs    = System.currentTimeMillis() - requestStartMs;
+            List<Integer> retry        = new ArrayList<>();
+            int           indexedCount = 0;
+            int           failedCount  = 0;
+            boolean       isThrottled  = false;
+
+            if (statuses == null) {
+                retry = pending;
+            } else {
+                for (int i = 0; i < pending.size(); i++) {
+                    int status = i < statuses.length ? statuses[i] : STATUS_SERVICE_UNAVAILABLE;
+
+                    if (status >= 200 && status < 300) {
+                        indexedCount++;
+                    } else if (isRetryable(status)) {
+                        retry.add(pending.get(i));
+
+                        isThrottled = true;
+                        error       = "HTTP " + status;
+                    } else {
+                        result.addFailed(pending.get(i), "HTTP " + status);
+
+                        failedCount++;
+                    }
+                }
+            }
+
+            metrics.requestCompleted(requestBytes, latencyMs, retry.isEmpty() && failedCount == 0, isThrottled);
+            metrics.addEvents(indexedCount, failedCount);
+
+            result.addIndexed(indexedCount);
+
+            if (retry.isEmpty()) {
+                break;
+            }
+
+            long elapsedMs = System.currentTimeMillis() - startTimeMs;
+
+            if (elapsedMs + backoffMs > retryMaxWaitMs) {
+                LOG.warn("{}: giving up on {} documents after {}ms of retries; last error: {}", name, retry.size(), elapsedMs, error);
+
+                result.addPending(retry, error);
+
+                break;
+            }
+
+            // randomize the backoff, so that concurrent requests do not retry in lockstep
+            long sleepMs = backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+
+            if (isThrottled) {
+                long until = System.currentTimeMillis() + sleepMs;
+
+                throttledUntil.accumulateAndGet(until, Math::max);
+            }
+
+            LOG.debug("{}: retrying {} documents in {}ms; last error: {}", name, retry.size(), sleepMs, error);
+
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                result.addPending(retry, "interrupted");
+
+                break;
+            }
+
+            metrics.addRetry();
+
+            backoffMs = Math.min(backoffMs * 2, retryMaxBackoffMs);
+            pending   = retry;
+        }
+    }
+
+    private void waitIfThrottled() throws InterruptedException {
+        long waitMs = throttledUntil.get() - System.currentTimeMillis();
+
+        if (waitMs > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+
+    public interface BulkRequestSender {
+        /**
+         * Sends the documents in a single bulk request.
+         *
+         * @return status of each document, in the order of docs, as an HTTP status code: 2xx when indexed; 429 and 503 are retried
+         * @throws Exception when the request could not be completed, for example due to a connection failure; the documents will be retried
+         */
+        int[] send(List<byte[]> docs, long bytes) throws Exception;
+    }
+
+    public static class BulkResult {
+        private final List<Integer> failedDocs  = new ArrayList<>();
+        private final List<Integer> pendingDocs = new ArrayList<>();
+        private       int           indexedCount;
+        private       String        lastError;
+
+        public synchronized int getIndexedCount() {
+            return indexedCount;
+        }
+
+        /**
+         * @return indexes of documents rejected by the store, which would be rejected again on retry
+         */
+        public synchronized List<Integer> getFailedDocs() {
+            return Collections.unmodifiableList(new ArrayList<>(failedDocs));
+        }
+
+        /**
+         * @return indexes of documents not indexed due to the store being unavailable or throttling past the retry time limit
+         */
+        public synchronized List<Integer> getPendingDocs() {
+            return Collections.unmodifiableList(new ArrayList<>(pendingDocs));
+        }
+
+        public synchronized String getLastError() {
+            return lastError;
+        }
+
+        synchronized void addIndexed(int count) {
+            indexedCount += count;
+        }
+
+        synchronized void addFailed(int docIndex, String error) {
+            failedDocs.add(docIndex);
+
+            lastError = error;
+        }
+
+        synchronized void addPending(List<Integer> docIndexes, String error) {
+            pendingDocs.addAll(docIndexes);
+
+            lastError = error;
+        }
+    }
+}
@@ -19,10 +19,14 @@
 
 package org.apache.ranger.audit.destination;
 
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -46,6 +50,8 @@ public AuditDestination() {
     @Override
     public void init(Properties prop, String basePropertyName) {
         super.init(prop, basePropertyName);
+
+        AuditPipelineMetrics.registerDestination(this);
     }
 
     @Override
@@ -72,4 +78,37 @@ public void waitToComplete(long timeout) {
     @Override
     public void flush() {
     }
+
+    /**
+     * Updates the counters of this destination with the result of indexing the given events, one document per event.
+     * Events rejected by the store are logged as failed, as these would be rejected again on retry.
+     *
+     * @return false if any of the events is not yet indexed, so that the caller can retry the batch later, for example from the file spool
+     */
+    protected boolean onBulkIndexResult(List<AuditEventBase> events, AuditBulkIndexer.BulkResult result) {
+        List<Integer> failedDocs   = result.getFailedDocs();
+        int           indexedCount = result.getIndexedCount();
+        int           pendingCount = events.size() - indexedCount - failedDocs.size();
+
+        addSuccessCount(indexedCount);
+
+        if (!failedDocs.isEmpty()) {
+            List<AuditEventBase> failedEvents = new ArrayList<>(failedDocs.size());
+
+            for (Integer docIndex : failedDocs) {
+                failedEvents.add(events.get(docIndex));
+            }
+
+            addFailedCount(failedEvents.size());
+            logFailedEvent(failedEvents, result.getLastError());
+        }
+
+        if (pendingCount > 0) {
+            addDeferredCount(pendingCount);
+
+            logError("{}: {} of {} audit events could not be indexed; last error: {}", getName(), pendingCount, events.size(), result.getLastError());
+        }
+
+        return pendingCount <= 0;
+    }
 }
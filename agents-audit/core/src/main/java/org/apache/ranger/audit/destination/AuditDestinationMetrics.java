@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency of the requests sent by an audit destination to its store. Instances are registered by
+ * destination name, so that these can be exported by the metrics system of the process - see RangerMetricsAuditSource.
+ */
+public class AuditDestinationMetrics {
+    private static final Map<String, AuditDestinationMetrics> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String        name;
+    private final LongAdder     requestCount       = new LongAdder();
+    private final LongAdder     failedRequestCount = new LongAdder();
+    private final LongAdder     throttledCount     = new LongAdder();
+    private final LongAdder     retryCount         = new LongAdder();
+    private final LongAdder     eventCount         = new LongAdder();
+    private final LongAdder     failedEventCount   = new LongAdder();
+    private final LongAdder     byteCount          = new LongAdder();
+    private final LongAdder     totalLatencyMs     = new LongAdder();
+    private final AtomicLong    maxLatencyMs       = new AtomicLong();
+    private final AtomicInteger inFlightRequests   = new AtomicInteger();
+
+    private AuditDestinationMetrics(String name) {
+        this.name = name;
+    }
+
+    public static AuditDestinationMetrics getInstance(String name) {
+        return INSTANCES.computeIfAbsent(name, AuditDestinationMetrics::new);
+    }
+
+    public static Collection<AuditDestinationMetrics> getAll() {
+        return new ArrayList<>(INSTANCES.values());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void requestStarted() {
+        inFlightRequests.incrementAndGet();
+    }
+
+    public void requestCompleted(long bytes, long latencyMs, boolean isSuccess, boolean isThrottled) {
+        inFlightRequests.decrementAndGet();
+        requestCount.increment();
+        byteCount.add(bytes);
+        totalLatencyMs.add(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+
+        if (!isSuccess) {
+            failedRequestCount.increment();
+        }
+
+        if (isThrottled) {
+            throttledCount.increment();
+        }
+    }
+
+    public void addEvents(int indexedCount, int failedCount) {
+        eventCount.add(indexedCount);
+        failedEventCount.add(failedCount);
+    }
+
+    public void addRetry() {
+        retryCount.increment();
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequestCount.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.sum();
+    }
+
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    public long getEventCount() {
+        return eventCount.sum();
+    }
+
+    public long getFailedEventCount() {
+        return failedEventCount.sum();
+    }
+
+    public long getByteCount() {
+        return byteCount.sum();
+    }
+
+    public long getTotalLatencyMs() {
+        return totalLatencyMs.sum();
+    }
+
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * @return the highest request latency since the previous call, so that each collection reports the max of its own interval
+     */
+    public long getAndResetMaxLatencyMs() {
+        return maxLatencyMs.getAndSet(0);
+    }
+}
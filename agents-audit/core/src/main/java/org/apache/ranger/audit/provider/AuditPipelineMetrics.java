@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.provider;
+
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Instrumentation of the audit pipeline of this process: latency of each stage an audit event goes through, and the
+ * queues and destinations whose depth, drops and errors are to be reported. These are exported by the metrics system
+ * of the process - see RangerMetricsAuditSource.
+ *
+ * Latencies are recorded in microseconds. Queues and destinations are held by weak references, so that handlers
+ * replaced on reconfiguration of the audit providers don't need to be unregistered.
+ */
+public final class AuditPipelineMetrics {
+    // time taken by the request thread to create and log an audit event
+    public static final String STAGE_HANDLER      = "Handler";
+    // age of events when dispatched by an async queue to its consumer
+    public static final String STAGE_ASYNC_QUEUE  = "AsyncQueue";
+    // age of events when dispatched by a batch queue to its destination
+    public static final String STAGE_BATCH_QUEUE  = "BatchQueue";
+    // time taken by a destination to log a batch of events
+    public static final String STAGE_DESTINATION  = "Destination";
+    // time taken to send a batch of events replayed from the file spool
+    public static final String STAGE_SPOOL_REPLAY = "SpoolReplay";
+    // age of events when logged successfully by a destination
+    public static final String STAGE_END_TO_END   = "EndToEnd";
+
+    private static final Map<String, LatencyHistogram> LATENCIES    = new LinkedHashMap<>();
+    private static final Set<AuditQueue>               QUEUES       = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final Set<AuditDestination>         DESTINATIONS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // handler latency is recorded by every request thread; other stages by a few queue/destination threads
+    private static final int HANDLER_STRIPE_COUNT = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+
+    static {
+        for (String stage : new String[] {STAGE_HANDLER, STAGE_ASYNC_QUEUE, STAGE_BATCH_QUEUE, STAGE_DESTINATION, STAGE_SPOOL_REPLAY, STAGE_END_TO_END}) {
+            LATENCIES.put(stage, STAGE_HANDLER.equals(stage) ? new LatencyHistogram(HANDLER_STRIPE_COUNT) : new LatencyHistogram());
+        }
+    }
+
+    private AuditPipelineMetrics() {
+        // to block instantiation
+    }
+
+    /**
+     * @param startTimeNanos value of System.nanoTime() when the stage started
+     */
+    public static void recordDuration(String stage, long startTimeNanos) {
+        LatencyHistogram histogram = LATENCIES.get(stage);
+
+        if (histogram != null) {
+            histogram.record((System.nanoTime() - startTimeNanos) / 1000);
+        }
+    }
+
+    /**
+     * Records, for each of the given events, the time since the event occurred.
+     */
+    public static void recordEventAges(String stage, Collection<? extends AuditEventBase> events) {
+        LatencyHistogram histogram = LATENCIES.get(stage);
+
+        if (histogram != null && events != null) {
+            long now = System.currentTimeMillis();
+
+            for (AuditEventBase event : events) {
+                Date eventTime = event.getEventTime();
+
+                if (eventTime != null) {
+                    histogram.record((now - eventTime.getTime()) * 1000);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return histograms of the stages, in the order the events go through them
+     */
+    public static Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(LATENCIES);
+    }
+
+    public static void registerQueue(AuditQueue queue) {
+        QUEUES.add(queue);
+    }
+
+    public static void registerDestination(AuditDestination destination) {
+        DESTINATIONS.add(destination);
+    }
+
+    public static List<AuditQueue> getQueues() {
+        synchronized (QUEUES) {
+            return new ArrayList<>(QUEUES);
+        }
+    }
+
+    public static List<AuditDestination> getDestinations() {
+        synchronized (DESTINATIONS) {
+            return new ArrayList<>(DESTINATIONS);
+        }
+    }
+}
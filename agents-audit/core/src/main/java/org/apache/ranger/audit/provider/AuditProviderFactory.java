@@ -20,6 +20,7 @@
 
 import org.apache.hadoop.util.ShutdownHookManager;
 import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.queue.AuditAggregationQueue;
 import org.apache.ranger.audit.queue.AuditAsyncQueue;
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditFileQueue;
@@ -228,7 +229,7 @@ public synchronized void init(Properties props, String appType) {
             AuditHandler consumer = providers.get(0);
 
             // Possible pipeline is:
-            // async_queue -> summary_queue -> multidestination -> batch_queue
+            // async_queue -> summary_queue -> aggregation_queue -> multidestination -> batch_queue
             // -> hdfs_destination
             // -> batch_queue -> solr_destination
             // -> batch_queue -> kafka_destination
@@ -249,8 +250,23 @@ public synchronized void init(Properties props, String appType) {
                 consumer = multiDestProvider;
             }
 
+            // Let's see if aggregation is enabled, then aggregate identical events before sending them downstream
+            String  propPrefix         = BaseAuditHandler.PROP_DEFAULT_PREFIX;
+            boolean aggregationEnabled = MiscUtil.getBooleanProperty(props, propPrefix + "." + AuditAggregationQueue.DEFAULT_NAME + "." + "enabled", false);
+
+            if (aggregationEnabled) {
+                LOG.info("AuditAggregationQueue is enabled");
+
+                AuditAggregationQueue aggregationQueue = new AuditAggregationQueue(consumer);
+
+                aggregationQueue.init(props, propPrefix + "." + AuditAggregationQueue.DEFAULT_NAME);
+
+                consumer = aggregationQueue;
+            } else {
+                LOG.info("AuditAggregationQueue is disabled");
+            }
+
             // Let's see if Summary is enabled, then summarize before sending it downstream
-            String  propPrefix     = BaseAuditHandler.PROP_DEFAULT_PREFIX;
             boolean summaryEnabled = MiscUtil.getBooleanProperty(props, propPrefix + "." + "summary" + "." + "enabled", false);
 
             if (summaryEnabled) {
@@ -445,6 +461,8 @@ private AuditHandler getProviderFromConfig(Properties props, String propPrefix,
                 provider = getAuditProvider(props, propPrefix, consumer);
             } else if (providerName.equalsIgnoreCase("async")) {
                 provider = new AuditAsyncQueue(consumer);
+            } else if (providerName.equalsIgnoreCase(AuditAggregationQueue.DEFAULT_NAME)) {
+                provider = new AuditAggregationQueue(consumer);
             } else {
                 LOG.error("Provider name doesn't have any class associated with it. providerName={}, propertyPrefix={}", providerName, propPrefix);
             }
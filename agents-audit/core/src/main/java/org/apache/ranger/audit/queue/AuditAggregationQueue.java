@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue that aggregates identical audit events before sending them to its consumer; see AuditEventAggregator. Unlike
+ * AuditSummaryQueue, which summarizes only the events received within a dispatch window, an aggregate is held for the
+ * configured interval from its first event - which can be set per repository type - and events of repository types
+ * not configured for aggregation are sent right away.
+ *
+ * The queue can be placed in front of all destinations (xasecure.audit.aggregation.enabled=true) or in front of a
+ * specific destination (xasecure.audit.destination.[name].queue=aggregation). Properties, relative to the queue's
+ * property prefix:
+ *   interval.ms             : aggregation interval, default 10000
+ *   interval.ms.[repoType]  : aggregation interval for the repository type; 0 to not aggregate its events
+ *   repo.types              : comma separated list of repository types to aggregate; default all
+ *   max.entries             : max number of aggregates to hold; all aggregates are sent when reached
+ *   sample.size             : max number of event ids of aggregated events to include in additional_info
+ */
+public class AuditAggregationQueue extends AuditQueue implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(AuditAggregationQueue.class);
+
+    public static final String PROP_AGGREGATION_INTERVAL    = "interval.ms";
+    public static final String PROP_AGGREGATION_REPO_TYPES  = "repo.types";
+    public static final String PROP_AGGREGATION_MAX_ENTRIES = "max.entries";
+    public static final String PROP_AGGREGATION_SAMPLE_SIZE = "sample.size";
+
+    public static final String DEFAULT_NAME = "aggregation";
+
+    private static final int  MAX_DRAIN                   = 10000;
+    private static final long MAX_FLUSH_CHECK_INTERVAL_MS = 1000;
+    private static final long DEFAULT_INTERVAL_MS         = 10000;
+    private static final int  DEFAULT_MAX_ENTRIES         = 100000;
+    private static final int  DEFAULT_SAMPLE_SIZE         = 5;
+
+    static int threadCount;
+
+    Thread                        consumerThread;
+    BlockingQueue<AuditEventBase> queue      = new LinkedBlockingQueue<>(AUDIT_MAX_QUEUE_SIZE_DEFAULT);
+    AuditEventAggregator          aggregator = new AuditEventAggregator(DEFAULT_INTERVAL_MS, null, DEFAULT_MAX_ENTRIES, DEFAULT_SAMPLE_SIZE);
+
+    private long flushCheckIntervalMs = MAX_FLUSH_CHECK_INTERVAL_MS;
+
+    public AuditAggregationQueue(AuditHandler consumer) {
+        super(consumer);
+
+        setName(DEFAULT_NAME);
+    }
+
+    @Override
+    public void init(Properties props, String propPrefix) {
+        super.init(props, propPrefix);
+
+        long               intervalMs         = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_AGGREGATION_INTERVAL, DEFAULT_INTERVAL_MS);
+        String             repoTypes          = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_AGGREGATION_REPO_TYPES);
+        int                maxEntries         = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_AGGREGATION_MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+        int                sampleSize         = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_AGGREGATION_SAMPLE_SIZE, DEFAULT_SAMPLE_SIZE);
+        Map<Integer, Long> repoTypeIntervalMs = new HashMap<>();
+        long               defaultIntervalMs  = intervalMs;
+
+        if (repoTypes != null && !repoTypes.trim().isEmpty()) {
+            for (String repoType : MiscUtil.toArray(repoTypes, ",")) {
+                try {
+                    repoTypeIntervalMs.put(Integer.parseInt(repoType.trim()), intervalMs);
+                } catch (NumberFormatException excp) {
+                    logger.warn("{}: invalid repository type {} in property {}.{}. Ignored", getName(), repoType, propPrefix, PROP_AGGREGATION_REPO_TYPES);
+                }
+            }
+
+            defaultIntervalMs = 0; // aggregate only the listed repository types
+        }
+
+        String repoTypeIntervalPrefix = propPrefix + "." + PROP_AGGREGATION_INTERVAL + ".";
+
+        for (String propName : props.stringPropertyNames()) {
+            if (propName.startsWith(repoTypeIntervalPrefix)) {
+                String repoType = propName.substring(repoTypeIntervalPrefix.length());
+
+                try {
+                    repoTypeIntervalMs.put(Integer.parseInt(repoType), MiscUtil.getLongProperty(props, propName, intervalMs));
+                } catch (NumberFormatException excp) {
+                    logger.warn("{}: invalid repository type {} in property {}. Ignored", getName(), repoType, propName);
+                }
+            }
+        }
+
+        for (long repoTypeInterval : repoTypeIntervalMs.values()) {
+            if (repoTypeInterval > 0) {
+                flushCheckIntervalMs = Math.min(flushCheckIntervalMs, repoTypeInterval);
+            }
+        }
+
+        if (defaultIntervalMs > 0) {
+            flushCheckIntervalMs = Math.min(flushCheckIntervalMs, defaultIntervalMs);
+        }
+
+        logger.info("{}: intervalMs={}, repoTypeIntervalMs={}, maxEntries={}, sampleSize={}", getName(), defaultIntervalMs, repoTypeIntervalMs, maxEntries, sampleSize);
+
+        aggregator = new AuditEventAggregator(defaultIntervalMs, repoTypeIntervalMs, maxEntries, sampleSize);
+        queue      = createQueue(() -> new LinkedBlockingQueue<>(getMaxQueueSize()));
+    }
+
+    @Override
+    public boolean log(AuditEventBase event) {
+        addTotalCount(1);
+
+        // Add to the queue and return ASAP
+        return enqueue(queue, event);
+    }
+
+    @Override
+    public boolean log(Collection<AuditEventBase> events) {
+        boolean ret = true;
+
+        for (AuditEventBase event : events) {
+            ret = log(event);
+
+            if (!ret) {
+                break;
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void logStatus() {
+        super.logStatus();
+
+        if (isStatusLogEnabled()) {
+            logger.info("AuditAggregationQueue.log(name={}): totalCount={}, currentQueueLength={}, aggregateCount={}", getName(), getTotalCount(), queue.size(), aggregator.size());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (consumer != null) {
+            consumer.start();
+        } else {
+            logger.error("consumer is not set. Nothing will be sent to any consumer. name={}", getName());
+        }
+
+        if (fileSpoolerEnabled && getOverflowPolicy() == OverflowPolicy.SPOOL) {
+            fileSpooler.start();
+        }
+
+        consumerThread = new Thread(this, this.getClass().getName() + (threadCount++));
+
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        logger.info("Stop called. name={}", getName());
+
+        setDrain(true);
+
+        try {
+            if (consumerThread != null) {
+                logger.info("Interrupting consumerThread. name={}, consumer={}", getName(), (consumer == null ? null : consumer.getName()));
+
+                consumerThread.interrupt();
+            }
+        } catch (Throwable t) {
+            // ignore any exception
+        }
+
+        consumerThread = null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            //This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+            MDC.clear();
+            runLogAudit();
+        } catch (Throwable t) {
+            logger.error("Exited thread abnormaly. queue={}", getName(), t);
+        }
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    public void runLogAudit() {
+        long nextFlushCheckTime = System.currentTimeMillis() + flushCheckIntervalMs;
+
+        while (true) {
+            List<AuditEventBase> eventList = new ArrayList<>();
+            List<AuditEventBase> sendList  = new ArrayList<>();
+
+            try {
+                long                 waitMs = nextFlushCheckTime - System.currentTimeMillis();
+                final AuditEventBase event;
+
+                if (!isDrain() && waitMs > 0) {
+                    event = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                } else {
+                    event = queue.poll();
+                }
+
+                if (event != null) {
+                    eventList.add(event);
+
+                    queue.drainTo(eventList, MAX_DRAIN - 1);
+                }
+            } catch (InterruptedException e) {
+                logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+            } catch (Throwable t) {
+                logger.error("Caught error during processing request.", t);
+            }
+
+            long now = System.currentTimeMillis();
+
+            for (AuditEventBase event : eventList) {
+                if (aggregator.isFull()) {
+                    logger.debug("{}: max number of aggregates reached. Sending {} aggregates", getName(), aggregator.size());
+
+                    aggregator.collectAll(sendList);
+                }
+
+                if (!aggregator.add(event, now)) {
+                    sendList.add(event);
+                }
+            }
+
+            if (isDrain()) {
+                aggregator.collectAll(sendList);
+            } else if (now >= nextFlushCheckTime) {
+                aggregator.collectExpired(now, sendList);
+
+                nextFlushCheckTime = now + flushCheckIntervalMs;
+            }
+
+            if (!sendList.isEmpty()) {
+                try {
+                    boolean ret = consumer.log(sendList);
+
+                    if (!ret) {
+                        // We need to drop these events
+                        logFailedEvent(sendList);
+                    }
+                } catch (Throwable t) {
+                    logger.error("Caught error while sending events to consumer. name={}", getName(), t);
+
+                    logFailedEvent(sendList, t);
+                }
+            }
+
+            logStatusIfRequired();
+
+            if (isDrain()) {
+                if (aggregator.isEmpty() && queue.isEmpty()) {
+                    break;
+                }
+
+                if (isDrainMaxTimeElapsed()) {
+                    logger.warn("Exiting polling loop because max time allowed reached. name={}, waited for {} ms", getName(), stopTime - System.currentTimeMillis());
+                }
+            }
+        }
+
+        logger.info("Exiting polling loop. name={}", getName());
+
+        try {
+            // Call stop on the consumer
+            logger.info("Calling to stop consumer. name={}, consumer.name={}", getName(), consumer.getName());
+
+            consumer.stop();
+
+            if (fileSpoolerEnabled && getOverflowPolicy() == OverflowPolicy.SPOOL) {
+                fileSpooler.stop();
+            }
+        } catch (Throwable t) {
+            logger.error("Error while calling stop on consumer.", t);
+        }
+
+        logger.info("Exiting consumerThread.run() method. name={}", getName());
+    }
+}
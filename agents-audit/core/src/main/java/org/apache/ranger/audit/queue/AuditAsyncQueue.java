@@ -21,16 +21,20 @@
 
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * This is a non-blocking queue. Events are dropped when maxQueueSize is reached, unless a different overflow policy
+ * is configured.
  */
 public class AuditAsyncQueue extends AuditQueue implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(AuditAsyncQueue.class);
@@ -39,8 +43,8 @@ public class AuditAsyncQueue extends AuditQueue implements Runnable {
     static final String DEFAULT_NAME = "async";
     static       int    threadCount;
 
-    LinkedBlockingQueue<AuditEventBase> queue          = new LinkedBlockingQueue<>();
-    Thread                              consumerThread;
+    BlockingQueue<AuditEventBase> queue = new LinkedBlockingQueue<>(AUDIT_MAX_QUEUE_SIZE_DEFAULT);
+    Thread                        consumerThread;
 
     public AuditAsyncQueue(AuditHandler consumer) {
         super(consumer);
@@ -62,15 +66,14 @@ public boolean log(AuditEventBase event) {
         addTotalCount(1);
 
         // Add to the queue and return ASAP
-        if (queue.size() >= getMaxQueueSize()) {
-            addFailedCount(1);
-
-            return false;
-        }
+        return enqueue(queue, event);
+    }
 
-        queue.add(event);
+    @Override
+    public void init(Properties props, String basePropertyName) {
+        super.init(props, basePropertyName);
 
-        return true;
+        queue = createQueue(() -> new LinkedBlockingQueue<>(getMaxQueueSize()));
     }
 
     @Override
@@ -110,6 +113,10 @@ public void start() {
             logger.error("consumer is not set. Nothing will be sent to any consumer. name={}", getName());
         }
 
+        if (fileSpoolerEnabled && getOverflowPolicy() == OverflowPolicy.SPOOL) {
+            fileSpooler.start();
+        }
+
         consumerThread = new Thread(this, this.getClass().getName() + (threadCount++));
 
         consumerThread.setDaemon(true);
@@ -156,6 +163,7 @@ public void run() {
         }
     }
 
+    @Override
     public int size() {
         return queue.size();
     }
@@ -180,7 +188,18 @@ public void runLogAudit() {
 
                     queue.drainTo(eventList, MAX_DRAIN - 1);
 
-                    consumer.log(eventList);
+                    AuditPipelineMetrics.recordEventAges(AuditPipelineMetrics.STAGE_ASYNC_QUEUE, eventList);
+
+                    long    logStartTime = System.nanoTime();
+                    boolean isLogged     = consumer.log(eventList);
+
+                    if (isConsumerDestination) {
+                        AuditPipelineMetrics.recordDuration(AuditPipelineMetrics.STAGE_DESTINATION, logStartTime);
+
+                        if (isLogged) {
+                            AuditPipelineMetrics.recordEventAges(AuditPipelineMetrics.STAGE_END_TO_END, eventList);
+                        }
+                    }
 
                     logStatusIfRequired();
                 }
@@ -209,6 +228,10 @@ public void runLogAudit() {
 
             // Call stop on the consumer
             consumer.stop();
+
+            if (fileSpoolerEnabled && getOverflowPolicy() == OverflowPolicy.SPOOL) {
+                fileSpooler.stop();
+            }
         } catch (Throwable t) {
             logger.error("Error while calling stop on consumer.", t);
         }
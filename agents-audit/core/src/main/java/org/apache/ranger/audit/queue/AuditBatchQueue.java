@@ -21,6 +21,7 @@
 
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -58,14 +59,8 @@ public AuditBatchQueue(AuditHandler consumer) {
      */
     @Override
     public boolean log(AuditEventBase event) {
-        try {
-            // Add to batchQueue. Block if full
-            queue.put(event);
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
-        }
-
-        return true;
+        // Add to batchQueue. Block if full, unless a different overflow policy is configured
+        return enqueue(queue, event);
     }
 
     @Override
@@ -96,9 +91,7 @@ public synchronized void start() {
             return;
         }
 
-        logger.info("Creating ArrayBlockingQueue with maxSize={}", getMaxQueueSize());
-
-        queue = new ArrayBlockingQueue<>(getMaxQueueSize());
+        queue = createQueue(() -> new ArrayBlockingQueue<>(getMaxQueueSize()));
 
         // Start the consumer first
         consumer.start();
@@ -151,6 +144,11 @@ public void init(Properties prop, String basePropertyName) {
         super.init(prop, propPrefix);
     }
 
+    @Override
+    protected OverflowPolicy getDefaultOverflowPolicy() {
+        return OverflowPolicy.BLOCK;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -239,6 +237,11 @@ public void run() {
         }
     }
 
+    @Override
+    public int size() {
+        return queue != null ? queue.size() : 0;
+    }
+
     public void runLogAudit() {
         long    lastDispatchTime = System.currentTimeMillis();
         boolean isDestActive     = true;
@@ -324,7 +327,12 @@ public void runLogAudit() {
                 // Reset time just before sending the logs
                 lastDispatchTime = System.currentTimeMillis();
 
-                boolean ret = consumer.log(localBatchBuffer);
+                AuditPipelineMetrics.recordEventAges(AuditPipelineMetrics.STAGE_BATCH_QUEUE, localBatchBuffer);
+
+                long    logStartTime = System.nanoTime();
+                boolean ret          = consumer.log(localBatchBuffer);
+
+                AuditPipelineMetrics.recordDuration(AuditPipelineMetrics.STAGE_DESTINATION, logStartTime);
 
                 if (!ret) {
                     if (fileSpoolerEnabled) {
@@ -338,13 +346,15 @@ public void runLogAudit() {
                         addStashedCount(localBatchBuffer.size());
                     } else {
                         // We need to drop this event
-                        addFailedCount(localBatchBuffer.size());
+                        addDroppedCount(localBatchBuffer.size());
                         logFailedEvent(localBatchBuffer);
                     }
                 } else {
                     isDestActive = true;
 
                     addSuccessCount(localBatchBuffer.size());
+
+                    AuditPipelineMetrics.recordEventAges(AuditPipelineMetrics.STAGE_END_TO_END, localBatchBuffer);
                 }
 
                 localBatchBuffer.clear();
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Aggregates identical AuthzAuditEvents - i.e. events that differ only in id, event time and sequence number - into
+ * a single event, whose event_count is the number of events aggregated and whose event_dur_ms is the time between
+ * the first and the last event. A sample of ids of the aggregated events is added to additional_info as
+ * "sampled_event_ids".
+ *
+ * Aggregates are looked up by a 64-bit hash of the event's key fields; as events with the same hash are compared
+ * field by field, a hash collision never merges different events and the counts stay exact.
+ *
+ * Aggregation can be limited to specific repository types, and the interval for which events are aggregated can be
+ * configured per repository type. Not thread-safe: to be used from the consumer thread of AuditAggregationQueue.
+ */
+public class AuditEventAggregator {
+    private static final Logger LOG = LoggerFactory.getLogger(AuditEventAggregator.class);
+
+    public static final String ADDITIONAL_INFO_SAMPLED_EVENT_IDS = "sampled_event_ids";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME        = 0x100000001b3L;
+
+    private final long                 defaultIntervalMs;
+    private final Map<Integer, Long>   repoTypeIntervalMs;
+    private final int                  maxEntries;
+    private final int                  maxSampleSize;
+    private final Map<Long, Aggregate> aggregates = new HashMap<>();
+    private       int                  size;
+
+    /**
+     * @param defaultIntervalMs  aggregation interval for repository types not in repoTypeIntervalMs; 0 to not aggregate events of such types
+     * @param repoTypeIntervalMs aggregation interval per repository type; 0 to not aggregate events of the type
+     * @param maxEntries         max number of aggregates to hold
+     * @param maxSampleSize      max number of event ids to sample per aggregate
+     */
+    public AuditEventAggregator(long defaultIntervalMs, Map<Integer, Long> repoTypeIntervalMs, int maxEntries, int maxSampleSize) {
+        this.defaultIntervalMs  = defaultIntervalMs;
+        this.repoTypeIntervalMs = repoTypeIntervalMs != null ? repoTypeIntervalMs : Collections.emptyMap();
+        this.maxEntries         = maxEntries;
+        this.maxSampleSize      = maxSampleSize;
+    }
+
+    public long getIntervalMs(int repoType) {
+        Long ret = repoTypeIntervalMs.get(repoType);
+
+        return ret != null ? ret : defaultIntervalMs;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size >= maxEntries;
+    }
+
+    /**
+     * @return false if the event is not eligible for aggregation, in which case the caller should send it as is
+     */
+    public boolean add(AuditEventBase event, long now) {
+        if (!(event instanceof AuthzAuditEvent) || event.getEventTime() == null) {
+            return false;
+        }
+
+        AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+        long            intervalMs = getIntervalMs(authzEvent.getRepositoryType());
+
+        if (intervalMs <= 0) {
+            return false;
+        }
+
+        long      hash  = hash(authzEvent);
+        Aggregate first = aggregates.get(hash);
+
+        for (Aggregate aggregate = first; aggregate != null; aggregate = aggregate.next) {
+            if (isSameKey(aggregate.event, authzEvent)) {
+                aggregate.add(authzEvent, maxSampleSize);
+
+                return true;
+            }
+        }
+
+        Aggregate aggregate = new Aggregate(authzEvent, now + intervalMs);
+
+        aggregate.next = first;
+
+        aggregates.put(hash, aggregate);
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Removes aggregates whose interval has elapsed, and adds the resulting events to the given collection
+     */
+    public void collectExpired(long now, Collection<AuditEventBase> out) {
+        for (Iterator<Map.Entry<Long, Aggregate>> iter = aggregates.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<Long, Aggregate> entry = iter.next();
+            Aggregate                  head  = null;
+
+            for (Aggregate aggregate = entry.getValue(); aggregate != null; ) {
+                Aggregate next = aggregate.next;
+
+                if (aggregate.flushTime <= now) {
+                    out.add(aggregate.toEvent());
+
+                    size--;
+                } else {
+                    aggregate.next = head;
+                    head           = aggregate;
+                }
+
+                aggregate = next;
+            }
+
+            if (head == null) {
+                iter.remove();
+            } else {
+                entry.setValue(head);
+            }
+        }
+    }
+
+    /**
+     * Removes all aggregates, and adds the resulting events to the given collection
+     */
+    public void collectAll(Collection<AuditEventBase> out) {
+        for (Aggregate first : aggregates.values()) {
+            for (Aggregate aggregate = first; aggregate != null; aggregate = aggregate.next) {
+                out.add(aggregate.toEvent());
+            }
+        }
+
+        aggregates.clear();
+
+        size = 0;
+    }
+
+    static long hash(AuthzAuditEvent event) {
+        long ret = FNV_OFFSET_BASIS;
+
+        ret = (ret ^ event.getRepositoryType()) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getRepositoryName())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getUser())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getAccessType())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getResourcePath())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getResourceType())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getAction())) * FNV_PRIME;
+        ret = (ret ^ event.getAccessResult()) * FNV_PRIME;
+        ret = (ret ^ event.getPolicyId()) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getPolicyVersion())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getSessionId())) * FNV_PRIME;
+        ret = (ret ^ Objects.hashCode(event.getClientIP())) * FNV_PRIME;
+
+        return ret;
+    }
+
+    // fields other than id, event time, sequence number, count and duration must match for events to be aggregated
+    static boolean isSameKey(AuthzAuditEvent e1, AuthzAuditEvent e2) {
+        return e1.getRepositoryType() == e2.getRepositoryType() &&
+                e1.getAccessResult() == e2.getAccessResult() &&
+                e1.getPolicyId() == e2.getPolicyId() &&
+                Objects.equals(e1.getResourcePath(), e2.getResourcePath()) &&
+                Objects.equals(e1.getUser(), e2.getUser()) &&
+                Objects.equals(e1.getAccessType(), e2.getAccessType()) &&
+                Objects.equals(e1.getAction(), e2.getAction()) &&
+                Objects.equals(e1.getRepositoryName(), e2.getRepositoryName()) &&
+                Objects.equals(e1.getResourceType(), e2.getResourceType()) &&
+                Objects.equals(e1.getPolicyVersion(), e2.getPolicyVersion()) &&
+                Objects.equals(e1.getSessionId(), e2.getSessionId()) &&
+                Objects.equals(e1.getClientIP(), e2.getClientIP()) &&
+                Objects.equals(e1.getClientType(), e2.getClientType()) &&
+                Objects.equals(e1.getResultReason(), e2.getResultReason()) &&
+                Objects.equals(e1.getAclEnforcer(), e2.getAclEnforcer()) &&
+                Objects.equals(e1.getAgentId(), e2.getAgentId()) &&
+                Objects.equals(e1.getAgentHostname(), e2.getAgentHostname()) &&
+                Objects.equals(e1.getLogType(), e2.getLogType()) &&
+                Objects.equals(e1.getRequestData(), e2.getRequestData()) &&
+                Objects.equals(e1.getClusterName(), e2.getClusterName()) &&
+                Objects.equals(e1.getZoneName(), e2.getZoneName()) &&
+                Objects.equals(e1.getAdditionalInfo(), e2.getAdditionalInfo()) &&
+                Objects.equals(e1.getTags(), e2.getTags()) &&
+                Objects.equals(e1.getDatasets(), e2.getDatasets()) &&
+                Objects.equals(e1.getProjects(), e2.getProjects()) &&
+                Objects.equals(e1.getDatasetIds(), e2.getDatasetIds());
+    }
+
+    static class Aggregate {
+        final AuthzAuditEvent event;
+        final long            flushTime;
+        long                  count;
+        long                  firstEventTime;
+        long                  lastEventTime;
+        boolean               isAggregated;
+        List<String>          sampledEventIds;
+        Aggregate             next;
+
+        Aggregate(AuthzAuditEvent event, long flushTime) {
+            this.event          = event;
+            this.flushTime      = flushTime;
+            this.count          = Math.max(event.getEventCount(), 1);
+            this.firstEventTime = event.getEventTime().getTime();
+            this.lastEventTime  = firstEventTime + Math.max(event.getEventDurationMS(), 0);
+        }
+
+        void add(AuthzAuditEvent other, int maxSampleSize) {
+            long otherCount     = Math.max(other.getEventCount(), 1);
+            long otherFirstTime = other.getEventTime().getTime();
+            long otherLastTime  = otherFirstTime + Math.max(other.getEventDurationMS(), 0);
+
+            count          += otherCount;
+            firstEventTime = Math.min(firstEventTime, otherFirstTime);
+            lastEventTime  = Math.max(lastEventTime, otherLastTime);
+            isAggregated   = true;
+
+            if (maxSampleSize > 0 && other.getEventId() != null) {
+                if (sampledEventIds == null) {
+                    sampledEventIds = new ArrayList<>(maxSampleSize);
+                }
+
+                if (sampledEventIds.size() < maxSampleSize) {
+                    sampledEventIds.add(other.getEventId());
+                } else { // reservoir sampling, for the sample to represent the whole interval
+                    long idx = ThreadLocalRandom.current().nextLong(count - 1);
+
+                    if (idx < maxSampleSize) {
+                        sampledEventIds.set((int) idx, other.getEventId());
+                    }
+                }
+            }
+        }
+
+        AuthzAuditEvent toEvent() {
+            if (isAggregated) {
+                event.setEventCount(count);
+                event.setEventDurationMS(Math.max(lastEventTime - firstEventTime, 1));
+                event.setEventTime(new Date(firstEventTime));
+
+                if (sampledEventIds != null) {
+                    event.setAdditionalInfo(addSampledEventIds(event.getAdditionalInfo(), sampledEventIds));
+                }
+            }
+
+            return event;
+        }
+
+        private static String addSampledEventIds(String additionalInfo, List<String> sampledEventIds) {
+            String ret = additionalInfo;
+
+            try {
+                Map<String, Object> info = new LinkedHashMap<>();
+
+                if (additionalInfo != null && !additionalInfo.isEmpty()) {
+                    info.putAll(MiscUtil.getMapper().readValue(additionalInfo, new TypeReference<Map<String, Object>>() {}));
+                }
+
+                info.put(ADDITIONAL_INFO_SAMPLED_EVENT_IDS, sampledEventIds);
+
+                ret = MiscUtil.getMapper().writeValueAsString(info);
+            } catch (Exception excp) {
+                LOG.debug("failed to add sampled event ids to additionalInfo={}", additionalInfo, excp);
+            }
+
+            return ret;
+        }
+    }
+}
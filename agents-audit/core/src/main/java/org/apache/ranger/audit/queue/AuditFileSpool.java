@@ -23,6 +23,7 @@
 import org.apache.ranger.audit.model.AuditIndexRecord;
 import org.apache.ranger.audit.model.SPOOL_FILE_STATUS;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +61,12 @@ public class AuditFileSpool implements Runnable {
     public static final String PROP_FILE_SPOOL_FILE_ROLLOVER           = "filespool.file.rollover.sec";
     public static final String PROP_FILE_SPOOL_INDEX_FILE              = "filespool.index.filename";
     public static final String PROP_FILE_SPOOL_DEST_RETRY_MS           = "filespool.destination.retry.ms";
+    public static final String PROP_FILE_SPOOL_FORMAT                  = "filespool.format";
+    public static final String PROP_FILE_SPOOL_BINARY_COMPRESS         = "filespool.binary.compress";
+    public static final String PROP_FILE_SPOOL_BINARY_FRAME_SIZE       = "filespool.binary.frame.size";
+    public static final String PROP_FILE_SPOOL_BINARY_SYNC_INTERVAL_MS = "filespool.binary.sync.interval.ms";
+    public static final String FILE_SPOOL_FORMAT_TEXT                  = "text";
+    public static final String FILE_SPOOL_FORMAT_BINARY                = "binary";
     public static final String CONSUMER                                = ", consumer=";
 
     AuditQueue                      queueProvider;
@@ -79,6 +86,12 @@ public class AuditFileSpool implements Runnable {
     int    fileRolloverSec    = 24 * 60 * 60; // In seconds
     int    maxArchiveFiles    = 100;
 
+    // binary format: length-prefixed, optionally compressed frames with CRC; see AuditSpoolBinaryFile
+    boolean isBinaryFormat;
+    boolean isBinaryCompressEnabled = true;
+    int     binaryFrameSize         = 64 * 1024;
+    long    binarySyncIntervalMs    = 1000;
+
     int  errorLogIntervalMS = 30 * 1000; // Every 30 seconds
     long lastErrorLogMS;
 
@@ -88,9 +101,10 @@ public class AuditFileSpool implements Runnable {
     long    lastAttemptTime;
     boolean initDone;
 
-    PrintWriter      logWriter;
-    AuditIndexRecord currentWriterIndexRecord;
-    AuditIndexRecord currentConsumerIndexRecord;
+    PrintWriter                 logWriter;
+    AuditSpoolBinaryFile.Writer binaryLogWriter;
+    AuditIndexRecord            currentWriterIndexRecord;
+    AuditIndexRecord            currentConsumerIndexRecord;
 
     BufferedReader logReader;
 
@@ -133,9 +147,15 @@ public boolean init(Properties props, String basePropertyName) {
             fileRolloverSec    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILE_ROLLOVER, fileRolloverSec);
             maxArchiveFiles    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, maxArchiveFiles);
 
+            isBinaryFormat          = FILE_SPOOL_FORMAT_BINARY.equalsIgnoreCase(MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FORMAT, FILE_SPOOL_FORMAT_TEXT));
+            isBinaryCompressEnabled = MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_FILE_SPOOL_BINARY_COMPRESS, isBinaryCompressEnabled);
+            binaryFrameSize         = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_BINARY_FRAME_SIZE, binaryFrameSize);
+            binarySyncIntervalMs    = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_FILE_SPOOL_BINARY_SYNC_INTERVAL_MS, binarySyncIntervalMs);
+
             logger.info("retryDestinationMS={}, queueName={}", retryDestinationMS, queueProvider.getName());
             logger.info("fileRolloverSec={}, queueName={}", fileRolloverSec, queueProvider.getName());
             logger.info("maxArchiveFiles={}, queueName={}", maxArchiveFiles, queueProvider.getName());
+            logger.info("isBinaryFormat={}, isBinaryCompressEnabled={}, binaryFrameSize={}, binarySyncIntervalMs={}, queueName={}", isBinaryFormat, isBinaryCompressEnabled, binaryFrameSize, binarySyncIntervalMs, queueProvider.getName());
 
             if (logFolderProp == null || logFolderProp.isEmpty()) {
                 logger.error("Audit spool folder is not configured. Please set {}.{}.queueName={}", propPrefix, PROP_FILE_SPOOL_LOCAL_DIR, queueProvider.getName());
@@ -298,9 +318,7 @@ public void stop() {
 
         flush();
 
-        PrintWriter out = getOpenLogFileStream();
-
-        if (out != null) {
+        if (isLogFileOpen()) {
             // If write is still going on, then let's give it enough time to complete
             for (int i = 0; i < 3; i++) {
                 if (isWriting) {
@@ -315,8 +333,7 @@ public void stop() {
                 try {
                     logger.info("Closing open file, queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
 
-                    out.flush();
-                    out.close();
+                    closeLogFile();
 
                     break;
                 } catch (Throwable t) {
@@ -342,10 +359,10 @@ public void flush() {
             return;
         }
 
-        PrintWriter out = getOpenLogFileStream();
-
-        if (out != null) {
-            out.flush();
+        try {
+            flushLogFile();
+        } catch (IOException excp) {
+            logger.error("Error flushing spool file. queueName={}", queueProvider.getName(), excp);
         }
     }
 
@@ -378,6 +395,27 @@ public long getLastAttemptTimeDelta() {
         return System.currentTimeMillis() - lastAttemptTime;
     }
 
+    /**
+     * @return number of spool files not yet sent to the consumer, including the file being written
+     */
+    public synchronized int getPendingFileCount() {
+        return indexRecords.size();
+    }
+
+    /**
+     * @return size of the spool files not yet sent to the consumer. This includes the part already sent of the file
+     * being replayed, since progress within a file is tracked by line or frame rather than by bytes.
+     */
+    public synchronized long getBacklogBytes() {
+        long ret = 0;
+
+        for (AuditIndexRecord indexRecord : indexRecords) {
+            ret += new File(indexRecord.getFilePath()).length();
+        }
+
+        return ret;
+    }
+
     public synchronized void stashLogs(AuditEventBase event) {
         if (isDrain) {
             // Stop has been called, so this method shouldn't be called
@@ -389,10 +427,9 @@ public synchronized void stashLogs(AuditEventBase event) {
         try {
             isWriting = true;
 
-            PrintWriter logOut  = getLogFileStream();
-            String      jsonStr = MiscUtil.stringify(event); // Convert event to json
+            String jsonStr = MiscUtil.stringify(event); // Convert event to json
 
-            logOut.println(jsonStr);
+            writeLogRecord(jsonStr);
 
             isPending = true;
         } catch (Exception ex) {
@@ -420,9 +457,7 @@ public synchronized void stashLogsString(String event) {
         try {
             isWriting = true;
 
-            PrintWriter logOut = getLogFileStream();
-
-            logOut.println(event);
+            writeLogRecord(event);
         } catch (Exception ex) {
             logger.error("Error writing to file. event={}", event, ex);
         } finally {
@@ -490,6 +525,8 @@ public void runLogAudit() {
                     printIndex();
 
                     isRemoveIndex = true;
+                } else if (AuditSpoolBinaryFile.isBinaryFile(consumerFile)) {
+                    isRemoveIndex = replayBinaryFile(currentConsumerIndexRecord);
                 } else {
                     // Let's open the file to write
                     try (BufferedReader br = new BufferedReader(new FileReader(currentConsumerIndexRecord.getFilePath()))) {
@@ -536,18 +573,7 @@ public void runLogAudit() {
 
                         isRemoveIndex = true;
                     } catch (Exception ex) {
-                        isDestDown = true;
-
-                        logError("Destination down. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
-
-                        lastAttemptTime = System.currentTimeMillis();
-
-                        // Update the index file
-                        currentConsumerIndexRecord.setLastFailedTime(new Date());
-                        currentConsumerIndexRecord.setFailedAttemptCount(currentConsumerIndexRecord.getFailedAttemptCount() + 1);
-                        currentConsumerIndexRecord.setLastAttempt(false);
-
-                        saveIndexFile();
+                        onReplayFailure(currentConsumerIndexRecord);
                     }
                 }
 
@@ -571,6 +597,84 @@ public void runLogAudit() {
         logger.info("Exiting file spooler. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
     }
 
+    /**
+     * Sends events in the given binary spool file to the consumer, starting from the position saved in the file's
+     * checkpoint. Progress is saved in the checkpoint after each batch, without rewriting the index file.
+     *
+     * @return true if all events in the file were sent
+     */
+    boolean replayBinaryFile(AuditIndexRecord indexRecord) throws IOException {
+        boolean ret = false;
+
+        try (AuditSpoolBinaryFile.Reader reader = new AuditSpoolBinaryFile.Reader(new File(indexRecord.getFilePath()));
+                AuditSpoolBinaryFile.Checkpoint checkpoint = new AuditSpoolBinaryFile.Checkpoint(getCheckpointFile(indexRecord))) {
+            List<String>               lines     = new ArrayList<>();
+            AuditSpoolBinaryFile.Frame lastFrame = null;
+            int                        skipCount = checkpoint.getRecordIndex();
+
+            for (AuditSpoolBinaryFile.Frame frame = reader.readFrame(checkpoint.getFrameOffset()); frame != null; frame = reader.readFrame(frame.getNextOffset())) {
+                List<String> records = frame.getRecords();
+
+                for (int i = skipCount; i < records.size(); i++) {
+                    lines.add(records.get(i));
+
+                    if (lines.size() == queueProvider.getMaxBatchSize()) {
+                        if (!sendEvent(lines, indexRecord, checkpoint, frame.getOffset(), i + 1)) {
+                            throw new Exception("Destination down");
+                        }
+
+                        lines.clear();
+                    }
+                }
+
+                skipCount = 0;
+                lastFrame = frame;
+            }
+
+            if (!lines.isEmpty()) {
+                if (!sendEvent(lines, indexRecord, checkpoint, lastFrame.getNextOffset(), 0)) {
+                    throw new Exception("Destination down");
+                }
+
+                lines.clear();
+            }
+
+            logger.info("Done reading file. file={}, queueName={}, consumer={}", indexRecord.getFilePath(), queueProvider.getName(), consumerProvider.getName());
+
+            // The entire file is read
+            indexRecord.setStatus(SPOOL_FILE_STATUS.done);
+            indexRecord.setDoneCompleteTime(new Date());
+            indexRecord.setLastAttempt(true);
+
+            checkpoint.delete();
+
+            ret = true;
+        } catch (Exception ex) {
+            onReplayFailure(indexRecord);
+        }
+
+        return ret;
+    }
+
+    void onReplayFailure(AuditIndexRecord indexRecord) throws IOException {
+        isDestDown = true;
+
+        logError("Destination down. queueName={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+
+        lastAttemptTime = System.currentTimeMillis();
+
+        // Update the index file
+        indexRecord.setLastFailedTime(new Date());
+        indexRecord.setFailedAttemptCount(indexRecord.getFailedAttemptCount() + 1);
+        indexRecord.setLastAttempt(false);
+
+        saveIndexFile();
+    }
+
+    File getCheckpointFile(AuditIndexRecord indexRecord) {
+        return new File(indexRecord.getFilePath() + ".checkpoint");
+    }
+
     /**
      * Load the index file
      *
@@ -724,23 +828,72 @@ void logError(String msg, Object... arguments) {
         }
     }
 
-    /**
-     * This return the current file. If there are not current open output file,
-     * then it will return null
-     *
-     * @return
-     */
-    private synchronized PrintWriter getOpenLogFileStream() {
-        return logWriter;
+    private synchronized boolean isLogFileOpen() {
+        return logWriter != null || binaryLogWriter != null;
     }
 
-    /**
-     * @return
-     * @throws Exception
-     */
-    private synchronized PrintWriter getLogFileStream() throws Exception {
+    private synchronized void writeLogRecord(String record) throws Exception {
+        openLogFileIfNeeded();
+
+        if (binaryLogWriter != null) {
+            binaryLogWriter.write(record);
+        } else {
+            logWriter.println(record);
+        }
+    }
+
+    private synchronized void flushLogFile() throws IOException {
+        if (binaryLogWriter != null) {
+            binaryLogWriter.flush();
+        } else if (logWriter != null) {
+            logWriter.flush();
+        }
+    }
+
+    private synchronized void closeLogFile() throws IOException {
+        if (binaryLogWriter != null) {
+            binaryLogWriter.close();
+
+            binaryLogWriter = null;
+        }
+
+        if (logWriter != null) {
+            logWriter.flush();
+            logWriter.close();
+
+            logWriter = null;
+        }
+    }
+
+    private synchronized void openLogFile(File file, boolean append) throws IOException {
+        if (isBinaryFormat) {
+            binaryLogWriter = new AuditSpoolBinaryFile.Writer(file, isBinaryCompressEnabled, binaryFrameSize, binarySyncIntervalMs);
+        } else {
+            logWriter = new PrintWriter(new BufferedWriter(new FileWriter(file, append)));
+        }
+    }
+
+    private synchronized void openLogFileIfNeeded() throws Exception {
         closeFileIfNeeded();
 
+        // a file written in a different format, before the format was changed, can't be appended to; roll it over
+        if (currentWriterIndexRecord != null && !isLogFileOpen()) {
+            File currentFile = new File(currentWriterIndexRecord.getFilePath());
+
+            if (currentFile.length() > 0 && isBinaryFormat != AuditSpoolBinaryFile.isBinaryFile(currentFile)) {
+                logger.info("Closing file written in a different format. queueName={}, fileName={}, isBinaryFormat={}", queueProvider.getName(), currentFile, isBinaryFormat);
+
+                currentWriterIndexRecord.setStatus(SPOOL_FILE_STATUS.pending);
+                currentWriterIndexRecord.setWriteCompleteTime(new Date());
+
+                saveIndexFile();
+
+                indexQueue.add(currentWriterIndexRecord);
+
+                currentWriterIndexRecord = null;
+            }
+        }
+
         // Either there are no open log file or the previous one has been rolled
         // over
         if (currentWriterIndexRecord == null) {
@@ -774,7 +927,7 @@ private synchronized PrintWriter getLogFileStream() throws Exception {
             logger.info("Creating new file. queueName={}, filename={}", queueProvider.getName(), fileName);
 
             // Open the file
-            logWriter = new PrintWriter(new BufferedWriter(new FileWriter(outLogFile)));
+            openLogFile(outLogFile, false);
 
             AuditIndexRecord tmpIndexRecord = new AuditIndexRecord();
 
@@ -790,15 +943,14 @@ private synchronized PrintWriter getLogFileStream() throws Exception {
 
             saveIndexFile();
         } else {
-            if (logWriter == null) {
+            if (!isLogFileOpen()) {
                 // This means the process just started. We need to open the file
                 // in append mode.
                 logger.info("Opening existing file for append. queueName={}, filename={}", queueProvider.getName(), currentWriterIndexRecord.getFilePath());
-                logWriter = new PrintWriter(new BufferedWriter(new FileWriter(currentWriterIndexRecord.getFilePath(), true)));
+
+                openLogFile(new File(currentWriterIndexRecord.getFilePath()), true);
             }
         }
-
-        return logWriter;
     }
 
     private synchronized void closeFileIfNeeded() throws IOException {
@@ -819,12 +971,7 @@ private synchronized void closeFileIfNeeded() throws IOException {
 
             if (closeFile) {
                 // Roll the file
-                if (logWriter != null) {
-                    logWriter.flush();
-                    logWriter.close();
-
-                    logWriter = null;
-                }
+                closeLogFile();
 
                 currentWriterIndexRecord.setStatus(SPOOL_FILE_STATUS.pending);
                 currentWriterIndexRecord.setWriteCompleteTime(new Date());
@@ -840,12 +987,57 @@ private synchronized void closeFileIfNeeded() throws IOException {
         }
     }
 
+    private boolean sendEvent(List<String> lines, AuditIndexRecord indexRecord, AuditSpoolBinaryFile.Checkpoint checkpoint, long frameOffset, int recordIndex) {
+        boolean ret = true;
+
+        try {
+            long startTime = System.nanoTime();
+
+            ret = consumerProvider.logJSON(lines);
+
+            AuditPipelineMetrics.recordDuration(AuditPipelineMetrics.STAGE_SPOOL_REPLAY, startTime);
+
+            if (!ret) {
+                // Need to log error after fixed interval
+                logError("Error sending logs to consumer. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
+            } else {
+                checkpoint.save(frameOffset, recordIndex);
+
+                indexRecord.setLastSuccessTime(new Date());
+                indexRecord.setLastAttempt(true);
+
+                // the index is saved only when the status changes; the read position is tracked by the checkpoint
+                if (!SPOOL_FILE_STATUS.read_inprogress.equals(indexRecord.getStatus())) {
+                    indexRecord.setStatus(SPOOL_FILE_STATUS.read_inprogress);
+
+                    saveIndexFile();
+                }
+
+                if (isDestDown) {
+                    isDestDown = false;
+
+                    logger.info("Destination up now. {}, queueName={}, consumer={}", indexRecord.getFilePath(), queueProvider.getName(), consumerProvider.getName());
+                }
+            }
+        } catch (Exception t) {
+            logger.error("Error while sending logs to consumer. provider={}, consumer={}, logEventCount={}", queueProvider.getName(), consumerProvider.getName(), lines.size(), t);
+
+            ret = false;
+        }
+
+        return ret;
+    }
+
     private boolean sendEvent(List<String> lines, AuditIndexRecord indexRecord, int currLine) {
         boolean ret = true;
 
         try {
+            long startTime = System.nanoTime();
+
             ret = consumerProvider.logJSON(lines);
 
+            AuditPipelineMetrics.recordDuration(AuditPipelineMetrics.STAGE_SPOOL_REPLAY, startTime);
+
             if (!ret) {
                 // Need to log error after fixed interval
                 logError("Error sending logs to consumer. provider={}, consumer={}", queueProvider.getName(), consumerProvider.getName());
@@ -20,13 +20,18 @@
 package org.apache.ranger.audit.queue;
 
 import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public abstract class AuditQueue extends BaseAuditHandler {
     private static final Logger LOG = LoggerFactory.getLogger(AuditQueue.class);
@@ -42,6 +47,11 @@ public abstract class AuditQueue extends BaseAuditHandler {
     public static final String PROP_FILE_SPOOL_ENABLE              = "filespool.enable";
     public static final String PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN = "filespool.drain.full.wait.ms";
     public static final String PROP_FILE_SPOOL_QUEUE_THRESHOLD     = "filespool.drain.threshold.percent";
+    public static final String PROP_QUEUE_TYPE                     = "queue.type";
+    public static final String PROP_QUEUE_WAIT_STRATEGY            = "queue.wait.strategy";
+    public static final String PROP_QUEUE_OVERFLOW_POLICY          = "queue.overflow.policy";
+    public static final String QUEUE_TYPE_DEFAULT                  = "default";
+    public static final String QUEUE_TYPE_RING_BUFFER              = "ringbuffer";
 
     protected final AuditHandler   consumer;
     protected       AuditFileSpool fileSpooler;
@@ -54,16 +64,42 @@ public abstract class AuditQueue extends BaseAuditHandler {
 
     boolean isConsumerDestination;
 
-    private int     maxQueueSize     = AUDIT_MAX_QUEUE_SIZE_DEFAULT;
-    private int     maxBatchInterval = AUDIT_BATCH_INTERVAL_DEFAULT_MS;
-    private int     maxBatchSize     = AUDIT_BATCH_SIZE_DEFAULT;
-    private boolean isDrain;
+    private int                          maxQueueSize     = AUDIT_MAX_QUEUE_SIZE_DEFAULT;
+    private int                          maxBatchInterval = AUDIT_BATCH_INTERVAL_DEFAULT_MS;
+    private int                          maxBatchSize     = AUDIT_BATCH_SIZE_DEFAULT;
+    private boolean                      isDrain;
+    private String                       queueType        = QUEUE_TYPE_DEFAULT;
+    private AuditRingBuffer.WaitStrategy waitStrategy     = AuditRingBuffer.WaitStrategy.BLOCKING;
+    private OverflowPolicy               overflowPolicy;
+
+    private final AtomicLong totalDroppedCount = new AtomicLong();
+
+    /**
+     * What log() does when the queue is full
+     */
+    public enum OverflowPolicy {
+        BLOCK,       // wait for space in the queue
+        DROP,        // drop the new event
+        DROP_OLDEST, // drop the oldest event in the queue, to make space for the new event
+        SPOOL;       // write the new event to the file spool; drop if file spool is not enabled
+
+        public static OverflowPolicy fromString(String value, OverflowPolicy defaultValue) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+
+            return defaultValue;
+        }
+    }
 
     /**
      * @param consumer
      */
     public AuditQueue(AuditHandler consumer) {
-        this.consumer = consumer;
+        this.consumer       = consumer;
+        this.overflowPolicy = getDefaultOverflowPolicy();
 
         if (consumer instanceof BaseAuditHandler) {
             ((BaseAuditHandler) consumer).setParentPath(getName());
@@ -85,6 +121,12 @@ public void init(Properties props, String basePropertyName) {
         setMaxQueueSize(MiscUtil.getIntProperty(props, propPrefix + "." + PROP_QUEUE_SIZE, getMaxQueueSize()));
         setMaxBatchInterval(MiscUtil.getIntProperty(props, propPrefix + "." + PROP_BATCH_INTERVAL, getMaxBatchInterval()));
 
+        queueType      = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_QUEUE_TYPE, queueType);
+        waitStrategy   = AuditRingBuffer.WaitStrategy.fromString(MiscUtil.getStringProperty(props, propPrefix + "." + PROP_QUEUE_WAIT_STRATEGY), waitStrategy);
+        overflowPolicy = OverflowPolicy.fromString(MiscUtil.getStringProperty(props, propPrefix + "." + PROP_QUEUE_OVERFLOW_POLICY), overflowPolicy);
+
+        LOG.info("{}: queueType={}, waitStrategy={}, overflowPolicy={}", getName(), queueType, waitStrategy, overflowPolicy);
+
         fileSpoolerEnabled = MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_FILE_SPOOL_ENABLE, false);
 
         String logFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR);
@@ -105,6 +147,8 @@ public void init(Properties props, String basePropertyName) {
         } else {
             LOG.info("File spool is disabled for {}", getName());
         }
+
+        AuditPipelineMetrics.registerQueue(this);
     }
 
     @Override
@@ -142,6 +186,30 @@ public AuditHandler getConsumer() {
         return consumer;
     }
 
+    /**
+     * @return number of events waiting in the queue; 0 if not tracked by the queue
+     */
+    public int size() {
+        return 0;
+    }
+
+    public AuditFileSpool getFileSpooler() {
+        return fileSpoolerEnabled ? fileSpooler : null;
+    }
+
+    /**
+     * @return number of events dropped by this queue, due to the queue being full or the consumer failing without a file spool
+     */
+    public long getTotalDroppedCount() {
+        return totalDroppedCount.get();
+    }
+
+    protected void addDroppedCount(int count) {
+        addFailedCount(count);
+
+        totalDroppedCount.addAndGet(count);
+    }
+
     public boolean isDrainMaxTimeElapsed() {
         return (stopTime - System.currentTimeMillis()) > AUDIT_CONSUMER_THREAD_WAIT_MS;
     }
@@ -158,6 +226,18 @@ public void setDrain(boolean isDrain) {
         this.isDrain = isDrain;
     }
 
+    public String getQueueType() {
+        return queueType;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     public int getMaxQueueSize() {
         return maxQueueSize;
     }
@@ -182,6 +262,83 @@ public void setMaxBatchSize(int maxBatchSize) {
         this.maxBatchSize = maxBatchSize;
     }
 
+    protected OverflowPolicy getDefaultOverflowPolicy() {
+        return OverflowPolicy.DROP;
+    }
+
+    /**
+     * Creates the queue of events, per the configured queue type: a ring buffer of size maxQueueSize, or the queue
+     * returned by defaultQueue.
+     */
+    protected BlockingQueue<AuditEventBase> createQueue(Supplier<BlockingQueue<AuditEventBase>> defaultQueue) {
+        final BlockingQueue<AuditEventBase> ret;
+
+        if (QUEUE_TYPE_RING_BUFFER.equalsIgnoreCase(queueType)) {
+            ret = new AuditRingBuffer<>(getMaxQueueSize(), waitStrategy);
+        } else {
+            ret = defaultQueue.get();
+        }
+
+        LOG.info("Created {} for queue {}, maxSize={}", ret.getClass().getSimpleName(), getName(), getMaxQueueSize());
+
+        return ret;
+    }
+
+    /**
+     * Adds the event to the queue, applying the overflow policy if the queue is full.
+     *
+     * @return true if the event was added to the queue or spooled
+     */
+    protected boolean enqueue(BlockingQueue<AuditEventBase> queue, AuditEventBase event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+
+        boolean ret = false;
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(event);
+
+                    ret = true;
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                break;
+
+            case DROP_OLDEST:
+                while (!ret) {
+                    if (queue.poll() != null) {
+                        addDroppedCount(1);
+                    }
+
+                    ret = queue.offer(event);
+                }
+                break;
+
+            case SPOOL:
+                if (fileSpoolerEnabled) {
+                    fileSpooler.stashLogs(event);
+
+                    addStashedCount(1);
+
+                    ret = true;
+                }
+                break;
+
+            case DROP:
+            default:
+                break;
+        }
+
+        if (!ret) {
+            addDroppedCount(1);
+        }
+
+        return ret;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free ring buffer to be used as the queue between threads logging audit events and the queue's
+ * consumer thread. offer() neither takes a lock nor allocates: a producer claims a slot with a single CAS on the tail
+ * and publishes the event by updating the slot's sequence. Each slot carries a sequence number, so that producers
+ * and consumers coordinate only through the slot they operate on; head and tail counters are padded to avoid false
+ * sharing between producers and the consumer.
+ *
+ * The buffer is built for many producers and one consumer, which drains events in batches via drainTo(). poll() is
+ * safe to call from other threads as well, which is used to drop the oldest event when the buffer is full.
+ *
+ * iterator() returns a weakly consistent snapshot of the elements in the buffer, in FIFO order: it never throws
+ * ConcurrentModificationException, and doesn't reflect elements added or removed after it is created. Removal via the
+ * iterator, and hence remove(Object), is not supported.
+ */
+public class AuditRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private static final int  MAX_CAPACITY     = 1 << 30;
+    private static final int  MAX_SPIN_COUNT   = 100;
+    private static final int  MAX_YIELD_COUNT  = 200;
+    private static final long MAX_PARK_NANOS   = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int                     capacity;
+    private final int                     mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray         sequences;
+    private final PaddedAtomicLong        head = new PaddedAtomicLong();
+    private final PaddedAtomicLong        tail = new PaddedAtomicLong();
+    private final WaitStrategy            waitStrategy;
+    private volatile Thread               waitingConsumer;
+
+    public enum WaitStrategy {
+        BLOCKING, // park until a producer signals; producers signal only when the consumer is parked
+        SLEEPING, // spin, then yield, then park for increasing durations up to 1ms
+        YIELDING, // spin, then yield
+        BUSY_SPIN;
+
+        public static WaitStrategy fromString(String value, WaitStrategy defaultValue) {
+            for (WaitStrategy strategy : values()) {
+                if (strategy.name().equalsIgnoreCase(value)) {
+                    return strategy;
+                }
+            }
+
+            return defaultValue;
+        }
+    }
+
+    public AuditRingBuffer(int capacity) {
+        this(capacity, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     max number of elements in the buffer; rounded up to the next power of 2
+     * @param waitStrategy how take()/poll(timeout) wait for an element to be available
+     */
+    public AuditRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        this.capacity     = capacity > MAX_CAPACITY ? MAX_CAPACITY : Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask         = this.capacity - 1;
+        this.elements     = new AtomicReferenceArray<>(this.capacity);
+        this.sequences    = new AtomicLongArray(this.capacity);
+        this.waitStrategy = waitStrategy != null ? waitStrategy : WaitStrategy.BLOCKING;
+
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.lazySet(i, i);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+
+        long pos = tail.get();
+
+        while (true) {
+            int  idx = (int) pos & mask;
+            long dif = sequences.get(idx) - pos;
+
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(idx, e);
+                    sequences.set(idx, pos + 1);
+
+                    break;
+                }
+
+                pos = tail.get();
+            } else if (dif < 0) { // the slot still holds an element from the previous lap: the buffer is full
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+
+        Thread consumer = waitingConsumer;
+
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long pos = head.get();
+
+        while (true) {
+            int  idx = (int) pos & mask;
+            long dif = sequences.get(idx) - (pos + 1);
+
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E ret = elements.get(idx);
+
+                    elements.lazySet(idx, null);
+                    sequences.set(idx, pos + capacity);
+
+                    return ret;
+                }
+
+                pos = head.get();
+            } else if (dif < 0) { // the slot is not yet published: the buffer is empty
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        long pos = head.get();
+        int  idx = (int) pos & mask;
+
+        return sequences.get(idx) == pos + 1 ? elements.get(idx) : null;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        for (int i = 0; !offer(e); i++) {
+            awaitSpace(i, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        for (int i = 0; !offer(e); i++) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                return false;
+            }
+
+            awaitSpace(i, remaining);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E ret = poll();
+
+        for (int i = 0; ret == null; i++) {
+            awaitElement(i, Long.MAX_VALUE);
+
+            ret = poll();
+        }
+
+        return ret;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E    ret      = poll();
+
+        for (int i = 0; ret == null; i++) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                break;
+            }
+
+            awaitElement(i, remaining);
+
+            ret = poll();
+        }
+
+        return ret;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+
+        int ret = 0;
+
+        while (ret < maxElements) {
+            E e = poll();
+
+            if (e == null) {
+                break;
+            }
+
+            c.add(e);
+
+            ret++;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int size() {
+        // read head first, so that a concurrent poll() can't make the size negative
+        long headPos = head.get();
+        long tailPos = tail.get();
+        long ret     = tailPos - headPos;
+
+        return ret < 0 ? 0 : (int) Math.min(ret, capacity);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        long    headPos  = head.get();
+        long    tailPos  = Math.min(tail.get(), headPos + capacity);
+        List<E> snapshot = new ArrayList<>((int) Math.max(0, tailPos - headPos));
+
+        for (long pos = headPos; pos < tailPos; pos++) {
+            int idx = (int) pos & mask;
+
+            // skip slots not yet published, or consumed since head was read; re-check after reading the element, as the
+            // slot can be consumed and reused by a producer in between
+            if (sequences.get(idx) == pos + 1) {
+                E e = elements.get(idx);
+
+                if (e != null && sequences.get(idx) == pos + 1) {
+                    snapshot.add(e);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private void awaitElement(int attempt, long remainingNanos) throws InterruptedException {
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            waitingConsumer = Thread.currentThread();
+
+            try {
+                if (isEmpty()) { // re-check after publishing waitingConsumer, to not miss a signal from offer()
+                    LockSupport.parkNanos(this, Math.min(remainingNanos, BLOCK_PARK_NANOS));
+                }
+            } finally {
+                waitingConsumer = null;
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        } else {
+            idle(waitStrategy, attempt, remainingNanos);
+        }
+    }
+
+    // producers wait for space in the buffer only when it is full, hence always back off to sleeping
+    private void awaitSpace(int attempt, long remainingNanos) throws InterruptedException {
+        idle(WaitStrategy.SLEEPING, attempt, remainingNanos);
+    }
+
+    private void idle(WaitStrategy strategy, int attempt, long remainingNanos) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        if (strategy == WaitStrategy.BUSY_SPIN || attempt < MAX_SPIN_COUNT) {
+            return; // spin: the caller retries right away
+        }
+
+        if (strategy == WaitStrategy.YIELDING || attempt < MAX_YIELD_COUNT) {
+            Thread.yield();
+        } else {
+            long parkNanos = Math.min(MAX_PARK_NANOS, 1000L << Math.min(attempt - MAX_YIELD_COUNT, 10));
+
+            LockSupport.parkNanos(this, Math.min(parkNanos, remainingNanos));
+        }
+    }
+
+    // padded to keep head and tail, which are updated by different threads, in different cache lines
+    @SuppressWarnings("unused")
+    static class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        long p1;
+        long p2;
+        long p3;
+        long p4;
+        long p5;
+        long p6;
+        long p7;
+    }
+}
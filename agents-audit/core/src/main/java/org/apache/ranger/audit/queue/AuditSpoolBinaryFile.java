@@ -0,0 +1,558 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format of audit spool files, an alternative to one JSON per line.
+ *
+ * A file starts with an 8 byte header: magic (4 bytes), version (1 byte) and 3 reserved bytes. The header is followed
+ * by frames, each holding a batch of records:
+ *   payloadLength (int), uncompressedLength (int), recordCount (int), crc32 of payload (int), flags (byte), payload
+ * Uncompressed payload is a sequence of records, each a length (int) followed by the UTF-8 bytes of the JSON of an
+ * audit event.
+ *
+ * A frame that is not complete or fails the CRC check marks the end of the file, which is how a frame torn by a crash
+ * is handled; a writer appending to an existing file truncates such a frame first.
+ */
+public final class AuditSpoolBinaryFile {
+    private static final Logger logger = LoggerFactory.getLogger(AuditSpoolBinaryFile.class);
+
+    static final int  MAGIC            = 0x52415350; // "RASP"
+    static final byte VERSION          = 1;
+    static final int  FILE_HEADER_LEN  = 8;
+    static final int  FRAME_HEADER_LEN = 17;
+    static final byte FLAG_DEFLATE     = 0x01;
+    static final int  MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final int  CHECKPOINT_LEN   = 12;
+
+    private AuditSpoolBinaryFile() {
+        // to block instantiation
+    }
+
+    public static boolean isBinaryFile(File file) {
+        if (file.length() < FILE_HEADER_LEN) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LEN);
+
+            readFully(channel, header, 0);
+
+            return header.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            logger.warn("isBinaryFile(): failed to read header of {}", file, excp);
+
+            return false;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int len = channel.read(buffer, position + buffer.position());
+
+            if (len < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static void checkFileHeader(ByteBuffer header, File file) throws IOException {
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException(file + ": not a binary audit spool file");
+        }
+
+        if (header.get(4) > VERSION) {
+            throw new IOException(file + ": unsupported binary audit spool file version " + header.get(4));
+        }
+    }
+
+    /**
+     * Appends records to a spool file. Records are buffered in memory and written as one frame when the frame is full
+     * or on flush(); the file is synced to disk at most once every syncIntervalMs, so that one fsync covers all frames
+     * written in the interval.
+     */
+    public static class Writer implements Closeable {
+        private final File        file;
+        private final FileChannel channel;
+        private final boolean     isCompressEnabled;
+        private final int         maxFrameSize;
+        private final long        syncIntervalMs;
+        private final Deflater    deflater;
+        private final CRC32       crc = new CRC32();
+        private       ByteBuffer  frame;
+        private       byte[]      compressBuffer = new byte[0];
+        private       int         recordCount;
+        private       long        lastSyncTime;
+        private       boolean     isSyncPending;
+
+        public Writer(File file, boolean isCompressEnabled, int maxFrameSize, long syncIntervalMs) throws IOException {
+            this.file              = file;
+            this.channel           = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.isCompressEnabled = isCompressEnabled;
+            this.maxFrameSize      = maxFrameSize;
+            this.syncIntervalMs    = syncIntervalMs;
+            this.deflater          = isCompressEnabled ? new Deflater(Deflater.BEST_SPEED) : null;
+            this.frame             = ByteBuffer.allocate(Math.max(maxFrameSize, 1024) + 1024);
+            this.lastSyncTime      = System.currentTimeMillis();
+
+            try {
+                long size = channel.size();
+
+                if (size == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LEN);
+
+                    header.putInt(MAGIC).put(VERSION).put(new byte[3]).flip();
+
+                    writeFully(channel, header);
+                } else {
+                    long validLength = getValidLength();
+
+                    if (validLength < size) {
+                        logger.warn("Truncating incomplete frame at the end of {}: length={}, validLength={}", file, size, validLength);
+
+                        channel.truncate(validLength);
+                    }
+
+                    channel.position(validLength);
+                }
+            } catch (IOException excp) {
+                close();
+
+                throw excp;
+            }
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public void write(String record) throws IOException {
+            byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+
+            if (frame.remaining() < bytes.length + 4) {
+                ByteBuffer newFrame = ByteBuffer.allocate(Math.max(frame.capacity() * 2, frame.position() + bytes.length + 4));
+
+                frame.flip();
+                newFrame.put(frame);
+
+                frame = newFrame;
+            }
+
+            frame.putInt(bytes.length).put(bytes);
+
+            recordCount++;
+
+            if (frame.position() >= maxFrameSize) {
+                writeFrame();
+            }
+        }
+
+        public void flush() throws IOException {
+            writeFrame();
+
+            if (isSyncPending && System.currentTimeMillis() - lastSyncTime >= syncIntervalMs) {
+                sync();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (channel.isOpen()) {
+                    writeFrame();
+                    sync();
+                }
+            } finally {
+                channel.close();
+
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+
+        private void writeFrame() throws IOException {
+            if (recordCount == 0) {
+                return;
+            }
+
+            byte[]     data               = frame.array();
+            int        uncompressedLength = frame.position();
+            byte       flags              = 0;
+            ByteBuffer payload;
+
+            if (isCompressEnabled) {
+                if (compressBuffer.length < uncompressedLength + 64) {
+                    compressBuffer = new byte[uncompressedLength + uncompressedLength / 8 + 64];
+                }
+
+                deflater.reset();
+                deflater.setInput(data, 0, uncompressedLength);
+                deflater.finish();
+
+                int compressedLength = 0;
+
+                while (!deflater.finished()) {
+                    if (compressedLength == compressBuffer.length) {
+                        compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+                    }
+
+                    compressedLength += deflater.deflate(compressBuffer, compressedLength, compressBuffer.length - compressedLength);
+                }
+
+                payload = ByteBuffer.wrap(compressBuffer, 0, compressedLength);
+                flags   = FLAG_DEFLATE;
+            } else {
+                payload = ByteBuffer.wrap(data, 0, uncompressedLength);
+            }
+
+            crc.reset();
+            crc.update(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_LEN);
+
+            header.putInt(payload.remaining()).putInt(uncompressedLength).putInt(recordCount).putInt((int) crc.getValue()).put(flags).flip();
+
+            writeFully(channel, header, payload);
+
+            frame.clear();
+
+            recordCount   = 0;
+            isSyncPending = true;
+        }
+
+        private void sync() throws IOException {
+            if (isSyncPending) {
+                channel.force(false);
+
+                isSyncPending = false;
+            }
+
+            lastSyncTime = System.currentTimeMillis();
+        }
+
+        // returns the length of the file up to the end of the last complete, valid frame
+        private long getValidLength() throws IOException {
+            try (Reader reader = new Reader(channel, file, false)) {
+                long offset = FILE_HEADER_LEN;
+
+                for (Frame current = reader.readFrame(offset); current != null; current = reader.readFrame(offset)) {
+                    offset = current.getNextOffset();
+                }
+
+                return offset;
+            }
+        }
+    }
+
+    /**
+     * Reads frames of a spool file through memory-mapped segments of the file.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel      channel;
+        private final File             file;
+        private final boolean          isOwnChannel;
+        private final long             fileSize;
+        private final CRC32            crc      = new CRC32();
+        private final Inflater         inflater = new Inflater();
+        private       MappedByteBuffer segment;
+        private       long             segmentStart;
+        private       byte[]           buffer   = new byte[0];
+
+        public Reader(File file) throws IOException {
+            this(FileChannel.open(file.toPath(), StandardOpenOption.READ), file, true);
+        }
+
+        Reader(FileChannel channel, File file, boolean isOwnChannel) throws IOException {
+            this.channel      = channel;
+            this.file         = file;
+            this.isOwnChannel = isOwnChannel;
+            this.fileSize     = channel.size();
+
+            try {
+                if (fileSize < FILE_HEADER_LEN) {
+                    throw new IOException(file + ": not a binary audit spool file");
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LEN);
+
+                readFully(channel, header, 0);
+
+                checkFileHeader(header, file);
+            } catch (IOException excp) {
+                close();
+
+                throw excp;
+            }
+        }
+
+        public long getFirstFrameOffset() {
+            return FILE_HEADER_LEN;
+        }
+
+        /**
+         * @return the frame at the given offset; null at the end of the file, or if the frame is incomplete or corrupt
+         */
+        public Frame readFrame(long offset) throws IOException {
+            if (offset + FRAME_HEADER_LEN > fileSize) {
+                return null;
+            }
+
+            ByteBuffer buf                = map(offset, FRAME_HEADER_LEN);
+            int        payloadLength      = buf.getInt();
+            int        uncompressedLength = buf.getInt();
+            int        recordCount        = buf.getInt();
+            int        expectedCrc        = buf.getInt();
+            byte       flags              = buf.get();
+            long       nextOffset         = offset + FRAME_HEADER_LEN + payloadLength;
+
+            if (payloadLength < 0 || uncompressedLength < 0 || recordCount < 0 || nextOffset > fileSize) {
+                logger.warn("{}: incomplete frame at offset {}; ignoring rest of the file", file, offset);
+
+                return null;
+            }
+
+            ByteBuffer payload = map(offset + FRAME_HEADER_LEN, payloadLength);
+
+            crc.reset();
+
+            if (payload.hasArray()) {
+                crc.update(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+            } else {
+                crc.update(payload.duplicate());
+            }
+
+            if ((int) crc.getValue() != expectedCrc) {
+                logger.warn("{}: CRC check failed for frame at offset {}; ignoring rest of the file", file, offset);
+
+                return null;
+            }
+
+            final ByteBuffer records;
+
+            if ((flags & FLAG_DEFLATE) != 0) {
+                records = inflate(payload, uncompressedLength, offset);
+            } else {
+                records = payload;
+            }
+
+            return new Frame(offset, nextOffset, decodeRecords(records, recordCount, offset));
+        }
+
+        @Override
+        public void close() throws IOException {
+            segment = null;
+
+            inflater.end();
+
+            if (isOwnChannel) {
+                channel.close();
+            }
+        }
+
+        // returns a buffer of the given range of the file, mapping a new segment of the file if needed
+        private ByteBuffer map(long offset, int length) throws IOException {
+            if (segment == null || offset < segmentStart || offset + length > segmentStart + segment.capacity()) {
+                long size = Math.min(fileSize - offset, Math.max(length, MAX_SEGMENT_SIZE));
+
+                segment      = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                segmentStart = offset;
+            }
+
+            ByteBuffer ret = segment.duplicate();
+
+            ret.position((int) (offset - segmentStart));
+            ret.limit(ret.position() + length);
+
+            return ret.slice();
+        }
+
+        private ByteBuffer inflate(ByteBuffer payload, int uncompressedLength, long offset) throws IOException {
+            byte[] input = new byte[payload.remaining()];
+
+            payload.get(input);
+
+            if (buffer.length < uncompressedLength) {
+                buffer = new byte[uncompressedLength];
+            }
+
+            inflater.reset();
+            inflater.setInput(input);
+
+            try {
+                int len = 0;
+
+                while (len < uncompressedLength && !inflater.finished()) {
+                    int n = inflater.inflate(buffer, len, uncompressedLength - len);
+
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+
+                    len += n;
+                }
+
+                if (len != uncompressedLength) {
+                    throw new IOException(file + ": frame at offset " + offset + " decompressed to " + len + " bytes, expected " + uncompressedLength);
+                }
+            } catch (DataFormatException excp) {
+                throw new IOException(file + ": failed to decompress frame at offset " + offset, excp);
+            }
+
+            return ByteBuffer.wrap(buffer, 0, uncompressedLength);
+        }
+
+        private List<String> decodeRecords(ByteBuffer records, int recordCount, long offset) throws IOException {
+            List<String> ret = new ArrayList<>(recordCount);
+
+            for (int i = 0; i < recordCount; i++) {
+                int len = records.remaining() >= 4 ? records.getInt() : -1;
+
+                if (len < 0 || len > records.remaining()) {
+                    throw new IOException(file + ": invalid record " + i + " in frame at offset " + offset);
+                }
+
+                ByteBuffer record = records.slice();
+
+                record.limit(len);
+
+                ret.add(StandardCharsets.UTF_8.decode(record).toString());
+
+                records.position(records.position() + len);
+            }
+
+            return ret;
+        }
+    }
+
+    public static class Frame {
+        private final long         offset;
+        private final long         nextOffset;
+        private final List<String> records;
+
+        Frame(long offset, long nextOffset, List<String> records) {
+            this.offset     = offset;
+            this.nextOffset = nextOffset;
+            this.records    = records;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getNextOffset() {
+            return nextOffset;
+        }
+
+        public List<String> getRecords() {
+            return records;
+        }
+    }
+
+    /**
+     * Replay position in a spool file: offset of a frame and the number of records of the frame already consumed.
+     * Saved in a small side file by overwriting it in place, instead of rewriting the spool index.
+     */
+    public static class Checkpoint implements Closeable {
+        private final File        file;
+        private final FileChannel channel;
+        private final ByteBuffer  buffer = ByteBuffer.allocate(CHECKPOINT_LEN);
+        private       long        frameOffset;
+        private       int         recordIndex;
+
+        public Checkpoint(File file) throws IOException {
+            this.file    = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (channel.size() >= CHECKPOINT_LEN) {
+                readFully(channel, buffer, 0);
+
+                frameOffset = buffer.getLong();
+                recordIndex = buffer.getInt();
+            } else {
+                frameOffset = FILE_HEADER_LEN;
+                recordIndex = 0;
+            }
+        }
+
+        public long getFrameOffset() {
+            return frameOffset;
+        }
+
+        public int getRecordIndex() {
+            return recordIndex;
+        }
+
+        public void save(long frameOffset, int recordIndex) throws IOException {
+            this.frameOffset = frameOffset;
+            this.recordIndex = recordIndex;
+
+            buffer.clear();
+            buffer.putLong(frameOffset).putInt(recordIndex).flip();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        }
+
+        public void delete() throws IOException {
+            close();
+
+            if (!file.delete() && file.exists()) {
+                logger.warn("Failed to delete checkpoint file {}", file);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
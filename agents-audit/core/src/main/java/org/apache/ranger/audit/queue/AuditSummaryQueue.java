@@ -32,11 +32,13 @@
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * This is a non-blocking queue. Events are dropped when maxQueueSize is reached, unless a different overflow policy
+ * is configured.
  */
 public class AuditSummaryQueue extends AuditQueue implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(AuditSummaryQueue.class);
@@ -48,9 +50,9 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
     static final String DEFAULT_NAME = "summary";
     static       int    threadCount;
 
-    Thread                              consumerThread;
-    LinkedBlockingQueue<AuditEventBase> queue      = new LinkedBlockingQueue<>();
-    HashMap<String, AuditSummary>       summaryMap = new HashMap<>();
+    Thread                        consumerThread;
+    BlockingQueue<AuditEventBase> queue      = new LinkedBlockingQueue<>(AUDIT_MAX_QUEUE_SIZE_DEFAULT);
+    HashMap<String, AuditSummary> summaryMap = new HashMap<>();
 
     private int maxSummaryIntervalMs = 5000;
 
@@ -67,6 +69,8 @@ public void init(Properties props, String propPrefix) {
         maxSummaryIntervalMs = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_SUMMARY_INTERVAL, maxSummaryIntervalMs);
 
         logger.info("maxSummaryInterval={}, name={}", maxSummaryIntervalMs, getName());
+
+        queue = createQueue(() -> new LinkedBlockingQueue<>(getMaxQueueSize()));
     }
 
     /*
@@ -79,13 +83,7 @@ public void init(Properties props, String propPrefix) {
     @Override
     public boolean log(AuditEventBase event) {
         // Add to the queue and return ASAP
-        if (queue.size() >= getMaxQueueSize()) {
-            return false;
-        }
-
-        queue.add(event);
-
-        return true;
+        return enqueue(queue, event);
     }
 
     @Override
@@ -114,6 +112,10 @@ public void start() {
             consumer.start();
         }
 
+        if (fileSpoolerEnabled && getOverflowPolicy() == OverflowPolicy.SPOOL) {
+            fileSpooler.start();
+        }
+
         consumerThread = new Thread(this, this.getClass().getName() + (threadCount++));
 
         consumerThread.setDaemon(true);
@@ -160,6 +162,11 @@ public void run() {
         }
     }
 
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
     public void runLogAudit() {
         long lastDispatchTime = System.currentTimeMillis();
 
@@ -259,6 +266,10 @@ public void runLogAudit() {
             logger.info("Calling to stop consumer. name={}, consumer.name={}", getName(), consumer.getName());
 
             consumer.stop();
+
+            if (fileSpoolerEnabled && getOverflowPolicy() == OverflowPolicy.SPOOL) {
+                fileSpooler.stop();
+            }
         } catch (Throwable t) {
             logger.error("Error while calling stop on consumer.", t);
         }
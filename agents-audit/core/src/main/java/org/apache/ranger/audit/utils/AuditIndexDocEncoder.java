@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Writes AuthzAuditEvent as a JSON document of the ranger_audits index in Solr and ElasticSearch, directly to an
+ * OutputStream with Jackson's streaming generator - without building an intermediate SolrInputDocument or Map.
+ * Field names are those of the index schema, which differ from the JSON format of AuthzAuditEvent for a few fields.
+ * Null values and empty collections are skipped; evtTime is written in ISO-8601 format in UTC.
+ *
+ * Instances are thread-safe.
+ */
+public class AuditIndexDocEncoder {
+    private static final JsonFactory       JSON_FACTORY = new JsonFactory();
+    private static final DateTimeFormatter DATE_FORMAT  = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final boolean includeDatasetIds;
+
+    /**
+     * @param includeDatasetIds whether to write datasetIds, which is not part of the ElasticSearch index mapping
+     */
+    public AuditIndexDocEncoder(boolean includeDatasetIds) {
+        this.includeDatasetIds = includeDatasetIds;
+    }
+
+    public static String formatDate(Date date) {
+        return DATE_FORMAT.format(date.toInstant());
+    }
+
+    public void encode(AuthzAuditEvent event, OutputStream out) throws IOException {
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            gen.writeStartObject();
+
+            writeString(gen, "id", event.getEventId());
+            writeString(gen, "access", event.getAccessType());
+            writeString(gen, "enforcer", event.getAclEnforcer());
+            writeString(gen, "agent", event.getAgentId());
+            writeString(gen, "repo", event.getRepositoryName());
+            writeString(gen, "sess", event.getSessionId());
+            writeString(gen, "reqUser", event.getUser());
+            writeString(gen, "reqData", event.getRequestData());
+            writeString(gen, "resource", event.getResourcePath());
+            writeString(gen, "cliIP", event.getClientIP());
+            writeString(gen, "logType", event.getLogType());
+            gen.writeNumberField("result", event.getAccessResult());
+            gen.writeNumberField("policy", event.getPolicyId());
+            gen.writeNumberField("repoType", event.getRepositoryType());
+            writeString(gen, "resType", event.getResourceType());
+            writeString(gen, "reason", event.getResultReason());
+            writeString(gen, "action", event.getAction());
+
+            if (event.getEventTime() != null) {
+                gen.writeStringField("evtTime", formatDate(event.getEventTime()));
+            }
+
+            gen.writeNumberField("seq_num", event.getSeqNum());
+            gen.writeNumberField("event_count", event.getEventCount());
+            gen.writeNumberField("event_dur_ms", event.getEventDurationMS());
+            writeStrings(gen, "tags", event.getTags());
+            writeStrings(gen, "datasets", event.getDatasets());
+            writeStrings(gen, "projects", event.getProjects());
+
+            if (includeDatasetIds && event.getDatasetIds() != null && !event.getDatasetIds().isEmpty()) {
+                gen.writeArrayFieldStart("datasetIds");
+
+                for (Long datasetId : event.getDatasetIds()) {
+                    if (datasetId != null) {
+                        gen.writeNumber(datasetId);
+                    }
+                }
+
+                gen.writeEndArray();
+            }
+
+            writeString(gen, "cluster", event.getClusterName());
+            writeString(gen, "zoneName", event.getZoneName());
+            writeString(gen, "agentHost", event.getAgentHostname());
+
+            if (event.getPolicyVersion() != null) {
+                gen.writeNumberField("policyVersion", event.getPolicyVersion());
+            }
+
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, String name, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        }
+    }
+
+    private static void writeStrings(JsonGenerator gen, String name, Collection<String> values) throws IOException {
+        if (values != null && !values.isEmpty()) {
+            gen.writeArrayFieldStart(name);
+
+            for (String value : values) {
+                if (value != null) {
+                    gen.writeString(value);
+                }
+            }
+
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming JSON encoder for AuthzAuditEvent, which writes UTF-8 directly into a reusable byte buffer instead of
+ * going through Jackson's reflection based serialization. The output is identical to that of MiscUtil.getMapper():
+ * same property names and order, empty strings/collections and null values are skipped (JsonInclude.NON_EMPTY) and
+ * dates are formatted as "yyyy-MM-dd HH:mm:ss.SSS" in the default timezone.
+ *
+ * Values that repeat across events - like repository, user, access type, agent and tags - are kept in a small LRU
+ * cache of their encoded bytes, so that these are neither escaped nor UTF-8 encoded again for every event.
+ *
+ * Instances are not thread-safe; use get() to obtain the instance for the current thread. Only AuthzAuditEvent is
+ * supported - instances of its subclasses, which can have additional fields, must be serialized with Jackson.
+ */
+public class AuthzAuditEventJsonEncoder {
+    private static final int INITIAL_BUFFER_SIZE      = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_CACHE_SIZE           = 1024;
+    private static final int MAX_CACHED_VALUE_LENGTH  = 256;
+
+    private static final byte[] HEX_DIGITS     = ascii("0123456789ABCDEF");
+    private static final byte[] NULL           = ascii("null");
+    private static final byte[] REPO_TYPE      = ascii("{\"repoType\":");
+    private static final byte[] REPO           = ascii(",\"repo\":");
+    private static final byte[] REQ_USER       = ascii(",\"reqUser\":");
+    private static final byte[] EVT_TIME       = ascii(",\"evtTime\":");
+    private static final byte[] ACCESS         = ascii(",\"access\":");
+    private static final byte[] RESOURCE       = ascii(",\"resource\":");
+    private static final byte[] RES_TYPE       = ascii(",\"resType\":");
+    private static final byte[] ACTION         = ascii(",\"action\":");
+    private static final byte[] RESULT         = ascii(",\"result\":");
+    private static final byte[] AGENT          = ascii(",\"agent\":");
+    private static final byte[] POLICY         = ascii(",\"policy\":");
+    private static final byte[] REASON         = ascii(",\"reason\":");
+    private static final byte[] ENFORCER       = ascii(",\"enforcer\":");
+    private static final byte[] SESS           = ascii(",\"sess\":");
+    private static final byte[] CLI_TYPE       = ascii(",\"cliType\":");
+    private static final byte[] CLI_IP         = ascii(",\"cliIP\":");
+    private static final byte[] REQ_DATA       = ascii(",\"reqData\":");
+    private static final byte[] AGENT_HOST     = ascii(",\"agentHost\":");
+    private static final byte[] LOG_TYPE       = ascii(",\"logType\":");
+    private static final byte[] ID             = ascii(",\"id\":");
+    private static final byte[] SEQ_NUM        = ascii(",\"seq_num\":");
+    private static final byte[] EVENT_COUNT    = ascii(",\"event_count\":");
+    private static final byte[] EVENT_DUR_MS   = ascii(",\"event_dur_ms\":");
+    private static final byte[] TAGS           = ascii(",\"tags\":");
+    private static final byte[] DATASETS       = ascii(",\"datasets\":");
+    private static final byte[] PROJECTS       = ascii(",\"projects\":");
+    private static final byte[] DATASET_IDS    = ascii(",\"datasetIds\":");
+    private static final byte[] ADDITIONAL_INF = ascii(",\"additional_info\":");
+    private static final byte[] CLUSTER_NAME   = ascii(",\"cluster_name\":");
+    private static final byte[] ZONE_NAME      = ascii(",\"zone_name\":");
+    private static final byte[] POLICY_VERSION = ascii(",\"policy_version\":");
+
+    private static final ThreadLocal<AuthzAuditEventJsonEncoder> ENCODER = ThreadLocal.withInitial(AuthzAuditEventJsonEncoder::new);
+
+    private final Map<String, byte[]> valueCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.");
+    private       byte[]           buffer     = new byte[INITIAL_BUFFER_SIZE];
+    private       int              length;
+    private       long             dateSecond = Long.MIN_VALUE;
+    private       byte[]           datePrefix;
+
+    AuthzAuditEventJsonEncoder() {
+    }
+
+    public static AuthzAuditEventJsonEncoder get() {
+        return ENCODER.get();
+    }
+
+    public static boolean isSupported(Object obj) {
+        return obj != null && obj.getClass() == AuthzAuditEvent.class;
+    }
+
+    /**
+     * Encodes the event into the buffer returned by getBuffer(); the buffer is reused by the next call to encode().
+     *
+     * @return number of bytes written to the buffer
+     */
+    public int encode(AuthzAuditEvent event) {
+        if (buffer.length > MAX_RETAINED_BUFFER_SIZE) { // don't hold on to the buffer grown for an unusually large event
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+
+        length = 0;
+
+        write(REPO_TYPE);
+        writeNumber(event.getRepositoryType());
+        writeCachedString(REPO, event.getRepositoryName());
+        writeCachedString(REQ_USER, event.getUser());
+        writeDate(EVT_TIME, event.getEventTime());
+        writeCachedString(ACCESS, event.getAccessType());
+        writeString(RESOURCE, event.getResourcePath());
+        writeCachedString(RES_TYPE, event.getResourceType());
+        writeCachedString(ACTION, event.getAction());
+        write(RESULT);
+        writeNumber(event.getAccessResult());
+        writeCachedString(AGENT, event.getAgentId());
+        write(POLICY);
+        writeNumber(event.getPolicyId());
+        writeCachedString(REASON, event.getResultReason());
+        writeCachedString(ENFORCER, event.getAclEnforcer());
+        writeString(SESS, event.getSessionId());
+        writeCachedString(CLI_TYPE, event.getClientType());
+        writeCachedString(CLI_IP, event.getClientIP());
+        writeString(REQ_DATA, event.getRequestData());
+        writeCachedString(AGENT_HOST, event.getAgentHostname());
+        writeCachedString(LOG_TYPE, event.getLogType());
+        writeString(ID, event.getEventId());
+        write(SEQ_NUM);
+        writeNumber(event.getSeqNum());
+        write(EVENT_COUNT);
+        writeNumber(event.getEventCount());
+        write(EVENT_DUR_MS);
+        writeNumber(event.getEventDurationMS());
+        writeStrings(TAGS, event.getTags());
+        writeStrings(DATASETS, event.getDatasets());
+        writeStrings(PROJECTS, event.getProjects());
+        writeNumbers(DATASET_IDS, event.getDatasetIds());
+        writeString(ADDITIONAL_INF, event.getAdditionalInfo());
+        writeCachedString(CLUSTER_NAME, event.getClusterName());
+        writeCachedString(ZONE_NAME, event.getZoneName());
+
+        if (event.getPolicyVersion() != null) {
+            write(POLICY_VERSION);
+            writeNumber(event.getPolicyVersion());
+        }
+
+        write((byte) '}');
+
+        return length;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public void encode(AuthzAuditEvent event, OutputStream out) throws IOException {
+        int len = encode(event);
+
+        out.write(buffer, 0, len);
+    }
+
+    public String toJson(AuthzAuditEvent event) {
+        int len = encode(event);
+
+        return new String(buffer, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void writeCachedString(byte[] name, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+
+        write(name);
+        writeCachedValue(value);
+    }
+
+    private void writeString(byte[] name, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+
+        write(name);
+        writeQuoted(value);
+    }
+
+    private void writeStrings(byte[] name, Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        write(name);
+        write((byte) '[');
+
+        boolean isFirst = true;
+
+        for (String value : values) {
+            if (!isFirst) {
+                write((byte) ',');
+            }
+
+            if (value == null) {
+                write(NULL);
+            } else {
+                writeCachedValue(value);
+            }
+
+            isFirst = false;
+        }
+
+        write((byte) ']');
+    }
+
+    private void writeNumbers(byte[] name, Collection<Long> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        write(name);
+        write((byte) '[');
+
+        boolean isFirst = true;
+
+        for (Long value : values) {
+            if (!isFirst) {
+                write((byte) ',');
+            }
+
+            if (value == null) {
+                write(NULL);
+            } else {
+                writeNumber(value);
+            }
+
+            isFirst = false;
+        }
+
+        write((byte) ']');
+    }
+
+    private void writeCachedValue(String value) {
+        if (value.length() > MAX_CACHED_VALUE_LENGTH) {
+            writeQuoted(value);
+
+            return;
+        }
+
+        byte[] encoded = valueCache.get(value);
+
+        if (encoded == null) {
+            int start = length;
+
+            writeQuoted(value);
+
+            encoded = new byte[length - start];
+
+            System.arraycopy(buffer, start, encoded, 0, encoded.length);
+
+            valueCache.put(value, encoded);
+        } else {
+            write(encoded);
+        }
+    }
+
+    private void writeDate(byte[] name, Date value) {
+        if (value == null) {
+            return;
+        }
+
+        long time   = value.getTime();
+        long second = Math.floorDiv(time, 1000);
+        int  millis = (int) Math.floorMod(time, 1000);
+
+        // events are logged close together in time, hence format only the millis for events within the same second
+        if (second != dateSecond) {
+            datePrefix = dateFormat.format(new Date(second * 1000)).getBytes(StandardCharsets.UTF_8);
+            dateSecond = second;
+        }
+
+        write(name);
+        write((byte) '"');
+        write(datePrefix);
+        write((byte) ('0' + millis / 100));
+        write((byte) ('0' + (millis / 10) % 10));
+        write((byte) ('0' + millis % 10));
+        write((byte) '"');
+    }
+
+    private void writeNumber(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(ascii(Long.toString(value)));
+
+            return;
+        }
+
+        if (value < 0) {
+            write((byte) '-');
+
+            value = -value;
+        }
+
+        int digits = 1;
+
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+
+        ensureCapacity(digits);
+
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+
+            value /= 10;
+        }
+
+        length += digits;
+    }
+
+    // escapes the same characters as Jackson does by default: '"', '\\' and control characters
+    private void writeQuoted(String value) {
+        int len = value.length();
+
+        ensureCapacity(len * 3 + 2); // a char takes at most 3 bytes in UTF-8 (surrogate pairs: 4 bytes for 2 chars)
+
+        byte[] buf = buffer;
+        int    pos = length;
+
+        buf[pos++] = '"';
+
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[pos++] = (byte) c;
+                } else {
+                    length = pos;
+
+                    writeEscaped(c);
+
+                    ensureCapacity((len - i - 1) * 3 + 1);
+
+                    buf = buffer;
+                    pos = length;
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xc0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+
+                buf[pos++] = (byte) (0xf0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) { // unpaired surrogate: replaced, as done by String.getBytes()
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xe0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        buf[pos++] = '"';
+
+        length = pos;
+    }
+
+    private void writeEscaped(char c) {
+        ensureCapacity(6);
+
+        buffer[length++] = '\\';
+
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[length++] = (byte) c;
+                break;
+            case '\b':
+                buffer[length++] = 'b';
+                break;
+            case '\t':
+                buffer[length++] = 't';
+                break;
+            case '\n':
+                buffer[length++] = 'n';
+                break;
+            case '\f':
+                buffer[length++] = 'f';
+                break;
+            case '\r':
+                buffer[length++] = 'r';
+                break;
+            default:
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = HEX_DIGITS[c >> 4];
+                buffer[length++] = HEX_DIGITS[c & 0xf];
+                break;
+        }
+    }
+
+    private void write(byte b) {
+        ensureCapacity(1);
+
+        buffer[length++] = b;
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, length + count)];
+
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+
+            buffer = newBuffer;
+        }
+    }
+
+    private static byte[] ascii(String str) {
+        return str.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latency values, used to report percentiles of the audit pipeline stages.
+ *
+ * Values are counted in log-linear buckets, in the manner of HdrHistogram: each power of two is split into
+ * 2^SUB_BUCKET_BITS buckets, so that a reported percentile is within 12.5% of the recorded value - with a fixed
+ * footprint of about 4KB per stripe, irrespective of the range of values. Recording is a single atomic increment.
+ *
+ * A histogram recorded from many threads, like request threads, should be created with multiple stripes: each thread
+ * records in the stripe selected by its id, so that concurrent threads don't contend on the same counters. Stripes are
+ * merged when read.
+ *
+ * getAndReset() returns the values recorded since its previous call, so that each metrics collection reports
+ * the percentiles of its own interval.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS  = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT     = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final Stripe[] stripes;
+    private final int      stripeMask;
+
+    public LatencyHistogram() {
+        this(1);
+    }
+
+    /**
+     * @param stripeCount number of stripes; rounded up to a power of 2
+     */
+    public LatencyHistogram(int stripeCount) {
+        int count = stripeCount > 1 ? Integer.highestOneBit(stripeCount - 1) << 1 : 1;
+
+        this.stripes    = new Stripe[count];
+        this.stripeMask = count - 1;
+
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+
+        stripe.counts.incrementAndGet(getBucket(value));
+
+        if (value > stripe.maxValue.get()) {
+            stripe.maxValue.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public Snapshot getAndReset() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long   max      = 0;
+
+        for (Stripe stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                snapshot[i] += stripe.counts.getAndSet(i, 0);
+            }
+
+            max = Math.max(max, stripe.maxValue.getAndSet(0));
+        }
+
+        return new Snapshot(snapshot, max);
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent  = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @return the highest value that is counted in the given bucket
+     */
+    static long getBucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+
+        int  exponent   = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket  = bucket % SUB_BUCKET_COUNT;
+        long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static class Stripe {
+        final AtomicLongArray counts   = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong      maxValue = new AtomicLong();
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long   count;
+        private final long   max;
+
+        Snapshot(long[] counts, long max) {
+            long count = 0;
+
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+
+            this.counts = counts;
+            this.count  = count;
+            this.max    = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the value at the given percentile; 0 if no value was recorded
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank      = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+            long seenSoFar = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seenSoFar += counts[i];
+
+                if (seenSoFar >= rank) {
+                    return Math.min(getBucketUpperBound(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.apache.ranger.audit.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.ranger.audit.model.AuditEventBase;
+
+import java.util.Collection;
+
+/**
+ * Audit writer that writes events directly, instead of from their JSON representation - for example to write
+ * events in a columnar format, without serializing them to JSON and parsing them back.
+ */
+public interface RangerAuditEventWriter extends RangerAuditWriter {
+    boolean logEvents(Collection<AuditEventBase> events) throws Exception;
+}
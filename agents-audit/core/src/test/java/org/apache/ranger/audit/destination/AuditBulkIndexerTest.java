@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditBulkIndexerTest {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.test";
+
+    @Test
+    public void testRequestsAreSplitByBytes() {
+        List<Integer>    requestSizes = Collections.synchronizedList(new ArrayList<>());
+        AuditBulkIndexer indexer      = new AuditBulkIndexer("testSplit", createProperties(1000), PROP_PREFIX, (docs, bytes) -> {
+            assertTrue(bytes <= 1000);
+
+            requestSizes.add(docs.size());
+
+            return statuses(docs.size(), AuditBulkIndexer.STATUS_OK);
+        });
+
+        AuditBulkIndexer.BulkResult result = indexer.index(createDocs(50, 100));
+
+        indexer.stop();
+
+        assertEquals(50, result.getIndexedCount());
+        assertTrue(result.getFailedDocs().isEmpty());
+        assertTrue(result.getPendingDocs().isEmpty());
+        assertEquals(5, requestSizes.size());
+        assertTrue(requestSizes.stream().allMatch(size -> size == 10));
+        assertEquals(50, indexer.getMetrics().getEventCount());
+        assertEquals(5000, indexer.getMetrics().getByteCount());
+    }
+
+    @Test
+    public void testThrottledDocsAreRetried() {
+        AtomicInteger    attempts = new AtomicInteger();
+        AuditBulkIndexer indexer  = new AuditBulkIndexer("testRetry", createProperties(10000), PROP_PREFIX, (docs, bytes) -> {
+            if (attempts.incrementAndGet() == 1) {
+                // first request: doc 0 indexed, doc 1 throttled, doc 2 rejected
+                return new int[] {AuditBulkIndexer.STATUS_OK, AuditBulkIndexer.STATUS_TOO_MANY_REQUESTS, 400};
+            }
+
+            assertEquals(1, docs.size());
+
+            return statuses(docs.size(), AuditBulkIndexer.STATUS_OK);
+        });
+
+        AuditBulkIndexer.BulkResult result = indexer.index(createDocs(3, 10));
+
+        indexer.stop();
+
+        assertEquals(2, attempts.get());
+        assertEquals(2, result.getIndexedCount());
+        assertEquals(Collections.singletonList(2), result.getFailedDocs());
+        assertTrue(result.getPendingDocs().isEmpty());
+        assertEquals(1, indexer.getMetrics().getRetryCount());
+        assertEquals(1, indexer.getMetrics().getThrottledCount());
+    }
+
+    @Test
+    public void testDocsArePendingWhenStoreIsUnavailable() {
+        Properties props = createProperties(10000);
+
+        props.setProperty(PROP_PREFIX + "." + AuditBulkIndexer.PROP_BULK_RETRY_MAX_WAIT_MS, "50");
+
+        AuditBulkIndexer indexer = new AuditBulkIndexer("testPending", props, PROP_PREFIX, (docs, bytes) -> {
+            throw new IOException("connection refused");
+        });
+
+        AuditBulkIndexer.BulkResult result = indexer.index(createDocs(3, 10));
+
+        indexer.stop();
+
+        assertEquals(0, result.getIndexedCount());
+        assertEquals(Arrays.asList(0, 1, 2), result.getPendingDocs());
+        assertTrue(result.getLastError().contains("connection refused"));
+    }
+
+    private static Properties createProperties(int maxRequestBytes) {
+        Properties ret = new Properties();
+
+        ret.setProperty(PROP_PREFIX + "." + AuditBulkIndexer.PROP_BULK_MAX_REQUEST_BYTES, Integer.toString(maxRequestBytes));
+        ret.setProperty(PROP_PREFIX + "." + AuditBulkIndexer.PROP_BULK_RETRY_BACKOFF_MS, "10");
+
+        return ret;
+    }
+
+    private static List<byte[]> createDocs(int count, int size) {
+        List<byte[]> ret = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ret.add(new byte[size]);
+        }
+
+        return ret;
+    }
+
+    private static int[] statuses(int count, int status) {
+        int[] ret = new int[count];
+
+        Arrays.fill(ret, status);
+
+        return ret;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.EnumRepositoryType;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditEventAggregatorTest {
+    private static final long START_TIME = 1700000000000L;
+
+    @Test
+    public void testIdenticalEventsAreAggregated() throws Exception {
+        AuditEventAggregator aggregator = new AuditEventAggregator(1000, null, 100, 5);
+
+        for (int i = 0; i < 1000; i++) {
+            AuthzAuditEvent event = createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME + i);
+
+            event.setAdditionalInfo("{\"remote-ip-address\":\"10.0.0.1\"}");
+
+            assertTrue(aggregator.add(event, START_TIME));
+        }
+
+        assertEquals(1, aggregator.size());
+
+        List<AuditEventBase> events = new ArrayList<>();
+
+        aggregator.collectExpired(START_TIME + 999, events);
+
+        assertTrue(events.isEmpty(), "aggregate must be held until the interval elapses");
+
+        aggregator.collectExpired(START_TIME + 1000, events);
+
+        assertEquals(1, events.size());
+        assertTrue(aggregator.isEmpty());
+
+        AuthzAuditEvent     event          = (AuthzAuditEvent) events.get(0);
+        Map<String, Object> additionalInfo = MiscUtil.getMapper().readValue(event.getAdditionalInfo(), Map.class);
+
+        assertEquals(1000, event.getEventCount());
+        assertEquals(999, event.getEventDurationMS());
+        assertEquals(START_TIME, event.getEventTime().getTime());
+        assertEquals("10.0.0.1", additionalInfo.get("remote-ip-address"));
+        assertEquals(5, ((List<?>) additionalInfo.get(AuditEventAggregator.ADDITIONAL_INFO_SAMPLED_EVENT_IDS)).size());
+    }
+
+    @Test
+    public void testSingleEventIsSentAsIs() {
+        AuditEventAggregator aggregator = new AuditEventAggregator(1000, null, 100, 5);
+        AuthzAuditEvent      event      = createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME);
+        List<AuditEventBase> events     = new ArrayList<>();
+
+        aggregator.add(event, START_TIME);
+        aggregator.collectAll(events);
+
+        assertEquals(Collections.singletonList(event), events);
+        assertEquals(1, event.getEventCount());
+        assertEquals(0, event.getEventDurationMS());
+        assertNull(event.getAdditionalInfo());
+    }
+
+    @Test
+    public void testDifferentEventsAreNotAggregated() {
+        AuditEventAggregator aggregator = new AuditEventAggregator(1000, null, 100, 5);
+
+        for (int i = 0; i < 10; i++) {
+            aggregator.add(createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME + i), START_TIME);
+            aggregator.add(createEvent(EnumRepositoryType.HDFS, "/data/file2", START_TIME + i), START_TIME);
+
+            AuthzAuditEvent denied = createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME + i);
+
+            denied.setAccessResult((short) 0);
+
+            aggregator.add(denied, START_TIME);
+
+            // requestData is not part of the hash: these events share the hash of the first, but must not be merged with it
+            AuthzAuditEvent sameHash = createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME + i);
+
+            sameHash.setRequestData("other request");
+
+            assertEquals(AuditEventAggregator.hash(createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME)), AuditEventAggregator.hash(sameHash));
+
+            aggregator.add(sameHash, START_TIME);
+        }
+
+        assertEquals(4, aggregator.size());
+
+        List<AuditEventBase> events = new ArrayList<>();
+
+        aggregator.collectAll(events);
+
+        assertEquals(4, events.size());
+
+        for (AuditEventBase event : events) {
+            assertEquals(10, ((AuthzAuditEvent) event).getEventCount());
+        }
+    }
+
+    @Test
+    public void testRepoTypeConfig() {
+        Map<Integer, Long> repoTypeIntervalMs = new HashMap<>();
+
+        repoTypeIntervalMs.put(EnumRepositoryType.HDFS, 5000L);
+        repoTypeIntervalMs.put(EnumRepositoryType.HIVE, 0L);
+
+        AuditEventAggregator aggregator = new AuditEventAggregator(1000, repoTypeIntervalMs, 100, 5);
+
+        assertFalse(aggregator.add(createEvent(EnumRepositoryType.HIVE, "db1/tbl1", START_TIME), START_TIME), "HIVE events must not be aggregated");
+        assertTrue(aggregator.add(createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME), START_TIME));
+        assertTrue(aggregator.add(createEvent(EnumRepositoryType.HBASE, "tbl1", START_TIME), START_TIME));
+
+        List<AuditEventBase> events = new ArrayList<>();
+
+        aggregator.collectExpired(START_TIME + 1000, events);
+
+        assertEquals(1, events.size());
+        assertEquals(EnumRepositoryType.HBASE, ((AuthzAuditEvent) events.get(0)).getRepositoryType());
+
+        aggregator.collectExpired(START_TIME + 5000, events);
+
+        assertEquals(2, events.size());
+        assertEquals(EnumRepositoryType.HDFS, ((AuthzAuditEvent) events.get(1)).getRepositoryType());
+        assertTrue(aggregator.isEmpty());
+    }
+
+    @Test
+    public void testEventCountsAreAdded() {
+        AuditEventAggregator aggregator = new AuditEventAggregator(1000, null, 100, 0);
+        AuthzAuditEvent      event1     = createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME);
+        AuthzAuditEvent      event2     = createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME + 100);
+
+        // events already summarized upstream
+        event1.setEventCount(10);
+        event1.setEventDurationMS(50);
+        event2.setEventCount(5);
+        event2.setEventDurationMS(400);
+
+        aggregator.add(event1, START_TIME);
+        aggregator.add(event2, START_TIME);
+
+        List<AuditEventBase> events = new ArrayList<>();
+
+        aggregator.collectAll(events);
+
+        assertEquals(1, events.size());
+        assertEquals(15, event1.getEventCount());
+        assertEquals(500, event1.getEventDurationMS());
+        assertNull(event1.getAdditionalInfo());
+    }
+
+    @Test
+    public void testIsFull() {
+        AuditEventAggregator aggregator = new AuditEventAggregator(1000, null, 2, 5);
+
+        aggregator.add(createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME), START_TIME);
+        aggregator.add(createEvent(EnumRepositoryType.HDFS, "/data/file1", START_TIME), START_TIME);
+
+        assertFalse(aggregator.isFull());
+
+        aggregator.add(createEvent(EnumRepositoryType.HDFS, "/data/file2", START_TIME), START_TIME);
+
+        assertTrue(aggregator.isFull());
+    }
+
+    private static AuthzAuditEvent createEvent(int repoType, String resource, long eventTime) {
+        AuthzAuditEvent ret = new AuthzAuditEvent(repoType, "dev_svc", "user1", new Date(eventTime), "read", resource, "path", "open", (short) 1,
+                "agent1", 10, null, "ranger-acl", null, null, "10.0.0.1", null, "cluster1", null, 1L);
+
+        ret.setEventId(MiscUtil.generateGuid());
+
+        return ret;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditRingBufferTest {
+    @Test
+    public void testCapacityIsRoundedToPowerOf2() {
+        assertEquals(1, new AuditRingBuffer<Integer>(1).getCapacity());
+        assertEquals(8, new AuditRingBuffer<Integer>(8).getCapacity());
+        assertEquals(16, new AuditRingBuffer<Integer>(9).getCapacity());
+    }
+
+    @Test
+    public void testOfferPollInOrder() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i));
+            }
+
+            assertFalse(buffer.offer(4), "offer() should fail when the buffer is full");
+            assertEquals(4, buffer.size());
+            assertEquals(0, buffer.remainingCapacity());
+
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(i), buffer.poll());
+            }
+
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void testDrainTo() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(16);
+        List<Integer>            batch  = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i);
+        }
+
+        assertEquals(6, buffer.drainTo(batch, 6));
+        assertEquals(4, buffer.drainTo(batch));
+        assertEquals(10, batch.size());
+        assertEquals(Integer.valueOf(9), batch.get(9));
+    }
+
+    @Test
+    public void testIteratorIsSnapshot() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+
+        assertFalse(buffer.iterator().hasNext());
+
+        // wrap around the end of the buffer
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(i);
+            buffer.poll();
+        }
+
+        for (int i = 0; i < 4; i++) {
+            buffer.offer(i);
+        }
+
+        Iterator<Integer> iter = buffer.iterator();
+
+        buffer.poll();
+        buffer.offer(4);
+
+        List<Integer> iterated = new ArrayList<>();
+
+        iter.forEachRemaining(iterated::add);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), iterated);
+        assertEquals(Arrays.asList(1, 2, 3, 4), new ArrayList<>(buffer));
+        assertTrue(buffer.contains(4));
+        assertFalse(buffer.contains(0));
+        assertThrows(UnsupportedOperationException.class, () -> buffer.iterator().remove());
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception {
+        for (AuditRingBuffer.WaitStrategy waitStrategy : AuditRingBuffer.WaitStrategy.values()) {
+            AuditRingBuffer<Integer> buffer    = new AuditRingBuffer<>(4, waitStrategy);
+            long                     startTime = System.currentTimeMillis();
+
+            assertNull(buffer.poll(100, TimeUnit.MILLISECONDS));
+            assertTrue(System.currentTimeMillis() - startTime >= 100, "waitStrategy=" + waitStrategy);
+        }
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int producerCount     = 4;
+        final int eventsPerProducer = 20000;
+
+        for (AuditRingBuffer.WaitStrategy waitStrategy : AuditRingBuffer.WaitStrategy.values()) {
+            AuditRingBuffer<Long> buffer    = new AuditRingBuffer<>(1024, waitStrategy);
+            List<Thread>          producers = new ArrayList<>();
+
+            for (int p = 0; p < producerCount; p++) {
+                final long producerId = p;
+
+                producers.add(new Thread(() -> {
+                    try {
+                        for (long i = 0; i < eventsPerProducer; i++) {
+                            buffer.put(producerId * eventsPerProducer + i);
+                        }
+                    } catch (InterruptedException excp) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+
+            producers.forEach(Thread::start);
+
+            long[]     lastSeen = new long[producerCount];
+            List<Long> batch    = new ArrayList<>();
+            int        received = 0;
+
+            Arrays.fill(lastSeen, -1);
+
+            while (received < producerCount * eventsPerProducer) {
+                Long first = buffer.poll(10, TimeUnit.SECONDS);
+
+                assertNotNull(first, "timed out waiting for events: waitStrategy=" + waitStrategy);
+
+                batch.clear();
+                batch.add(first);
+
+                buffer.drainTo(batch, 100);
+
+                for (Long value : batch) {
+                    int  producerId = (int) (value / eventsPerProducer);
+                    long seq        = value % eventsPerProducer;
+
+                    assertEquals(lastSeen[producerId] + 1, seq, "events from a producer must be received in order: waitStrategy=" + waitStrategy);
+
+                    lastSeen[producerId] = seq;
+                }
+
+                received += batch.size();
+            }
+
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertTrue(buffer.isEmpty());
+        }
+    }
+}
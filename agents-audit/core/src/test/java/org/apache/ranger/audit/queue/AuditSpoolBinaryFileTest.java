@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuditSpoolBinaryFileTest {
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testWriteRead() throws Exception {
+        for (boolean isCompressEnabled : new boolean[] {true, false}) {
+            File file = new File(tempDir, "spool_" + isCompressEnabled + ".log");
+
+            try (AuditSpoolBinaryFile.Writer writer = new AuditSpoolBinaryFile.Writer(file, isCompressEnabled, 1024, 0)) {
+                for (int i = 0; i < 100; i++) {
+                    writer.write(createRecord(i));
+                }
+            }
+
+            assertTrue(AuditSpoolBinaryFile.isBinaryFile(file));
+            assertEquals(createRecords(0, 100), readAll(file));
+        }
+    }
+
+    @Test
+    public void testTextFileIsNotBinary() throws Exception {
+        File file = new File(tempDir, "spool.log");
+
+        Files.write(file.toPath(), "{\"reqUser\":\"user1\"}\n".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(AuditSpoolBinaryFile.isBinaryFile(file));
+    }
+
+    @Test
+    public void testTornFrameIsTruncatedOnAppend() throws Exception {
+        File file = new File(tempDir, "spool.log");
+
+        try (AuditSpoolBinaryFile.Writer writer = new AuditSpoolBinaryFile.Writer(file, true, 64 * 1024, 0)) {
+            for (int i = 0; i < 10; i++) {
+                writer.write(createRecord(i));
+            }
+
+            writer.flush();
+
+            for (int i = 10; i < 20; i++) {
+                writer.write(createRecord(i));
+            }
+        }
+
+        // simulate a crash while writing the second frame
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        assertEquals(createRecords(0, 10), readAll(file));
+
+        try (AuditSpoolBinaryFile.Writer writer = new AuditSpoolBinaryFile.Writer(file, true, 64 * 1024, 0)) {
+            for (int i = 20; i < 30; i++) {
+                writer.write(createRecord(i));
+            }
+        }
+
+        List<String> expected = createRecords(0, 10);
+
+        expected.addAll(createRecords(20, 30));
+
+        assertEquals(expected, readAll(file));
+    }
+
+    @Test
+    public void testCorruptFrameEndsFile() throws Exception {
+        File file = new File(tempDir, "spool.log");
+
+        try (AuditSpoolBinaryFile.Writer writer = new AuditSpoolBinaryFile.Writer(file, false, 64 * 1024, 0)) {
+            writer.write(createRecord(0));
+            writer.flush();
+            writer.write(createRecord(1));
+        }
+
+        // flip a byte in the payload of the last frame
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 2);
+
+            int b = raf.read();
+
+            raf.seek(raf.length() - 2);
+            raf.write(b ^ 0xff);
+        }
+
+        assertEquals(createRecords(0, 1), readAll(file));
+    }
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        File checkpointFile = new File(tempDir, "spool.log.checkpoint");
+
+        try (AuditSpoolBinaryFile.Checkpoint checkpoint = new AuditSpoolBinaryFile.Checkpoint(checkpointFile)) {
+            assertEquals(AuditSpoolBinaryFile.FILE_HEADER_LEN, checkpoint.getFrameOffset());
+            assertEquals(0, checkpoint.getRecordIndex());
+
+            checkpoint.save(1234L, 5);
+        }
+
+        try (AuditSpoolBinaryFile.Checkpoint checkpoint = new AuditSpoolBinaryFile.Checkpoint(checkpointFile)) {
+            assertEquals(1234L, checkpoint.getFrameOffset());
+            assertEquals(5, checkpoint.getRecordIndex());
+
+            checkpoint.delete();
+        }
+
+        assertFalse(checkpointFile.exists());
+    }
+
+    private static List<String> readAll(File file) throws Exception {
+        List<String> ret = new ArrayList<>();
+
+        try (AuditSpoolBinaryFile.Reader reader = new AuditSpoolBinaryFile.Reader(file)) {
+            for (AuditSpoolBinaryFile.Frame frame = reader.readFrame(reader.getFirstFrameOffset()); frame != null; frame = reader.readFrame(frame.getNextOffset())) {
+                ret.addAll(frame.getRecords());
+            }
+        }
+
+        return ret;
+    }
+
+    private static List<String> createRecords(int from, int to) {
+        List<String> ret = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            ret.add(createRecord(i));
+        }
+
+        return ret;
+    }
+
+    private static String createRecord(int i) {
+        return "{\"id\":\"" + i + "\",\"reqUser\":\"user" + i + "\",\"resource\":\"/data/\u00e9t\u00e9/" + i + "\"}";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuthzAuditEventJsonEncoderTest {
+    private final AuthzAuditEventJsonEncoder encoder = new AuthzAuditEventJsonEncoder();
+
+    @Test
+    public void testDefaultEvent() throws Exception {
+        AuthzAuditEvent event = new AuthzAuditEvent();
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+    }
+
+    @Test
+    public void testAllFields() throws Exception {
+        AuthzAuditEvent event = createEvent(1);
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+
+        // encode again, to use the values cached by the previous call
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+    }
+
+    @Test
+    public void testEmptyValuesAreSkipped() throws Exception {
+        AuthzAuditEvent event = createEvent(2);
+
+        event.setUser("");
+        event.setRequestData(null);
+        event.setTags(new LinkedHashSet<>());
+        event.setDatasets(null);
+        event.setPolicyVersion(null);
+        event.setEventTime(null);
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+    }
+
+    @Test
+    public void testEscaping() throws Exception {
+        AuthzAuditEvent event = createEvent(3);
+
+        event.setResourcePath("/data/\"quoted\"/back\\slash/\t\n\r\b\f/\u0001\u001f\u007f/\u00e9t\u00e9/\u4e2d\u6587/\ud83d\ude00");
+        event.setUser("us\u00e9r\n");
+        event.setTags(new LinkedHashSet<>(Arrays.asList("PII", "t\u00e4g\"1")));
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        AuthzAuditEvent event = createEvent(4);
+
+        event.setRepositoryType(-1);
+        event.setPolicyId(Long.MIN_VALUE);
+        event.setSeqNum(Long.MAX_VALUE);
+        event.setEventDurationMS(0);
+        event.setDatasetIds(new LinkedHashSet<>(Arrays.asList(-5L, 0L, 1234567890123L)));
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+    }
+
+    @Test
+    public void testEventTimes() throws Exception {
+        AuthzAuditEvent event = createEvent(5);
+        long            now   = System.currentTimeMillis();
+
+        for (long time : new long[] {now, now + 1, now + 999, now + 1000, now - 86400000L, 0, -1}) {
+            event.setEventTime(new Date(time));
+
+            assertEquals(toJsonWithJackson(event), encoder.toJson(event), "time=" + time);
+        }
+    }
+
+    @Test
+    public void testLargeEvent() throws Exception {
+        char[] chars = new char[512 * 1024];
+
+        Arrays.fill(chars, '\u00e9');
+
+        AuthzAuditEvent event = createEvent(6);
+
+        event.setRequestData(new String(chars));
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+
+        event = createEvent(7);
+
+        assertEquals(toJsonWithJackson(event), encoder.toJson(event));
+    }
+
+    @Test
+    public void testEncodeToStream() throws Exception {
+        AuthzAuditEvent       event = createEvent(8);
+        ByteArrayOutputStream out   = new ByteArrayOutputStream();
+
+        encoder.encode(event, out);
+
+        assertEquals(toJsonWithJackson(event), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStringify() throws Exception {
+        AuthzAuditEvent event = createEvent(9);
+
+        assertEquals(toJsonWithJackson(event), MiscUtil.stringify(event));
+    }
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(AuthzAuditEventJsonEncoder.isSupported(new AuthzAuditEvent()));
+        assertFalse(AuthzAuditEventJsonEncoder.isSupported(new AuthzAuditEvent() {}));
+        assertFalse(AuthzAuditEventJsonEncoder.isSupported("event"));
+        assertFalse(AuthzAuditEventJsonEncoder.isSupported(null));
+    }
+
+    private static String toJsonWithJackson(AuthzAuditEvent event) throws Exception {
+        return MiscUtil.getMapper().writeValueAsString(event);
+    }
+
+    private static AuthzAuditEvent createEvent(int i) {
+        AuthzAuditEvent event = new AuthzAuditEvent(1, "dev_hdfs", "user" + i, new Date(), "read", "/data/file" + i, "path", "open", (short) 1,
+                "hdfs", 10 + i, "reason", "ranger-acl", "session" + i, "hdfs", "10.0.0." + i, "request data " + i, "cluster1", "zone1", 3L);
+
+        event.setAgentHostname("host" + i);
+        event.setLogType("RangerAudit");
+        event.setEventId("id-" + i);
+        event.setSeqNum(i);
+        event.setEventCount(2);
+        event.setEventDurationMS(100);
+        event.setTags(new LinkedHashSet<>(Arrays.asList("PII", "SENSITIVE")));
+        event.setDatasets(new LinkedHashSet<>(Arrays.asList("dataset1", "dataset2")));
+        event.setProjects(new LinkedHashSet<>(Arrays.asList("project1")));
+        event.setDatasetIds(new LinkedHashSet<>(Arrays.asList(1L, 2L)));
+        event.setAdditionalInfo("{\"remote-ip-address\":\"10.0.0." + i + "\"}");
+
+        return event;
+    }
+}
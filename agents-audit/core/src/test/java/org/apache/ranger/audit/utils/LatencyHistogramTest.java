@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBucketBoundsCoverAllValues() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE};
+
+        for (long value : values) {
+            int bucket = LatencyHistogram.getBucket(value);
+
+            assertTrue(LatencyHistogram.getBucketUpperBound(bucket) >= value, "value=" + value);
+            assertTrue(bucket == 0 || LatencyHistogram.getBucketUpperBound(bucket - 1) < value, "value=" + value);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.getAndReset();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertWithinError(500, snapshot.getPercentile(50));
+        assertWithinError(950, snapshot.getPercentile(95));
+        assertWithinError(990, snapshot.getPercentile(99));
+        assertEquals(1000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void testGetAndResetStartsNewInterval() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(5000);
+        histogram.getAndReset();
+        histogram.record(10);
+
+        LatencyHistogram.Snapshot snapshot = histogram.getAndReset();
+
+        assertEquals(1, snapshot.getCount());
+        assertEquals(10, snapshot.getMax());
+        assertEquals(10, snapshot.getPercentile(99));
+        assertEquals(0, histogram.getAndReset().getPercentile(50));
+    }
+
+    @Test
+    public void testStripesAreMergedOnRead() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(3);
+        Thread[]         threads   = new Thread[8];
+
+        assertEquals(4, histogram.getStripeCount());
+
+        for (int t = 0; t < threads.length; t++) {
+            long value = (t + 1) * 100;
+
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    histogram.record(value);
+                }
+            });
+
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.getAndReset();
+
+        assertEquals(8000, snapshot.getCount());
+        assertEquals(800, snapshot.getMax());
+        assertWithinError(100, snapshot.getPercentile(10));
+        assertWithinError(800, snapshot.getPercentile(100));
+        assertEquals(0, histogram.getAndReset().getCount());
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, "expected=" + expected + ", actual=" + actual);
+    }
+}
@@ -28,17 +28,27 @@
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.apache.ranger.plugin.util.RangerRESTClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.security.PrivilegedExceptionAction;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Sends audit events to Ranger Audit Server, one request per log() call. With compression=gzip, request bodies of at
+ * least compression.min.bytes are sent gzip compressed; this requires an audit server that accepts
+ * Content-Encoding: gzip.
+ */
 public class RangerAuditServerDestination extends AuditDestination {
     private static final Logger LOG = LoggerFactory.getLogger(RangerAuditServerDestination.class);
 
@@ -53,6 +63,8 @@ public class RangerAuditServerDestination extends AuditDestination {
     public static final String PROP_CLIENT_READ_TIMEOUT_MS = "read.timeout.ms";
     public static final String PROP_MAX_RETRY_ATTEMPTS     = "max.retry.attempts";
     public static final String PROP_RETRY_INTERVAL_MS      = "retry.interval.ms";
+    public static final String PROP_COMPRESSION            = "compression";
+    public static final String PROP_COMPRESSION_MIN_BYTES  = "compression.min.bytes";
 
     public static final String REST_RELATIVE_PATH_POST  = "/api/audit/access";
     public static final String QUERY_PARAM_SERVICE_NAME = "serviceName";
@@ -63,7 +75,13 @@ public class RangerAuditServerDestination extends AuditDestination {
     public static final String AUTH_TYPE_BASIC    = "basic";
     public static final String AUTH_TYPE_JWT      = "jwt";
 
+    // Request body compression
+    public static final String COMPRESSION_NONE = "none";
+    public static final String COMPRESSION_GZIP = "gzip";
+
     private RangerRESTClient restClient;
+    private boolean          compressionEnabled;
+    private int              compressionMinBytes;
 
     @Override
     public void init(Properties props, String propPrefix) {
@@ -78,9 +96,20 @@ public void init(Properties props, String propPrefix) {
         int    maxRetryAttempts  = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_MAX_RETRY_ATTEMPTS, 3);
         int    retryIntervalMs   = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_RETRY_INTERVAL_MS, 1000);
         String authType          = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_AUTHN_TYPE);
+        String compression       = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_COMPRESSION, COMPRESSION_NONE);
 
         LOG.info("Audit destination authentication type: {}", authType);
 
+        if (COMPRESSION_GZIP.equalsIgnoreCase(compression)) {
+            compressionEnabled = true;
+        } else if (!COMPRESSION_NONE.equalsIgnoreCase(compression)) {
+            LOG.warn("Unsupported compression {}. Audit events will be sent uncompressed. Supported values: {}, {}", compression, COMPRESSION_NONE, COMPRESSION_GZIP);
+        }
+
+        compressionMinBytes = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_COMPRESSION_MIN_BYTES, 4096);
+
+        LOG.info("compressionEnabled={}, compressionMinBytes={}", compressionEnabled, compressionMinBytes);
+
         Configuration config = createRESTClientConfiguration(props, propPrefix, authType);
 
         this.restClient = new RangerRESTClient(url, sslConfigFileName, config);
@@ -247,7 +276,7 @@ private boolean sendBatch(Collection<AuditEventBase> events, RangerRESTClient re
         return ret;
     }
 
-    private ClientResponse postAuditEvents(RangerRESTClient restClient, Map<String, String> params, Collection<AuditEventBase> events) {
+    private ClientResponse postAuditEvents(RangerRESTClient restClient, Map<String, String> params, Collection<AuditEventBase> events) throws IOException {
         LOG.debug("Posting {} audit events to {}", events.size(), REST_RELATIVE_PATH_POST);
 
         WebResource webResource = restClient.getResource(REST_RELATIVE_PATH_POST);
@@ -258,11 +287,34 @@ private ClientResponse postAuditEvents(RangerRESTClient restClient, Map<String,
             }
         }
 
-        return webResource
-                .accept("application/json")
-                .type("application/json")
-                .entity(events)
-                .post(ClientResponse.class);
+        byte[]              body    = JsonUtilsV2.getMapper().writeValueAsBytes(events);
+        WebResource.Builder builder = webResource.accept("application/json").type("application/json");
+
+        if (isCompressionRequired(body.length)) {
+            int uncompressedLength = body.length;
+
+            body = gzip(body);
+
+            builder = builder.header("Content-Encoding", COMPRESSION_GZIP);
+
+            LOG.debug("Compressed audit batch of {} events: {} bytes => {} bytes", events.size(), uncompressedLength, body.length);
+        }
+
+        return builder.entity(body).post(ClientResponse.class);
+    }
+
+    boolean isCompressionRequired(int bodyLength) {
+        return compressionEnabled && bodyLength >= compressionMinBytes;
+    }
+
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream(data.length / 4 + 64);
+
+        try (OutputStream out = new GZIPOutputStream(ret)) {
+            out.write(data);
+        }
+
+        return ret.toByteArray();
     }
 
     private static Configuration createRESTClientConfiguration(Properties props, String propPrefix, String authType) {
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+public class TestRangerAuditServerDestination {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.auditserver";
+
+    private RangerAuditServerDestination destination;
+
+    @AfterEach
+    public void tearDown() {
+        if (destination != null) {
+            destination.stop();
+        }
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        List<AuthzAuditEvent> events = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setEventId("event-" + i);
+            event.setRepositoryName("dev_hdfs");
+            event.setResourcePath("/data/file-" + i);
+
+            events.add(event);
+        }
+
+        byte[] body       = JsonUtilsV2.getMapper().writeValueAsBytes(events);
+        byte[] compressed = RangerAuditServerDestination.gzip(body);
+
+        Assertions.assertTrue(compressed.length < body.length);
+
+        List<AuthzAuditEvent> decoded;
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            decoded = JsonUtilsV2.getMapper().readValue(in, new TypeReference<List<AuthzAuditEvent>>() {});
+        }
+
+        Assertions.assertEquals(events.size(), decoded.size());
+
+        for (int i = 0; i < events.size(); i++) {
+            Assertions.assertEquals(events.get(i).getEventId(), decoded.get(i).getEventId());
+            Assertions.assertEquals(events.get(i).getResourcePath(), decoded.get(i).getResourcePath());
+        }
+    }
+
+    @Test
+    public void testBodiesBelowMinBytesAreNotCompressed() {
+        destination = createDestination("gzip");
+
+        Assertions.assertFalse(destination.isCompressionRequired(1023));
+        Assertions.assertTrue(destination.isCompressionRequired(1024));
+    }
+
+    @Test
+    public void testCompressionIsDisabledByDefault() {
+        destination = createDestination(null);
+
+        Assertions.assertFalse(destination.isCompressionRequired(1024 * 1024));
+    }
+
+    @Test
+    public void testUnsupportedCompressionIsIgnored() {
+        destination = createDestination("zstd");
+
+        Assertions.assertFalse(destination.isCompressionRequired(1024 * 1024));
+    }
+
+    private static RangerAuditServerDestination createDestination(String compression) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + RangerAuditServerDestination.PROP_URL, "http://localhost:7081");
+        props.setProperty(PROP_PREFIX + "." + RangerAuditServerDestination.PROP_COMPRESSION_MIN_BYTES, "1024");
+
+        if (compression != null) {
+            props.setProperty(PROP_PREFIX + "." + RangerAuditServerDestination.PROP_COMPRESSION, compression);
+        }
+
+        RangerAuditServerDestination ret = new RangerAuditServerDestination();
+
+        ret.init(props, PROP_PREFIX);
+
+        return ret;
+    }
+}
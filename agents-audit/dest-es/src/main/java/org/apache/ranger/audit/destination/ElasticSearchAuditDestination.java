@@ -19,6 +19,10 @@
 
 package org.apache.ranger.audit.destination;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.http.HttpHost;
@@ -27,18 +31,20 @@
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.config.Lookup;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.auth.SPNegoSchemeFactory;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditIndexDocEncoder;
 import org.apache.ranger.authorization.credutils.CredentialsProviderUtil;
 import org.apache.ranger.authorization.credutils.kerberos.KerberosCredentialsProvider;
 import org.elasticsearch.action.admin.indices.open.OpenIndexRequest;
-import org.elasticsearch.action.bulk.BulkItemResponse;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
@@ -48,32 +54,27 @@
 import javax.security.auth.Subject;
 import javax.security.auth.kerberos.KerberosTicket;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.PrivilegedActionException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Properties;
-import java.util.TimeZone;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class ElasticSearchAuditDestination extends AuditDestination {
-    private static final Logger LOG = LoggerFactory.getLogger(ElasticSearchAuditDestination.class);
-    private static final ThreadLocal<DateFormat> DATE_FORMAT = ThreadLocal.withInitial(() -> {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-        format.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return format;
-    });
+    private static final Logger      LOG                 = LoggerFactory.getLogger(ElasticSearchAuditDestination.class);
+    private static final JsonFactory JSON_FACTORY        = new JsonFactory();
+    private static final ContentType NDJSON_CONTENT_TYPE = ContentType.create("application/x-ndjson");
 
     public static final String CONFIG_URLS     = "urls";
     public static final String CONFIG_PORT     = "port";
@@ -86,14 +87,16 @@ public class ElasticSearchAuditDestination extends AuditDestination {
 
     private final AtomicReference<RestHighLevelClient> clientRef    = new AtomicReference<>(null);
     private final AtomicLong                           lastLoggedAt = new AtomicLong(0);
+    private final AuditIndexDocEncoder                 docEncoder   = new AuditIndexDocEncoder(false);
 
-    private String  index = CONFIG_INDEX;
-    private String  protocol;
-    private String  user;
-    private int     port;
-    private String  password;
-    private String  hosts;
-    private Subject subject;
+    private String           index = CONFIG_INDEX;
+    private String           protocol;
+    private String           user;
+    private int              port;
+    private String           password;
+    private String           hosts;
+    private Subject          subject;
+    private AuditBulkIndexer bulkIndexer;
 
     public ElasticSearchAuditDestination() {
         propPrefix = CONFIG_PREFIX;
@@ -155,12 +158,20 @@ public void init(Properties props, String propPrefix) {
         LOG.info("Connecting to ElasticSearch: {}", connectionString());
 
         getClient(); // Initialize client
+
+        bulkIndexer = new AuditBulkIndexer(getName(), props, propPrefix, this::sendBulkRequest);
     }
 
     @Override
     public void stop() {
         super.stop();
 
+        AuditBulkIndexer bulkIndexer = this.bulkIndexer;
+
+        if (bulkIndexer != null) {
+            bulkIndexer.stop();
+        }
+
         logStatus();
     }
 
@@ -191,47 +202,20 @@ public boolean log(Collection<AuditEventBase> events) {
                 return ret;
             }
 
-            ArrayList<AuditEventBase> eventList   = new ArrayList<>(events);
-            BulkRequest               bulkRequest = new BulkRequest();
-
-            try {
-                eventList.forEach(event -> {
-                    AuthzAuditEvent     authzEvent = (AuthzAuditEvent) event;
-                    String              id         = authzEvent.getEventId();
-                    Map<String, Object> doc        = toDoc(authzEvent);
+            List<AuditEventBase> eventList = new ArrayList<>(events.size());
+            List<byte[]>         docs      = new ArrayList<>(events.size());
 
-                    bulkRequest.add(new IndexRequest(index).id(id).source(doc));
-                });
-            } catch (Exception ex) {
-                addFailedCount(eventList.size());
-                logFailedEvent(eventList, ex);
-            }
-
-            BulkResponse response = client.bulk(bulkRequest, RequestOptions.DEFAULT);
-            if (response.status().getStatus() >= 400) {
-                addFailedCount(eventList.size());
-                logFailedEvent(eventList, "HTTP " + response.status().getStatus());
-            } else {
-                BulkItemResponse[] items = response.getItems();
-
-                for (int i = 0; i < items.length; i++) {
-                    AuditEventBase   itemRequest  = eventList.get(i);
-                    BulkItemResponse itemResponse = items[i];
-
-                    if (itemResponse.isFailed()) {
-                        addFailedCount(1);
-                        logFailedEvent(Collections.singletonList(itemRequest), itemResponse.getFailureMessage());
-                    } else {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug("Indexed {}", itemRequest.getEventKey());
-                        }
-
-                        addSuccessCount(1);
-
-                        ret = true;
-                    }
+            for (AuditEventBase event : events) {
+                try {
+                    docs.add(toBulkEntry((AuthzAuditEvent) event));
+                    eventList.add(event);
+                } catch (Exception ex) {
+                    addFailedCount(1);
+                    logFailedEvent(event, ex);
                 }
             }
+
+            ret = onBulkIndexResult(eventList, bulkIndexer.index(docs));
         } catch (Throwable t) {
             addDeferredCount(events.size());
 
@@ -288,44 +272,147 @@ synchronized RestHighLevelClient getClient() {
         return client;
     }
 
-    Map<String, Object> toDoc(AuthzAuditEvent auditEvent) {
-        Map<String, Object> doc = new HashMap<>();
-
-        doc.put("id", auditEvent.getEventId());
-        doc.put("access", auditEvent.getAccessType());
-        doc.put("enforcer", auditEvent.getAclEnforcer());
-        doc.put("agent", auditEvent.getAgentId());
-        doc.put("repo", auditEvent.getRepositoryName());
-        doc.put("sess", auditEvent.getSessionId());
-        doc.put("reqUser", auditEvent.getUser());
-        doc.put("reqData", auditEvent.getRequestData());
-        doc.put("resource", auditEvent.getResourcePath());
-        doc.put("cliIP", auditEvent.getClientIP());
-        doc.put("logType", auditEvent.getLogType());
-        doc.put("result", auditEvent.getAccessResult());
-        doc.put("policy", auditEvent.getPolicyId());
-        doc.put("repoType", auditEvent.getRepositoryType());
-        doc.put("resType", auditEvent.getResourceType());
-        doc.put("reason", auditEvent.getResultReason());
-        doc.put("action", auditEvent.getAction());
-        Date eventTime = auditEvent.getEventTime();
-        if (eventTime != null) {
-            doc.put("evtTime", DATE_FORMAT.get().format(eventTime));
-        } else {
-            doc.put("evtTime", null);
+    /**
+     * Serializes the event as an entry of the bulk API request body: the action line followed by the document, each terminated by a newline
+     */
+    byte[] toBulkEntry(AuthzAuditEvent auditEvent) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("index");
+
+            if (auditEvent.getEventId() != null) {
+                gen.writeStringField("_id", auditEvent.getEventId());
+            }
+
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+
+        out.write('\n');
+
+        docEncoder.encode(auditEvent, out);
+
+        out.write('\n');
+
+        return out.toByteArray();
+    }
+
+    private int[] sendBulkRequest(List<byte[]> docs, long bytes) throws IOException {
+        RestHighLevelClient client = getClient();
+
+        if (client == null) {
+            throw new IOException("ElasticSearch client is not available: " + connectionString());
+        }
+
+        byte[] body   = new byte[Math.toIntExact(bytes)];
+        int    offset = 0;
+
+        for (byte[] doc : docs) {
+            System.arraycopy(doc, 0, body, offset, doc.length);
+
+            offset += doc.length;
+        }
+
+        Request request = new Request("POST", "/" + index + "/_bulk");
+
+        request.setEntity(new ByteArrayEntity(body, NDJSON_CONTENT_TYPE));
+
+        int[] ret = new int[docs.size()];
+
+        // documents missing in the response are retried
+        Arrays.fill(ret, AuditBulkIndexer.STATUS_SERVICE_UNAVAILABLE);
+
+        try {
+            Response response = client.getLowLevelClient().performRequest(request);
+
+            try (InputStream in = response.getEntity().getContent()) {
+                readBulkResponse(in, ret);
+            }
+        } catch (ResponseException excp) {
+            Arrays.fill(ret, excp.getResponse().getStatusLine().getStatusCode());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Reads the status of each item from the bulk API response, without building an object tree of the response
+     */
+    private void readBulkResponse(InputStream in, int[] statuses) throws IOException {
+        int    failedCount = 0;
+        String lastError   = null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid response from ElasticSearch bulk API");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+
+                parser.nextToken();
+
+                if ("errors".equals(field) && !parser.getValueAsBoolean()) {
+                    Arrays.fill(statuses, AuditBulkIndexer.STATUS_OK);
+
+                    return;
+                } else if ("items".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    int itemIdx = 0;
+
+                    // each item is of the form: { "index": { "_id": ..., "status": ..., "error": { "reason": ... } } }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        int status = AuditBulkIndexer.STATUS_SERVICE_UNAVAILABLE;
+
+                        parser.nextToken(); // action name
+                        parser.nextToken(); // start of action result
+
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.getCurrentName();
+
+                            parser.nextToken();
+
+                            if ("status".equals(name)) {
+                                status = parser.getIntValue();
+                            } else if ("error".equals(name) && parser.currentToken() == JsonToken.START_OBJECT) {
+                                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                    String errorField = parser.getCurrentName();
+
+                                    parser.nextToken();
+
+                                    if ("reason".equals(errorField)) {
+                                        lastError = parser.getText();
+                                    } else {
+                                        parser.skipChildren();
+                                    }
+                                }
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+
+                        parser.nextToken(); // end of item
+
+                        if (status >= 300) {
+                            failedCount++;
+                        }
+
+                        if (itemIdx < statuses.length) {
+                            statuses[itemIdx++] = status;
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (failedCount > 0) {
+            LOG.warn("ElasticSearch did not index {} of {} documents; last error: {}", failedCount, statuses.length, lastError);
         }
-        doc.put("seq_num", auditEvent.getSeqNum());
-        doc.put("event_count", auditEvent.getEventCount());
-        doc.put("event_dur_ms", auditEvent.getEventDurationMS());
-        doc.put("tags", auditEvent.getTags());
-        doc.put("datasets", auditEvent.getDatasets());
-        doc.put("projects", auditEvent.getProjects());
-        doc.put("cluster", auditEvent.getClusterName());
-        doc.put("zoneName", auditEvent.getZoneName());
-        doc.put("agentHost", auditEvent.getAgentHostname());
-        doc.put("policyVersion", auditEvent.getPolicyVersion());
-
-        return doc;
     }
 
     private String connectionString() {
@@ -22,6 +22,7 @@
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditWriterFactory;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.RangerAuditEventWriter;
 import org.apache.ranger.audit.utils.RangerAuditWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 
 /**
  * This class write the logs to local file
@@ -99,48 +101,7 @@ public void flush() {
 
     @Override
     public synchronized boolean logJSON(final Collection<String> events) {
-        logStatusIfRequired();
-        addTotalCount(events.size());
-
-        if (!initDone) {
-            addDeferredCount(events.size());
-
-            return false;
-        }
-
-        if (isStopped) {
-            addDeferredCount(events.size());
-
-            logError("log() called after stop was requested. name={}", getName());
-
-            return false;
-        }
-
-        try {
-            boolean ret = auditWriter.log(events);
-
-            if (!ret) {
-                addDeferredCount(events.size());
-
-                return false;
-            }
-        } catch (Throwable t) {
-            addDeferredCount(events.size());
-
-            logError("Error writing to log file.", t);
-
-            return false;
-        } finally {
-            logger.debug("Flushing HDFS audit. Event Size:{}", events.size());
-
-            if (auditWriter != null) {
-                flush();
-            }
-        }
-
-        addSuccessCount(events.size());
-
-        return true;
+        return write(events.size(), () -> auditWriter.log(events));
     }
 
     @Override
@@ -196,6 +157,11 @@ public boolean log(Collection<AuditEventBase> events) {
             return false;
         }
 
+        if (auditWriter instanceof RangerAuditEventWriter) {
+            // write events as is, instead of converting them to JSON to be parsed back by the writer
+            return write(events.size(), () -> ((RangerAuditEventWriter) auditWriter).logEvents(events));
+        }
+
         List<String> jsonList = new ArrayList<>();
 
         for (AuditEventBase event : events) {
@@ -213,6 +179,51 @@ public boolean log(Collection<AuditEventBase> events) {
         return logJSON(jsonList);
     }
 
+    private synchronized boolean write(int eventCount, Callable<Boolean> writeAction) {
+        logStatusIfRequired();
+        addTotalCount(eventCount);
+
+        if (!initDone) {
+            addDeferredCount(eventCount);
+
+            return false;
+        }
+
+        if (isStopped) {
+            addDeferredCount(eventCount);
+
+            logError("log() called after stop was requested. name={}", getName());
+
+            return false;
+        }
+
+        try {
+            boolean ret = writeAction.call();
+
+            if (!ret) {
+                addDeferredCount(eventCount);
+
+                return false;
+            }
+        } catch (Throwable t) {
+            addDeferredCount(eventCount);
+
+            logError("Error writing to log file.", t);
+
+            return false;
+        } finally {
+            logger.debug("Flushing HDFS audit. Event Size:{}", eventCount);
+
+            if (auditWriter != null) {
+                flush();
+            }
+        }
+
+        addSuccessCount(eventCount);
+
+        return true;
+    }
+
     public RangerAuditWriter getWriter() throws Exception {
         AuditWriterFactory auditWriterFactory = AuditWriterFactory.getInstance();
 
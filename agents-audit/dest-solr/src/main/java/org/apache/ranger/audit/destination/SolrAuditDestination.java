@@ -23,6 +23,7 @@
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuditIndexDocEncoder;
 import org.apache.ranger.audit.utils.InMemoryJAASConfiguration;
 import org.apache.ranger.audit.utils.KerberosAction;
 import org.apache.ranger.audit.utils.KerberosJAASConfigUser;
@@ -33,9 +34,10 @@
 import org.apache.solr.client.solrj.impl.Krb5HttpClientBuilder;
 import org.apache.solr.client.solrj.impl.LBHttpSolrClient;
 import org.apache.solr.client.solrj.impl.SolrHttpClientBuilder;
+import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrException;
-import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.ContentStreamBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +48,7 @@
 import javax.net.ssl.TrustManagerFactory;
 import javax.security.auth.login.LoginException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -76,8 +79,11 @@ public class SolrAuditDestination extends AuditDestination {
     public static final String DEFAULT_COLLECTION_NAME                  = "ranger_audits";
     public static final String PROP_JAVA_SECURITY_AUTH_LOGIN_CONFIG     = "java.security.auth.login.config";
 
-    private volatile SolrClient   solrClient;
-    private volatile KerberosUser kerberosUser;
+    private final AuditIndexDocEncoder docEncoder = new AuditIndexDocEncoder(true);
+
+    private volatile SolrClient       solrClient;
+    private volatile KerberosUser     kerberosUser;
+    private volatile AuditBulkIndexer bulkIndexer;
 
     public SolrAuditDestination() {
     }
@@ -90,12 +96,20 @@ public void init(Properties props, String propPrefix) {
 
         init();
         connect();
+
+        bulkIndexer = new AuditBulkIndexer(getName(), props, propPrefix, this::sendBulkRequest);
     }
 
     @Override
     public void stop() {
         LOG.info("SolrAuditDestination.stop() called..");
 
+        AuditBulkIndexer bulkIndexer = this.bulkIndexer;
+
+        if (bulkIndexer != null) {
+            bulkIndexer.stop();
+        }
+
         logStatus();
 
         SolrClient solrClient = this.solrClient;
@@ -155,33 +169,20 @@ public boolean log(Collection<AuditEventBase> events) {
                 }
             }
 
-            final Collection<SolrInputDocument> docs = new ArrayList<>();
+            List<AuditEventBase> eventList = new ArrayList<>(events.size());
+            List<byte[]>         docs      = new ArrayList<>(events.size());
 
             for (AuditEventBase event : events) {
-                AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
-
-                // Convert AuditEventBase to Solr document
-                SolrInputDocument document = toSolrDoc(authzEvent);
-
-                docs.add(document);
-            }
-
-            try {
-                final UpdateResponse response = addDocsToSolr(solrClient, docs);
-
-                if (response.getStatus() != 0) {
-                    addFailedCount(events.size());
-
-                    logFailedEvent(events, response.toString());
-                } else {
-                    addSuccessCount(events.size());
-
-                    ret = true;
+                try {
+                    docs.add(toSolrDoc((AuthzAuditEvent) event));
+                    eventList.add(event);
+                } catch (Exception ex) {
+                    addFailedCount(1);
+                    logFailedEvent(event, ex);
                 }
-            } catch (SolrException ex) {
-                addFailedCount(events.size());
-                logFailedEvent(events, ex);
             }
+
+            ret = onBulkIndexResult(eventList, bulkIndexer.index(docs));
         } catch (Throwable t) {
             addDeferredCount(events.size());
 
@@ -289,40 +290,15 @@ synchronized void connect() {
         }
     }
 
-    SolrInputDocument toSolrDoc(AuthzAuditEvent auditEvent) {
-        SolrInputDocument doc = new SolrInputDocument();
-
-        doc.addField("id", auditEvent.getEventId());
-        doc.addField("access", auditEvent.getAccessType());
-        doc.addField("enforcer", auditEvent.getAclEnforcer());
-        doc.addField("agent", auditEvent.getAgentId());
-        doc.addField("repo", auditEvent.getRepositoryName());
-        doc.addField("sess", auditEvent.getSessionId());
-        doc.addField("reqUser", auditEvent.getUser());
-        doc.addField("reqData", auditEvent.getRequestData());
-        doc.addField("resource", auditEvent.getResourcePath());
-        doc.addField("cliIP", auditEvent.getClientIP());
-        doc.addField("logType", auditEvent.getLogType());
-        doc.addField("result", auditEvent.getAccessResult());
-        doc.addField("policy", auditEvent.getPolicyId());
-        doc.addField("repoType", auditEvent.getRepositoryType());
-        doc.addField("resType", auditEvent.getResourceType());
-        doc.addField("reason", auditEvent.getResultReason());
-        doc.addField("action", auditEvent.getAction());
-        doc.addField("evtTime", auditEvent.getEventTime());
-        doc.addField("seq_num", auditEvent.getSeqNum());
-        doc.setField("event_count", auditEvent.getEventCount());
-        doc.setField("event_dur_ms", auditEvent.getEventDurationMS());
-        doc.setField("tags", auditEvent.getTags());
-        doc.addField("datasets", auditEvent.getDatasets());
-        doc.addField("projects", auditEvent.getProjects());
-        doc.addField("datasetIds", auditEvent.getDatasetIds());
-        doc.setField("cluster", auditEvent.getClusterName());
-        doc.setField("zoneName", auditEvent.getZoneName());
-        doc.setField("agentHost", auditEvent.getAgentHostname());
-        doc.setField("policyVersion", auditEvent.getPolicyVersion());
-
-        return doc;
+    /**
+     * Serializes the event as a JSON document of the audit collection
+     */
+    byte[] toSolrDoc(AuthzAuditEvent auditEvent) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+        docEncoder.encode(auditEvent, out);
+
+        return out.toByteArray();
     }
 
     private void init() {
@@ -479,27 +455,93 @@ private SSLContext getSSLContext(KeyManager[] kmList, TrustManager[] tmList) {
         return sslContext;
     }
 
-    private UpdateResponse addDocsToSolr(final SolrClient solrClient, final Collection<SolrInputDocument> docs) throws Exception {
-        final UpdateResponse ret;
+    /**
+     * Sends the documents to the JSON update handler as a single array, avoiding conversion to SolrInputDocument.
+     * Solr updates are applied all-or-nothing, hence all documents are given the status of the request.
+     */
+    private int[] sendBulkRequest(List<byte[]> docs, long bytes) throws Exception {
+        final SolrClient solrClient = this.solrClient;
+
+        if (solrClient == null) {
+            connect();
+
+            throw new IOException("Solr client is not available");
+        }
+
+        byte[] body   = new byte[Math.toIntExact(bytes + docs.size() + 1)];
+        int    offset = 0;
+
+        body[offset++] = '[';
+
+        for (byte[] doc : docs) {
+            if (offset > 1) {
+                body[offset++] = ',';
+            }
+
+            System.arraycopy(doc, 0, body, offset, doc.length);
+
+            offset += doc.length;
+        }
+
+        body[offset] = ']';
+
+        final ContentStreamUpdateRequest request = new ContentStreamUpdateRequest("/update");
+
+        request.addContentStream(new ContentStreamBase.ByteArrayStream(body, "ranger-audit", "application/json"));
+
+        int[] ret = new int[docs.size()];
 
         try {
-            final PrivilegedExceptionAction<UpdateResponse> action = () -> solrClient.add(docs);
+            final UpdateResponse response = addDocsToSolr(() -> request.process(solrClient));
 
-            if (kerberosUser != null) {
-                // execute the privileged action as the given keytab user
-                final KerberosAction<UpdateResponse> kerberosAction = new KerberosAction<>(kerberosUser, action, LOG);
+            if (response.getStatus() != 0) {
+                LOG.warn("Solr update failed: {}", response);
 
-                ret = kerberosAction.execute();
+                Arrays.fill(ret, SolrException.ErrorCode.SERVER_ERROR.code);
             } else {
-                ret = action.run();
+                Arrays.fill(ret, AuditBulkIndexer.STATUS_OK);
             }
-        } catch (Exception e) {
-            throw e;
+        } catch (Exception excp) {
+            SolrException solrExcp = getSolrException(excp);
+
+            if (solrExcp == null) {
+                throw excp;
+            }
+
+            LOG.warn("Solr update failed: code={}, message={}", solrExcp.code(), solrExcp.getMessage());
+
+            Arrays.fill(ret, solrExcp.code());
+        }
+
+        return ret;
+    }
+
+    private UpdateResponse addDocsToSolr(final PrivilegedExceptionAction<UpdateResponse> action) throws Exception {
+        final UpdateResponse ret;
+
+        if (kerberosUser != null) {
+            // execute the privileged action as the given keytab user
+            final KerberosAction<UpdateResponse> kerberosAction = new KerberosAction<>(kerberosUser, action, LOG);
+
+            ret = kerberosAction.execute();
+        } else {
+            ret = action.run();
         }
 
         return ret;
     }
 
+    // KerberosAction wraps the exception thrown by the action
+    private static SolrException getSolrException(Throwable excp) {
+        for (Throwable t = excp; t != null; t = t.getCause()) {
+            if (t instanceof SolrException) {
+                return (SolrException) t;
+            }
+        }
+
+        return null;
+    }
+
     private InputStream getFileInputStream(String fileName) throws IOException {
         InputStream in = null;
 
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes AuthzAuditEvent fields directly to Parquet's RecordConsumer, without building an intermediate record.
+ * Column names are the names used in the JSON format of audit events.
+ */
+public class AuthzAuditEventWriteSupport extends WriteSupport<AuthzAuditEvent> {
+    public static final MessageType SCHEMA = MessageTypeParser.parseMessageType(
+            "message ranger_audit {\n" +
+            "  required int32 repoType;\n" +
+            "  optional binary repo (STRING);\n" +
+            "  optional binary reqUser (STRING);\n" +
+            "  optional int64 evtTime (TIMESTAMP(MILLIS,true));\n" +
+            "  optional binary access (STRING);\n" +
+            "  optional binary resource (STRING);\n" +
+            "  optional binary resType (STRING);\n" +
+            "  optional binary action (STRING);\n" +
+            "  required int32 result;\n" +
+            "  optional binary agent (STRING);\n" +
+            "  required int64 policy;\n" +
+            "  optional binary reason (STRING);\n" +
+            "  optional binary enforcer (STRING);\n" +
+            "  optional binary sess (STRING);\n" +
+            "  optional binary cliType (STRING);\n" +
+            "  optional binary cliIP (STRING);\n" +
+            "  optional binary reqData (STRING);\n" +
+            "  optional binary agentHost (STRING);\n" +
+            "  optional binary logType (STRING);\n" +
+            "  optional binary id (STRING);\n" +
+            "  required int64 seq_num;\n" +
+            "  required int64 event_count;\n" +
+            "  required int64 event_dur_ms;\n" +
+            "  optional group tags (LIST) {\n" +
+            "    repeated group list {\n" +
+            "      optional binary element (STRING);\n" +
+            "    }\n" +
+            "  }\n" +
+            "  optional group datasets (LIST) {\n" +
+            "    repeated group list {\n" +
+            "      optional binary element (STRING);\n" +
+            "    }\n" +
+            "  }\n" +
+            "  optional group projects (LIST) {\n" +
+            "    repeated group list {\n" +
+            "      optional binary element (STRING);\n" +
+            "    }\n" +
+            "  }\n" +
+            "  optional group datasetIds (LIST) {\n" +
+            "    repeated group list {\n" +
+            "      optional int64 element;\n" +
+            "    }\n" +
+            "  }\n" +
+            "  optional binary additional_info (STRING);\n" +
+            "  optional binary cluster_name (STRING);\n" +
+            "  optional binary zone_name (STRING);\n" +
+            "  optional int64 policy_version;\n" +
+            "}");
+
+    // columns with few distinct values, for which dictionary encoding is effective
+    public static final List<String> DICTIONARY_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "repoType", "repo", "reqUser", "access", "resType", "action", "result", "agent", "policy", "reason", "enforcer",
+            "cliType", "cliIP", "agentHost", "logType", "event_count", "tags.list.element", "datasets.list.element",
+            "projects.list.element", "datasetIds.list.element", "cluster_name", "zone_name", "policy_version"));
+
+    private static final String LIST    = "list";
+    private static final String ELEMENT = "element";
+
+    private RecordConsumer recordConsumer;
+    private int            fieldIndex;
+
+    @Override
+    public String getName() {
+        return "ranger_audit";
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(SCHEMA, Collections.emptyMap());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+    }
+
+    @Override
+    public void write(AuthzAuditEvent event) {
+        recordConsumer.startMessage();
+
+        fieldIndex = 0;
+
+        writeInt("repoType", event.getRepositoryType());
+        writeString("repo", event.getRepositoryName());
+        writeString("reqUser", event.getUser());
+        writeDate("evtTime", event.getEventTime());
+        writeString("access", event.getAccessType());
+        writeString("resource", event.getResourcePath());
+        writeString("resType", event.getResourceType());
+        writeString("action", event.getAction());
+        writeInt("result", event.getAccessResult());
+        writeString("agent", event.getAgentId());
+        writeLong("policy", event.getPolicyId());
+        writeString("reason", event.getResultReason());
+        writeString("enforcer", event.getAclEnforcer());
+        writeString("sess", event.getSessionId());
+        writeString("cliType", event.getClientType());
+        writeString("cliIP", event.getClientIP());
+        writeString("reqData", event.getRequestData());
+        writeString("agentHost", event.getAgentHostname());
+        writeString("logType", event.getLogType());
+        writeString("id", event.getEventId());
+        writeLong("seq_num", event.getSeqNum());
+        writeLong("event_count", event.getEventCount());
+        writeLong("event_dur_ms", event.getEventDurationMS());
+        writeList("tags", event.getTags());
+        writeList("datasets", event.getDatasets());
+        writeList("projects", event.getProjects());
+        writeList("datasetIds", event.getDatasetIds());
+        writeString("additional_info", event.getAdditionalInfo());
+        writeString("cluster_name", event.getClusterName());
+        writeString("zone_name", event.getZoneName());
+        writeLong("policy_version", event.getPolicyVersion());
+
+        recordConsumer.endMessage();
+    }
+
+    private void writeInt(String name, int value) {
+        recordConsumer.startField(name, fieldIndex);
+        recordConsumer.addInteger(value);
+        recordConsumer.endField(name, fieldIndex);
+
+        fieldIndex++;
+    }
+
+    private void writeLong(String name, long value) {
+        recordConsumer.startField(name, fieldIndex);
+        recordConsumer.addLong(value);
+        recordConsumer.endField(name, fieldIndex);
+
+        fieldIndex++;
+    }
+
+    private void writeLong(String name, Long value) {
+        if (value != null) {
+            writeLong(name, value.longValue());
+        } else {
+            fieldIndex++;
+        }
+    }
+
+    private void writeDate(String name, Date value) {
+        if (value != null) {
+            writeLong(name, value.getTime());
+        } else {
+            fieldIndex++;
+        }
+    }
+
+    private void writeString(String name, String value) {
+        if (value != null) {
+            recordConsumer.startField(name, fieldIndex);
+            recordConsumer.addBinary(Binary.fromString(value));
+            recordConsumer.endField(name, fieldIndex);
+        }
+
+        fieldIndex++;
+    }
+
+    // 3-level list representation, as per the Parquet spec for LIST
+    private void writeList(String name, Collection<?> values) {
+        if (values != null && !values.isEmpty()) {
+            recordConsumer.startField(name, fieldIndex);
+            recordConsumer.startGroup();
+            recordConsumer.startField(LIST, 0);
+
+            for (Object value : values) {
+                recordConsumer.startGroup();
+
+                if (value != null) {
+                    recordConsumer.startField(ELEMENT, 0);
+
+                    if (value instanceof Long) {
+                        recordConsumer.addLong((Long) value);
+                    } else {
+                        recordConsumer.addBinary(Binary.fromString(value.toString()));
+                    }
+
+                    recordConsumer.endField(ELEMENT, 0);
+                }
+
+                recordConsumer.endGroup();
+            }
+
+            recordConsumer.endField(LIST, 0);
+            recordConsumer.endGroup();
+            recordConsumer.endField(name, fieldIndex);
+        }
+
+        fieldIndex++;
+    }
+}
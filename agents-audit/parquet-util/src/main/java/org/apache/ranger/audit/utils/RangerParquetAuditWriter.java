@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.util.HadoopOutputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * This class writes the Ranger audits as Parquet files, with one row per audit event. Unlike RangerORCAuditWriter,
+ * which writes each batch to a new file, events are streamed into an open file - with rows buffered in row groups of
+ * the configured size in bytes - which is closed after parquet.file.rollover.sec.
+ *
+ * Files are placed in time-partitioned folders based on the event time: the folder for an event is the subdir, with
+ * %time:...% tokens replaced by the start of the partition the event time falls in. parquet.partition.interval.sec
+ * should hence match the granularity of the subdir, which defaults to %app-type%/dt=yyyy-MM-dd/hr=HH.
+ *
+ * Low-cardinality columns, like repo, user, access type and policy id, are dictionary encoded.
+ *
+ * Events are visible to readers only after the file is closed; events in open files are lost if the process exits
+ * without stopping the writer. Set xasecure.audit.destination.hdfs.batch.filequeue.filetype=parquet to use this writer.
+ */
+public class RangerParquetAuditWriter extends AbstractRangerAuditWriter implements RangerAuditEventWriter {
+    private static final Logger logger = LoggerFactory.getLogger(RangerParquetAuditWriter.class);
+
+    public static final String PROP_PARQUET_COMPRESSION        = "parquet.compression";
+    public static final String PROP_PARQUET_ROW_GROUP_SIZE     = "parquet.rowgroup.size";
+    public static final String PROP_PARQUET_PAGE_SIZE          = "parquet.page.size";
+    public static final String PROP_PARQUET_PARTITION_INTERVAL = "parquet.partition.interval.sec";
+    public static final String PROP_PARQUET_FILE_ROLLOVER      = "parquet.file.rollover.sec";
+    public static final String PROP_PARQUET_MAX_OPEN_FILES     = "parquet.max.open.files";
+
+    protected static final String PARQUET_FILE_EXTENSION = ".parquet";
+    protected static final String DEFAULT_SUBDIR         = "%app-type%/dt=%time:yyyy-MM-dd%/hr=%time:HH%";
+
+    protected final Map<Long, PartitionWriter> partitionWriters = new LinkedHashMap<>(); // partition start time -> writer, in the order files were opened
+
+    protected CompressionCodecName compressionCodec    = CompressionCodecName.GZIP;
+    protected long                 rowGroupSize        = 64L * 1024 * 1024;
+    protected int                  pageSize            = 1024 * 1024;
+    protected long                 partitionIntervalMs = 60L * 60 * 1000;
+    protected long                 fileRolloverMs      = 10L * 60 * 1000;
+    protected int                  maxOpenFiles        = 4;
+
+    @Override
+    public void init(Properties props, String propPrefix, String auditProviderName, Map<String, String> auditConfigs) {
+        logger.debug("==> RangerParquetAuditWriter.init()");
+
+        init(props, propPrefix, auditProviderName);
+
+        super.init(props, propPrefix, auditProviderName, auditConfigs);
+
+        String logFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILESYSTEM_DIR);
+        String logSubFolder  = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILESYSTEM_SUBDIR);
+
+        if (StringUtils.isNotEmpty(logFolderProp) && StringUtils.isEmpty(logSubFolder)) {
+            logFolder = logFolderProp + "/" + DEFAULT_SUBDIR;
+
+            logger.info("logFolder = {}, destName = {}", logFolder, auditProviderName);
+        }
+
+        logger.debug("<== RangerParquetAuditWriter.init()");
+    }
+
+    public void init(Properties props, String propPrefix, String auditProviderName) {
+        String compression = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_PARQUET_COMPRESSION);
+
+        if (StringUtils.isNotEmpty(compression)) {
+            try {
+                compressionCodec = CompressionCodecName.fromConf(compression.toUpperCase());
+            } catch (IllegalArgumentException excp) {
+                logger.warn("{}: unsupported compression {}. Using {}", auditProviderName, compression, compressionCodec);
+            }
+        }
+
+        rowGroupSize        = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PARQUET_ROW_GROUP_SIZE, rowGroupSize);
+        pageSize            = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_PARQUET_PAGE_SIZE, pageSize);
+        partitionIntervalMs = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PARQUET_PARTITION_INTERVAL, partitionIntervalMs / 1000) * 1000;
+        fileRolloverMs      = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PARQUET_FILE_ROLLOVER, fileRolloverMs / 1000) * 1000;
+        maxOpenFiles        = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + PROP_PARQUET_MAX_OPEN_FILES, maxOpenFiles));
+
+        setFileExtension(PARQUET_FILE_EXTENSION);
+
+        logger.info("{}: compression={}, rowGroupSize={}, pageSize={}, partitionIntervalMs={}, fileRolloverMs={}, maxOpenFiles={}",
+                auditProviderName, compressionCodec, rowGroupSize, pageSize, partitionIntervalMs, fileRolloverMs, maxOpenFiles);
+    }
+
+    @Override
+    public boolean log(Collection<String> events) throws Exception {
+        List<AuditEventBase> authzEvents = new ArrayList<>(events.size());
+
+        for (String event : events) {
+            authzEvents.add(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+        }
+
+        return logEvents(authzEvents);
+    }
+
+    @Override
+    public synchronized boolean logEvents(final Collection<AuditEventBase> events) throws Exception {
+        MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
+            long now = System.currentTimeMillis();
+
+            closeFilesIfNeeded(now);
+
+            for (AuditEventBase event : events) {
+                if (event == null) {
+                    continue;
+                }
+
+                AuthzAuditEvent authzEvent = event instanceof AuthzAuditEvent ? (AuthzAuditEvent) event : MiscUtil.fromJson(MiscUtil.stringify(event), AuthzAuditEvent.class);
+                long            eventTime  = authzEvent.getEventTime() != null ? authzEvent.getEventTime().getTime() : now;
+                PartitionWriter writer     = getPartitionWriter(getPartitionStartTime(eventTime), now);
+
+                try {
+                    writer.write(authzEvent);
+                } catch (Exception excp) {
+                    logger.error("Error while writing to Parquet file {}. Closing the file", writer.path, excp);
+
+                    partitionWriters.remove(writer.partitionStartTime);
+
+                    writer.closeQuietly();
+
+                    throw excp;
+                }
+            }
+
+            return null;
+        });
+
+        return true;
+    }
+
+    @Override
+    public boolean logFile(File file) throws Exception {
+        return false;
+    }
+
+    @Override
+    public void start() {
+        // Nothing to do here. We will open the file when the first log request comes
+    }
+
+    @Override
+    public synchronized void flush() {
+        // rows are buffered until a row group is complete, and are readable only after the file is closed; hence only
+        // close files that are due for rollover
+        try {
+            closeFilesIfNeeded(System.currentTimeMillis());
+        } catch (Exception excp) {
+            logger.error("Error while closing Parquet files. name={}", auditProviderName, excp);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (PartitionWriter writer : partitionWriters.values()) {
+            try {
+                writer.close();
+            } catch (Throwable t) {
+                logger.error("Error on closing Parquet writer. Exception will be ignored. name={}, fileName={}", auditProviderName, writer.path, t);
+            }
+        }
+
+        partitionWriters.clear();
+    }
+
+    // start of the partition in local time, to match the partition folder formatted from %time:...% tokens
+    protected long getPartitionStartTime(long eventTime) {
+        long localTime = eventTime + TimeZone.getDefault().getOffset(eventTime);
+
+        return eventTime - Math.floorMod(localTime, partitionIntervalMs);
+    }
+
+    protected PartitionWriter getPartitionWriter(long partitionStartTime, long now) throws Exception {
+        PartitionWriter ret = partitionWriters.get(partitionStartTime);
+
+        if (ret == null) {
+            if (partitionWriters.size() >= maxOpenFiles) { // close the oldest file, likely of a past partition
+                Iterator<PartitionWriter> iter   = partitionWriters.values().iterator();
+                PartitionWriter           oldest = iter.next();
+
+                iter.remove();
+
+                oldest.close();
+            }
+
+            ret = createPartitionWriter(partitionStartTime, now);
+
+            partitionWriters.put(partitionStartTime, ret);
+        }
+
+        return ret;
+    }
+
+    protected PartitionWriter createPartitionWriter(long partitionStartTime, long now) throws Exception {
+        if (conf == null) {
+            fileSystemScheme = getFileSystemScheme();
+            conf             = createConfiguration();
+        }
+
+        String parentFolder = MiscUtil.replaceTokens(logFolder, partitionStartTime);
+        String fileName     = MiscUtil.replaceTokens(logFileNameFormat, now);
+        Path   path         = new Path(parentFolder, fileName);
+
+        fileSystem = path.getFileSystem(conf);
+
+        for (int i = 1; fileSystem.exists(path); i++) {
+            int lastDot = fileName.lastIndexOf('.');
+
+            path = new Path(parentFolder, lastDot > 0 ? (fileName.substring(0, lastDot) + "." + i + fileName.substring(lastDot)) : (fileName + "." + i));
+        }
+
+        createParents(path, fileSystem);
+
+        logger.info("Creating new Parquet file. path={}", path);
+
+        Builder builder = new Builder(HadoopOutputFile.fromPath(path, conf))
+                .withConf(conf)
+                .withWriteMode(ParquetFileWriter.Mode.CREATE)
+                .withCompressionCodec(compressionCodec)
+                .withRowGroupSize(rowGroupSize)
+                .withPageSize(pageSize)
+                .withDictionaryPageSize(pageSize)
+                .withDictionaryEncoding(false);
+
+        for (String column : AuthzAuditEventWriteSupport.DICTIONARY_COLUMNS) {
+            builder.withDictionaryEncoding(column, true);
+        }
+
+        currentFileName = path.toString();
+
+        return new PartitionWriter(partitionStartTime, path.toString(), builder.build(), now + fileRolloverMs);
+    }
+
+    protected void closeFilesIfNeeded(long now) throws IOException {
+        for (Iterator<PartitionWriter> iter = partitionWriters.values().iterator(); iter.hasNext(); ) {
+            PartitionWriter writer = iter.next();
+
+            if (writer.closeTime <= now) {
+                logger.info("Closing file. Rolling over. name={}, fileName={}, recordCount={}", auditProviderName, writer.path, writer.recordCount);
+
+                iter.remove();
+
+                writer.close();
+            }
+        }
+    }
+
+    protected static class PartitionWriter {
+        final long                           partitionStartTime;
+        final String                         path;
+        final ParquetWriter<AuthzAuditEvent> writer;
+        final long                           closeTime;
+        long                                 recordCount;
+
+        PartitionWriter(long partitionStartTime, String path, ParquetWriter<AuthzAuditEvent> writer, long closeTime) {
+            this.partitionStartTime = partitionStartTime;
+            this.path               = path;
+            this.writer             = writer;
+            this.closeTime          = closeTime;
+        }
+
+        void write(AuthzAuditEvent event) throws IOException {
+            writer.write(event);
+
+            recordCount++;
+        }
+
+        void close() throws IOException {
+            writer.close();
+        }
+
+        void closeQuietly() {
+            try {
+                writer.close();
+            } catch (Throwable t) {
+                logger.warn("Error while closing Parquet file {}. Ignored", path, t);
+            }
+        }
+    }
+
+    private static class Builder extends ParquetWriter.Builder<AuthzAuditEvent, Builder> {
+        Builder(OutputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<AuthzAuditEvent> getWriteSupport(Configuration conf) {
+            return new AuthzAuditEventWriteSupport();
+        }
+    }
+}
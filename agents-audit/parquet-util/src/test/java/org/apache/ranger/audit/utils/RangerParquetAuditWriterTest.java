@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.EnumRepositoryType;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RangerParquetAuditWriterTest {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.hdfs";
+    private static final String SUBDIR      = "dt=%time:yyyy-MM-dd%/hr=%time:HH%";
+    private static final long   HOUR_MS     = 60L * 60 * 1000;
+    private static final long   START_TIME  = 1700000000000L;
+
+    private static final List<String> TAGS = Arrays.asList("PII", "FINANCE");
+
+    @TempDir
+    File auditDir;
+
+    @Test
+    public void testEventsAreWrittenToPartitionFolders() throws Exception {
+        RangerParquetAuditWriter writer = createWriter();
+        List<AuditEventBase>     events = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            events.add(createEvent("user" + (i % 3), "/data/file" + i, START_TIME + i));
+            events.add(createEvent("user" + (i % 3), "/data/file" + i, START_TIME + HOUR_MS + i));
+        }
+
+        writer.logEvents(events);
+
+        assertEquals(2, writer.partitionWriters.size());
+
+        writer.stop();
+
+        assertTrue(writer.partitionWriters.isEmpty());
+
+        List<Group> hour1 = readEvents(getPartitionFile(writer.getPartitionStartTime(START_TIME)));
+        List<Group> hour2 = readEvents(getPartitionFile(writer.getPartitionStartTime(START_TIME + HOUR_MS)));
+
+        assertEquals(100, hour1.size());
+        assertEquals(100, hour2.size());
+
+        Group first = hour1.get(0);
+
+        assertEquals(EnumRepositoryType.HDFS, first.getInteger("repoType", 0));
+        assertEquals("dev_hdfs", first.getString("repo", 0));
+        assertEquals("user0", first.getString("reqUser", 0));
+        assertEquals(START_TIME, first.getLong("evtTime", 0));
+        assertEquals("/data/file0", first.getString("resource", 0));
+        assertEquals(1, first.getInteger("result", 0));
+        assertEquals(10L, first.getLong("policy", 0));
+        assertEquals(0, first.getFieldRepetitionCount("reason"));
+        assertEquals(2, first.getGroup("tags", 0).getFieldRepetitionCount("list"));
+        assertTrue(TAGS.contains(first.getGroup("tags", 0).getGroup("list", 0).getString("element", 0)));
+        assertEquals(START_TIME + HOUR_MS, hour2.get(0).getLong("evtTime", 0));
+    }
+
+    @Test
+    public void testLowCardinalityColumnsAreDictionaryEncoded() throws Exception {
+        RangerParquetAuditWriter writer = createWriter();
+        List<AuditEventBase>     events = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            events.add(createEvent("user" + (i % 3), "/data/file" + i, START_TIME));
+        }
+
+        writer.logEvents(events);
+        writer.stop();
+
+        Path file = new Path(getPartitionFile(writer.getPartitionStartTime(START_TIME)).toURI());
+
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(file, new Configuration()))) {
+            for (ColumnChunkMetaData column : reader.getFooter().getBlocks().get(0).getColumns()) {
+                String  name          = column.getPath().toDotString();
+                boolean hasDictionary = column.getEncodings().stream().anyMatch(Encoding::usesDictionary);
+
+                if (name.equals("repo") || name.equals("reqUser") || name.equals("tags.list.element")) {
+                    assertTrue(hasDictionary, name + " must be dictionary encoded");
+                } else if (name.equals("id") || name.equals("resource")) {
+                    assertFalse(hasDictionary, name + " must not be dictionary encoded");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testJsonEventsAreWritten() throws Exception {
+        RangerParquetAuditWriter writer = createWriter();
+
+        writer.log(Arrays.asList(MiscUtil.stringify(createEvent("user1", "/data/file1", START_TIME)), MiscUtil.stringify(createEvent("user2", "/data/file2", START_TIME))));
+        writer.stop();
+
+        List<Group> events = readEvents(getPartitionFile(writer.getPartitionStartTime(START_TIME)));
+
+        assertEquals(2, events.size());
+        assertEquals("user2", events.get(1).getString("reqUser", 0));
+    }
+
+    @Test
+    public void testMaxOpenFiles() throws Exception {
+        Properties props = createProperties();
+
+        props.setProperty(PROP_PREFIX + "." + RangerParquetAuditWriter.PROP_PARQUET_MAX_OPEN_FILES, "2");
+
+        RangerParquetAuditWriter writer = new RangerParquetAuditWriter();
+
+        writer.init(props, PROP_PREFIX, "hdfs", new HashMap<>());
+
+        for (int i = 0; i < 5; i++) {
+            writer.logEvents(Collections.singletonList(createEvent("user1", "/data/file1", START_TIME + i * HOUR_MS)));
+
+            assertTrue(writer.partitionWriters.size() <= 2);
+        }
+
+        writer.stop();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, readEvents(getPartitionFile(writer.getPartitionStartTime(START_TIME + i * HOUR_MS))).size());
+        }
+    }
+
+    private RangerParquetAuditWriter createWriter() {
+        RangerParquetAuditWriter ret = new RangerParquetAuditWriter();
+
+        ret.init(createProperties(), PROP_PREFIX, "hdfs", new HashMap<>());
+
+        return ret;
+    }
+
+    private Properties createProperties() {
+        Properties ret = new Properties();
+
+        ret.setProperty(PROP_PREFIX + "." + AbstractRangerAuditWriter.PROP_FILESYSTEM_DIR, auditDir.toURI().toString());
+        ret.setProperty(PROP_PREFIX + "." + AbstractRangerAuditWriter.PROP_FILESYSTEM_SUBDIR, SUBDIR);
+        ret.setProperty(PROP_PREFIX + "." + AbstractRangerAuditWriter.PROP_FILESYSTEM_FILE_NAME_FORMAT, "ranger_audit.parquet");
+
+        return ret;
+    }
+
+    private File getPartitionFile(long partitionStartTime) {
+        File   folder = new File(auditDir, MiscUtil.replaceTokens(SUBDIR, partitionStartTime));
+        File[] files  = folder.listFiles((dir, name) -> name.endsWith(".parquet"));
+
+        assertNotNull(files, "partition folder " + folder + " not found");
+        assertEquals(1, files.length);
+
+        return files[0];
+    }
+
+    private static List<Group> readEvents(File file) throws Exception {
+        List<Group> ret = new ArrayList<>();
+
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(file.toURI())).build()) {
+            for (Group group = reader.read(); group != null; group = reader.read()) {
+                ret.add(group);
+            }
+        }
+
+        return ret;
+    }
+
+    private static AuthzAuditEvent createEvent(String user, String resource, long eventTime) {
+        AuthzAuditEvent ret = new AuthzAuditEvent(EnumRepositoryType.HDFS, "dev_hdfs", user, new Date(eventTime), "read", resource, "path", "open", (short) 1,
+                "hdfs", 10, null, "ranger-acl", null, null, "10.0.0.1", null, "cluster1", null, 1L);
+
+        ret.setEventId(MiscUtil.generateGuid());
+        ret.setTags(new HashSet<>(TAGS));
+
+        return ret;
+    }
+}
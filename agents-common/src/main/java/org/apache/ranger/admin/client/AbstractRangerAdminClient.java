@@ -32,6 +32,7 @@
 import org.apache.ranger.plugin.util.ServiceGdsInfo;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.plugin.util.ServiceVersions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -131,6 +132,11 @@ public ServiceGdsInfo getGdsInfoIfUpdated(long lastKnownVersion, long lastActiva
         return null;
     }
 
+    @Override
+    public ServiceVersions waitForServiceVersionChange(ServiceVersions lastKnown, long waitTimeoutMs) throws Exception {
+        return null;
+    }
+
     public boolean isAuthenticationEnabled() {
         return forceSecureEndpointAccess || isKerberosEnabled();
     }
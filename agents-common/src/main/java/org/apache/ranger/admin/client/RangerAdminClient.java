@@ -28,6 +28,7 @@
 import org.apache.ranger.plugin.util.ServiceGdsInfo;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.plugin.util.ServiceVersions;
 
 import java.util.List;
 
@@ -63,4 +64,12 @@ public interface RangerAdminClient {
     RangerUserStore getUserStoreIfUpdated(long lastKnownUserStoreVersion, long lastActivationTimeInMillis) throws Exception;
 
     ServiceGdsInfo getGdsInfoIfUpdated(long lastKnownVersion, long lastActivationTimeInMillis) throws Exception;
+
+    /**
+     * Waits, up to waitTimeoutMs, for the versions of policies/tags/roles/GDS info of the service to change from lastKnown.
+     *
+     * @return current versions, which would be same as lastKnown if there was no change within the timeout; null if waiting
+     *         failed or if the client does not support waiting for changes
+     */
+    ServiceVersions waitForServiceVersionChange(ServiceVersions lastKnown, long waitTimeoutMs) throws Exception;
 }
@@ -43,6 +43,7 @@
 import org.apache.ranger.plugin.util.ServiceGdsInfo;
 import org.apache.ranger.plugin.util.ServicePolicies;
 import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.plugin.util.ServiceVersions;
 import org.apache.ranger.plugin.util.URLEncoderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -1022,6 +1023,81 @@ public ServiceGdsInfo getGdsInfoIfUpdated(long lastKnownVersion, long lastActiva
         return ret;
     }
 
+    @Override
+    public ServiceVersions waitForServiceVersionChange(ServiceVersions lastKnown, long waitTimeoutMs) throws Exception {
+        LOG.debug("==> RangerAdminRESTClient.waitForServiceVersionChange({}, {})", lastKnown, waitTimeoutMs);
+
+        final boolean             isSecureMode  = isAuthenticationEnabled();
+        final Cookie              sessionId     = this.sessionId;
+        final Map<String, String> queryParams   = new HashMap<>();
+        final int                 readTimeoutMs = (int) Math.min(Integer.MAX_VALUE, waitTimeoutMs + restClient.getRestClientReadTimeOutMs());
+
+        if (lastKnown != null) {
+            addQueryParam(queryParams, RangerRESTUtils.REST_PARAM_LAST_KNOWN_POLICY_VERSION, lastKnown.getPolicyVersion());
+            addQueryParam(queryParams, RangerRESTUtils.REST_PARAM_LAST_KNOWN_TAG_VERSION, lastKnown.getTagVersion());
+            addQueryParam(queryParams, RangerRESTUtils.REST_PARAM_LAST_KNOWN_ROLE_VERSION, lastKnown.getRoleVersion());
+            addQueryParam(queryParams, RangerRESTUtils.REST_PARAM_LAST_KNOWN_GDS_VERSION, lastKnown.getGdsVersion());
+        }
+
+        queryParams.put(RangerRESTUtils.REST_PARAM_WAIT_TIMEOUT_MS, Long.toString(waitTimeoutMs));
+        queryParams.put(RangerRESTUtils.REST_PARAM_PLUGIN_ID, pluginId);
+
+        final ClientResponse response;
+
+        if (isSecureMode) {
+            response = MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<ClientResponse>) () -> {
+                try {
+                    String relativeURL = RangerRESTUtils.REST_URL_SERVICE_SECURE_WAIT_FOR_CHANGES + serviceNameUrlParam;
+
+                    return restClient.get(relativeURL, queryParams, sessionId, readTimeoutMs);
+                } catch (Exception e) {
+                    LOG.error("Failed to get response", e);
+                }
+
+                return null;
+            });
+        } else {
+            String relativeURL = RangerRESTUtils.REST_URL_SERVICE_WAIT_FOR_CHANGES + serviceNameUrlParam;
+
+            response = restClient.get(relativeURL, queryParams, sessionId, readTimeoutMs);
+        }
+
+        checkAndResetSessionCookie(response);
+
+        final ServiceVersions ret;
+
+        if (response == null) {
+            ret = null;
+
+            LOG.error("Error waiting for service version change - received NULL response: secureMode={}, serviceName={}", isSecureMode, serviceName);
+        } else if (response.getStatus() == HttpStatus.SC_NOT_MODIFIED) {
+            ret = lastKnown;
+
+            LOG.debug("No change in service versions: secureMode={}, serviceName={}, lastKnown={}", isSecureMode, serviceName, lastKnown);
+        } else if (response.getStatus() == HttpStatus.SC_OK) {
+            ret = JsonUtilsV2.jsonToObj(response.getEntity(String.class), ServiceVersions.class);
+        } else if (response.getStatus() == HttpStatus.SC_NOT_FOUND) {
+            ret = null;
+
+            String exceptionMsg = response.hasEntity() ? response.getEntity(String.class) : null;
+
+            RangerServiceNotFoundException.throwExceptionIfServiceNotFound(serviceName, exceptionMsg);
+
+            LOG.warn("Error waiting for service version change - Ranger Admin might not support this API: secureMode={}, serviceName={}, response body:[{}]", isSecureMode, serviceName, exceptionMsg);
+        } else {
+            ret = null;
+
+            RESTResponse resp = RESTResponse.fromClientResponse(response);
+
+            LOG.warn("Error waiting for service version change: unexpected status code {}: secureMode={}, response={}, serviceName={}",
+                    response.getStatus(), isSecureMode, resp, serviceName);
+        }
+
+        LOG.debug("<== RangerAdminRESTClient.waitForServiceVersionChange({}, {}): ret={}", lastKnown, waitTimeoutMs, ret);
+
+        return ret;
+    }
+
     @Override
     public boolean isAuthenticationEnabled() {
         return (restClient != null && restClient.isAuthFilterPresent()) || super.isAuthenticationEnabled();
@@ -1046,6 +1122,12 @@ private void init(String url, String sslConfigFileName, int restClientConnTimeOu
         LOG.debug("<== RangerAdminRESTClient.init({}, {})", url, sslConfigFileName);
     }
 
+    private static void addQueryParam(Map<String, String> queryParams, String name, Long value) {
+        if (value != null) {
+            queryParams.put(name, Long.toString(value));
+        }
+    }
+
     private void checkAndResetSessionCookie(ClientResponse response) {
         if (isRangerCookieEnabled) {
             if (response == null) {
@@ -27,6 +27,16 @@ public class RangerHadoopConstants {
     public static final String  RANGER_USE_LEGACY_SUBACCESS_AUTHORIZATION_PROP    = "ranger.plugin.hdfs.use.legacy.subaccess.authorization";
     public static final boolean RANGER_USE_LEGACY_SUBACCESS_AUTHORIZATION_DEFAULT = true;
 
+    public static final String  RANGER_HDFS_AUTHZ_CACHE_ENABLED_PROP        = "ranger.plugin.hdfs.authz.cache.enabled";
+    public static final boolean RANGER_HDFS_AUTHZ_CACHE_ENABLED_DEFAULT     = false;
+    public static final String  RANGER_HDFS_AUTHZ_CACHE_MAX_ENTRIES_PROP    = "ranger.plugin.hdfs.authz.cache.max.entries";
+    public static final int     RANGER_HDFS_AUTHZ_CACHE_MAX_ENTRIES_DEFAULT = 100000;
+    public static final String  RANGER_HDFS_AUTHZ_CACHE_TTL_MS_PROP         = "ranger.plugin.hdfs.authz.cache.ttl.ms";
+    public static final long    RANGER_HDFS_AUTHZ_CACHE_TTL_MS_DEFAULT      = 30000;
+
+    public static final String  RANGER_HDFS_SUBTREE_AUTHZ_ENABLED_PROP    = "ranger.plugin.hdfs.subtree.authz.enabled";
+    public static final boolean RANGER_HDFS_SUBTREE_AUTHZ_ENABLED_DEFAULT = false;
+
     public static final String READ_ACCCESS_TYPE    = "read";
     public static final String WRITE_ACCCESS_TYPE   = "write";
     public static final String EXECUTE_ACCCESS_TYPE = "execute";
@@ -47,6 +57,14 @@ public class RangerHadoopConstants {
     public static final String  HIVE_DESCRIBE_TABLE_SHOW_COLUMNS_AUTH_OPTION_PROP_DEFAULT_VALUE   = "NONE";
     public static final String  HIVE_URI_PERMISSION_COARSE_CHECK                                  = "xasecure.hive.uri.permission.coarse.check";
     public static final boolean HIVE_URI_PERMISSION_COARSE_CHECK_DEFAULT_VALUE                    = false;
+    public static final String  HIVE_URI_PERMISSION_CACHE_ENABLED_PROP                            = "ranger.plugin.hive.uri.permission.cache.enabled";
+    public static final boolean HIVE_URI_PERMISSION_CACHE_ENABLED_DEFAULT_VALUE                   = false;
+    public static final String  HIVE_URI_PERMISSION_CACHE_MAX_ENTRIES_PROP                        = "ranger.plugin.hive.uri.permission.cache.max.entries";
+    public static final int     HIVE_URI_PERMISSION_CACHE_MAX_ENTRIES_DEFAULT_VALUE               = 10000;
+    public static final String  HIVE_URI_PERMISSION_CACHE_TTL_MS_PROP                             = "ranger.plugin.hive.uri.permission.cache.ttl.ms";
+    public static final long    HIVE_URI_PERMISSION_CACHE_TTL_MS_DEFAULT_VALUE                    = 60000;
+    public static final String  HIVE_URI_PERMISSION_CHECK_THREADS_PROP                            = "ranger.plugin.hive.uri.permission.check.threads";
+    public static final int     HIVE_URI_PERMISSION_CHECK_THREADS_DEFAULT_VALUE                   = 1;
 
     public static final String  HBASE_UPDATE_RANGER_POLICIES_ON_GRANT_REVOKE_PROP          = "xasecure.hbase.update.xapolicies.on.grant.revoke";
     public static final boolean HBASE_UPDATE_RANGER_POLICIES_ON_GRANT_REVOKE_DEFAULT_VALUE = true;
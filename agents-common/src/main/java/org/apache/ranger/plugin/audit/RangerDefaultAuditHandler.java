@@ -24,6 +24,7 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants;
 import org.apache.ranger.authorization.utils.JsonUtils;
@@ -185,12 +186,16 @@ public void logAuthzAudit(AuthzAuditEvent auditEvent) {
         LOG.debug("==> RangerDefaultAuditHandler.logAuthzAudit({})", auditEvent);
 
         if (auditEvent != null) {
+            long startTime = System.nanoTime();
+
             populateDefaults(auditEvent);
 
             AuditHandler auditProvider = RangerBasePlugin.getAuditProvider(auditEvent.getRepositoryName());
             if (auditProvider == null || !auditProvider.log(auditEvent)) {
                 MiscUtil.logErrorMessageByInterval(LOG, "fail to log audit event " + auditEvent);
             }
+
+            AuditPipelineMetrics.recordDuration(AuditPipelineMetrics.STAGE_HANDLER, startTime);
         }
 
         LOG.debug("<== RangerDefaultAuditHandler.logAuthzAudit({})", auditEvent);
@@ -24,6 +24,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator.PreparedScript;
 import org.apache.ranger.plugin.util.ScriptEngineUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,8 +39,9 @@
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
     private static final Logger LOG = LoggerFactory.getLogger(RangerScriptConditionEvaluator.class);
 
-    private ScriptEngine scriptEngine;
-    private Boolean      enableJsonCtx;
+    private          ScriptEngine   scriptEngine;
+    private          Boolean        enableJsonCtx;
+    private volatile PreparedScript preparedScript;
 
     @Override
     public void init() {
@@ -66,14 +68,16 @@ public void init() {
 
         LOG.debug("RangerScriptConditionEvaluator.init() - engineName={}", engineName);
 
-        scriptEngine = ScriptEngineUtil.createScriptEngine(serviceDef.getName());
+        scriptEngine = ScriptEngineUtil.getSharedScriptEngine(serviceDef.getName());
 
         if (scriptEngine == null) {
             String conditionType = condition != null ? condition.getType() : null;
 
             LOG.error("failed to initialize condition '{}': script engine '{}' was not created", conditionType, engineName);
         } else {
-            LOG.info("ScriptEngine for engineName=[{}] is successfully created", engineName);
+            LOG.debug("ScriptEngine for engineName=[{}] is successfully created", engineName);
+
+            prepareScript();
         }
 
         LOG.debug("<== RangerScriptConditionEvaluator.init({})", condition);
@@ -86,13 +90,13 @@ public boolean isMatched(RangerAccessRequest request) {
         boolean result = true;
 
         if (scriptEngine != null) {
-            String script = getScript();
+            PreparedScript script = prepareScript();
 
-            if (StringUtils.isNotBlank(script)) {
-                LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={{}}", script);
+            if (script != null) {
+                LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={{}}", script.getScript());
 
                 if (enableJsonCtx == null) { // if not specified in evaluatorOptions, set it on first call to isMatched()
-                    enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
+                    enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script.getScript());
                 }
 
                 RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
@@ -116,6 +120,27 @@ public boolean isMatched(RangerAccessRequest request) {
         return result;
     }
 
+    /**
+     * Compiles the script of this condition, once, so that it is not parsed again for each request. Called at the end of
+     * init(), and by subclasses whose getScript() depends on state they initialize after calling super.init().
+     *
+     * @return the prepared script; null if the script is empty
+     */
+    protected PreparedScript prepareScript() {
+        PreparedScript ret    = preparedScript;
+        String         script = getScript();
+
+        if (StringUtils.isBlank(script)) {
+            ret = null;
+        } else if (ret == null || !script.equals(ret.getScript())) {
+            ret = RangerRequestScriptEvaluator.prepareScript(script, scriptEngine);
+
+            preparedScript = ret;
+        }
+
+        return ret;
+    }
+
     protected String getScript() {
         String       ret    = null;
         List<String> values = condition.getValues();
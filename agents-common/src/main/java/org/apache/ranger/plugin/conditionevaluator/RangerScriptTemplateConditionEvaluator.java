@@ -54,6 +54,8 @@ public void init() {
             }
         }
 
+        prepareScript();
+
         LOG.debug("<== RangerScriptTemplateConditionEvaluator.init({}): script={}; reverseResult={}", condition, script, reverseResult);
     }
 
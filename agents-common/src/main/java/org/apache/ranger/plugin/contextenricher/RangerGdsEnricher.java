@@ -29,7 +29,10 @@
 import org.apache.ranger.plugin.util.DownloaderTask;
 import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerBinaryCacheFormat;
+import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.ServiceGdsInfo;
+import org.apache.ranger.plugin.util.ServiceVersionWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +55,7 @@ public class RangerGdsEnricher extends RangerAbstractContextEnricher {
     private RangerGdsInfoRefresher gdsInfoRefresher;
     private RangerServiceDefHelper serviceDefHelper;
     private GdsPolicyEngine        gdsPolicyEngine;
+    private boolean                isBinaryCacheFormat;
 
     @Override
     public void init() {
@@ -61,7 +65,7 @@ public void init() {
 
         String propertyPrefix     = "ranger.plugin." + serviceDef.getName();
         String retrieverClassName = getOption(RETRIEVER_CLASSNAME_OPTION);
-        long   pollingIntervalMs  = getLongOption(REFRESHER_POLLINGINTERVAL_OPTION, 60 * 1000L);
+        long   pollingIntervalMs  = ServiceVersionWatcher.getPollingIntervalMs(getPluginConfig(), getLongOption(REFRESHER_POLLINGINTERVAL_OPTION, 60 * 1000L));
         String cacheFile          = null;
 
         serviceDefHelper = new RangerServiceDefHelper(serviceDef, false);
@@ -86,6 +90,8 @@ public void init() {
 
             cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
 
+            isBinaryCacheFormat = getBooleanConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT_DEFAULT);
+
             gdsInfoRetriever.setServiceName(serviceName);
             gdsInfoRetriever.setServiceDef(serviceDef);
             gdsInfoRetriever.setAppId(appId);
@@ -163,6 +169,17 @@ public void setGdsInfo(ServiceGdsInfo gdsInfo) {
         setGdsInfoInPlugin();
     }
 
+    public void syncGdsInfoWithAdmin(final DownloadTrigger token) throws InterruptedException {
+        RangerGdsInfoRefresher         gdsInfoRefresher = this.gdsInfoRefresher;
+        BlockingQueue<DownloadTrigger> downloadQueue    = gdsInfoRefresher != null ? gdsInfoRefresher.downloadQueue : null;
+
+        if (downloadQueue != null) {
+            downloadQueue.put(token);
+
+            token.waitForCompletion();
+        }
+    }
+
     public RangerServiceDefHelper getServiceDefHelper() {
         return serviceDefHelper;
     }
@@ -265,7 +282,13 @@ ServiceGdsInfo loadFromCache() {
             ServiceGdsInfo ret       = null;
             File           cacheFile = org.apache.commons.lang3.StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-            if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+            if (cacheFile != null && isBinaryCacheFormat) {
+                ret = RangerBinaryCacheFormat.readCacheFile(cacheFile, ServiceGdsInfo.class, JsonUtilsV2.getMapper());
+            }
+
+            if (ret != null) {
+                LOG.debug("loaded gdsInfo from binary cache file {}", RangerBinaryCacheFormat.getBinaryCacheFile(cacheFile).getAbsolutePath());
+            } else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
                 try (Reader reader = new FileReader(cacheFile)) {
                     ret = JsonUtilsV2.readValue(reader, ServiceGdsInfo.class);
                 } catch (Exception excp) {
@@ -286,12 +309,16 @@ void saveToCache(ServiceGdsInfo gdsInfo) {
             if (gdsInfo != null) {
                 File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-                if (cacheFile != null) {
+                if (cacheFile != null && isBinaryCacheFormat) {
+                    RangerBinaryCacheFormat.writeCacheFile(cacheFile, gdsInfo, JsonUtilsV2.getMapper());
+                } else if (cacheFile != null) {
                     try (Writer writer = new FileWriter(cacheFile)) {
                         JsonUtilsV2.writeValue(writer, gdsInfo);
                     } catch (Exception excp) {
                         LOG.error("failed to save gdsInfo to cache file '{}'", cacheFile.getAbsolutePath(), excp);
                     }
+
+                    RangerBinaryCacheFormat.deleteCacheFile(cacheFile);
                 }
             } else {
                 LOG.info("gdsInfo is null for service={}. Nothing to save in cache", getServiceName());
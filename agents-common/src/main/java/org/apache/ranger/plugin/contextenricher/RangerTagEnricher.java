@@ -44,12 +44,14 @@
 import org.apache.ranger.plugin.util.DownloadTrigger;
 import org.apache.ranger.plugin.util.DownloaderTask;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerBinaryCacheFormat;
 import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
 import org.apache.ranger.plugin.util.ServiceTags;
+import org.apache.ranger.plugin.util.ServiceVersionWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +93,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
     private       EnrichedServiceTags            enrichedServiceTags;
     private       boolean                        disableCacheIfServiceNotFound = true;
     private       boolean                        dedupStrings                  = true;
+    private       boolean                        isBinaryCacheFormat;
     private       Timer                          tagDownloadTimer;
     private       RangerServiceDefHelper         serviceDefHelper;
 
@@ -149,7 +152,7 @@ public void init() {
 
         String propertyPrefix        = getPropertyPrefix();
         String tagRetrieverClassName = getOption(TAG_RETRIEVER_CLASSNAME_OPTION);
-        long   pollingIntervalMs     = getLongOption(TAG_REFRESHER_POLLINGINTERVAL_OPTION, 60 * 1000L);
+        long   pollingIntervalMs     = ServiceVersionWatcher.getPollingIntervalMs(getPluginConfig(), getLongOption(TAG_REFRESHER_POLLINGINTERVAL_OPTION, 60 * 1000L));
 
         dedupStrings               = getBooleanConfig(propertyPrefix + ".dedup.strings", true);
         disableTrieLookupPrefilter = getBooleanOption(TAG_DISABLE_TRIE_PREFILTER_OPTION, false);
@@ -173,6 +176,7 @@ public void init() {
 
             if (tagRetriever != null) {
                 disableCacheIfServiceNotFound = getBooleanConfig(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+                isBinaryCacheFormat           = getBooleanConfig(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT_DEFAULT);
 
                 String cacheDir      = getConfig(propertyPrefix + ".policy.cache.dir", null);
                 String cacheFilename = String.format("%s_%s_tag.json", appId, serviceName);
@@ -465,7 +469,7 @@ private EnrichedServiceTags processServiceTags(ServiceTags serviceTags) {
                 serviceResourceTrie = new HashMap<>();
 
                 for (RangerResourceDef resourceDef : serviceDef.getResources()) {
-                    serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null));
+                    serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, getPolicyEngineOptions().compactTagTrieLayout, null));
                 }
             }
 
@@ -509,7 +513,7 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
                             } else {
                                 LOG.debug("Trying to add resource-matcher to new trie for {}", resourceDef.getName());
 
-                                trie = new RangerResourceTrie<>(resourceDef, Collections.singletonList(resourceMatcher), getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null);
+                                trie = new RangerResourceTrie<>(resourceDef, Collections.singletonList(resourceMatcher), getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, getPolicyEngineOptions().compactTagTrieLayout, null);
 
                                 serviceResourceTrie.put(resourceDef.getName(), trie);
                             }
@@ -919,7 +923,17 @@ final ServiceTags loadFromCache() {
 
             File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-            if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+            if (cacheFile != null && tagEnricher.isBinaryCacheFormat) {
+                serviceTags = RangerBinaryCacheFormat.readCacheFile(cacheFile, ServiceTags.class, JsonUtils.getMapper());
+            }
+
+            if (serviceTags != null) {
+                if (!StringUtils.equals(tagEnricher.getServiceName(), serviceTags.getServiceName())) {
+                    LOG.warn("ignoring unexpected serviceName '{}' in cache file '{}'", serviceTags.getServiceName(), RangerBinaryCacheFormat.getBinaryCacheFile(cacheFile).getAbsolutePath());
+
+                    serviceTags.setServiceName(tagEnricher.getServiceName());
+                }
+            } else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
                 Reader reader = null;
 
                 try {
@@ -958,7 +972,9 @@ final void saveToCache(ServiceTags serviceTags) {
             if (serviceTags != null) {
                 File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-                if (cacheFile != null) {
+                if (cacheFile != null && tagEnricher.isBinaryCacheFormat) {
+                    RangerBinaryCacheFormat.writeCacheFile(cacheFile, serviceTags, JsonUtils.getMapper());
+                } else if (cacheFile != null) {
                     Writer writer = null;
 
                     try {
@@ -976,6 +992,8 @@ final void saveToCache(ServiceTags serviceTags) {
                             }
                         }
                     }
+
+                    RangerBinaryCacheFormat.deleteCacheFile(cacheFile);
                 }
             } else {
                 LOG.info("service-tags is null for service={}. Nothing to save in cache", tagRetriever.getServiceName());
@@ -1003,6 +1021,10 @@ final void disableCache() {
                 LOG.debug("No local TAGS cache found. No need to disable it!");
             }
 
+            if (cacheFile != null) {
+                RangerBinaryCacheFormat.disableCacheFile(cacheFile);
+            }
+
             LOG.debug("<== RangerTagRetriever.disableCache(serviceName={})", tagEnricher.getServiceName());
         }
 
@@ -26,6 +26,7 @@
 import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.util.DownloadTrigger;
 import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.apache.ranger.plugin.util.RangerBinaryCacheFormat;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerRESTClient;
 import org.apache.ranger.plugin.util.RangerRESTUtils;
@@ -61,14 +62,20 @@ public class RangerUserStoreRefresher extends Thread {
     private       long                           lastActivationTimeInMillis;
     private       boolean                        hasProvidedUserStoreToReceiver;
     private final RangerRESTClient               rangerRESTClient;
+    private final boolean                        isBinaryCacheFormat;
 
     public RangerUserStoreRefresher(RangerUserStoreRetriever userStoreRetriever, RangerUserStoreEnricher userStoreEnricher, RangerRESTClient restClient, long lastKnownVersion, BlockingQueue<DownloadTrigger> userStoreDownloadQueue, String cacheFile) {
+        this(userStoreRetriever, userStoreEnricher, restClient, lastKnownVersion, userStoreDownloadQueue, cacheFile, false);
+    }
+
+    public RangerUserStoreRefresher(RangerUserStoreRetriever userStoreRetriever, RangerUserStoreEnricher userStoreEnricher, RangerRESTClient restClient, long lastKnownVersion, BlockingQueue<DownloadTrigger> userStoreDownloadQueue, String cacheFile, boolean isBinaryCacheFormat) {
         this.userStoreRetriever     = userStoreRetriever;
         this.userStoreEnricher      = userStoreEnricher;
         this.rangerRESTClient       = restClient;
         this.lastKnownVersion       = lastKnownVersion;
         this.userStoreDownloadQueue = userStoreDownloadQueue;
         this.cacheFile              = cacheFile;
+        this.isBinaryCacheFormat    = isBinaryCacheFormat;
 
         setName("RangerUserStoreRefresher(serviceName=" + userStoreRetriever.getServiceName() + ")-" + getId());
     }
@@ -246,7 +253,9 @@ public void saveToCache(RangerUserStore rangerUserStore) {
         if (rangerUserStore != null) {
             File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-            if (cacheFile != null) {
+            if (cacheFile != null && isBinaryCacheFormat) {
+                RangerBinaryCacheFormat.writeCacheFile(cacheFile, rangerUserStore, JsonUtils.getMapper());
+            } else if (cacheFile != null) {
                 Writer writer = null;
 
                 try {
@@ -264,6 +273,8 @@ public void saveToCache(RangerUserStore rangerUserStore) {
                         }
                     }
                 }
+
+                RangerBinaryCacheFormat.deleteCacheFile(cacheFile);
             }
         } else {
             LOG.info("userstore information is null. Nothing to save in cache");
@@ -279,7 +290,13 @@ private RangerUserStore loadFromCache() {
 
         File cacheFile = StringUtils.isEmpty(this.cacheFile) ? null : new File(this.cacheFile);
 
-        if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+        if (cacheFile != null && isBinaryCacheFormat) {
+            rangerUserStore = RangerBinaryCacheFormat.readCacheFile(cacheFile, RangerUserStore.class, JsonUtils.getMapper());
+        }
+
+        if (rangerUserStore != null) {
+            LOG.debug("loaded userstore information from binary cache file {}", RangerBinaryCacheFormat.getBinaryCacheFile(cacheFile).getAbsolutePath());
+        } else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
             Reader reader = null;
 
             try {
@@ -325,6 +342,10 @@ private void disableCache() {
             LOG.debug("No local userstore cache found. No need to disable it!");
         }
 
+        if (cacheFile != null) {
+            RangerBinaryCacheFormat.disableCacheFile(cacheFile);
+        }
+
         LOG.debug("<== RangerUserStoreRefreher.disableCache()");
     }
 
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map keyed by char, holding keys in a sorted char[] and values in a parallel array of the same length.
+ *
+ * Used for the children of compact trie nodes: a leaf costs two shared empty arrays instead of a HashMap, and a
+ * lookup is a binary search over a few chars instead of a hash-bucket walk. Updates copy the arrays, which is fine
+ * for tries as they are built/updated once and read many times. Like HashMap, it is not safe for concurrent updates.
+ */
+final class CharArrayMap<V> extends AbstractMap<Character, V> {
+    private static final char[]   EMPTY_KEYS   = new char[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private char[]   keys   = EMPTY_KEYS;
+    private Object[] values = EMPTY_VALUES;
+
+    CharArrayMap() {
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Character && Arrays.binarySearch(keys, (Character) key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof Character)) {
+            return null;
+        }
+
+        int idx = Arrays.binarySearch(keys, (Character) key);
+
+        return idx >= 0 ? (V) values[idx] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(Character key, V value) {
+        char ch  = key;
+        int  idx = Arrays.binarySearch(keys, ch);
+
+        if (idx >= 0) {
+            V ret = (V) values[idx];
+
+            values[idx] = value;
+
+            return ret;
+        }
+
+        int      insertAt  = -(idx + 1);
+        char[]   newKeys   = new char[keys.length + 1];
+        Object[] newValues = new Object[values.length + 1];
+
+        System.arraycopy(keys, 0, newKeys, 0, insertAt);
+        System.arraycopy(values, 0, newValues, 0, insertAt);
+
+        newKeys[insertAt]   = ch;
+        newValues[insertAt] = value;
+
+        System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+        System.arraycopy(values, insertAt, newValues, insertAt + 1, values.length - insertAt);
+
+        keys   = newKeys;
+        values = newValues;
+
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (!(key instanceof Character)) {
+            return null;
+        }
+
+        int idx = Arrays.binarySearch(keys, (Character) key);
+
+        if (idx < 0) {
+            return null;
+        }
+
+        V ret = (V) values[idx];
+
+        if (keys.length == 1) {
+            keys   = EMPTY_KEYS;
+            values = EMPTY_VALUES;
+        } else {
+            char[]   newKeys   = new char[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(values, 0, newValues, 0, idx);
+            System.arraycopy(keys, idx + 1, newKeys, idx, keys.length - idx - 1);
+            System.arraycopy(values, idx + 1, newValues, idx, values.length - idx - 1);
+
+            keys   = newKeys;
+            values = newValues;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void clear() {
+        keys   = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ArrayIterator<>(values, values.length);
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Character, V>> entrySet() {
+        return new AbstractSet<Entry<Character, V>>() {
+            @Override
+            public Iterator<Entry<Character, V>> iterator() {
+                final char[]   iterKeys   = keys;
+                final Object[] iterValues = values;
+
+                return new Iterator<Entry<Character, V>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < iterKeys.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<Character, V> next() {
+                        if (next >= iterKeys.length) {
+                            throw new NoSuchElementException();
+                        }
+
+                        Entry<Character, V> ret = new SimpleImmutableEntry<>(iterKeys[next], (V) iterValues[next]);
+
+                        next++;
+
+                        return ret;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    static final class ArrayIterator<E> implements Iterator<E> {
+        private final Object[] elements;
+        private final int      length;
+        private       int      next;
+
+        ArrayIterator(Object[] elements, int length) {
+            this.elements = elements;
+            this.length   = length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (next >= length) {
+                throw new NoSuchElementException();
+            }
+
+            return (E) elements[next++];
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe alternative to Collections.synchronizedMap(new CacheMap<>(size)).
+ *
+ * Keys are spread over segments. Lookups are lock-free and only set a reference bit on the entry (and only if
+ * it is not already set), so reads do not write to shared state in the common case. Inserts take the lock of
+ * a single segment, which evicts with the CLOCK algorithm - an approximation of LRU - once it is full.
+ *
+ * entrySet() returns a point-in-time copy.
+ */
+public class ConcurrentCacheMap<K, V> extends AbstractMap<K, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentCacheMap.class);
+
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+    private final int             capacity;
+    private final Segment<K, V>[] segments;
+    private final LongAdder       hitCount      = new LongAdder();
+    private final LongAdder       missCount     = new LongAdder();
+    private final LongAdder       evictionCount = new LongAdder();
+
+    public ConcurrentCacheMap(int capacity) {
+        this(capacity, DEFAULT_SEGMENT_COUNT);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentCacheMap(int capacity, int segmentCount) {
+        this.capacity = Math.max(capacity, 1);
+
+        int count           = Integer.highestOneBit(Math.max(1, Math.min(segmentCount, this.capacity)));
+        int segmentCapacity = (this.capacity + count - 1) / count;
+
+        this.segments = new Segment[count];
+
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+
+        LOG.debug("ConcurrentCacheMap(capacity={}, segmentCount={})", this.capacity, count);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public V get(Object key) {
+        V ret = segmentFor(key).get(key);
+
+        if (ret != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+
+        return ret;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return segmentFor(key).get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        Segment<K, V> segment = segmentFor(key);
+        V             ret;
+
+        synchronized (segment) {
+            ret = segment.put(key, value);
+
+            if (segment.evicted) {
+                segment.evicted = false;
+
+                evictionCount.increment();
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    @Override
+    public int size() {
+        int ret = 0;
+
+        for (Segment<K, V> segment : segments) {
+            ret += segment.map.size();
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Map<K, V> ret = new HashMap<>();
+
+        for (Segment<K, V> segment : segments) {
+            for (Node<K, V> node : segment.map.values()) {
+                ret.put(node.key, node.value);
+            }
+        }
+
+        return ret.entrySet();
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentCacheMap={capacity=" + capacity + ", segmentCount=" + segments.length + ", size=" + size() +
+                ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", evictionCount=" + getEvictionCount() + "}";
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+
+        hash ^= hash >>> 16;
+
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static final class Node<K, V> {
+        final    K       key;
+        volatile V       value;
+        volatile boolean referenced;
+        int              slot;
+
+        Node(K key, V value, int slot) {
+            this.key   = key;
+            this.value = value;
+            this.slot  = slot;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final ConcurrentHashMap<K, Node<K, V>> map;
+        final int                              capacity;
+        Node<K, V>[]                           ring; // guarded by this, grows up to capacity
+        int                                    count; // guarded by this
+        int                                    hand; // guarded by this
+        boolean                                evicted; // guarded by this
+
+        @SuppressWarnings("unchecked")
+        Segment(int capacity) {
+            this.map      = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+            this.capacity = capacity;
+            this.ring     = new Node[Math.min(capacity, 16)];
+        }
+
+        V get(Object key) {
+            Node<K, V> node = map.get(key);
+
+            if (node == null) {
+                return null;
+            }
+
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+
+            return node.value;
+        }
+
+        V put(K key, V value) {
+            Node<K, V> node = map.get(key);
+
+            if (node != null) {
+                V ret = node.value;
+
+                node.value      = value;
+                node.referenced = true;
+
+                return ret;
+            }
+
+            if (count < capacity) {
+                if (count == ring.length) {
+                    ring = Arrays.copyOf(ring, Math.min(capacity, ring.length * 2));
+                }
+
+                node = new Node<>(key, value, count);
+
+                ring[count++] = node;
+            } else {
+                // CLOCK: give referenced entries a second chance, evict the first unreferenced one
+                while (ring[hand].referenced) {
+                    ring[hand].referenced = false;
+
+                    hand = (hand + 1) % count;
+                }
+
+                map.remove(ring[hand].key);
+
+                node = new Node<>(key, value, hand);
+
+                ring[hand] = node;
+                hand       = (hand + 1) % count;
+                evicted    = true;
+            }
+
+            map.put(key, node);
+
+            return null;
+        }
+
+        V remove(Object key) {
+            Node<K, V> node = map.remove(key);
+
+            if (node == null) {
+                return null;
+            }
+
+            // keep the ring dense: move the last entry into the freed slot
+            Node<K, V> last = ring[--count];
+
+            ring[node.slot] = last;
+            last.slot       = node.slot;
+            ring[count]     = null;
+
+            if (hand >= count) {
+                hand = 0;
+            }
+
+            return node.value;
+        }
+
+        void clear() {
+            map.clear();
+
+            for (int i = 0; i < count; i++) {
+                ring[i] = null;
+            }
+
+            count = 0;
+            hand  = 0;
+        }
+    }
+}
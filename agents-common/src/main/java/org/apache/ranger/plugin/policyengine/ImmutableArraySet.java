@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Immutable set backed by a single array, with elements ordered by hashCode so that contains() is a binary search.
+ *
+ * Used for evaluator sets of compact trie nodes: compared to a HashSet, there is no per-element node and no
+ * table, and being immutable, equal sets can be shared between nodes. Mutators throw UnsupportedOperationException.
+ */
+final class ImmutableArraySet<E> extends AbstractSet<E> {
+    private static final Comparator<Object> HASH_ORDER = Comparator.comparingInt(Object::hashCode);
+
+    private final Object[] elements;
+    private final int      hashCode;
+
+    ImmutableArraySet(Set<? extends E> other) {
+        Object[] elements = other.toArray();
+        int      hashCode = 0;
+
+        Arrays.sort(elements, HASH_ORDER);
+
+        for (Object element : elements) {
+            hashCode += element.hashCode();
+        }
+
+        this.elements = elements;
+        this.hashCode = hashCode;
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+
+        final int hash = o.hashCode();
+        int       low  = 0;
+        int       high = elements.length - 1;
+
+        while (low <= high) {
+            final int mid     = (low + high) >>> 1;
+            final int midHash = elements[mid].hashCode();
+
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // elements with the same hash are adjacent; look on both sides of mid
+                for (int i = mid; i >= 0 && elements[i].hashCode() == hash; i--) {
+                    if (o.equals(elements[i])) {
+                        return true;
+                    }
+                }
+
+                for (int i = mid + 1; i < elements.length && elements[i].hashCode() == hash; i++) {
+                    if (o.equals(elements[i])) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new CharArrayMap.ArrayIterator<>(elements, elements.length);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        } else if (o instanceof ImmutableArraySet && ((ImmutableArraySet<?>) o).hashCode != hashCode) {
+            return false;
+        }
+
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -24,6 +24,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
@@ -66,6 +67,7 @@ public class PolicyEngine {
     private final RangerReadWriteLock                 lock;
     private       boolean                             useForwardedIPAddress;
     private       String[]                            trustedProxyAddresses;
+    private       Boolean                             hasConditionalAccessPolicies;
 
     public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginContext, RangerRoles roles, boolean isUseReadWriteLock) {
         LOG.debug("==> PolicyEngine({}, {})", servicePolicies, pluginContext);
@@ -500,6 +502,33 @@ public boolean hasResourcePolicies(RangerPolicyRepository policyRepository) {
         return policyRepository != null && CollectionUtils.isNotEmpty(policyRepository.getPolicies());
     }
 
+    /**
+     * @return true if any access policy - resource or tag, in any zone - has conditions or validity schedules; results
+     *         of such policies depend on request inputs other than user, resource and access type, like access time,
+     *         request data or other context entries
+     */
+    public boolean hasConditionalAccessPolicies() {
+        Boolean ret = hasConditionalAccessPolicies;
+
+        if (ret == null) {
+            ret = hasConditionalAccessPolicies(policyRepository) || hasConditionalAccessPolicies(tagPolicyRepository);
+
+            if (!ret) {
+                for (RangerPolicyRepository zonePolicyRepository : zonePolicyRepositories.values()) {
+                    if (hasConditionalAccessPolicies(zonePolicyRepository)) {
+                        ret = true;
+
+                        break;
+                    }
+                }
+            }
+
+            hasConditionalAccessPolicies = ret;
+        }
+
+        return ret;
+    }
+
     public boolean isResourceZoneAssociatedWithTagService(String resourceZoneName) {
         final boolean ret;
 
@@ -556,9 +585,37 @@ void updatePolicyEngine(ServicePolicies servicePolicies) {
             }
         }
 
+        hasConditionalAccessPolicies = null;
+
         reorderPolicyEvaluators();
     }
 
+    private static boolean hasConditionalAccessPolicies(RangerPolicyRepository repository) {
+        if (repository != null && repository.getPolicies() != null) {
+            for (RangerPolicy policy : repository.getPolicies()) {
+                if (policy.getPolicyType() != null && policy.getPolicyType() != RangerPolicy.POLICY_TYPE_ACCESS) {
+                    continue;
+                }
+
+                if (CollectionUtils.isNotEmpty(policy.getConditions()) || CollectionUtils.isNotEmpty(policy.getValiditySchedules())) {
+                    return true;
+                }
+
+                for (List<RangerPolicyItem> policyItems : Arrays.asList(policy.getPolicyItems(), policy.getDenyPolicyItems(), policy.getAllowExceptions(), policy.getDenyExceptions())) {
+                    if (policyItems != null) {
+                        for (RangerPolicyItem policyItem : policyItems) {
+                            if (CollectionUtils.isNotEmpty(policyItem.getConditions())) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     private void normalizeServiceDefs(ServicePolicies servicePolicies) {
         RangerServiceDef serviceDef = servicePolicies.getServiceDef();
 
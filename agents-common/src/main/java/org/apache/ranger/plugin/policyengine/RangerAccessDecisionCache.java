@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.policyengine.gds.GdsAccessResult;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of access decisions made by the policy engine, keyed on a canonical signature of the request.
+ *
+ * Entries are spread over independently locked segments; each segment admits new entries through a small LRU
+ * window and promotes them to the main LRU region only when they are requested more often than the entry they
+ * would replace (W-TinyLFU). The signature includes the policy and role versions of the engine that evaluated the
+ * request, so a swapped policy engine never sees decisions made by its predecessor; changes to tags, user-store or
+ * other auth-context data are handled by invalidate(), which replaces all segments in a single volatile write.
+ *
+ * Decisions that depend on request inputs beyond the signature must not be cached. Requests with multiple access
+ * types, requested resources, tags having validity periods or a GDS result are skipped here; the policy engine skips
+ * the cache when any access policy has conditions or validity schedules, as these read access time, request data and
+ * other context entries (see PolicyEngine.hasConditionalAccessPolicies()). The action is part of the signature, as audit
+ * filters can match on it.
+ */
+public class RangerAccessDecisionCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerAccessDecisionCache.class);
+
+    public static final int DEFAULT_CACHE_SIZE    = 64 * 1024;
+    public static final int DEFAULT_SEGMENT_COUNT = 32;
+
+    private static final char FIELD_SEP   = '\u0001';
+    private static final char ELEMENT_SEP = '\u0002';
+
+    private final int        maxSize;
+    private final int        segmentCount;
+    private final LongAdder  hitCount          = new LongAdder();
+    private final LongAdder  missCount         = new LongAdder();
+    private final LongAdder  evictionCount     = new LongAdder();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private volatile Generation generation;
+
+    public RangerAccessDecisionCache(int maxSize) {
+        this(maxSize, DEFAULT_SEGMENT_COUNT);
+    }
+
+    public RangerAccessDecisionCache(int maxSize, int segmentCount) {
+        this.maxSize      = Math.max(maxSize, 1);
+        this.segmentCount = Integer.highestOneBit(Math.max(1, Math.min(segmentCount, this.maxSize)));
+        this.generation   = new Generation();
+    }
+
+    /**
+     * Computes the cache key for a request that has already been pre-processed by the policy engine.
+     *
+     * @return the signature, or null if the decision for this request must not be cached
+     */
+    public static String getSignature(RangerAccessRequest request, long policyVersion, long roleVersion) {
+        RangerAccessResource resource = request.getResource();
+        Map<String, Object>  context  = request.getContext();
+
+        if (resource == null || request.getInlinePolicy() != null || !isCacheableContext(context)) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(256);
+
+        sb.append(policyVersion).append(FIELD_SEP).append(roleVersion);
+        sb.append(FIELD_SEP).append(request.getUser());
+        sb.append(FIELD_SEP);
+        appendSorted(sb, request.getUserGroups());
+        sb.append(FIELD_SEP);
+        appendSorted(sb, request.getUserRoles());
+        sb.append(FIELD_SEP).append(request.getAccessType());
+        sb.append(FIELD_SEP).append(request.getAction());
+        sb.append(FIELD_SEP).append(request.isAccessTypeAny() ? 'A' : '-').append(request.isAccessTypeDelegatedAdmin() ? 'D' : '-').append(request.ignoreDescendantDeny() ? 'I' : '-');
+        sb.append(FIELD_SEP).append(request.getResourceMatchingScope());
+        sb.append(FIELD_SEP);
+        appendSorted(sb, request.getResourceElementMatchingScopes());
+        sb.append(FIELD_SEP).append(resource.getOwnerUser());
+        sb.append(FIELD_SEP);
+        appendSorted(sb, resource.getAsMap());
+        sb.append(FIELD_SEP);
+        appendSorted(sb, RangerAccessRequestUtil.getResourceZoneNamesFromContext(context));
+        sb.append(FIELD_SEP).append(request.getClientIPAddress());
+        sb.append(FIELD_SEP).append(request.getRemoteIPAddress());
+        sb.append(FIELD_SEP);
+        appendElements(sb, request.getForwardedAddresses());
+        sb.append(FIELD_SEP).append(request.getClusterName());
+        sb.append(FIELD_SEP).append(request.getClusterType());
+
+        return sb.toString();
+    }
+
+    public Generation getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drops all cached decisions. Decisions that are being computed concurrently are stored in the discarded
+     * generation, hence never become visible to later lookups.
+     */
+    public void invalidate() {
+        generation = new Generation();
+
+        invalidationCount.incrementAndGet();
+
+        LOG.debug("RangerAccessDecisionCache.invalidate(): invalidationCount={}", invalidationCount);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int size() {
+        return generation.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RangerAccessDecisionCache={maxSize=" + maxSize + ", segmentCount=" + segmentCount + ", size=" + size() +
+                ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", evictionCount=" + getEvictionCount() +
+                ", invalidationCount=" + getInvalidationCount() + "}";
+    }
+
+    private static boolean isCacheableContext(Map<String, Object> context) {
+        if (MapUtils.isEmpty(context)) {
+            return true;
+        }
+
+        Object allAccessTypes = context.get(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESSTYPES);
+
+        if (allAccessTypes instanceof Collection && ((Collection<?>) allAccessTypes).size() > 1) {
+            return false;
+        }
+
+        Object accessTypeGroups = context.get(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESSTYPE_GROUPS);
+
+        if (accessTypeGroups instanceof Collection && !((Collection<?>) accessTypeGroups).isEmpty()) {
+            return false;
+        }
+
+        Object ignoreIfNotDeniedAccessTypes = context.get(RangerAccessRequestUtil.KEY_CONTEXT_IGNORE_IF_NOT_DENIED_ACCESSTYPES);
+
+        if (ignoreIfNotDeniedAccessTypes instanceof Collection && !((Collection<?>) ignoreIfNotDeniedAccessTypes).isEmpty()) {
+            return false;
+        }
+
+        if (context.get(RangerAccessRequestUtil.KEY_CONTEXT_REQUESTED_RESOURCES) != null) {
+            return false;
+        }
+
+        // tags with validity periods apply only during those periods, i.e. depend on the time of access
+        Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(context);
+
+        if (tags != null) {
+            for (RangerTagForEval tag : tags) {
+                if (CollectionUtils.isNotEmpty(tag.getValidityPeriods())) {
+                    return false;
+                }
+            }
+        }
+
+        // GDS result depends on GDS policies, which can have conditions and validity schedules
+        GdsAccessResult gdsResult = RangerAccessRequestUtil.getGdsResultFromContext(context);
+
+        return gdsResult == null || (CollectionUtils.isEmpty(gdsResult.getDatasets()) && CollectionUtils.isEmpty(gdsResult.getProjects()));
+    }
+
+    private static void appendSorted(StringBuilder sb, Collection<String> values) {
+        if (CollectionUtils.isNotEmpty(values)) {
+            appendElements(sb, values.size() == 1 ? values : new TreeSet<>(values));
+        }
+    }
+
+    private static void appendSorted(StringBuilder sb, Map<String, ?> values) {
+        if (MapUtils.isNotEmpty(values)) {
+            Map<String, ?> sorted = values.size() == 1 ? values : new TreeMap<>(values);
+
+            for (Map.Entry<String, ?> entry : sorted.entrySet()) {
+                sb.append(entry.getKey()).append('=').append(entry.getValue()).append(ELEMENT_SEP);
+            }
+        }
+    }
+
+    private static void appendElements(StringBuilder sb, Collection<String> values) {
+        if (values != null) {
+            for (String value : values) {
+                sb.append(value).append(ELEMENT_SEP);
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+
+        return hash;
+    }
+
+    /**
+     * A set of segments holding the decisions made since the last invalidation.
+     */
+    public final class Generation {
+        private final Segment[] segments;
+
+        Generation() {
+            int segmentCapacity = (maxSize + segmentCount - 1) / segmentCount;
+
+            segments = new Segment[segmentCount];
+
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment(segmentCapacity);
+            }
+        }
+
+        /**
+         * @return the cached decision; callers must copy it into their own result, never modify it
+         */
+        public RangerAccessResult get(String signature) {
+            int                hash = spread(signature.hashCode());
+            RangerAccessResult ret  = segments[hash & (segments.length - 1)].get(signature, hash);
+
+            if (ret != null) {
+                hitCount.increment();
+            } else {
+                missCount.increment();
+            }
+
+            return ret;
+        }
+
+        public void put(String signature, RangerAccessResult result) {
+            int hash    = spread(signature.hashCode());
+            int evicted = segments[hash & (segments.length - 1)].put(signature, hash, result);
+
+            if (evicted > 0) {
+                evictionCount.add(evicted);
+            }
+        }
+
+        int size() {
+            int ret = 0;
+
+            for (Segment segment : segments) {
+                ret += segment.size();
+            }
+
+            return ret;
+        }
+    }
+
+    private static final class Segment {
+        private final int                                       windowCapacity;
+        private final int                                       mainCapacity;
+        private final LinkedHashMap<String, RangerAccessResult> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, RangerAccessResult> main   = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch                           sketch;
+
+        Segment(int capacity) {
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.mainCapacity   = Math.max(1, capacity - windowCapacity);
+            this.sketch         = new FrequencySketch(capacity);
+        }
+
+        synchronized RangerAccessResult get(String key, int hash) {
+            sketch.increment(hash);
+
+            RangerAccessResult ret = window.get(key);
+
+            return ret != null ? ret : main.get(key);
+        }
+
+        synchronized int put(String key, int hash, RangerAccessResult value) {
+            sketch.increment(hash);
+
+            if (window.containsKey(key)) {
+                window.put(key, value);
+
+                return 0;
+            } else if (main.containsKey(key)) {
+                main.put(key, value);
+
+                return 0;
+            }
+
+            window.put(key, value);
+
+            if (window.size() <= windowCapacity) {
+                return 0;
+            }
+
+            Map.Entry<String, RangerAccessResult> candidate = removeEldest(window);
+
+            if (main.size() < mainCapacity) {
+                main.put(candidate.getKey(), candidate.getValue());
+
+                return 0;
+            }
+
+            String victim = main.keySet().iterator().next();
+
+            if (sketch.frequency(spread(candidate.getKey().hashCode())) > sketch.frequency(spread(victim.hashCode()))) {
+                main.remove(victim);
+                main.put(candidate.getKey(), candidate.getValue());
+            }
+
+            return 1;
+        }
+
+        synchronized int size() {
+            return window.size() + main.size();
+        }
+
+        private static Map.Entry<String, RangerAccessResult> removeEldest(LinkedHashMap<String, RangerAccessResult> map) {
+            Iterator<Map.Entry<String, RangerAccessResult>> iter = map.entrySet().iterator();
+            Map.Entry<String, RangerAccessResult>           ret  = iter.next();
+
+            iter.remove();
+
+            return ret;
+        }
+    }
+
+    /**
+     * Count-min sketch with 4-bit saturating counters, packed two per byte; all counters are halved once the number
+     * of increments reaches 10 times the capacity, so that the recorded frequencies age over time.
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS       = {0x97cb3127, 0xb3c0b1a5, 0x2d3f8c5b, 0x6a09e667};
+        private static final int   MAX_COUNTER = 15;
+
+        private final byte[] table;
+        private final int    width;
+        private final int    sampleSize;
+        private int          additions;
+
+        FrequencySketch(int capacity) {
+            this.width      = Integer.highestOneBit(Math.max(16, 8 * capacity - 1) << 1);
+            this.table      = new byte[(width / 2) * SEEDS.length];
+            this.sampleSize = Math.max(10 * capacity, 16);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+
+            for (int i = 0; i < SEEDS.length; i++) {
+                int counter = counterIndex(hash, i);
+
+                if (get(counter) < MAX_COUNTER) {
+                    table[counter >>> 1] += (byte) ((counter & 1) == 0 ? 1 : 0x10);
+
+                    added = true;
+                }
+            }
+
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int ret = MAX_COUNTER;
+
+            for (int i = 0; i < SEEDS.length; i++) {
+                ret = Math.min(ret, get(counterIndex(hash, i)));
+            }
+
+            return ret;
+        }
+
+        private int get(int counter) {
+            int value = table[counter >>> 1] & 0xff;
+
+            return (counter & 1) == 0 ? (value & 0x0f) : (value >>> 4);
+        }
+
+        private int counterIndex(int hash, int row) {
+            int h = hash * SEEDS[row];
+
+            h ^= h >>> 17;
+
+            return (row * width) + (h & (width - 1));
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (byte) (((table[i] & 0xff) >>> 1) & 0x77);
+            }
+
+            additions /= 2;
+        }
+    }
+}
@@ -34,14 +34,24 @@
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class RangerPluginContext {
     private static final Logger LOG = LoggerFactory.getLogger(RangerPluginContext.class);
 
+    public static final String DECISION_CACHE_SIZE_SUFFIX          = ".policyengine.decision.cache.size";
+    public static final String BATCH_EVALUATION_PARALLELISM_SUFFIX = ".policyengine.batch.evaluation.parallelism";
+    public static final String BATCH_EVALUATION_MIN_SIZE_SUFFIX    = ".policyengine.batch.evaluation.min.size";
+    public static final int    BATCH_EVALUATION_MIN_SIZE_DEFAULT   = 64;
+
     private final RangerPluginConfig                                                         config;
     private final Map<String, Map<RangerPolicy.RangerPolicyResource, RangerResourceMatcher>> resourceMatchers = new HashMap<>();
     private final ReentrantReadWriteLock                                                     lock             = new ReentrantReadWriteLock(true); // fair lock
+    private final RangerAccessDecisionCache                                                  decisionCache;
+    private final ForkJoinPool                                                               batchEvaluationPool;
+    private final int                                                                        batchEvaluationMinSize;
     private       JwtProvider                                                                jwtProvider;
     private       RangerAuthContext                                                          authContext;
     private       RangerAuthContextListener                                                  authContextListener;
@@ -50,6 +60,28 @@ public class RangerPluginContext {
     public RangerPluginContext(RangerPluginConfig config) {
         this.config = config;
         this.jwtProvider = new DefaultJwtProvider(config.getPropertyPrefix() + ".policy.rest.client", config);
+
+        if (config.getPolicyEngineOptions() != null && config.getPolicyEngineOptions().enableDecisionCache) {
+            int cacheSize = config.getInt(config.getPropertyPrefix() + DECISION_CACHE_SIZE_SUFFIX, RangerAccessDecisionCache.DEFAULT_CACHE_SIZE);
+
+            this.decisionCache = new RangerAccessDecisionCache(cacheSize);
+
+            LOG.info("Created access decision cache for service {}: maxSize={}, segmentCount={}", config.getServiceName(), decisionCache.getMaxSize(), decisionCache.getSegmentCount());
+        } else {
+            this.decisionCache = null;
+        }
+
+        if (config.getPolicyEngineOptions() != null && config.getPolicyEngineOptions().enableParallelBatchEvaluation) {
+            int parallelism = config.getInt(config.getPropertyPrefix() + BATCH_EVALUATION_PARALLELISM_SUFFIX, Runtime.getRuntime().availableProcessors());
+
+            this.batchEvaluationPool    = new ForkJoinPool(Math.max(parallelism, 1), new BatchEvaluationThreadFactory(config.getServiceName()), null, false);
+            this.batchEvaluationMinSize = Math.max(config.getInt(config.getPropertyPrefix() + BATCH_EVALUATION_MIN_SIZE_SUFFIX, BATCH_EVALUATION_MIN_SIZE_DEFAULT), 2);
+
+            LOG.info("Created batch evaluation pool for service {}: parallelism={}, minBatchSize={}", config.getServiceName(), batchEvaluationPool.getParallelism(), batchEvaluationMinSize);
+        } else {
+            this.batchEvaluationPool    = null;
+            this.batchEvaluationMinSize = Integer.MAX_VALUE;
+        }
     }
 
     public RangerPluginConfig getConfig() {
@@ -115,7 +147,23 @@ public void setAuthContextListener(RangerAuthContextListener authContextListener
         this.authContextListener = authContextListener;
     }
 
+    public RangerAccessDecisionCache getDecisionCache() {
+        return decisionCache;
+    }
+
+    public ForkJoinPool getBatchEvaluationPool() {
+        return batchEvaluationPool;
+    }
+
+    public int getBatchEvaluationMinSize() {
+        return batchEvaluationMinSize;
+    }
+
     public void notifyAuthContextChanged() {
+        if (decisionCache != null) {
+            decisionCache.invalidate();
+        }
+
         RangerAuthContextListener authContextListener = this.authContextListener;
 
         if (authContextListener != null) {
@@ -196,4 +244,22 @@ void cleanResourceMatchers() {
 
         LOG.debug("<== cleanResourceMatchers()");
     }
+
+    private static class BatchEvaluationThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final String serviceName;
+
+        BatchEvaluationThreadFactory(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread ret = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+
+            ret.setName("ranger-batch-eval-" + serviceName + "-" + ret.getPoolIndex());
+            ret.setDaemon(true);
+
+            return ret;
+        }
+    }
 }
@@ -69,6 +69,15 @@ public interface RangerPolicyEngine {
 
     Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRequest> requests, int policyType, RangerAccessResultProcessor resultProcessor);
 
+    /**
+     * Evaluates policies for descendants of the resource in the request, like files and directories under a directory,
+     * with a single evaluation when the same policies, tags and security-zone apply to every descendant.
+     *
+     * @return result that applies to every descendant, with a request for a placeholder descendant - hence not to be
+     *         audited; null if access to descendants must be evaluated individually
+     */
+    RangerAccessResult evaluatePoliciesForDescendants(RangerAccessRequest request, int policyType);
+
     void evaluateAuditPolicies(RangerAccessResult result);
 
     RangerResourceACLs getResourceACLs(RangerAccessRequest request);
@@ -48,13 +48,17 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.apache.ranger.plugin.policyengine.PolicyEvaluatorForTag.MATCH_TYPE_COMPARATOR;
 
@@ -212,6 +216,10 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
 
         RangerAccessResult ret;
 
+        // capture the cache generation before pre-processing, so that a decision made with stale tags/user-store is stored in a generation that is already invalidated
+        RangerAccessDecisionCache            decisionCache      = policyType == RangerPolicy.POLICY_TYPE_ACCESS ? policyEngine.getPluginContext().getDecisionCache() : null;
+        RangerAccessDecisionCache.Generation decisionGeneration = decisionCache != null ? decisionCache.getGeneration() : null;
+
         try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
             if (readLock.isLockingEnabled()) {
                 LOG.debug("Acquired lock - {}", readLock);
@@ -219,7 +227,11 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
 
             requestProcessor.preProcess(request);
 
-            ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+            if (decisionGeneration != null) {
+                ret = evaluateWithDecisionCache(request, policyType, decisionGeneration);
+            } else {
+                ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+            }
 
             if (resultProcessor != null) {
                 RangerPerfTracer perfAuditTracer = null;
@@ -247,14 +259,18 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
     public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRequest> requests, int policyType, RangerAccessResultProcessor resultProcessor) {
         LOG.debug("==> RangerPolicyEngineImpl.evaluatePolicies({}, policyType={})", requests, policyType);
 
-        Collection<RangerAccessResult> ret = new ArrayList<>();
+        Collection<RangerAccessResult> ret           = new ArrayList<>();
+        RangerPluginContext            pluginContext = policyEngine.getPluginContext();
+        ForkJoinPool                   batchPool     = requests != null && requests.size() >= pluginContext.getBatchEvaluationMinSize() ? pluginContext.getBatchEvaluationPool() : null;
 
         try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
             if (readLock.isLockingEnabled()) {
                 LOG.debug("Acquired lock - {}", readLock);
             }
 
-            if (requests != null) {
+            if (batchPool != null) {
+                ret = evaluateBatch(requests, policyType, batchPool);
+            } else if (requests != null) {
                 for (RangerAccessRequest request : requests) {
                     requestProcessor.preProcess(request);
 
@@ -274,6 +290,50 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
         return ret;
     }
 
+    @Override
+    public RangerAccessResult evaluatePoliciesForDescendants(RangerAccessRequest request, int policyType) {
+        LOG.debug("==> RangerPolicyEngineImpl.evaluatePoliciesForDescendants({}, policyType={})", request, policyType);
+
+        RangerAccessResult ret  = null;
+        RangerPerfTracer   perf = null;
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_REQUEST_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_REQUEST_LOG, "RangerPolicyEngine.evaluatePoliciesForDescendants(resource=" + request.getResource().getAsString() + ")");
+        }
+
+        if (policyType == RangerPolicy.POLICY_TYPE_ACCESS) {
+            try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
+                if (readLock.isLockingEnabled()) {
+                    LOG.debug("Acquired lock - {}", readLock);
+                }
+
+                List<RangerAccessRequest> descendantRequests = new RangerSubtreeAccessEvaluator(policyEngine, requestProcessor).getDescendantRequests(request);
+
+                if (descendantRequests != null) {
+                    for (RangerAccessRequest descendantRequest : descendantRequests) {
+                        RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(descendantRequest, policyType);
+
+                        if (ret == null) {
+                            ret = result;
+                        } else if (ret.getIsAccessDetermined() != result.getIsAccessDetermined() || ret.getIsAllowed() != result.getIsAllowed() || ret.getPolicyId() != result.getPolicyId()) {
+                            LOG.warn("evaluatePoliciesForDescendants({}): different results for descendants - {}, {}", request, ret, result);
+
+                            ret = null;
+
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        RangerPerfTracer.log(perf);
+
+        LOG.debug("<== RangerPolicyEngineImpl.evaluatePoliciesForDescendants({}, policyType={}): {}", request, policyType, ret);
+
+        return ret;
+    }
+
     @Override
     public void evaluateAuditPolicies(RangerAccessResult result) {
         LOG.debug("==> RangerPolicyEngineImpl.evaluateAuditPolicies(result={})", result);
@@ -556,6 +616,112 @@ public RangerAccessRequestProcessor getRequestProcessor() {
         return requestProcessor;
     }
 
+    private RangerAccessResult evaluateWithDecisionCache(RangerAccessRequest request, int policyType, RangerAccessDecisionCache.Generation decisionGeneration) {
+        final RangerAccessResult ret;
+        final String             signature = policyEngine.hasConditionalAccessPolicies() ? null : RangerAccessDecisionCache.getSignature(request, policyEngine.getPolicyVersion(), policyEngine.getRoleVersion());
+        final RangerAccessResult cached    = signature != null ? decisionGeneration.get(signature) : null;
+
+        if (cached != null) {
+            ret = createAccessResult(request, policyType);
+
+            ret.setAccessResultFrom(cached);
+            ret.setAuditResultFrom(cached);
+        } else {
+            ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+
+            if (signature != null) {
+                RangerPolicyRepository repository = policyEngine.getPolicyRepository();
+                RangerAccessResult     decision   = new RangerAccessResult(policyType, repository.getServiceName(), repository.getServiceDef(), null);
+
+                decision.setAccessResultFrom(ret);
+                decision.setAuditResultFrom(ret);
+
+                decisionGeneration.put(signature, decision);
+            }
+        }
+
+        LOG.debug("evaluateWithDecisionCache(signature={}): isCached={}", signature, cached != null);
+
+        return ret;
+    }
+
+    /*
+     * Evaluates a large batch of requests on the batch evaluation pool; the caller holds the read lock for the duration.
+     *  - every request is pre-processed, as the audit of each result reads the tags/zones/roles set in its context
+     *  - identical requests (same signature as used by the decision cache) are evaluated only once. This is skipped for
+     *    non-access policy types and when policies read inputs not in the signature, like conditions or validity
+     *    schedules (see PolicyEngine.hasConditionalAccessPolicies())
+     *  - distinct requests are ordered by resource, so that requests on the same prefix (like columns of a table) are
+     *    evaluated next to each other by the same worker and find the trie nodes and evaluators they need already hot
+     * The returned results are in the iteration order of the given requests.
+     */
+    private List<RangerAccessResult> evaluateBatch(Collection<RangerAccessRequest> requests, int policyType, ForkJoinPool batchPool) {
+        LOG.debug("==> RangerPolicyEngineImpl.evaluateBatch(requestCount={}, policyType={})", requests.size(), policyType);
+
+        final RangerAccessRequest[] batch          = requests.toArray(new RangerAccessRequest[0]);
+        final String[]              signatures     = new String[batch.length];
+        final RangerAccessResult[]  results        = new RangerAccessResult[batch.length];
+        final long                  policyVersion  = policyEngine.getPolicyVersion();
+        final long                  roleVersion    = policyEngine.getRoleVersion();
+        final boolean               isDedupEnabled = policyType == RangerPolicy.POLICY_TYPE_ACCESS && !policyEngine.hasConditionalAccessPolicies();
+
+        batchPool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, batch.length).parallel().forEach(i -> {
+            requestProcessor.preProcess(batch[i]);
+
+            if (isDedupEnabled) {
+                signatures[i] = RangerAccessDecisionCache.getSignature(batch[i], policyVersion, roleVersion);
+            }
+        })));
+
+        final int[]                evaluatedIdx = new int[batch.length];
+        final List<Integer>        toEvaluate   = new ArrayList<>(batch.length);
+        final Map<String, Integer> firstIdx     = new HashMap<>();
+
+        for (int i = 0; i < batch.length; i++) {
+            Integer first = signatures[i] != null ? firstIdx.putIfAbsent(signatures[i], i) : null;
+
+            if (first != null) {
+                evaluatedIdx[i] = first;
+            } else {
+                evaluatedIdx[i] = i;
+
+                toEvaluate.add(i);
+            }
+        }
+
+        toEvaluate.sort(Comparator.comparing(i -> getResourceKey(batch[i])));
+
+        batchPool.invoke(ForkJoinTask.adapt(() -> toEvaluate.parallelStream().forEach(i -> results[i] = zoneAwareAccessEvaluationWithNoAudit(batch[i], policyType))));
+
+        List<RangerAccessResult> ret = new ArrayList<>(batch.length);
+
+        for (int i = 0; i < batch.length; i++) {
+            RangerAccessResult result = results[evaluatedIdx[i]];
+
+            if (evaluatedIdx[i] != i) {
+                RangerAccessResult evaluated = result;
+
+                result = createAccessResult(batch[i], policyType);
+
+                result.setAccessResultFrom(evaluated);
+                result.setAuditResultFrom(evaluated);
+            }
+
+            ret.add(result);
+        }
+
+        LOG.debug("<== RangerPolicyEngineImpl.evaluateBatch(requestCount={}, policyType={}): evaluatedCount={}", batch.length, policyType, toEvaluate.size());
+
+        return ret;
+    }
+
+    private static String getResourceKey(RangerAccessRequest request) {
+        RangerAccessResource resource = request.getResource();
+        String               ret      = resource != null ? resource.getAsString() : null;
+
+        return ret != null ? ret : "";
+    }
+
     private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType) {
         LOG.debug("==> RangerPolicyEngineImpl.zoneAwareAccessEvaluationWithNoAudit({}, policyType={})", request, policyType);
 
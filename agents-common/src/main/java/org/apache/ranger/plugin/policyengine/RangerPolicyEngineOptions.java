@@ -45,6 +45,13 @@ public class RangerPolicyEngineOptions {
     public boolean optimizeTrieForSpace;
     public boolean optimizeTagTrieForRetrieval;
     public boolean optimizeTagTrieForSpace;
+    public boolean enableDecisionCache;
+    public boolean enableConcurrentAuditCache;
+    public boolean enableParallelBatchEvaluation;
+    public boolean compactTrieLayout;
+    public boolean compactTagTrieLayout;
+    public boolean enableIncrementalTrieUpdate;
+    public boolean enableTrieSnapshot;
 
     private RangerServiceDefHelper serviceDefHelper;
 
@@ -71,6 +78,13 @@ public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other) {
         this.optimizeTrieForSpace                      = other.optimizeTrieForSpace;
         this.optimizeTagTrieForRetrieval               = other.optimizeTagTrieForRetrieval;
         this.optimizeTagTrieForSpace                   = other.optimizeTagTrieForSpace;
+        this.enableDecisionCache                       = other.enableDecisionCache;
+        this.enableConcurrentAuditCache                = other.enableConcurrentAuditCache;
+        this.enableParallelBatchEvaluation             = other.enableParallelBatchEvaluation;
+        this.compactTrieLayout                         = other.compactTrieLayout;
+        this.compactTagTrieLayout                      = other.compactTagTrieLayout;
+        this.enableIncrementalTrieUpdate               = other.enableIncrementalTrieUpdate;
+        this.enableTrieSnapshot                        = other.enableTrieSnapshot;
     }
 
     public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other, RangerServiceDefHelper serviceDefHelper) {
@@ -103,6 +117,13 @@ public void configureForPlugin(Configuration conf, String propertyPrefix) {
         optimizeTrieForSpace                      = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
         optimizeTagTrieForRetrieval               = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
         optimizeTagTrieForSpace                   = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", false);
+        enableDecisionCache                       = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.decision.cache", false);
+        enableConcurrentAuditCache                = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.concurrent.audit.cache", false);
+        enableParallelBatchEvaluation             = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.parallel.batch.evaluation", false);
+        compactTrieLayout                         = conf.getBoolean(propertyPrefix + ".policyengine.option.compact.trie.layout", false);
+        compactTagTrieLayout                      = conf.getBoolean(propertyPrefix + ".policyengine.option.compact.tag.trie.layout", false);
+        enableIncrementalTrieUpdate               = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.incremental.trie.update", false);
+        enableTrieSnapshot                        = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.trie.snapshot", false);
     }
 
     public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -216,6 +237,20 @@ public int hashCode() {
         ret *= 2;
         ret += enableResourceMatcherReuse ? 1 : 0;
         ret *= 2;
+        ret += enableDecisionCache ? 1 : 0;
+        ret *= 2;
+        ret += enableConcurrentAuditCache ? 1 : 0;
+        ret *= 2;
+        ret += enableParallelBatchEvaluation ? 1 : 0;
+        ret *= 2;
+        ret += compactTrieLayout ? 1 : 0;
+        ret *= 2;
+        ret += compactTagTrieLayout ? 1 : 0;
+        ret *= 2;
+        ret += enableIncrementalTrieUpdate ? 1 : 0;
+        ret *= 2;
+        ret += enableTrieSnapshot ? 1 : 0;
+        ret *= 2;
         return ret;
     }
 
@@ -241,7 +276,14 @@ public boolean equals(Object other) {
                     && this.optimizeTrieForSpace == that.optimizeTrieForSpace
                     && this.optimizeTagTrieForRetrieval == that.optimizeTagTrieForRetrieval
                     && this.optimizeTagTrieForSpace == that.optimizeTagTrieForSpace
-                    && this.enableResourceMatcherReuse == that.enableResourceMatcherReuse;
+                    && this.enableResourceMatcherReuse == that.enableResourceMatcherReuse
+                    && this.enableDecisionCache == that.enableDecisionCache
+                    && this.enableConcurrentAuditCache == that.enableConcurrentAuditCache
+                    && this.enableParallelBatchEvaluation == that.enableParallelBatchEvaluation
+                    && this.compactTrieLayout == that.compactTrieLayout
+                    && this.compactTagTrieLayout == that.compactTagTrieLayout
+                    && this.enableIncrementalTrieUpdate == that.enableIncrementalTrieUpdate
+                    && this.enableTrieSnapshot == that.enableTrieSnapshot;
         }
         return ret;
     }
@@ -268,6 +310,13 @@ public String toString() {
                 ", optimizeTagTrieForRetrieval: " + optimizeTagTrieForRetrieval +
                 ", optimizeTagTrieForSpace: " + optimizeTagTrieForSpace +
                 ", enableResourceMatcherReuse: " + enableResourceMatcherReuse +
+                ", enableDecisionCache: " + enableDecisionCache +
+                ", enableConcurrentAuditCache: " + enableConcurrentAuditCache +
+                ", enableParallelBatchEvaluation: " + enableParallelBatchEvaluation +
+                ", compactTrieLayout: " + compactTrieLayout +
+                ", compactTagTrieLayout: " + compactTagTrieLayout +
+                ", enableIncrementalTrieUpdate: " + enableIncrementalTrieUpdate +
+                ", enableTrieSnapshot: " + enableTrieSnapshot +
                 " }";
     }
 }
@@ -53,6 +53,7 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -84,6 +85,7 @@ public class RangerPolicyRepository {
     private final long                                                           policyVersion;
     private final AuditModeEnum                                                  auditModeEnum;
     private final Map<String, AuditInfo>                                         accessAuditCache;
+    private final int                                                            accessAuditCacheSize;
     private final String                                                         componentServiceName;
     private final RangerServiceDef                                               componentServiceDef;
     private final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> policyResourceTrie;
@@ -121,7 +123,7 @@ public class RangerPolicyRepository {
             this.policyResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.policyResourceTrie.entrySet()) {
-                policyResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                policyResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), options.enableIncrementalTrieUpdate));
             }
         } else {
             this.policyResourceTrie = null;
@@ -131,7 +133,7 @@ public class RangerPolicyRepository {
             this.dataMaskResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.dataMaskResourceTrie.entrySet()) {
-                dataMaskResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                dataMaskResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), options.enableIncrementalTrieUpdate));
             }
         } else {
             this.dataMaskResourceTrie = null;
@@ -141,7 +143,7 @@ public class RangerPolicyRepository {
             this.rowFilterResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.rowFilterResourceTrie.entrySet()) {
-                rowFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                rowFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), options.enableIncrementalTrieUpdate));
             }
         } else {
             this.rowFilterResourceTrie = null;
@@ -151,18 +153,18 @@ public class RangerPolicyRepository {
             this.auditFilterResourceTrie = new HashMap<>();
 
             for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.auditFilterResourceTrie.entrySet()) {
-                auditFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
+                auditFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), options.enableIncrementalTrieUpdate));
             }
         } else {
             this.auditFilterResourceTrie = null;
         }
 
         if (other.accessAuditCache != null) {
-            int auditResultCacheSize = other.accessAuditCache.size();
-
-            this.accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+            this.accessAuditCacheSize = other.accessAuditCacheSize;
+            this.accessAuditCache     = createAccessAuditCache(options, accessAuditCacheSize);
         } else {
-            this.accessAuditCache = null;
+            this.accessAuditCacheSize = 0;
+            this.accessAuditCache     = null;
         }
 
         final boolean isExistingPolicies = CollectionUtils.isNotEmpty(this.policies);
@@ -218,14 +220,15 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             String propertyName = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
 
             if (options.cacheAuditResults) {
-                int auditResultCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+                accessAuditCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
+                accessAuditCache     = createAccessAuditCache(options, accessAuditCacheSize);
             } else {
-                accessAuditCache = null;
+                accessAuditCacheSize = 0;
+                accessAuditCache     = null;
             }
         } else {
-            this.accessAuditCache = null;
+            this.accessAuditCacheSize = 0;
+            this.accessAuditCache     = null;
         }
 
         LOG.debug("RangerPolicyRepository : building policy-repository for service[{}], and zone:[{}] with auditMode[{}]", serviceName, zoneName, auditModeEnum);
@@ -246,10 +249,12 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = null;
             auditFilterResourceTrie = null;
         } else {
-            policyResourceTrie      = createResourceTrieMap(policyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            dataMaskResourceTrie    = createResourceTrieMap(dataMaskPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+            List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieMaps = createResourceTrieMaps();
+
+            policyResourceTrie      = trieMaps.get(0);
+            dataMaskResourceTrie    = trieMaps.get(1);
+            rowFilterResourceTrie   = trieMaps.get(2);
+            auditFilterResourceTrie = trieMaps.get(3);
         }
     }
 
@@ -277,7 +282,8 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
         }
 
-        this.accessAuditCache = null;
+        this.accessAuditCacheSize = 0;
+        this.accessAuditCache     = null;
 
         LOG.debug("RangerPolicyRepository : building tag-policy-repository for tag service:[{}], with auditMode[{}]", serviceName, auditModeEnum);
 
@@ -297,10 +303,12 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = null;
             auditFilterResourceTrie = null;
         } else {
-            policyResourceTrie      = createResourceTrieMap(policyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            dataMaskResourceTrie    = createResourceTrieMap(dataMaskPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
-            auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
+            List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieMaps = createResourceTrieMaps();
+
+            policyResourceTrie      = trieMaps.get(0);
+            dataMaskResourceTrie    = trieMaps.get(1);
+            rowFilterResourceTrie   = trieMaps.get(2);
+            auditFilterResourceTrie = trieMaps.get(3);
         }
     }
 
@@ -887,6 +895,20 @@ private List<? extends RangerPolicyItem> normalizeAndPrunePolicyItems(List<? ext
         return policyItems;
     }
 
+    private static Map<String, AuditInfo> createAccessAuditCache(RangerPolicyEngineOptions options, int cacheSize) {
+        final Map<String, AuditInfo> ret;
+
+        if (options.enableConcurrentAuditCache) {
+            ret = new ConcurrentCacheMap<>(cacheSize);
+        } else {
+            ret = Collections.synchronizedMap(new CacheMap<>(cacheSize));
+        }
+
+        LOG.debug("createAccessAuditCache(cacheSize={}): enableConcurrentAuditCache={}", cacheSize, options.enableConcurrentAuditCache);
+
+        return ret;
+    }
+
     private static boolean isDelegateAdminPolicy(RangerPolicy policy) {
         return hasDelegateAdminItems(policy.getPolicyItems())
                 || hasDelegateAdminItems(policy.getDenyPolicyItems())
@@ -1201,6 +1223,29 @@ private List<RangerPolicyEvaluator> getReorderedPolicyEvaluators(List<RangerPoli
         return ret;
     }
 
+    // returns trie maps for policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators and auditPolicyEvaluators, in that order
+    private List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> createResourceTrieMaps() {
+        List<List<RangerPolicyEvaluator>>                                    evaluatorLists = Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators, auditPolicyEvaluators);
+        RangerResourceTrieSnapshot                                           snapshot       = RangerResourceTrieSnapshot.getSnapshot(pluginContext, options, serviceName, componentServiceName, zoneName, policyVersion);
+        List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> ret            = snapshot != null ? snapshot.load(serviceDef, evaluatorLists) : null;
+
+        if (ret == null) {
+            ret = new ArrayList<>(evaluatorLists.size());
+
+            for (List<RangerPolicyEvaluator> evaluators : evaluatorLists) {
+                ret.add(createResourceTrieMap(evaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace));
+            }
+
+            if (snapshot != null) {
+                snapshot.save(serviceDef, evaluatorLists, ret);
+            }
+        } else {
+            LOG.info("RangerPolicyRepository(serviceName={}, zoneName={}, policyVersion={}): loaded resource tries from snapshot {}", serviceName, zoneName, policyVersion, snapshot.getFile());
+        }
+
+        return ret;
+    }
+
     private Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> createResourceTrieMap(List<? extends RangerPolicyEvaluator> evaluators, boolean optimizeTrieForRetrieval, boolean optimizeTrieForSpace) {
         final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> ret;
 
@@ -1208,7 +1253,7 @@ private Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> createRes
             ret = new HashMap<>();
 
             for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, pluginContext));
+                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, options.compactTrieLayout, pluginContext));
             }
         } else {
             ret = null;
@@ -1230,7 +1275,7 @@ private void updateTrie(Map<String, RangerResourceTrie<RangerPolicyResourceEvalu
                     LOG.warn("policyDeltaType is not for POLICY_CREATE and trie for resourceDef:[{}] was null! Should not have happened!!", resourceDefName);
                 }
 
-                trie = new RangerResourceTrie<>(resourceDef, new ArrayList<>(), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, pluginContext);
+                trie = new RangerResourceTrie<>(resourceDef, new ArrayList<>(), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, options.compactTrieLayout, pluginContext);
 
                 trieMap.put(resourceDefName, trie);
             }
@@ -36,6 +36,8 @@
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
@@ -52,6 +54,7 @@
 import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -180,6 +183,12 @@ public final class RangerRequestScriptEvaluator {
 
     private static final MacroProcessor MACRO_PROCESSOR = new MacroProcessor(getMacrosMap());
 
+    // scripts prepared by evaluateScript(String); policy scripts are prepared once, with prepareScript(), by their evaluators
+    private static final int                         MAX_PREPARED_SCRIPTS = 10000;
+    private static final Map<String, PreparedScript> PREPARED_SCRIPTS     = new ConcurrentHashMap<>();
+
+    private static volatile PreparedScript jsonCtxInitScript;
+
     private static       String[]                            dateFormatStrings        = {};
     private static final ThreadLocal<List<SimpleDateFormat>> THREADLOCAL_DATE_FORMATS = ThreadLocal.withInitial(() -> {
         List<SimpleDateFormat> ret = new ArrayList<>();
@@ -204,7 +213,8 @@ public final class RangerRequestScriptEvaluator {
 
     private final RangerAccessRequest                 accessRequest;
     private final ScriptEngine                        scriptEngine;
-    private final Bindings                            bindings;
+    private final boolean                             enableJsonCtx;
+    private       Bindings                            bindings;
     private       boolean                             initDone;
     private       Map<String, String>                 userAttrs  = Collections.emptyMap();
     private       Map<String, Map<String, String>>    groupAttrs = Collections.emptyMap();
@@ -219,33 +229,14 @@ public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEng
         this(accessRequest, scriptEngine, true);
     }
 
+    /**
+     * Bindings for the script engine are created on the first evaluation of a script that needs the engine, so that
+     * requests evaluating only simple expressions don't incur the cost of creating the script context.
+     */
     public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx) {
         this.accessRequest = accessRequest.getReadOnlyCopy();
         this.scriptEngine  = scriptEngine;
-        this.bindings      = scriptEngine.createBindings();
-
-        RangerTagForEval    currentTag = this.getCurrentTag();
-        Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
-
-        bindings.put(SCRIPT_VAR_ctx, this);
-        bindings.put(SCRIPT_VAR_tag, currentTag);
-        bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
-
-        String preExecScript = "";
-
-        if (enableJsonCtx) {
-            bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
-
-            preExecScript += SCRIPT_PREEXEC;
-        }
-
-        if (StringUtils.isNotBlank(preExecScript)) {
-            try {
-                scriptEngine.eval(preExecScript, bindings);
-            } catch (ScriptException excp) {
-                LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
-            }
-        }
+        this.enableJsonCtx = enableJsonCtx;
     }
 
     public static boolean needsJsonCtxEnabled(String script) {
@@ -314,14 +305,72 @@ public static void init(Configuration config) {
         RangerRequestScriptEvaluator.dateFormatStrings = formatStrings;
     }
 
+    /**
+     * Prepares the script for evaluation on many requests: expands macros, adds the preamble and polyfills used by the
+     * script, and compiles it with the given engine - or finds that it is a simple expression that can be evaluated
+     * without the engine.
+     */
+    public static PreparedScript prepareScript(String script, ScriptEngine scriptEngine) {
+        String expandedScript = expandMacros(script);
+        String preExec        = SCRIPT_SAFE_PREEXEC;
+
+        if (expandedScript.contains(".includes(")) {
+            preExec += SCRIPT_POLYFILL_INCLUDES;
+        }
+
+        if (expandedScript.contains(".intersects(")) {
+            preExec += SCRIPT_POLYFILL_INTERSECTS;
+        }
+
+        if (JavaScriptEdits.hasDoubleBrackets(expandedScript)) {
+            expandedScript = JavaScriptEdits.replaceDoubleBrackets(expandedScript);
+        }
+
+        return new PreparedScript(script, preExec + expandedScript, scriptEngine, RangerSimpleScriptExpression.parse(expandedScript));
+    }
+
     public Object evaluateScript(String script) {
-        script = expandMacros(script);
+        if (script == null) {
+            return null;
+        }
+
+        PreparedScript preparedScript = PREPARED_SCRIPTS.get(script);
+
+        if (preparedScript == null || preparedScript.scriptEngine != scriptEngine) {
+            preparedScript = prepareScript(script, scriptEngine);
 
-        return evaluateScriptImpl(script);
+            if (PREPARED_SCRIPTS.size() >= MAX_PREPARED_SCRIPTS) {
+                PREPARED_SCRIPTS.clear();
+            }
+
+            PREPARED_SCRIPTS.put(script, preparedScript);
+        }
+
+        return evaluateScript(preparedScript);
+    }
+
+    public Object evaluateScript(PreparedScript script) {
+        final Object ret;
+
+        if (script.simpleExpression != null && (enableJsonCtx || !script.simpleExpression.needsJsonCtx())) {
+            ret = script.simpleExpression.evaluate(this);
+        } else {
+            ret = evaluateScriptImpl(script);
+        }
+
+        return ret;
     }
 
     public Object evaluateConditionScript(String script) {
-        Object ret = evaluateScript(script);
+        return evaluateConditionResult(evaluateScript(script));
+    }
+
+    public Object evaluateConditionScript(PreparedScript script) {
+        return evaluateConditionResult(evaluateScript(script));
+    }
+
+    private Object evaluateConditionResult(Object scriptResult) {
+        Object ret = scriptResult;
 
         if (ret == null) {
             ret = getResult();
@@ -488,6 +537,12 @@ public List<String> getAttributeValueForAllMatchingTags(final String tagType, fi
                         .collect(Collectors.toList());
     }
 
+    public String getUserAttribute(String attrName) {
+        init();
+
+        return userAttrs.get(attrName);
+    }
+
     public String getAttributeValue(final String attributeName) {
         RangerTagForEval    tag        = StringUtils.isBlank(attributeName) ? null : getCurrentTag();
         Map<String, String> attributes = tag == null ? null : tag.getAttributes();
@@ -832,7 +887,7 @@ public void logFatal(Object msg) {
         LOG.error(Objects.toString(msg));
     }
 
-    private Object evaluateScriptImpl(String script) {
+    private Object evaluateScriptImpl(PreparedScript script) {
         Object           ret  = null;
         RangerPerfTracer perf = null;
 
@@ -841,21 +896,7 @@ private Object evaluateScriptImpl(String script) {
                 perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
             }
 
-            String preExec = SCRIPT_SAFE_PREEXEC;
-
-            if (script.contains(".includes(")) {
-                preExec += SCRIPT_POLYFILL_INCLUDES;
-            }
-
-            if (script.contains(".intersects(")) {
-                preExec += SCRIPT_POLYFILL_INTERSECTS;
-            }
-
-            if (JavaScriptEdits.hasDoubleBrackets(script)) {
-                script = JavaScriptEdits.replaceDoubleBrackets(script);
-            }
-
-            ret = scriptEngine.eval(preExec + script, bindings);
+            ret = script.eval(scriptEngine, getBindings());
         } catch (NullPointerException nullp) {
             LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
         } catch (ScriptException excp) {
@@ -869,6 +910,39 @@ private Object evaluateScriptImpl(String script) {
         return ret;
     }
 
+    private Bindings getBindings() {
+        if (bindings == null) {
+            RangerTagForEval    currentTag = this.getCurrentTag();
+            Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
+
+            bindings = scriptEngine.createBindings();
+
+            bindings.put(SCRIPT_VAR_ctx, this);
+            bindings.put(SCRIPT_VAR_tag, currentTag);
+            bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
+
+            if (enableJsonCtx) {
+                PreparedScript initScript = jsonCtxInitScript;
+
+                if (initScript == null || initScript.scriptEngine != scriptEngine) {
+                    initScript = new PreparedScript(SCRIPT_PREEXEC, SCRIPT_PREEXEC, scriptEngine, null);
+
+                    jsonCtxInitScript = initScript;
+                }
+
+                bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
+
+                try {
+                    initScript.eval(scriptEngine, bindings);
+                } catch (ScriptException excp) {
+                    LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
+                }
+            }
+        }
+
+        return bindings;
+    }
+
     private String toJson() {
         RangerPerfTracer perf = null;
 
@@ -1342,4 +1416,61 @@ public Map<String, Map<String, Object>> getAttributes() {
     static {
         init(null);
     }
+
+    /**
+     * A script ready for evaluation: compiled once, if the engine supports it, and evaluated with the Bindings of each
+     * request. Thread-safe, as CompiledScript keeps no state between evaluations other than in the given Bindings.
+     */
+    public static final class PreparedScript {
+        private final String                       script;
+        private final String                       scriptToEval;
+        private final ScriptEngine                 scriptEngine;
+        private final CompiledScript               compiledScript;
+        private final RangerSimpleScriptExpression simpleExpression;
+
+        private PreparedScript(String script, String scriptToEval, ScriptEngine scriptEngine, RangerSimpleScriptExpression simpleExpression) {
+            this.script           = script;
+            this.scriptToEval     = scriptToEval;
+            this.scriptEngine     = scriptEngine;
+            this.simpleExpression = simpleExpression;
+            this.compiledScript   = simpleExpression == null ? compile(scriptToEval, scriptEngine) : null;
+        }
+
+        public String getScript() {
+            return script;
+        }
+
+        public boolean isSimpleExpression() {
+            return simpleExpression != null;
+        }
+
+        public boolean isCompiled() {
+            return compiledScript != null;
+        }
+
+        Object eval(ScriptEngine engine, Bindings bindings) throws ScriptException {
+            if (compiledScript != null && engine == scriptEngine) {
+                return compiledScript.eval(bindings);
+            } else {
+                return engine.eval(scriptToEval, bindings);
+            }
+        }
+
+        private static CompiledScript compile(String script, ScriptEngine scriptEngine) {
+            CompiledScript ret = null;
+
+            if (scriptEngine instanceof Compilable) {
+                try {
+                    ret = ((Compilable) scriptEngine).compile(script);
+                } catch (ScriptException excp) {
+                    // the error will be logged on evaluation, as before compilation was introduced
+                    LOG.debug("PreparedScript.compile(): failed to compile script {}", script, excp);
+                } catch (Throwable t) {
+                    LOG.warn("PreparedScript.compile(): failed to compile script {}", script, t);
+                }
+            }
+
+            return ret;
+        }
+    }
 }
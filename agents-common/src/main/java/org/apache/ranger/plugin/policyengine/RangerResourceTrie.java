@@ -36,6 +36,10 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -47,6 +51,8 @@
 import java.util.Stack;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 import static org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.DEFAULT_PATH_SEPARATOR_CHAR;
 import static org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher.OPTION_PATH_SEPARATOR;
@@ -66,19 +72,33 @@
     private final String            wildcardChars;
     private final boolean           isOptimizedForRetrieval;
     private final boolean           isOptimizedForSpace;
+    private final boolean           isCompactLayout;
     private final Character         separatorChar;
-    private final TrieNode<T>       root;
+    private final boolean           isCopyOnWrite;
+    private final NodeContext       nodeContext;
+    private       TrieNode<T>       root;
     private       Set<T>            inheritedEvaluators;
+    private       boolean           isCompacted;
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
         this(resourceDef, evaluators, true, null);
     }
 
     public RangerResourceTrie(RangerResourceTrie<T> other) {
+        this(other, false);
+    }
+
+    /*
+     * isCopyOnWrite: instead of copying all nodes of the other trie, share them with it. add() and delete() copy a node
+     * before updating it, along with its ancestors, so that the other trie remains unchanged and can continue to serve
+     * lookups - as long as the other trie is not updated afterwards. As nodes include wildcard-evaluators of their
+     * ancestors once set up, updating wildcard-evaluators of a node copies its subtree as well, unless optimized for space.
+     */
+    public RangerResourceTrie(RangerResourceTrie<T> other, boolean isCopyOnWrite) {
         RangerPerfTracer perf = null;
 
         if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
-            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.copyTrie(name=" + other.resourceDef.getName() + ")");
+            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.copyTrie(name=" + other.resourceDef.getName() + ", isCopyOnWrite=" + isCopyOnWrite + ")");
         }
 
         this.resourceDef             = other.resourceDef;
@@ -87,16 +107,24 @@ public RangerResourceTrie(RangerResourceTrie<T> other) {
         this.wildcardChars           = other.wildcardChars;
         this.isOptimizedForSpace     = other.isOptimizedForSpace;
         this.isOptimizedForRetrieval = other.isOptimizedForRetrieval;
+        this.isCompactLayout         = other.isCompactLayout;
         this.separatorChar           = other.separatorChar;
+        this.isCopyOnWrite           = isCopyOnWrite;
+        this.nodeContext             = new NodeContext(other.nodeContext);
         this.inheritedEvaluators     = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
-        this.root                    = copyTrieSubtree(other.root, null);
 
-        wrapUpUpdate();
+        if (isCopyOnWrite) {
+            this.root = TrieNode.copyForUpdate(other.root, null, nodeContext);
+        } else {
+            this.root = copyTrieSubtree(other.root, null);
+
+            wrapUpUpdate();
 
-        if (!isOptimizedForRetrieval) {
-            LOG.debug("Trie for {} is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root", this.resourceDef.getName());
+            if (!isOptimizedForRetrieval) {
+                LOG.debug("Trie for {} is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root", this.resourceDef.getName());
 
-            root.undoSetup();
+                root.undoSetup();
+            }
         }
 
         RangerPerfTracer.logAlways(perf);
@@ -115,7 +143,16 @@ public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boo
     }
 
     public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, RangerPluginContext pluginContext) {
-        LOG.debug("==> RangerResourceTrie({}, evaluatorCount={}, isOptimizedForRetrieval={}, isOptimizedForSpace={})", resourceDef.getName(), evaluators.size(), isOptimizedForRetrieval, isOptimizedForSpace);
+        this(resourceDef, evaluators, isOptimizedForRetrieval, isOptimizedForSpace, false, pluginContext);
+    }
+
+    /*
+     * isCompactLayout: store node children in sorted char arrays and, once the trie is set up, replace evaluator sets
+     * with immutable array-backed sets that are shared between nodes having the same evaluators. As evaluator sets of
+     * a compact trie are not updated during lookups, a compact trie that is not optimized for space is set up eagerly.
+     */
+    public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isCompactLayout, RangerPluginContext pluginContext) {
+        LOG.debug("==> RangerResourceTrie({}, evaluatorCount={}, isOptimizedForRetrieval={}, isOptimizedForSpace={}, isCompactLayout={})", resourceDef.getName(), evaluators.size(), isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout);
 
         RangerPerfTracer perf = null;
 
@@ -134,32 +171,18 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
             TRACE_LOG.trace("builderThreadCount is set to [{}]", builderThreadCount);
         }
 
-        Map<String, String> matcherOptions           = resourceDef.getMatcherOptions();
-        boolean             optReplaceTokens         = RangerAbstractResourceMatcher.getOptionReplaceTokens(matcherOptions);
-        boolean             optReplaceReqExpressions = RangerAbstractResourceMatcher.getOptionReplaceReqExpressions(matcherOptions);
-        String              tokenReplaceSpecialChars = "";
-
-        if (optReplaceTokens) {
-            char delimiterStart  = RangerAbstractResourceMatcher.getOptionDelimiterStart(matcherOptions);
-            char delimiterEnd    = RangerAbstractResourceMatcher.getOptionDelimiterEnd(matcherOptions);
-            char delimiterEscape = RangerAbstractResourceMatcher.getOptionDelimiterEscape(matcherOptions);
-
-            tokenReplaceSpecialChars += delimiterStart;
-            tokenReplaceSpecialChars += delimiterEnd;
-            tokenReplaceSpecialChars += delimiterEscape;
-        }
-
-        if (optReplaceReqExpressions) {
-            tokenReplaceSpecialChars += RangerRequestExprResolver.EXPRESSION_START.charAt(0);
-        }
+        Map<String, String> matcherOptions = resourceDef.getMatcherOptions();
 
         this.resourceDef             = resourceDef;
         this.optIgnoreCase           = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
         this.optWildcard             = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
-        this.wildcardChars           = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : tokenReplaceSpecialChars;
+        this.wildcardChars           = getWildcardChars(matcherOptions, optWildcard);
         this.isOptimizedForSpace     = isOptimizedForSpace;
-        this.isOptimizedForRetrieval = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
+        this.isOptimizedForRetrieval = !isOptimizedForSpace && (isOptimizedForRetrieval || isCompactLayout);  // isOptimizedForSpace takes precedence
+        this.isCompactLayout         = isCompactLayout;
         this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.isCopyOnWrite           = false;
+        this.nodeContext             = new NodeContext(resourceDef.getName(), optIgnoreCase, this.isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout);
 
         final TrieNode<T> tmpRoot = buildTrie(resourceDef, evaluators, builderThreadCount);
 
@@ -181,7 +204,52 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
             TRACE_LOG.trace("Trie Dump from RangerResourceTrie.init(name={}):\n[{}]", resourceDef.getName(), dumpTrie());
         }
 
-        LOG.debug("<== RangerResourceTrie({}, evaluatorCount={}, isOptimizedForRetrieval={}, isOptimizedForSpace={}): {}", resourceDef.getName(), evaluators.size(), this.isOptimizedForRetrieval, this.isOptimizedForSpace, this);
+        LOG.debug("<== RangerResourceTrie({}, evaluatorCount={}, isOptimizedForRetrieval={}, isOptimizedForSpace={}, isCompactLayout={}): {}", resourceDef.getName(), evaluators.size(), this.isOptimizedForRetrieval, this.isOptimizedForSpace, this.isCompactLayout, this);
+    }
+
+    /*
+     * loads a trie saved with writeSnapshot(), instead of building it from evaluators. evaluatorAt() returns the evaluator for
+     * an index given by writeSnapshot(), hence must see the same evaluators, in the same order, as when the snapshot was written
+     */
+    RangerResourceTrie(RangerResourceDef resourceDef, DataInput in, IntFunction<T> evaluatorAt, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isCompactLayout) throws IOException {
+        LOG.debug("==> RangerResourceTrie({}, isOptimizedForRetrieval={}, isOptimizedForSpace={}, isCompactLayout={}): loading from snapshot", resourceDef.getName(), isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout);
+
+        RangerPerfTracer perf = null;
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.loadSnapshot(name=" + resourceDef.getName() + ")");
+        }
+
+        Map<String, String> matcherOptions = resourceDef.getMatcherOptions();
+
+        this.resourceDef             = resourceDef;
+        this.optIgnoreCase           = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
+        this.optWildcard             = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
+        this.wildcardChars           = getWildcardChars(matcherOptions, optWildcard);
+        this.isOptimizedForSpace     = isOptimizedForSpace;
+        this.isOptimizedForRetrieval = !isOptimizedForSpace && (isOptimizedForRetrieval || isCompactLayout);  // isOptimizedForSpace takes precedence
+        this.isCompactLayout         = isCompactLayout;
+        this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.isCopyOnWrite           = false;
+        this.nodeContext             = new NodeContext(resourceDef.getName(), optIgnoreCase, this.isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout);
+
+        int inheritedEvaluatorCount = in.readInt();
+
+        for (int i = 0; i < inheritedEvaluatorCount; i++) {
+            addInheritedEvaluator(evaluatorAt.apply(in.readInt()));
+        }
+
+        this.root = readSnapshotNode(in, evaluatorAt);
+
+        wrapUpUpdate();
+
+        RangerPerfTracer.logAlways(perf);
+
+        if (PERF_TRIE_INIT_LOG.isDebugEnabled()) {
+            PERF_TRIE_INIT_LOG.debug(toString());
+        }
+
+        LOG.debug("<== RangerResourceTrie({}, isOptimizedForRetrieval={}, isOptimizedForSpace={}, isCompactLayout={}): loaded from snapshot {}", resourceDef.getName(), this.isOptimizedForRetrieval, this.isOptimizedForSpace, this.isCompactLayout, this);
     }
 
     public Set<T> getEvaluatorsForResource(Object resource) {
@@ -231,6 +299,8 @@ public void add(RangerPolicyResource resource, T evaluator) {
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.add(name=" + resource + ")");
         }
 
+        expandIfCompacted();
+
         if (resource == null) {
             if (evaluator.isAncestorOf(resourceDef)) {
                 addInheritedEvaluator(evaluator);
@@ -241,7 +311,11 @@ public void add(RangerPolicyResource resource, T evaluator) {
             } else {
                 if (CollectionUtils.isNotEmpty(resource.getValues())) {
                     for (String value : resource.getValues()) {
-                        insert(root, value, resource.getIsRecursive(), evaluator);
+                        if (isCopyOnWrite) {
+                            insertCopyOnWrite(value, resource.getIsRecursive(), evaluator);
+                        } else {
+                            insert(root, value, resource.getIsRecursive(), evaluator);
+                        }
                     }
                 }
             }
@@ -261,6 +335,8 @@ public void delete(RangerPolicyResource resource, T evaluator) {
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.delete(name=" + resource + ")");
         }
 
+        expandIfCompacted();
+
         if (resource == null) {
             if (evaluator.isAncestorOf(resourceDef)) {
                 removeInheritedEvaluator(evaluator);
@@ -269,10 +345,14 @@ public void delete(RangerPolicyResource resource, T evaluator) {
             removeInheritedEvaluator(evaluator);
         } else {
             for (String value : resource.getValues()) {
-                TrieNode<T> node = getNodeForResource(value);
+                if (isCopyOnWrite) {
+                    deleteCopyOnWrite(value, evaluator);
+                } else {
+                    TrieNode<T> node = getNodeForResource(value);
 
-                if (node != null) {
-                    node.removeEvaluatorFromSubtree(evaluator);
+                    if (node != null) {
+                        node.removeEvaluatorFromSubtree(evaluator);
+                    }
                 }
             }
         }
@@ -288,12 +368,25 @@ public void wrapUpUpdate() {
         if (root != null) {
             root.wrapUpUpdate();
 
+            if (isCompactLayout && !isCompacted) {
+                compact();
+            }
+
             if (TRACE_LOG.isTraceEnabled()) {
                 TRACE_LOG.trace("Trie Dump from RangerResourceTrie.wrapUpUpdate(name={}):\n[{}]", resourceDef.getName(), dumpTrie());
             }
         }
     }
 
+    /*
+     * writes the nodes of this trie with the evaluators added to each by add(), i.e. without those added by setup(), as the
+     * constructor that loads the snapshot sets up the trie as usual. evaluatorIndex() gives the index to write for an evaluator
+     */
+    void writeSnapshot(DataOutput out, ToIntFunction<T> evaluatorIndex) throws IOException {
+        writeSnapshotEvaluators(out, inheritedEvaluators, null, evaluatorIndex);
+        writeSnapshotNode(out, root, evaluatorIndex);
+    }
+
     public StringBuilder dumpTrie() {
         StringBuilder sb = new StringBuilder();
         if (root != null) {
@@ -385,13 +478,15 @@ public void traverse(String resource, ResourceElementMatchingScope scope, Traver
             final boolean resourceEndsWithSep = resource.charAt(resource.length() - 1) == separatorChar;
 
             if (isSelfMatch) { // resource == path(curr)
+                final TrieNode<T> self = curr;
+
                 if (resourceEndsWithSep) { // ex: resource=/tmp/
-                    curr.getChildren().values().forEach(c -> c.collectChildEvaluators(separatorChar, 0, handler));
+                    self.getChildren().values().forEach(c -> c.collectChildEvaluators(self, separatorChar, 0, handler));
                 } else { // ex: resource=/tmp
-                    curr = curr.getChild(separatorChar);
+                    curr = self.getChild(separatorChar);
 
                     if (curr != null) {
-                        curr.collectChildEvaluators(separatorChar, 1, handler);
+                        curr.collectChildEvaluators(self, separatorChar, 1, handler);
                     }
                 }
             } else if (child != null) { // resource != path(child) ex: (resource=/tmp, path(child)=/tmp/test.txt or path(child)=/tmpdir)
@@ -400,9 +495,9 @@ public void traverse(String resource, ResourceElementMatchingScope scope, Traver
 
                 if (isPrefixMatch) {
                     if (resourceEndsWithSep) { // ex: resource=/tmp/
-                        child.collectChildEvaluators(separatorChar, remainingLen, handler);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen, handler);
                     } else if (child.getStr().charAt(remainingLen) == separatorChar) { //  ex: resource=/tmp
-                        child.collectChildEvaluators(separatorChar, remainingLen + 1, handler);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen + 1, handler);
                     }
                 }
             }
@@ -433,6 +528,7 @@ public String toString() {
         sb.append("; wildcardEvaluatorListCount=").append(trieData.wildcardEvaluatorListCount);
         sb.append("; evaluatorListRefCount=").append(trieData.evaluatorListRefCount);
         sb.append("; wildcardEvaluatorListRefCount=").append(trieData.wildcardEvaluatorListRefCount);
+        sb.append("; isCompactLayout=").append(isCompactLayout);
 
         return sb.toString();
     }
@@ -459,6 +555,42 @@ private void removeInheritedEvaluator(T evaluator) {
         }
     }
 
+    private void compact() {
+        RangerPerfTracer perf = null;
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.compact(name=" + resourceDef.getName() + ")");
+        }
+
+        // evaluators and wildcardEvaluators are interned separately, so that the two are the same instance only when they were before compact()
+        Map<Set<T>, Set<T>> internedEvaluators         = new HashMap<>();
+        Map<Set<T>, Set<T>> internedWildcardEvaluators = new HashMap<>();
+
+        root.compact(null, internedEvaluators, internedWildcardEvaluators);
+
+        if (inheritedEvaluators != null) {
+            inheritedEvaluators = new ImmutableArraySet<>(inheritedEvaluators);
+        }
+
+        isCompacted = true;
+
+        RangerPerfTracer.logAlways(perf);
+
+        LOG.debug("RangerResourceTrie.compact(name={}): distinctEvaluatorSets={}, distinctWildcardEvaluatorSets={}", resourceDef.getName(), internedEvaluators.size(), internedWildcardEvaluators.size());
+    }
+
+    private void expandIfCompacted() {
+        if (isCompacted) {
+            root.expand(null);
+
+            if (inheritedEvaluators != null) {
+                inheritedEvaluators = new HashSet<>(inheritedEvaluators);
+            }
+
+            isCompacted = false;
+        }
+    }
+
     private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T> parent) {
         if (TRACE_LOG.isTraceEnabled()) {
             StringBuilder sb = new StringBuilder();
@@ -468,7 +600,7 @@ private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T>
             TRACE_LOG.trace("==> copyTrieSubtree({})", sb);
         }
 
-        TrieNode<T> dest = new TrieNode<>(source.str);
+        TrieNode<T> dest = new TrieNode<>(source.str, nodeContext);
 
         if (parent != null) {
             parent.addChild(dest);
@@ -531,7 +663,7 @@ private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluat
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(resourceDef=" + resourceDef.getName() + ")");
         }
 
-        TrieNode<T>                           ret                 = new TrieNode<>(null);
+        TrieNode<T>                           ret                 = new TrieNode<>(null, nodeContext);
         final boolean                         isMultiThreaded     = builderThreadCount > 1;
         final List<ResourceTrieBuilderThread> builderThreads;
         final Map<Character, Integer>         builderThreadMap;
@@ -679,11 +811,11 @@ private int getMaxDepth() {
     }
 
     private Character getLookupChar(char ch) {
-        return optIgnoreCase ? Character.toLowerCase(ch) : ch;
+        return nodeContext.getLookupChar(ch);
     }
 
     private Character getLookupChar(String str, int index) {
-        return getLookupChar(str.charAt(index));
+        return nodeContext.getLookupChar(str, index);
     }
 
     private int insert(TrieNode<T> currentRoot, String resource, boolean isRecursive, T evaluator, Map<Character, Integer> builderThreadMap, List<ResourceTrieBuilderThread> builderThreads, int lastUsedThreadIndex) throws InterruptedException {
@@ -725,6 +857,164 @@ private void insert(TrieNode<T> currentRoot, String resource, boolean isRecursiv
         }
     }
 
+    // same as insert(root, resource, isRecursive, evaluator), without updating nodes shared with other tries or evaluator sets in place
+    private void insertCopyOnWrite(String resource, boolean isRecursive, T evaluator) {
+        final String  prefix     = getNonWildcardPrefix(resource);
+        final boolean isWildcard = prefix.length() != resource.length();
+        TrieNode<T>   curr       = StringUtils.isNotEmpty(prefix) ? root.getOrCreateChild(prefix) : root;
+
+        if (isWildcard || isRecursive) {
+            curr = copySubtreeForWildcardUpdate(curr);
+
+            curr.wildcardEvaluators = copyAndAdd(curr.wildcardEvaluators, evaluator);
+        } else {
+            curr.evaluators = copyAndAdd(curr.evaluators, evaluator);
+        }
+    }
+
+    // same as removeEvaluatorFromSubtree() on the node for the resource, without updating nodes shared with other tries or
+    // evaluator sets in place. As in a trie that is not set up, the evaluator is removed from wildcard-evaluators of the
+    // node only if it was added to the node as a wildcard-evaluator, and not when it is inherited from an ancestor
+    private void deleteCopyOnWrite(String resource, T evaluator) {
+        TrieNode<T> node = getNodeForResource(resource);
+
+        if (node != null) {
+            final boolean isWildcardEvaluator;
+
+            if (node.isSetup) {
+                isWildcardEvaluator = !node.isSharingParentWildcardEvaluators && contains(node.wildcardEvaluators, evaluator) && !contains(getWildcardEvaluatorsWithAncestors(node.getParent()), evaluator);
+            } else {
+                isWildcardEvaluator = contains(node.wildcardEvaluators, evaluator);
+            }
+
+            if (isWildcardEvaluator) {
+                node = copySubtreeForWildcardUpdate(node);
+
+                node.wildcardEvaluators = copyAndRemove(node.wildcardEvaluators, evaluator);
+            } else if (!node.isSetup || !contains(node.wildcardEvaluators, evaluator)) {
+                node.evaluators = copyAndRemove(node.evaluators, evaluator);
+            }
+
+            node.removeSelfFromTrie();
+        }
+    }
+
+    // once set up, nodes include wildcard-evaluators of their ancestors. To update wildcard-evaluators of the given node,
+    // its subtree is replaced with a copy in which nodes are reverted to the state before setup, as done by undoSetup()
+    private TrieNode<T> copySubtreeForWildcardUpdate(TrieNode<T> node) {
+        final TrieNode<T> ret;
+
+        if (isOptimizedForSpace) { // nodes are not set up
+            ret = node;
+        } else {
+            final TrieNode<T> parent = node.getParent();
+
+            ret = copySubtreeWithoutSetup(node, parent, getWildcardEvaluatorsWithAncestors(parent));
+
+            if (parent == null) {
+                root = ret;
+            }
+        }
+
+        return ret;
+    }
+
+    private TrieNode<T> copySubtreeWithoutSetup(TrieNode<T> source, TrieNode<T> parent, Set<T> parentWildcardEvaluators) {
+        final TrieNode<T> dest = new TrieNode<>(source.str, nodeContext);
+        final Set<T>      wildcardEvaluators; // of source, including the ones inherited from ancestors
+
+        synchronized (source.children) {
+            if (source.isSetup) {
+                wildcardEvaluators      = source.wildcardEvaluators;
+                dest.wildcardEvaluators = source.isSharingParentWildcardEvaluators ? null : copyAndRemoveAll(source.wildcardEvaluators, parentWildcardEvaluators);
+                dest.evaluators         = source.evaluators == source.wildcardEvaluators ? null : copyAndRemoveAll(source.evaluators, source.wildcardEvaluators);
+            } else {
+                wildcardEvaluators      = union(parentWildcardEvaluators, source.wildcardEvaluators);
+                dest.wildcardEvaluators = copyAndRemoveAll(source.wildcardEvaluators, null);
+                dest.evaluators         = copyAndRemoveAll(source.evaluators, null);
+            }
+        }
+
+        if (parent != null) {
+            parent.addChild(dest);
+        }
+
+        for (TrieNode<T> child : source.children.values()) {
+            copySubtreeWithoutSetup(child, dest, wildcardEvaluators);
+        }
+
+        return dest;
+    }
+
+    // wildcard-evaluators of the given node, including the ones inherited from its ancestors
+    private Set<T> getWildcardEvaluatorsWithAncestors(TrieNode<T> node) {
+        final Set<T> ret;
+
+        if (node == null) {
+            ret = null;
+        } else if (node.isSetup) {
+            ret = node.wildcardEvaluators;
+        } else {
+            ret = union(getWildcardEvaluatorsWithAncestors(node.getParent()), node.wildcardEvaluators);
+        }
+
+        return ret;
+    }
+
+    private static <E> boolean contains(Set<E> set, E element) {
+        return set != null && set.contains(element);
+    }
+
+    private static <E> Set<E> copyAndAdd(Set<E> set, E element) {
+        Set<E> ret = set != null ? new HashSet<>(set) : new HashSet<>();
+
+        ret.add(element);
+
+        return ret;
+    }
+
+    private static <E> Set<E> copyAndRemove(Set<E> set, E element) {
+        if (!contains(set, element)) {
+            return set;
+        }
+
+        Set<E> ret = new HashSet<>(set);
+
+        ret.remove(element);
+
+        return ret.isEmpty() ? null : ret;
+    }
+
+    private static <E> Set<E> copyAndRemoveAll(Set<E> set, Set<E> elements) {
+        if (set == null) {
+            return null;
+        }
+
+        Set<E> ret = new HashSet<>(set);
+
+        if (elements != null) {
+            ret.removeAll(elements);
+        }
+
+        return ret.isEmpty() ? null : ret;
+    }
+
+    private static <E> Set<E> union(Set<E> set1, Set<E> set2) {
+        final Set<E> ret;
+
+        if (CollectionUtils.isEmpty(set1)) {
+            ret = set2;
+        } else if (CollectionUtils.isEmpty(set2)) {
+            ret = set1;
+        } else {
+            ret = new HashSet<>(set1);
+
+            ret.addAll(set2);
+        }
+
+        return ret;
+    }
+
     private int getNonWildcardPrefixLength(String str) {
         int minIndex = str.length();
 
@@ -745,6 +1035,117 @@ private String getNonWildcardPrefix(String str) {
         return (prefixLen < str.length()) ? str.substring(0, prefixLen) : str;
     }
 
+    private void writeSnapshotNode(DataOutput out, TrieNode<T> node, ToIntFunction<T> evaluatorIndex) throws IOException {
+        final Set<T> wildcardEvaluators;
+        final Set<T> excludedWildcardEvaluators;
+        final Set<T> evaluators;
+        final Set<T> excludedEvaluators;
+
+        if (node.isSetup) { // same as undoSetup(), without updating the node
+            TrieNode<T> parent = node.getParent();
+
+            wildcardEvaluators         = node.isSharingParentWildcardEvaluators ? null : node.wildcardEvaluators;
+            excludedWildcardEvaluators = parent != null ? parent.wildcardEvaluators : null;
+            evaluators                 = node.evaluators == node.wildcardEvaluators ? null : node.evaluators;
+            excludedEvaluators         = node.wildcardEvaluators;
+        } else {
+            wildcardEvaluators         = node.wildcardEvaluators;
+            excludedWildcardEvaluators = null;
+            evaluators                 = node.evaluators;
+            excludedEvaluators         = null;
+        }
+
+        if (node.str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = node.str.getBytes(StandardCharsets.UTF_8);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        writeSnapshotEvaluators(out, wildcardEvaluators, excludedWildcardEvaluators, evaluatorIndex);
+        writeSnapshotEvaluators(out, evaluators, excludedEvaluators, evaluatorIndex);
+
+        out.writeInt(node.children.size());
+
+        for (TrieNode<T> child : node.children.values()) {
+            writeSnapshotNode(out, child, evaluatorIndex);
+        }
+    }
+
+    private void writeSnapshotEvaluators(DataOutput out, Set<T> evaluators, Set<T> excludedEvaluators, ToIntFunction<T> evaluatorIndex) throws IOException {
+        final int[] indexes = new int[evaluators != null ? evaluators.size() : 0];
+        int         count   = 0;
+
+        if (evaluators != null) {
+            for (T evaluator : evaluators) {
+                if (excludedEvaluators == null || !excludedEvaluators.contains(evaluator)) {
+                    indexes[count++] = evaluatorIndex.applyAsInt(evaluator);
+                }
+            }
+        }
+
+        out.writeInt(count);
+
+        for (int i = 0; i < count; i++) {
+            out.writeInt(indexes[i]);
+        }
+    }
+
+    private TrieNode<T> readSnapshotNode(DataInput in, IntFunction<T> evaluatorAt) throws IOException {
+        final int    strLen = in.readInt();
+        final String str;
+
+        if (strLen < 0) {
+            str = null;
+        } else {
+            byte[] bytes = new byte[strLen];
+
+            in.readFully(bytes);
+
+            str = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        TrieNode<T> ret = new TrieNode<>(str, nodeContext);
+
+        for (int i = in.readInt(); i > 0; i--) {
+            ret.addWildcardEvaluator(evaluatorAt.apply(in.readInt()));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            ret.addEvaluator(evaluatorAt.apply(in.readInt()));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            ret.addChild(readSnapshotNode(in, evaluatorAt));
+        }
+
+        return ret;
+    }
+
+    private static String getWildcardChars(Map<String, String> matcherOptions, boolean optWildcard) {
+        boolean optReplaceTokens         = RangerAbstractResourceMatcher.getOptionReplaceTokens(matcherOptions);
+        boolean optReplaceReqExpressions = RangerAbstractResourceMatcher.getOptionReplaceReqExpressions(matcherOptions);
+        String  tokenReplaceSpecialChars = "";
+
+        if (optReplaceTokens) {
+            char delimiterStart  = RangerAbstractResourceMatcher.getOptionDelimiterStart(matcherOptions);
+            char delimiterEnd    = RangerAbstractResourceMatcher.getOptionDelimiterEnd(matcherOptions);
+            char delimiterEscape = RangerAbstractResourceMatcher.getOptionDelimiterEscape(matcherOptions);
+
+            tokenReplaceSpecialChars += delimiterStart;
+            tokenReplaceSpecialChars += delimiterEnd;
+            tokenReplaceSpecialChars += delimiterEscape;
+        }
+
+        if (optReplaceReqExpressions) {
+            tokenReplaceSpecialChars += RangerRequestExprResolver.EXPRESSION_START.charAt(0);
+        }
+
+        return optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : tokenReplaceSpecialChars;
+    }
+
     private TrieNode<T> getNodeForResource(String resource) {
         LOG.debug("==> RangerResourceTrie.getNodeForResource({})", resource);
 
@@ -759,7 +1160,7 @@ private TrieNode<T> getNodeForResource(String resource) {
         int         i    = 0;
 
         while (i < len) {
-            final TrieNode<T> child = curr.getChild(getLookupChar(resource, i));
+            final TrieNode<T> child = curr.getChildForUpdate(getLookupChar(resource, i));
 
             if (child == null) {
                 break;
@@ -929,7 +1330,7 @@ public boolean process(Set<T> evaluators) {
     }
 
     class ResourceTrieBuilderThread extends Thread {
-        private final TrieNode<T>             thisRoot  = new TrieNode<>(null);
+        private final TrieNode<T>             thisRoot  = new TrieNode<>(null, nodeContext);
         private final BlockingQueue<WorkItem> workQueue = new LinkedBlockingQueue<>();
 
         ResourceTrieBuilderThread() {
@@ -990,8 +1391,39 @@ public String toString() {
         }
     }
 
-    class TrieNode<U extends T> {
-        private final    Map<Character, TrieNode<U>> children = new HashMap<>();
+    // settings of a trie used by its nodes. As each trie has its own instance, the context of a node identifies the trie
+    // that created it: a trie copied with isCopyOnWrite=true shares nodes with the other trie, until it updates them
+    static final class NodeContext {
+        private final String  resourceName;
+        private final boolean optIgnoreCase;
+        private final boolean isOptimizedForRetrieval;
+        private final boolean isOptimizedForSpace;
+        private final boolean isCompactLayout;
+
+        NodeContext(String resourceName, boolean optIgnoreCase, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isCompactLayout) {
+            this.resourceName            = resourceName;
+            this.optIgnoreCase           = optIgnoreCase;
+            this.isOptimizedForRetrieval = isOptimizedForRetrieval;
+            this.isOptimizedForSpace     = isOptimizedForSpace;
+            this.isCompactLayout         = isCompactLayout;
+        }
+
+        NodeContext(NodeContext other) {
+            this(other.resourceName, other.optIgnoreCase, other.isOptimizedForRetrieval, other.isOptimizedForSpace, other.isCompactLayout);
+        }
+
+        Character getLookupChar(char ch) {
+            return optIgnoreCase ? Character.toLowerCase(ch) : ch;
+        }
+
+        Character getLookupChar(String str, int index) {
+            return getLookupChar(str.charAt(index));
+        }
+    }
+
+    static class TrieNode<U extends RangerResourceEvaluator> {
+        private final    NodeContext                 context;
+        private final    Map<Character, TrieNode<U>> children;
         private          String                      str;
         private          TrieNode<U>                 parent;
         private volatile Set<U>                      evaluators;
@@ -999,8 +1431,10 @@ public String toString() {
         private          boolean                     isSharingParentWildcardEvaluators;
         private volatile boolean                     isSetup;
 
-        TrieNode(String str) {
-            this.str = str;
+        TrieNode(String str, NodeContext context) {
+            this.str      = str;
+            this.context  = context;
+            this.children = context.isCompactLayout ? new CharArrayMap<>() : new HashMap<>();
         }
 
         @Override
@@ -1042,6 +1476,44 @@ TrieNode<U> getChild(Character ch) {
             return children.get(ch);
         }
 
+        // a child shared with another trie is replaced with a copy, to be updated by this trie
+        TrieNode<U> getChildForUpdate(Character ch) {
+            TrieNode<U> ret = children.get(ch);
+
+            if (ret != null && ret.context != context) {
+                ret = copyForUpdate(ret, this, context);
+            }
+
+            return ret;
+        }
+
+        // copy of source that shares its children. Evaluator sets of a node are not updated in place once the node is set
+        // up, so the copy shares them; otherwise, as setup would update them in place, the copy gets its own sets
+        static <U extends RangerResourceEvaluator> TrieNode<U> copyForUpdate(TrieNode<U> source, TrieNode<U> parent, NodeContext context) {
+            TrieNode<U> ret = new TrieNode<>(source.str, context);
+
+            synchronized (source.children) {
+                ret.isSetup                           = source.isSetup;
+                ret.isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
+
+                if (source.isSetup) {
+                    ret.wildcardEvaluators = source.wildcardEvaluators;
+                    ret.evaluators         = source.evaluators;
+                } else {
+                    ret.wildcardEvaluators = source.wildcardEvaluators != null ? new HashSet<>(source.wildcardEvaluators) : null;
+                    ret.evaluators         = source.evaluators != null ? new HashSet<>(source.evaluators) : null;
+                }
+
+                ret.children.putAll(source.children);
+            }
+
+            if (parent != null) {
+                parent.addChild(ret);
+            }
+
+            return ret;
+        }
+
         void populateTrieData(RangerResourceTrie.TrieData trieData) {
             trieData.nodeCount++;
 
@@ -1094,23 +1566,23 @@ int getMaxDepth() {
 
         TrieNode<U> getOrCreateChild(String str) {
             int         len   = str.length();
-            TrieNode<U> child = children.get(getLookupChar(str, 0));
+            TrieNode<U> child = getChildForUpdate(context.getLookupChar(str, 0));
 
             if (child == null) {
-                child = new TrieNode<>(str);
+                child = new TrieNode<>(str, context);
 
                 addChild(child);
             } else {
                 final String  childStr     = child.getStr();
                 final int     childStrLen  = childStr.length();
-                final boolean isExactMatch = optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
+                final boolean isExactMatch = context.optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
 
                 if (!isExactMatch) {
                     final int numOfCharactersToMatch = Math.min(childStrLen, len);
                     int       index                  = 1;
 
                     for (; index < numOfCharactersToMatch; index++) {
-                        if (getLookupChar(childStr, index) != getLookupChar(str, index)) {
+                        if (context.getLookupChar(childStr, index) != context.getLookupChar(str, index)) {
                             break;
                         }
                     }
@@ -1119,7 +1591,7 @@ TrieNode<U> getOrCreateChild(String str) {
                         // Matched all
                         if (childStrLen > len) {
                             // Existing node has longer string, need to break up this node
-                            TrieNode<U> newChild = new TrieNode<>(str);
+                            TrieNode<U> newChild = new TrieNode<>(str, context);
 
                             this.addChild(newChild);
                             child.setStr(childStr.substring(index));
@@ -1133,7 +1605,7 @@ TrieNode<U> getOrCreateChild(String str) {
                     } else {
                         // Partial match for both; both have leftovers
                         String      matchedPart = str.substring(0, index);
-                        TrieNode<U> newChild    = new TrieNode<>(matchedPart);
+                        TrieNode<U> newChild    = new TrieNode<>(matchedPart, context);
 
                         this.addChild(newChild);
                         child.setStr(childStr.substring(index));
@@ -1241,11 +1713,11 @@ void removeSelfFromTrie() {
         }
 
         void wrapUpUpdate() {
-            if (isOptimizedForRetrieval) {
+            if (context.isOptimizedForRetrieval) {
                 RangerPerfTracer postSetupPerf = null;
 
                 if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
-                    postSetupPerf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(name=" + resourceDef.getName() + "-postSetup)");
+                    postSetupPerf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(name=" + context.resourceName + "-postSetup)");
                 }
 
                 postSetup(null);
@@ -1260,7 +1732,9 @@ void postSetup(Set<U> parentWildcardEvaluators) {
             for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
                 TrieNode<U> child = entry.getValue();
 
-                child.postSetup(wildcardEvaluators);
+                if (child.context == context) { // nodes shared with another trie are already set up
+                    child.postSetup(wildcardEvaluators);
+                }
             }
         }
 
@@ -1315,23 +1789,25 @@ void setup(Set<U> parentWildcardEvaluators) {
             }
         }
 
-        void collectChildEvaluators(Character sep, int startIdx, TraverseMatchHandler<U> handler) {
-            if (!isOptimizedForSpace) {
-                setupIfNeeded(getParent());
+        // parent: the node through which this node was reached. Nodes can be shared by tries copied for incremental
+        // updates, so getParent() might not be the node in the trie being traversed
+        void collectChildEvaluators(TrieNode<U> parent, Character sep, int startIdx, TraverseMatchHandler<U> handler) {
+            if (!context.isOptimizedForSpace) {
+                setupIfNeeded(parent);
             }
 
             final int sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
 
             if (sepPos == -1) { // ex: startIdx=5, path(str)=/tmp/test, path(a child) could be: /tmp/test.txt, /tmp/test/, /tmp/test/a, /tmp/test/a/b
-                if (isOptimizedForSpace) {
+                if (context.isOptimizedForSpace) {
                     handler.process(this.wildcardEvaluators);
                 }
 
                 handler.process(this.evaluators);
 
-                children.values().forEach(c -> c.collectChildEvaluators(sep, 0, handler));
+                children.values().forEach(c -> c.collectChildEvaluators(this, sep, 0, handler));
             } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
-                if (isOptimizedForSpace) {
+                if (context.isOptimizedForSpace) {
                     handler.process(this.wildcardEvaluators);
                 }
 
@@ -1343,18 +1819,18 @@ void collectChildEvaluators(String resource, int startIndex, TraverseMatchHandle
             if (startIndex == resource.length()) {
                 collectChildEvaluators(handler);
             } else if (startIndex < resource.length()) {
-                Character   startChar = getLookupChar(resource, startIndex);
+                Character   startChar = context.getLookupChar(resource, startIndex);
                 TrieNode<U> childNode = children.get(startChar);
 
                 if (childNode != null) {
-                    if (!isOptimizedForSpace) {
-                        childNode.setupIfNeeded(childNode.getParent());
+                    if (!context.isOptimizedForSpace) {
+                        childNode.setupIfNeeded(this);
                     }
 
                     String childStr   = childNode.getStr();
                     int    lenToMatch = Math.min(resource.length() - startIndex, childStr.length());
 
-                    if (resource.regionMatches(optIgnoreCase, startIndex, childStr, 0, lenToMatch)) {
+                    if (resource.regionMatches(context.optIgnoreCase, startIndex, childStr, 0, lenToMatch)) {
                         handler.process(childNode.wildcardEvaluators);
                         handler.process(childNode.evaluators);
 
@@ -1411,26 +1887,89 @@ void toString(String prefix, StringBuilder sb) {
         }
 
         private void addChild(TrieNode<U> child) {
-            children.put(getLookupChar(child.getStr(), 0), child);
+            children.put(context.getLookupChar(child.getStr(), 0), child);
             child.setParent(this);
         }
 
         private void collectChildEvaluators(TraverseMatchHandler<U> childEvaluators) {
             Stack<TrieNode<U>> nodes = new Stack<>();
 
-            nodes.addAll(children.values());
+            pushChildren(nodes);
 
             while (!nodes.isEmpty()) {
                 TrieNode<U> childNode = nodes.pop();
 
-                if (!isOptimizedForSpace) {
-                    childNode.setupIfNeeded(childNode.getParent());
-                }
-
                 childEvaluators.process(childNode.wildcardEvaluators);
                 childEvaluators.process(childNode.evaluators);
 
-                nodes.addAll(childNode.children.values());
+                childNode.pushChildren(nodes);
+            }
+        }
+
+        // children are set up here, while their parent is known; see collectChildEvaluators(parent, sep, startIdx, handler)
+        private void pushChildren(Stack<TrieNode<U>> nodes) {
+            for (TrieNode<U> child : children.values()) {
+                if (!context.isOptimizedForSpace) {
+                    child.setupIfNeeded(this);
+                }
+
+                nodes.push(child);
+            }
+        }
+
+        // a node's wildcardEvaluators can be the same instance as its parent's, and its evaluators the same instance as its
+        // wildcardEvaluators; such sharing is kept as it was. Sharing with the parent is known from isSharingParentWildcardEvaluators,
+        // not by identity: interning makes equal sets of a parent and a child the same instance without them being shared
+        private void compact(Set<U> parentWildcardEvaluators, Map<Set<U>, Set<U>> internedEvaluators, Map<Set<U>, Set<U>> internedWildcardEvaluators) {
+            final Set<U> oldWildcardEvaluators = wildcardEvaluators;
+
+            if (oldWildcardEvaluators != null) {
+                if (isSharingParentWildcardEvaluators) {
+                    wildcardEvaluators = parentWildcardEvaluators;
+                } else {
+                    wildcardEvaluators = internedWildcardEvaluators.computeIfAbsent(oldWildcardEvaluators, ImmutableArraySet::new);
+                }
+            }
+
+            if (evaluators != null) {
+                if (evaluators == oldWildcardEvaluators) {
+                    evaluators = wildcardEvaluators;
+                } else {
+                    evaluators = internedEvaluators.computeIfAbsent(evaluators, ImmutableArraySet::new);
+                }
+            }
+
+            for (TrieNode<U> child : children.values()) {
+                if (child.context == context) { // nodes shared with another trie are already compacted, and are not updated
+                    child.compact(wildcardEvaluators, internedEvaluators, internedWildcardEvaluators);
+                }
+            }
+        }
+
+        // reverse of compact(): give each node mutable evaluator sets, keeping the sharing between nodes as it was
+        private void expand(Set<U> parentWildcardEvaluators) {
+            final Set<U> oldWildcardEvaluators = wildcardEvaluators;
+
+            if (oldWildcardEvaluators != null) {
+                if (isSharingParentWildcardEvaluators) {
+                    wildcardEvaluators = parentWildcardEvaluators;
+                } else {
+                    wildcardEvaluators = new HashSet<>(oldWildcardEvaluators);
+                }
+            }
+
+            if (evaluators != null) {
+                if (evaluators == oldWildcardEvaluators) {
+                    evaluators = wildcardEvaluators;
+                } else {
+                    evaluators = new HashSet<>(evaluators);
+                }
+            }
+
+            for (TrieNode<U> child : children.values()) {
+                if (child.context == context) { // nodes shared with another trie are not updated
+                    child.expand(wildcardEvaluators);
+                }
             }
         }
 
@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resource tries of a policy repository saved in the policy cache directory, so that a plugin restarting with the same
+ * policies loads its tries instead of inserting every policy resource again.
+ *
+ * Policy evaluators are still built from the policies: the snapshot only holds the trie nodes, referring to resource
+ * evaluators by their position in the evaluator lists. To make sure these positions refer to the same resources, the
+ * snapshot is keyed by the policy version and trie options, and records the policy ID and a hash of the resources of
+ * each evaluator; on any mismatch the tries are built from the evaluators, and the snapshot is replaced.
+ */
+final class RangerResourceTrieSnapshot {
+    private static final Logger LOG                = LoggerFactory.getLogger(RangerResourceTrieSnapshot.class);
+    private static final Logger PERF_TRIE_INIT_LOG = RangerPerfTracer.getPerfLogger("resourcetrie.init");
+
+    static final String FILE_SUFFIX = ".trie";
+
+    private static final int MAGIC          = 0x52545253; // "RTRS"
+    private static final int FORMAT_VERSION = 1;
+
+    private final File    file;
+    private final long    policyVersion;
+    private final boolean isOptimizedForRetrieval;
+    private final boolean isOptimizedForSpace;
+    private final boolean isCompactLayout;
+
+    RangerResourceTrieSnapshot(File file, long policyVersion, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isCompactLayout) {
+        this.file                    = file;
+        this.policyVersion           = policyVersion;
+        this.isOptimizedForRetrieval = isOptimizedForRetrieval;
+        this.isOptimizedForSpace     = isOptimizedForSpace;
+        this.isCompactLayout         = isCompactLayout;
+    }
+
+    /*
+     * returns null if snapshots are not enabled, or the plugin has no policy cache directory
+     */
+    static RangerResourceTrieSnapshot getSnapshot(RangerPluginContext pluginContext, RangerPolicyEngineOptions options, String serviceName, String componentServiceName, String zoneName, long policyVersion) {
+        RangerPluginConfig config   = pluginContext != null ? pluginContext.getConfig() : null;
+        String             cacheDir = config != null && options.enableTrieSnapshot ? config.get(config.getPropertyPrefix() + ".policy.cache.dir") : null;
+
+        if (StringUtils.isEmpty(cacheDir)) {
+            return null;
+        }
+
+        StringBuilder fileName = new StringBuilder();
+
+        fileName.append(config.getAppId()).append('_').append(componentServiceName);
+
+        if (!StringUtils.equals(serviceName, componentServiceName)) {
+            fileName.append('_').append(serviceName);
+        }
+
+        if (StringUtils.isNotEmpty(zoneName)) {
+            fileName.append("_zone_").append(zoneName);
+        }
+
+        String sanitizedFileName = fileName.toString().replaceAll("[^A-Za-z0-9._-]", "_") + FILE_SUFFIX;
+
+        return new RangerResourceTrieSnapshot(new File(cacheDir, sanitizedFileName), policyVersion, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, options.compactTrieLayout);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /*
+     * returns the trie maps for each of the given evaluator lists, or null if the snapshot is missing or doesn't match them
+     */
+    List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> load(RangerServiceDef serviceDef, List<List<RangerPolicyEvaluator>> evaluatorLists) {
+        LOG.debug("==> RangerResourceTrieSnapshot.load({})", file);
+
+        List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> ret = null;
+
+        if (file.isFile()) {
+            RangerPerfTracer perf = null;
+
+            if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrieSnapshot.load(file=" + file.getName() + ")");
+            }
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+                ret = read(in, serviceDef, evaluatorLists);
+            } catch (IOException | RuntimeException excp) {
+                LOG.warn("failed to load resource trie snapshot {}. Tries will be built from policies", file.getAbsolutePath(), excp);
+            }
+
+            RangerPerfTracer.logAlways(perf);
+        }
+
+        LOG.debug("<== RangerResourceTrieSnapshot.load({}): loaded={}", file, ret != null);
+
+        return ret;
+    }
+
+    void save(RangerServiceDef serviceDef, List<List<RangerPolicyEvaluator>> evaluatorLists, List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieMaps) {
+        LOG.debug("==> RangerResourceTrieSnapshot.save({})", file);
+
+        RangerPerfTracer perf = null;
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrieSnapshot.save(file=" + file.getName() + ")");
+        }
+
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            File dir = file.getParentFile();
+
+            if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                throw new IOException("failed to create directory " + dir.getAbsolutePath());
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+                write(out, serviceDef, evaluatorLists, trieMaps);
+            }
+
+            // a concurrent load() sees either the previous snapshot or this one
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException excp) {
+            LOG.warn("failed to save resource trie snapshot {}", file.getAbsolutePath(), excp);
+
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                LOG.warn("failed to delete {}", tmpFile.getAbsolutePath());
+            }
+        }
+
+        RangerPerfTracer.logAlways(perf);
+
+        LOG.debug("<== RangerResourceTrieSnapshot.save({})", file);
+    }
+
+    private void write(DataOutputStream out, RangerServiceDef serviceDef, List<List<RangerPolicyEvaluator>> evaluatorLists, List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> trieMaps) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(policyVersion);
+        out.writeInt(getOptionFlags());
+        out.writeInt(evaluatorLists.size());
+
+        for (int i = 0; i < evaluatorLists.size(); i++) {
+            List<RangerPolicyResourceEvaluator>                            resourceEvaluators = writeEvaluators(out, evaluatorLists.get(i));
+            Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trieMap            = trieMaps.get(i);
+
+            if (trieMap == null) {
+                out.writeInt(-1);
+
+                continue;
+            }
+
+            final Map<RangerPolicyResourceEvaluator, Integer> evaluatorIndexes = new IdentityHashMap<>();
+
+            for (RangerPolicyResourceEvaluator resourceEvaluator : resourceEvaluators) {
+                evaluatorIndexes.put(resourceEvaluator, evaluatorIndexes.size());
+            }
+
+            out.writeInt(serviceDef.getResources().size());
+
+            for (RangerResourceDef resourceDef : serviceDef.getResources()) {
+                out.writeUTF(resourceDef.getName());
+                out.writeInt(Objects.hashCode(resourceDef.getMatcherOptions()));
+
+                trieMap.get(resourceDef.getName()).writeSnapshot(out, evaluatorIndexes::get);
+            }
+        }
+    }
+
+    private List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> read(DataInputStream in, RangerServiceDef serviceDef, List<List<RangerPolicyEvaluator>> evaluatorLists) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            LOG.info("resource trie snapshot {}: unknown format", file);
+
+            return null;
+        }
+
+        long snapshotPolicyVersion = in.readLong();
+
+        if (snapshotPolicyVersion != policyVersion || in.readInt() != getOptionFlags() || in.readInt() != evaluatorLists.size()) {
+            LOG.info("resource trie snapshot {} is for policyVersion={}, while the policyVersion={}, or trie options have changed", file, snapshotPolicyVersion, policyVersion);
+
+            return null;
+        }
+
+        List<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>> ret = new ArrayList<>(evaluatorLists.size());
+
+        for (List<RangerPolicyEvaluator> evaluators : evaluatorLists) {
+            final List<RangerPolicyResourceEvaluator> resourceEvaluators = readEvaluators(in, evaluators);
+
+            if (resourceEvaluators == null) {
+                LOG.info("resource trie snapshot {} doesn't match the policies", file);
+
+                return null;
+            }
+
+            int trieCount = in.readInt();
+
+            if (trieCount < 0) {
+                ret.add(null);
+
+                continue;
+            }
+
+            List<RangerResourceDef> resourceDefs = serviceDef.getResources();
+
+            if (resourceDefs == null || trieCount != resourceDefs.size()) {
+                return null;
+            }
+
+            Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trieMap = new HashMap<>();
+
+            for (RangerResourceDef resourceDef : resourceDefs) {
+                if (!StringUtils.equals(in.readUTF(), resourceDef.getName()) || in.readInt() != Objects.hashCode(resourceDef.getMatcherOptions())) {
+                    LOG.info("resource trie snapshot {} doesn't match the service-def", file);
+
+                    return null;
+                }
+
+                trieMap.put(resourceDef.getName(), new RangerResourceTrie<>(resourceDef, in, resourceEvaluators::get, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout));
+            }
+
+            ret.add(trieMap);
+        }
+
+        return ret;
+    }
+
+    // writes the policy ID, and the hash of resources of each resource-evaluator; returns resource-evaluators in the written order
+    private static List<RangerPolicyResourceEvaluator> writeEvaluators(DataOutputStream out, List<RangerPolicyEvaluator> evaluators) throws IOException {
+        List<RangerPolicyResourceEvaluator> ret = new ArrayList<>();
+
+        out.writeInt(evaluators.size());
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            List<RangerPolicyResourceEvaluator> resourceEvaluators = evaluator.getResourceEvaluators();
+
+            out.writeLong(evaluator.getPolicyId());
+            out.writeInt(resourceEvaluators.size());
+
+            for (RangerPolicyResourceEvaluator resourceEvaluator : resourceEvaluators) {
+                out.writeInt(Objects.hashCode(resourceEvaluator.getPolicyResource()));
+
+                ret.add(resourceEvaluator);
+            }
+        }
+
+        return ret;
+    }
+
+    // returns null if the given evaluators don't match those written by writeEvaluators()
+    private static List<RangerPolicyResourceEvaluator> readEvaluators(DataInputStream in, List<RangerPolicyEvaluator> evaluators) throws IOException {
+        if (in.readInt() != evaluators.size()) {
+            return null;
+        }
+
+        List<RangerPolicyResourceEvaluator> ret = new ArrayList<>();
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            List<RangerPolicyResourceEvaluator> resourceEvaluators = evaluator.getResourceEvaluators();
+
+            if (in.readLong() != evaluator.getPolicyId() || in.readInt() != resourceEvaluators.size()) {
+                return null;
+            }
+
+            for (RangerPolicyResourceEvaluator resourceEvaluator : resourceEvaluators) {
+                if (in.readInt() != Objects.hashCode(resourceEvaluator.getPolicyResource())) {
+                    return null;
+                }
+
+                ret.add(resourceEvaluator);
+            }
+        }
+
+        return ret;
+    }
+
+    private int getOptionFlags() {
+        return (isOptimizedForRetrieval ? 1 : 0) | (isOptimizedForSpace ? 2 : 0) | (isCompactLayout ? 4 : 0);
+    }
+}
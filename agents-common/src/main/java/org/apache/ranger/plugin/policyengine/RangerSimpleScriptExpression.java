@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_USER;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_ctx;
+import static org.apache.ranger.plugin.util.RangerCommonConstants.SCRIPT_VAR_tagAttr;
+
+/**
+ * Script expressions that are common in policy conditions and row-filter/mask expressions, which are evaluated directly
+ * on the request instead of with the script engine:
+ *   USER.dept, USER['dept'], tagAttr.level, 'value', true, false
+ *   any two of the above values, other than true/false, compared with ==, ===, != or !==
+ *   [!]ctx.isInGroup('name'), ctx.isInRole('name'), ctx.hasTag('name'), ctx.hasUserAttr('name'), ctx.hasUgAttr('name'),
+ *   ctx.hasTagAttr('name'), ctx.isInAnyGroup(), ctx.isInAnyRole(), ctx.hasAnyTag() - i.e. IS_IN_GROUP('name') etc after
+ *   macro expansion
+ *
+ * Values are strings or undefined, for which == and === have the same result in JavaScript as Objects.equals().
+ */
+final class RangerSimpleScriptExpression {
+    private static final Set<String> CTX_METHODS_WITH_ARG    = new HashSet<>(Arrays.asList("isInGroup", "isInRole", "hasTag", "hasUserAttr", "hasUgAttr", "hasTagAttr"));
+    private static final Set<String> CTX_METHODS_WITHOUT_ARG = new HashSet<>(Arrays.asList("isInAnyGroup", "isInAnyRole", "hasAnyTag"));
+
+    private final Term    left;
+    private final Term    right;
+    private final boolean isNotEquals;
+
+    private RangerSimpleScriptExpression(Term left, Term right, boolean isNotEquals) {
+        this.left        = left;
+        this.right       = right;
+        this.isNotEquals = isNotEquals;
+    }
+
+    /**
+     * @return null if the script is not a simple expression
+     */
+    static RangerSimpleScriptExpression parse(String script) {
+        List<String> tokens = tokenize(script);
+
+        if (tokens == null) {
+            return null;
+        }
+
+        if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).equals(";")) {
+            tokens.remove(tokens.size() - 1);
+        }
+
+        int[] pos  = {0};
+        Term  left = parseTerm(tokens, pos);
+
+        if (left == null) {
+            return null;
+        }
+
+        if (pos[0] == tokens.size()) {
+            return new RangerSimpleScriptExpression(left, null, false);
+        }
+
+        String operator = tokens.get(pos[0]++);
+
+        if (!operator.equals("==") && !operator.equals("===") && !operator.equals("!=") && !operator.equals("!==")) {
+            return null;
+        }
+
+        Term right = parseTerm(tokens, pos);
+
+        if (right == null || pos[0] != tokens.size() || !left.isValue() || !right.isValue()) {
+            return null;
+        }
+
+        return new RangerSimpleScriptExpression(left, right, operator.startsWith("!"));
+    }
+
+    /**
+     * @return true if the expression references USER, which is available to scripts only when JSON context is enabled
+     */
+    boolean needsJsonCtx() {
+        return left.needsJsonCtx() || (right != null && right.needsJsonCtx());
+    }
+
+    Object evaluate(RangerRequestScriptEvaluator evaluator) {
+        Object leftValue = left.evaluate(evaluator);
+
+        if (right == null) {
+            return leftValue;
+        }
+
+        boolean isEqual = Objects.equals(leftValue, right.evaluate(evaluator));
+
+        return isNotEquals ? !isEqual : isEqual;
+    }
+
+    private static Term parseTerm(List<String> tokens, int[] pos) {
+        String token = next(tokens, pos);
+
+        if (token == null) {
+            return null;
+        } else if (isString(token)) {
+            return new Term(Term.LITERAL, token.substring(1, token.length() - 1), false);
+        } else if (token.equals("true") || token.equals("false")) {
+            return new Term(Term.LITERAL, Boolean.valueOf(token), false);
+        } else if (token.equals(SCRIPT_VAR_USER) || token.equals(SCRIPT_VAR_tagAttr)) {
+            String name;
+
+            if (".".equals(next(tokens, pos))) {
+                name = next(tokens, pos);
+
+                if (!isIdentifier(name)) {
+                    return null;
+                }
+            } else if ("[".equals(tokens.get(pos[0] - 1))) {
+                name = next(tokens, pos);
+
+                if (!isString(name) || !"]".equals(next(tokens, pos))) {
+                    return null;
+                }
+
+                name = name.substring(1, name.length() - 1);
+            } else {
+                return null;
+            }
+
+            return new Term(token.equals(SCRIPT_VAR_USER) ? Term.USER_ATTR : Term.TAG_ATTR, name, false);
+        } else {
+            boolean isNegated = token.equals("!");
+
+            if (isNegated) {
+                token = next(tokens, pos);
+            }
+
+            if (!SCRIPT_VAR_ctx.equals(token) || !".".equals(next(tokens, pos))) {
+                return null;
+            }
+
+            String method = next(tokens, pos);
+
+            if (!"(".equals(next(tokens, pos))) {
+                return null;
+            }
+
+            String arg = null;
+
+            if (CTX_METHODS_WITH_ARG.contains(method)) {
+                arg = next(tokens, pos);
+
+                if (!isString(arg)) {
+                    return null;
+                }
+
+                arg = arg.substring(1, arg.length() - 1);
+            } else if (!CTX_METHODS_WITHOUT_ARG.contains(method)) {
+                return null;
+            }
+
+            if (!")".equals(next(tokens, pos))) {
+                return null;
+            }
+
+            return new Term(method, arg, isNegated);
+        }
+    }
+
+    private static String next(List<String> tokens, int[] pos) {
+        return pos[0] < tokens.size() ? tokens.get(pos[0]++) : null;
+    }
+
+    private static boolean isString(String token) {
+        return token != null && token.length() >= 2 && (token.charAt(0) == '\'' || token.charAt(0) == '"');
+    }
+
+    private static boolean isIdentifier(String token) {
+        return token != null && !token.isEmpty() && Character.isJavaIdentifierStart(token.charAt(0));
+    }
+
+    /**
+     * @return tokens of the script; null if the script has characters other than those of the supported expressions
+     */
+    private static List<String> tokenize(String script) {
+        List<String> ret = new ArrayList<>();
+        int          len = script.length();
+
+        for (int i = 0; i < len; ) {
+            char c = script.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+
+                while (i < len && Character.isJavaIdentifierPart(script.charAt(i))) {
+                    i++;
+                }
+
+                ret.add(script.substring(start, i));
+            } else if (c == '\'' || c == '"') {
+                int end    = script.indexOf(c, i + 1);
+                int escape = script.indexOf('\\', i + 1);
+
+                if (end == -1 || (escape != -1 && escape < end)) {
+                    return null; // unterminated string, or escape sequences
+                }
+
+                ret.add(script.substring(i, end + 1));
+
+                i = end + 1;
+            } else if (c == '=' || c == '!') {
+                int start = i++;
+
+                while (i < len && script.charAt(i) == '=' && i - start < 3) {
+                    i++;
+                }
+
+                String operator = script.substring(start, i);
+
+                if (operator.equals("=")) {
+                    return null; // assignment
+                }
+
+                ret.add(operator);
+            } else if (c == '.' || c == '[' || c == ']' || c == '(' || c == ')' || c == ';') {
+                ret.add(String.valueOf(c));
+
+                i++;
+            } else {
+                return null;
+            }
+        }
+
+        return ret;
+    }
+
+    private static final class Term {
+        static final String LITERAL   = "literal";
+        static final String USER_ATTR = "userAttr";
+        static final String TAG_ATTR  = "tagAttr";
+
+        final String  type; // one of above or name of the ctx method
+        final Object  value;
+        final boolean isNegated;
+
+        Term(String type, Object value, boolean isNegated) {
+            this.type      = type;
+            this.value     = value;
+            this.isNegated = isNegated;
+        }
+
+        boolean isValue() {
+            return type.equals(USER_ATTR) || type.equals(TAG_ATTR) || (type.equals(LITERAL) && value instanceof String);
+        }
+
+        boolean needsJsonCtx() {
+            return type.equals(USER_ATTR);
+        }
+
+        Object evaluate(RangerRequestScriptEvaluator evaluator) {
+            switch (type) {
+                case LITERAL:
+                    return value;
+                case USER_ATTR:
+                    return evaluator.getUserAttribute((String) value);
+                case TAG_ATTR:
+                    return evaluator.getAttributeValue((String) value);
+                default:
+                    boolean ret = evaluateCtxMethod(evaluator);
+
+                    return isNegated ? !ret : ret;
+            }
+        }
+
+        private boolean evaluateCtxMethod(RangerRequestScriptEvaluator evaluator) {
+            String arg = (String) value;
+
+            switch (type) {
+                case "isInGroup":
+                    return evaluator.isInGroup(arg);
+                case "isInRole":
+                    return evaluator.isInRole(arg);
+                case "hasTag":
+                    return evaluator.hasTag(arg);
+                case "hasUserAttr":
+                    return evaluator.hasUserAttr(arg);
+                case "hasUgAttr":
+                    return evaluator.hasUgAttr(arg);
+                case "hasTagAttr":
+                    return evaluator.hasTagAttr(arg);
+                case "isInAnyGroup":
+                    return evaluator.isInAnyGroup();
+                case "isInAnyRole":
+                    return evaluator.isInAnyRole();
+                default:
+                    return evaluator.hasAnyTag();
+            }
+        }
+    }
+}
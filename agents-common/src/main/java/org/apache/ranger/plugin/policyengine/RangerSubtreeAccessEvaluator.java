@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceMatchingScope;
+import org.apache.ranger.plugin.policyengine.gds.GdsAccessResult;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServiceDefUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Finds whether access to all descendants of a resource, like all files and directories under a directory, can be
+ * authorized with a single policy evaluation - i.e. when the same policies, tags and security-zone apply to every
+ * descendant. This avoids evaluating policies for each descendant, for example to authorize delete of a directory
+ * tree with millions of entries.
+ *
+ * Policies that can apply anywhere under the resource are found in the resource trie with SELF_OR_PREFIX lookup of
+ * resource + separator. Each of these policies must match two descendants with names that no policy is expected to
+ * have - a single character name and a 2 character name, using characters that are not used in names. A policy that
+ * matches both of them can only have a wildcard that matches any name at this level, like /data/* or /data recursive,
+ * and hence applies to every descendant. Policies that reference {OWNER} or have conditions are treated as not
+ * uniform, as their result can vary across descendants. So are policies with excluded resources: these are found for
+ * every resource and match the probe descendants, but not the excluded descendants.
+ */
+final class RangerSubtreeAccessEvaluator {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerSubtreeAccessEvaluator.class);
+
+    private static final String[] DESCENDANT_NAMES = {"\u0001", "\u0002\u0002"};
+
+    private final PolicyEngine                 policyEngine;
+    private final RangerAccessRequestProcessor requestProcessor;
+
+    RangerSubtreeAccessEvaluator(PolicyEngine policyEngine, RangerAccessRequestProcessor requestProcessor) {
+        this.policyEngine     = policyEngine;
+        this.requestProcessor = requestProcessor;
+    }
+
+    /**
+     * @return pre-processed requests for descendants of the resource in the given request, whose evaluation applies to
+     *         every descendant; null if the resource doesn't support descendants, or if access to different descendants
+     *         can be decided by different policies
+     */
+    List<RangerAccessRequest> getDescendantRequests(RangerAccessRequest request) {
+        LOG.debug("==> RangerSubtreeAccessEvaluator.getDescendantRequests({})", request);
+
+        List<RangerAccessRequest> ret      = null;
+        RangerAccessResource      resource = request.getResource();
+        String                    reason   = null;
+
+        if (resource == null || request.isAccessTypeAny() || request.getInlinePolicy() != null) {
+            reason = "request is not supported";
+        } else {
+            RangerAccessResourceImpl subtreeResource = new RangerAccessResourceImpl(new HashMap<>(resource.getAsMap()), resource.getOwnerUser());
+
+            subtreeResource.setServiceDef(policyEngine.getServiceDef());
+
+            String            leafName    = subtreeResource.getLeafName();
+            RangerResourceDef resourceDef = leafName != null ? policyEngine.getServiceDefHelper().getResourceDef(leafName) : null;
+            Object            leafValue   = leafName != null ? subtreeResource.getValue(leafName) : null;
+
+            if (resourceDef == null || !Boolean.TRUE.equals(resourceDef.getRecursiveSupported()) || !(leafValue instanceof String) || ((String) leafValue).isEmpty()) {
+                reason = "resource does not support descendants";
+            } else {
+                char   separator = ServiceDefUtil.getCharOption(resourceDef.getMatcherOptions(), RangerPathResourceMatcher.OPTION_PATH_SEPARATOR, RangerPathResourceMatcher.DEFAULT_PATH_SEPARATOR_CHAR);
+                String prefix    = (String) leafValue;
+
+                if (prefix.charAt(prefix.length() - 1) != separator) {
+                    prefix += separator;
+                }
+
+                subtreeResource.setValue(leafName, prefix);
+
+                RangerAccessRequestImpl   subtreeRequest     = createRequest(request, subtreeResource);
+                List<RangerAccessRequest> descendantRequests = new ArrayList<>(DESCENDANT_NAMES.length);
+
+                subtreeRequest.setResourceMatchingScope(ResourceMatchingScope.SELF_OR_DESCENDANTS);
+                subtreeRequest.setResourceElementMatchingScopes(Collections.singletonMap(leafName, ResourceElementMatchingScope.SELF_OR_PREFIX));
+
+                for (String name : DESCENDANT_NAMES) {
+                    RangerAccessResourceImpl descendantResource = new RangerAccessResourceImpl(new HashMap<>(resource.getAsMap()), resource.getOwnerUser());
+
+                    descendantResource.setServiceDef(policyEngine.getServiceDef());
+                    descendantResource.setValue(leafName, prefix + name);
+
+                    RangerAccessRequest descendantRequest = createRequest(request, descendantResource);
+
+                    requestProcessor.preProcess(descendantRequest);
+
+                    descendantRequests.add(descendantRequest);
+                }
+
+                reason = checkZones(subtreeRequest, descendantRequests);
+
+                if (reason == null) {
+                    reason = checkResourcePolicies(subtreeRequest, descendantRequests);
+                }
+
+                if (reason == null) {
+                    requestProcessor.preProcess(subtreeRequest);
+
+                    reason = checkTags(subtreeRequest, descendantRequests);
+                }
+
+                if (reason == null) {
+                    reason = checkGdsResult(subtreeRequest, descendantRequests);
+                }
+
+                if (reason == null) {
+                    ret = descendantRequests;
+                }
+            }
+        }
+
+        LOG.debug("<== RangerSubtreeAccessEvaluator.getDescendantRequests({}): ret={}, reason={}", request, ret, reason);
+
+        return ret;
+    }
+
+    private String checkZones(RangerAccessRequest subtreeRequest, List<RangerAccessRequest> descendantRequests) {
+        Set<String> zoneNames = policyEngine.getMatchedZonesForResourceAndChildren(subtreeRequest.getResource());
+
+        if (zoneNames != null && zoneNames.size() > 1) {
+            return "descendants are in multiple zones: " + zoneNames;
+        }
+
+        for (RangerAccessRequest descendantRequest : descendantRequests) {
+            Set<String> descendantZoneNames = RangerAccessRequestUtil.getResourceZoneNamesFromContext(descendantRequest.getContext());
+
+            if (!Objects.equals(emptyIfNull(zoneNames), emptyIfNull(descendantZoneNames))) {
+                return "descendants are in different zones: " + zoneNames + ", " + descendantZoneNames;
+            }
+        }
+
+        RangerAccessRequestUtil.setResourceZoneNamesInContext(subtreeRequest, zoneNames);
+
+        return null;
+    }
+
+    private String checkResourcePolicies(RangerAccessRequest subtreeRequest, List<RangerAccessRequest> descendantRequests) {
+        String                 zoneName   = RangerAccessRequestUtil.getResourceZoneNameFromContext(subtreeRequest.getContext());
+        RangerPolicyRepository repository = policyEngine.getRepositoryForZone(zoneName);
+
+        if (repository == null) {
+            return "no policy repository for zone " + zoneName;
+        }
+
+        Set<Long> policyIds = new HashSet<>();
+
+        for (RangerPolicyEvaluator evaluator : repository.getLikelyMatchPolicyEvaluators(subtreeRequest, RangerPolicy.POLICY_TYPE_ACCESS)) {
+            if (isContextSensitive(evaluator)) {
+                return "policy id=" + evaluator.getPolicyId() + " has conditions or references owner";
+            }
+
+            // exclude policies are found for every resource, and match probe descendants that aren't the excluded values
+            if (hasExcludes(evaluator)) {
+                return "policy id=" + evaluator.getPolicyId() + " has excluded resources";
+            }
+
+            for (RangerAccessRequest descendantRequest : descendantRequests) {
+                if (!isMatch(evaluator, descendantRequest)) {
+                    return "policy id=" + evaluator.getPolicyId() + " doesn't apply to all descendants";
+                }
+            }
+
+            policyIds.add(evaluator.getPolicyId());
+        }
+
+        // policies found for descendants must be a subset of policies found for the subtree; this holds with the trie, but be safe
+        for (RangerAccessRequest descendantRequest : descendantRequests) {
+            for (RangerPolicyEvaluator evaluator : repository.getLikelyMatchPolicyEvaluators(descendantRequest, RangerPolicy.POLICY_TYPE_ACCESS)) {
+                if (!policyIds.contains(evaluator.getPolicyId()) && isMatch(evaluator, descendantRequest)) {
+                    return "policy id=" + evaluator.getPolicyId() + " not found for subtree";
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private String checkTags(RangerAccessRequest subtreeRequest, List<RangerAccessRequest> descendantRequests) {
+        RangerPolicyRepository tagRepository = policyEngine.getTagPolicyRepository();
+
+        if (!policyEngine.hasTagPolicies(tagRepository)) {
+            return null;
+        }
+
+        Set<List<Object>> subtreeTags = getTagKeys(RangerAccessRequestUtil.getRequestTagsFromContext(subtreeRequest.getContext()));
+
+        for (RangerAccessRequest descendantRequest : descendantRequests) {
+            Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(descendantRequest.getContext());
+
+            if (!subtreeTags.equals(getTagKeys(tags))) {
+                return "descendants have different tags";
+            }
+
+            if (CollectionUtils.isNotEmpty(tags)) {
+                for (PolicyEvaluatorForTag tagEvaluator : tagRepository.getLikelyMatchPolicyEvaluators(descendantRequest, tags, RangerPolicy.POLICY_TYPE_ACCESS, null)) {
+                    if (isContextSensitive(tagEvaluator.getEvaluator())) {
+                        return "tag policy id=" + tagEvaluator.getEvaluator().getPolicyId() + " has conditions or references owner";
+                    }
+
+                    if (hasExcludes(tagEvaluator.getEvaluator())) {
+                        return "tag policy id=" + tagEvaluator.getEvaluator().getPolicyId() + " has excluded resources";
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private String checkGdsResult(RangerAccessRequest subtreeRequest, List<RangerAccessRequest> descendantRequests) {
+        GdsAccessResult subtreeResult = RangerAccessRequestUtil.getGdsResultFromContext(subtreeRequest.getContext());
+
+        for (RangerAccessRequest descendantRequest : descendantRequests) {
+            GdsAccessResult descendantResult = RangerAccessRequestUtil.getGdsResultFromContext(descendantRequest.getContext());
+
+            if (!Objects.equals(getDatasetsAndProjects(subtreeResult), getDatasetsAndProjects(descendantResult))) {
+                return "descendants are shared in different datasets/projects";
+            }
+        }
+
+        return null;
+    }
+
+    // context of the request is copied, without the details added during pre-processing
+    private static RangerAccessRequestImpl createRequest(RangerAccessRequest request, RangerAccessResource resource) {
+        RangerAccessRequestImpl ret     = new RangerAccessRequestImpl(request);
+        Map<String, Object>     context = request.getContext() != null ? new HashMap<>(request.getContext()) : new HashMap<>();
+
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_TAGS);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_TAG_OBJECT);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_RESOURCE);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_REQUEST);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_GDS_RESULT);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_IS_REQUEST_PREPROCESSED);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_RESOURCE_ZONE_NAMES);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESS_TYPE_RESULTS);
+        context.remove(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESS_TYPE_ACL_RESULTS);
+
+        ret.setResource(resource);
+        ret.setContext(context);
+
+        return ret;
+    }
+
+    private static boolean isContextSensitive(RangerPolicyEvaluator evaluator) {
+        RangerPolicy policy = evaluator.getPolicy();
+
+        if (CollectionUtils.isNotEmpty(policy.getConditions())) {
+            return true;
+        }
+
+        for (List<RangerPolicyItem> policyItems : Arrays.asList(policy.getPolicyItems(), policy.getDenyPolicyItems(), policy.getAllowExceptions(), policy.getDenyExceptions())) {
+            if (policyItems != null) {
+                for (RangerPolicyItem policyItem : policyItems) {
+                    if (RangerPolicyEvaluator.hasContextSensitiveSpecification(policyItem)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasExcludes(RangerPolicyEvaluator evaluator) {
+        RangerPolicy policy = evaluator.getPolicy();
+
+        if (hasExcludes(policy.getResources())) {
+            return true;
+        }
+
+        if (policy.getAdditionalResources() != null) {
+            for (Map<String, RangerPolicyResource> resources : policy.getAdditionalResources()) {
+                if (hasExcludes(resources)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasExcludes(Map<String, RangerPolicyResource> resources) {
+        if (resources != null) {
+            for (RangerPolicyResource resource : resources.values()) {
+                if (resource != null && Boolean.TRUE.equals(resource.getIsExcludes())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isMatch(RangerPolicyEvaluator evaluator, RangerAccessRequest request) {
+        for (RangerPolicyResourceEvaluator resourceEvaluator : evaluator.getResourceEvaluators()) {
+            RangerPolicyResourceMatcher matcher   = resourceEvaluator.getPolicyResourceMatcher();
+            MatchType                   matchType = matcher != null ? matcher.getMatchType(request.getResource(), request.getResourceElementMatchingScopes(), request.getContext()) : MatchType.NONE;
+
+            if (matchType == MatchType.SELF || matchType == MatchType.SELF_AND_ALL_DESCENDANTS) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Set<List<Object>> getTagKeys(Set<RangerTagForEval> tags) {
+        Set<List<Object>> ret = new HashSet<>();
+
+        if (tags != null) {
+            for (RangerTagForEval tag : tags) {
+                ret.add(Arrays.asList(tag.getType(), tag.getAttributes()));
+            }
+        }
+
+        return ret;
+    }
+
+    private static List<Set<String>> getDatasetsAndProjects(GdsAccessResult result) {
+        return result != null ? Arrays.asList(emptyIfNull(result.getDatasets()), emptyIfNull(result.getProjects())) : Arrays.asList(Collections.emptySet(), Collections.emptySet());
+    }
+
+    private static Set<String> emptyIfNull(Set<String> set) {
+        return set != null ? set : Collections.emptySet();
+    }
+}
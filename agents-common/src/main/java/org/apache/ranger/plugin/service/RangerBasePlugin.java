@@ -428,6 +428,17 @@ public long getPoliciesVersion() {
         return ret != null ? ret : -1L;
     }
 
+    /**
+     * @return true if results of access evaluation can depend on request inputs other than user, resource and access
+     *         type - like access time, request data or other context entries; such results must not be reused for
+     *         other requests. Also true if this can't be determined, like when policies are not yet loaded
+     */
+    public boolean hasConditionalAccessPolicies() {
+        RangerPolicyEngine policyEngine = this.policyEngine;
+
+        return !(policyEngine instanceof RangerPolicyEngineImpl) || ((RangerPolicyEngineImpl) policyEngine).getPolicyEngine().hasConditionalAccessPolicies();
+    }
+
     public long getTagsVersion() {
         RangerTagEnricher tagEnricher = getTagEnricher();
         Long              ret         = tagEnricher != null ? tagEnricher.getServiceTagsVersion() : null;
@@ -752,6 +763,29 @@ public Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessReq
         return ret;
     }
 
+    /**
+     * Evaluates access to all descendants of the resource in the request, like files and directories under a directory,
+     * with a single policy evaluation when the same policies, tags and security-zone apply to every descendant. The
+     * result is not audited.
+     *
+     * @return result that applies to every descendant; null if access to descendants must be evaluated individually
+     */
+    public RangerAccessResult isAccessAllowedForDescendants(RangerAccessRequest request) {
+        if (this.synchronousPolicyRefresh) {
+            refreshPoliciesAndTags();
+        }
+
+        RangerAccessResult ret          = null;
+        RangerPolicyEngine policyEngine = this.policyEngine;
+
+        // chained plugins evaluate each descendant on their own
+        if (policyEngine != null && chainedPlugins.isEmpty()) {
+            ret = policyEngine.evaluatePoliciesForDescendants(request, RangerPolicy.POLICY_TYPE_ACCESS);
+        }
+
+        return ret;
+    }
+
     public RangerAccessResult evalDataMaskPolicies(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor) {
         if (this.synchronousPolicyRefresh) {
             refreshPoliciesAndTags();
@@ -53,8 +53,11 @@ public class PolicyRefresher extends Thread {
     private final long                           pollingIntervalMs;
     private final String                         cacheFileName;
     private final String                         cacheDir;
+    private final boolean                        isBinaryCacheFormat;
     private final BlockingQueue<DownloadTrigger> policyDownloadQueue = new LinkedBlockingQueue<>();
+    private final long                           changeWaitTimeoutMs;
     private       Timer                          policyDownloadTimer;
+    private       ServiceVersionWatcher          serviceVersionWatcher;
     private       long                           lastKnownVersion    = -1L;
     private       long                           lastActivationTimeInMillis;
     private       boolean                        policiesSetInPlugin;
@@ -71,6 +74,8 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
         this.serviceName = plugIn.getServiceName();
         this.cacheDir    = pluginConfig.get(propertyPrefix + ".policy.cache.dir");
 
+        this.isBinaryCacheFormat = pluginConfig.getBoolean(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT_DEFAULT);
+
         String appId         = StringUtils.isEmpty(plugIn.getAppId()) ? serviceType : plugIn.getAppId();
         String cacheFilename = String.format("%s_%s.json", appId, serviceName);
 
@@ -86,6 +91,10 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
         this.rolesProvider     = new RangerRolesProvider(getServiceType(), appId, getServiceName(), rangerAdmin, cacheDir, pluginConfig);
         this.pollingIntervalMs = pluginConfig.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000L);
 
+        boolean isChangeWaitEnabled = pluginConfig.getBoolean(propertyPrefix + ServiceVersionWatcher.CONFIG_SUFFIX_CHANGE_WAIT_ENABLED, false);
+
+        this.changeWaitTimeoutMs = isChangeWaitEnabled ? pluginConfig.getLong(propertyPrefix + ServiceVersionWatcher.CONFIG_SUFFIX_CHANGE_WAIT_TIMEOUT_MS, ServiceVersionWatcher.DEFAULT_CHANGE_WAIT_TIMEOUT_MS) : -1L;
+
         setName("PolicyRefresher(serviceName=" + serviceName + ")-" + getId());
 
         LOG.debug("<== PolicyRefresher(serviceName={}).PolicyRefresher()", serviceName);
@@ -141,29 +150,46 @@ private void initRefresher() {
             LOG.error("Failed to start PolicyRefresher thread for serviceName={}", serviceName, e);
             throw e;
         }
+        // when waiting for changes, the periodic download only recovers from missed notifications; hence it runs less often
+        long downloadIntervalMs = changeWaitTimeoutMs > 0 ? ServiceVersionWatcher.getPollingIntervalMs(plugIn.getConfig(), pollingIntervalMs) : pollingIntervalMs;
+
         policyDownloadTimer = new Timer("policyDownloadTimer", true);
         try {
-            policyDownloadTimer.schedule(new DownloaderTask(policyDownloadQueue), pollingIntervalMs, pollingIntervalMs);
-            LOG.debug("Scheduled policyDownloadRefresher to download policies every {} milliseconds", pollingIntervalMs);
+            policyDownloadTimer.schedule(new DownloaderTask(policyDownloadQueue), downloadIntervalMs, downloadIntervalMs);
+            LOG.debug("Scheduled policyDownloadRefresher to download policies every {} milliseconds", downloadIntervalMs);
         } catch (IllegalArgumentException | IllegalStateException | NullPointerException e) {
             LOG.error("Error scheduling policyDownloadTimer:", e);
-            LOG.error("*** Policies will NOT be downloaded every {} milliseconds ***", pollingIntervalMs);
+            LOG.error("*** Policies will NOT be downloaded every {} milliseconds ***", downloadIntervalMs);
             policyDownloadTimer.cancel();
             policyDownloadTimer = null;
             throw e;
         }
+
+        if (changeWaitTimeoutMs > 0) {
+            serviceVersionWatcher = new ServiceVersionWatcher(plugIn, this, rangerAdmin, changeWaitTimeoutMs, pollingIntervalMs);
+
+            serviceVersionWatcher.start();
+
+            LOG.info("PolicyRefresher(serviceName={}): started to wait for changes in Ranger Admin, waitTimeoutMs={}", serviceName, changeWaitTimeoutMs);
+        }
         LOG.debug("<== PolicyRefresher(serviceName={}).initRefresher()", serviceName);
     }
 
     public void stopRefresher() {
-        Timer policyDownloadTimer = this.policyDownloadTimer;
+        Timer                 policyDownloadTimer   = this.policyDownloadTimer;
+        ServiceVersionWatcher serviceVersionWatcher = this.serviceVersionWatcher;
 
-        this.policyDownloadTimer = null;
+        this.policyDownloadTimer   = null;
+        this.serviceVersionWatcher = null;
 
         if (policyDownloadTimer != null) {
             policyDownloadTimer.cancel();
         }
 
+        if (serviceVersionWatcher != null) {
+            serviceVersionWatcher.stopWatcher();
+        }
+
         if (super.isAlive()) {
             super.interrupt();
 
@@ -257,11 +283,20 @@ public void saveToCache(ServicePolicies policies) {
                 if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
                     perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.saveToCache(serviceName=" + serviceName + ")");
                 }
-                try (Writer writer = new FileWriter(cacheFile)) {
-                    JsonUtils.objectToWriter(writer, policies);
+                if (isBinaryCacheFormat && CollectionUtils.isEmpty(policies.getPolicyDeltas())) {
+                    RangerBinaryCacheFormat.writeCacheFile(cacheFile, policies, JsonUtils.getMapper());
                     deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
-                } catch (Exception excp) {
-                    LOG.error("failed to save policies to cache file '{}'", cacheFile.getAbsolutePath(), excp);
+                } else {
+                    try (Writer writer = new FileWriter(cacheFile)) {
+                        JsonUtils.objectToWriter(writer, policies);
+                        deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
+                    } catch (Exception excp) {
+                        LOG.error("failed to save policies to cache file '{}'", cacheFile.getAbsolutePath(), excp);
+                    }
+
+                    if (CollectionUtils.isEmpty(policies.getPolicyDeltas())) {
+                        RangerBinaryCacheFormat.deleteCacheFile(cacheFile);
+                    }
                 }
 
                 RangerPerfTracer.log(perf);
@@ -411,7 +446,27 @@ private ServicePolicies loadFromCache() {
 
         File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
-        if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+        if (cacheFile != null && isBinaryCacheFormat) {
+            RangerPerfTracer perf = null;
+
+            if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "PolicyRefresher.loadFromCache(serviceName=" + serviceName + ", format=binary)");
+            }
+
+            policies = RangerBinaryCacheFormat.readCacheFile(cacheFile, ServicePolicies.class, JsonUtils.getMapper());
+
+            RangerPerfTracer.log(perf);
+        }
+
+        if (policies != null) {
+            if (!StringUtils.equals(serviceName, policies.getServiceName())) {
+                LOG.warn("ignoring unexpected serviceName '{}' in cache file '{}'", policies.getServiceName(), RangerBinaryCacheFormat.getBinaryCacheFile(cacheFile).getAbsolutePath());
+
+                policies.setServiceName(serviceName);
+            }
+
+            lastKnownVersion = policies.getPolicyVersion() == null ? -1L : policies.getPolicyVersion();
+        } else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) { // JSON cache, also when saved before the binary format was enabled
             Reader           reader = null;
             RangerPerfTracer perf   = null;
 
@@ -524,6 +579,10 @@ private void disableCache() {
             LOG.debug("No local policy cache found. No need to disable it!");
         }
 
+        if (cacheFile != null) {
+            RangerBinaryCacheFormat.disableCacheFile(cacheFile);
+        }
+
         LOG.debug("<== PolicyRefresher.disableCache(serviceName={})", serviceName);
     }
 
@@ -0,0 +1,775 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary alternative to the JSON format of plugin cache files - policies, roles, tags, userstore and GDS info.
+ *
+ * The file has the same structure as the JSON, stored as a stream of tokens. Strings - field names and values - are
+ * stored once in a string table at the start of the file and referenced by index from the tokens; numbers are stored
+ * as varints. Loading a cache file maps it with a FileChannel and runs Jackson databind directly on the tokens in the
+ * mapped buffer: there is no text to parse, and a string is decoded only once however many times it is referenced,
+ * so repeated values like user/group names and access-types share the same String instance in the loaded objects.
+ *
+ * Layout: magic (4 bytes), format version (1 byte), string count (varint), strings (varint length + UTF-8 bytes each),
+ * then the tokens. A file with a different magic or version is rejected with an IOException, so that the caller can
+ * fall back to the JSON cache or to downloading from Ranger Admin.
+ */
+public final class RangerBinaryCacheFormat {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerBinaryCacheFormat.class);
+
+    public static final  String FILE_SUFFIX    = ".bin";
+    public static final  byte   FORMAT_VERSION = 1;
+    private static final byte[] MAGIC          = {'R', 'G', 'B', 'C'};
+
+    private static final byte TOKEN_START_OBJECT = 1;
+    private static final byte TOKEN_END_OBJECT   = 2;
+    private static final byte TOKEN_START_ARRAY  = 3;
+    private static final byte TOKEN_END_ARRAY    = 4;
+    private static final byte TOKEN_FIELD_NAME   = 5;
+    private static final byte TOKEN_STRING       = 6;
+    private static final byte TOKEN_INT          = 7;
+    private static final byte TOKEN_LONG         = 8;
+    private static final byte TOKEN_FLOAT        = 9;
+    private static final byte TOKEN_DOUBLE       = 10;
+    private static final byte TOKEN_BIG_INTEGER  = 11;
+    private static final byte TOKEN_BIG_DECIMAL  = 12;
+    private static final byte TOKEN_TRUE         = 13;
+    private static final byte TOKEN_FALSE        = 14;
+    private static final byte TOKEN_NULL         = 15;
+
+    private RangerBinaryCacheFormat() {
+        // to block instantiation
+    }
+
+    /**
+     * @return file for the binary format of the given JSON cache file: ".json" suffix, if present, replaced with ".bin"
+     */
+    public static File getBinaryCacheFile(File jsonCacheFile) {
+        String name = jsonCacheFile.getName();
+
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - ".json".length());
+        }
+
+        return new File(jsonCacheFile.getParentFile(), name + FILE_SUFFIX);
+    }
+
+    /**
+     * Reads the binary cache file for the given JSON cache file.
+     *
+     * @return null if the binary cache file does not exist or could not be read
+     */
+    public static <T> T readCacheFile(File jsonCacheFile, Class<T> clz, ObjectMapper mapper) {
+        File binaryCacheFile = getBinaryCacheFile(jsonCacheFile);
+        T    ret             = null;
+
+        if (binaryCacheFile.isFile() && binaryCacheFile.canRead()) {
+            try {
+                ret = readObject(binaryCacheFile, clz, mapper);
+            } catch (Exception excp) {
+                LOG.error("failed to load {} from cache file {}", clz.getSimpleName(), binaryCacheFile.getAbsolutePath(), excp);
+            }
+        } else {
+            LOG.debug("binary cache file does not exist or not readable '{}'", binaryCacheFile.getAbsolutePath());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Saves the object in the binary cache file for the given JSON cache file, and removes the JSON cache file - so
+     * that its contents, which are now stale, are not loaded if the binary format is disabled later.
+     *
+     * @return false if the object could not be saved
+     */
+    public static boolean writeCacheFile(File jsonCacheFile, Object object, ObjectMapper mapper) {
+        File    binaryCacheFile = getBinaryCacheFile(jsonCacheFile);
+        boolean ret             = false;
+
+        try {
+            writeObject(binaryCacheFile, object, mapper);
+
+            ret = true;
+
+            deleteIfExists(jsonCacheFile);
+        } catch (Exception excp) {
+            LOG.error("failed to save {} to cache file '{}'", object.getClass().getSimpleName(), binaryCacheFile.getAbsolutePath(), excp);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Removes the binary cache file for the given JSON cache file, once the JSON cache file is updated - so that its
+     * contents, which are now stale, are not loaded if the binary format is enabled later.
+     */
+    public static void deleteCacheFile(File jsonCacheFile) {
+        deleteIfExists(getBinaryCacheFile(jsonCacheFile));
+    }
+
+    /**
+     * Renames the binary cache file for the given JSON cache file, if it exists, like disableCache() of the refreshers
+     * does for the JSON cache file.
+     */
+    public static void disableCacheFile(File jsonCacheFile) {
+        File binaryCacheFile = getBinaryCacheFile(jsonCacheFile);
+
+        if (binaryCacheFile.isFile()) {
+            String renamedCacheFile = binaryCacheFile.getAbsolutePath() + "_" + System.currentTimeMillis();
+
+            if (!binaryCacheFile.renameTo(new File(renamedCacheFile))) {
+                LOG.error("Failed to move {} to {}", binaryCacheFile.getAbsolutePath(), renamedCacheFile);
+            } else {
+                LOG.warn("Moved {} to {}", binaryCacheFile.getAbsolutePath(), renamedCacheFile);
+            }
+        }
+    }
+
+    /**
+     * Writes the object to a temporary file, which then replaces the given file; a concurrent reader never sees a partially written file.
+     */
+    public static void writeObject(File file, Object object, ObjectMapper mapper) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(mapper, false);
+
+        mapper.writeValue(tokens, object);
+
+        // first pass over the tokens: collect strings for the string table
+        final Map<String, Integer> stringIndexes = new HashMap<>();
+        final List<String>         strings       = new ArrayList<>();
+
+        try (JsonParser parser = tokens.asParser(mapper)) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                final String str;
+
+                switch (token) {
+                    case FIELD_NAME:
+                        str = parser.currentName();
+                        break;
+
+                    case VALUE_STRING:
+                        str = parser.getText();
+                        break;
+
+                    case VALUE_NUMBER_INT:
+                        str = parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER ? parser.getBigIntegerValue().toString() : null;
+                        break;
+
+                    case VALUE_NUMBER_FLOAT:
+                        str = parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL ? parser.getDecimalValue().toString() : null;
+                        break;
+
+                    default:
+                        str = null;
+                        break;
+                }
+
+                if (str != null && !stringIndexes.containsKey(str)) {
+                    stringIndexes.put(str, strings.size());
+                    strings.add(str);
+                }
+            }
+        }
+
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024));
+                JsonParser parser = tokens.asParser(mapper)) {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+
+            writeVarLong(out, strings.size());
+
+            for (String str : strings) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+
+            // second pass: write the tokens
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                switch (token) {
+                    case START_OBJECT:
+                        out.writeByte(TOKEN_START_OBJECT);
+                        break;
+
+                    case END_OBJECT:
+                        out.writeByte(TOKEN_END_OBJECT);
+                        break;
+
+                    case START_ARRAY:
+                        out.writeByte(TOKEN_START_ARRAY);
+                        break;
+
+                    case END_ARRAY:
+                        out.writeByte(TOKEN_END_ARRAY);
+                        break;
+
+                    case FIELD_NAME:
+                        out.writeByte(TOKEN_FIELD_NAME);
+                        writeVarLong(out, stringIndexes.get(parser.currentName()));
+                        break;
+
+                    case VALUE_STRING:
+                        out.writeByte(TOKEN_STRING);
+                        writeVarLong(out, stringIndexes.get(parser.getText()));
+                        break;
+
+                    case VALUE_NUMBER_INT:
+                        switch (parser.getNumberType()) {
+                            case INT:
+                                out.writeByte(TOKEN_INT);
+                                writeVarLong(out, zigZag(parser.getIntValue()));
+                                break;
+
+                            case LONG:
+                                out.writeByte(TOKEN_LONG);
+                                writeVarLong(out, zigZag(parser.getLongValue()));
+                                break;
+
+                            default:
+                                out.writeByte(TOKEN_BIG_INTEGER);
+                                writeVarLong(out, stringIndexes.get(parser.getBigIntegerValue().toString()));
+                                break;
+                        }
+                        break;
+
+                    case VALUE_NUMBER_FLOAT:
+                        switch (parser.getNumberType()) {
+                            case FLOAT:
+                                out.writeByte(TOKEN_FLOAT);
+                                out.writeFloat(parser.getFloatValue());
+                                break;
+
+                            case DOUBLE:
+                                out.writeByte(TOKEN_DOUBLE);
+                                out.writeDouble(parser.getDoubleValue());
+                                break;
+
+                            default:
+                                out.writeByte(TOKEN_BIG_DECIMAL);
+                                writeVarLong(out, stringIndexes.get(parser.getDecimalValue().toString()));
+                                break;
+                        }
+                        break;
+
+                    case VALUE_TRUE:
+                        out.writeByte(TOKEN_TRUE);
+                        break;
+
+                    case VALUE_FALSE:
+                        out.writeByte(TOKEN_FALSE);
+                        break;
+
+                    case VALUE_NULL:
+                        out.writeByte(TOKEN_NULL);
+                        break;
+
+                    default:
+                        throw new IOException("unsupported token " + token + " in " + object.getClass().getName());
+                }
+            }
+        } catch (IOException excp) {
+            if (!tmpFile.delete()) {
+                LOG.warn("failed to delete {}", tmpFile.getAbsolutePath());
+            }
+
+            throw excp;
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LOG.debug("writeObject(file={}, class={}): strings={}, size={}", file, object.getClass().getName(), strings.size(), file.length());
+    }
+
+    public static <T> T readObject(File file, Class<T> clz, ObjectMapper mapper) throws IOException {
+        final MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try (JsonParser parser = new BinaryCacheParser(buffer, mapper)) {
+            return mapper.readValue(parser, clz);
+        } catch (IndexOutOfBoundsException excp) {
+            throw new IOException("truncated or corrupt cache file " + file.getAbsolutePath(), excp);
+        }
+    }
+
+    private static void deleteIfExists(File file) {
+        if (file.exists() && !file.delete()) {
+            LOG.warn("failed to delete stale cache file {}", file.getAbsolutePath());
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+
+            value >>>= 7;
+        }
+
+        out.writeByte((int) value);
+    }
+
+    /*
+     * Streaming parser over the tokens in the buffer; strings in the string table are decoded on first reference.
+     * Reads use absolute offsets, which leaves the position of the buffer - possibly shared - untouched.
+     */
+    private static final class BinaryCacheParser extends ParserMinimalBase {
+        private final ByteBuffer      buffer;
+        private final int             limit;
+        private final int[]           stringOffsets;
+        private final int[]           stringLengths;
+        private final String[]        strings;
+        private       int             pos;
+        private       ObjectCodec     codec;
+        private       JsonReadContext context = JsonReadContext.createRootContext(null);
+        private       boolean         isClosed;
+        private       String          textValue;
+        private       long            longValue;
+        private       double          doubleValue;
+        private       NumberType      numberType;
+        private       byte[]          scratch = new byte[256];
+
+        BinaryCacheParser(ByteBuffer buffer, ObjectCodec codec) throws IOException {
+            this.buffer = buffer;
+            this.limit  = buffer.limit();
+            this.codec  = codec;
+
+            for (byte b : MAGIC) {
+                if (pos >= limit || buffer.get(pos++) != b) {
+                    throw new IOException("not a binary cache file");
+                }
+            }
+
+            byte version = buffer.get(pos++);
+
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported binary cache format version " + version + "; expected " + FORMAT_VERSION);
+            }
+
+            int stringCount = (int) readVarLong();
+
+            this.stringOffsets = new int[stringCount];
+            this.stringLengths = new int[stringCount];
+            this.strings       = new String[stringCount];
+
+            for (int i = 0; i < stringCount; i++) {
+                int length = (int) readVarLong();
+
+                stringOffsets[i] = pos;
+                stringLengths[i] = length;
+
+                pos += length;
+            }
+        }
+
+        @Override
+        public JsonToken nextToken() throws IOException {
+            textValue  = null;
+            numberType = null;
+
+            if (isClosed || pos >= limit) {
+                _currToken = null;
+
+                return null;
+            }
+
+            final byte tag = buffer.get(pos++);
+
+            if (tag != TOKEN_END_ARRAY && context.inArray()) {
+                context.expectComma(); // to track index of the current element
+            }
+
+            switch (tag) {
+                case TOKEN_START_OBJECT:
+                    context    = context.createChildObjectContext(-1, -1);
+                    _currToken = JsonToken.START_OBJECT;
+                    break;
+
+                case TOKEN_END_OBJECT:
+                    context    = context.clearAndGetParent();
+                    _currToken = JsonToken.END_OBJECT;
+                    break;
+
+                case TOKEN_START_ARRAY:
+                    context    = context.createChildArrayContext(-1, -1);
+                    _currToken = JsonToken.START_ARRAY;
+                    break;
+
+                case TOKEN_END_ARRAY:
+                    context    = context.clearAndGetParent();
+                    _currToken = JsonToken.END_ARRAY;
+                    break;
+
+                case TOKEN_FIELD_NAME:
+                    context.setCurrentName(readString());
+                    _currToken = JsonToken.FIELD_NAME;
+                    break;
+
+                case TOKEN_STRING:
+                    textValue  = readString();
+                    _currToken = JsonToken.VALUE_STRING;
+                    break;
+
+                case TOKEN_INT:
+                    longValue  = unZigZag(readVarLong());
+                    numberType = NumberType.INT;
+                    _currToken = JsonToken.VALUE_NUMBER_INT;
+                    break;
+
+                case TOKEN_LONG:
+                    longValue  = unZigZag(readVarLong());
+                    numberType = NumberType.LONG;
+                    _currToken = JsonToken.VALUE_NUMBER_INT;
+                    break;
+
+                case TOKEN_BIG_INTEGER:
+                    textValue  = readString();
+                    numberType = NumberType.BIG_INTEGER;
+                    _currToken = JsonToken.VALUE_NUMBER_INT;
+                    break;
+
+                case TOKEN_FLOAT:
+                    doubleValue = buffer.getFloat(pos);
+                    pos        += Float.BYTES;
+                    numberType  = NumberType.FLOAT;
+                    _currToken  = JsonToken.VALUE_NUMBER_FLOAT;
+                    break;
+
+                case TOKEN_DOUBLE:
+                    doubleValue = buffer.getDouble(pos);
+                    pos        += Double.BYTES;
+                    numberType  = NumberType.DOUBLE;
+                    _currToken  = JsonToken.VALUE_NUMBER_FLOAT;
+                    break;
+
+                case TOKEN_BIG_DECIMAL:
+                    textValue  = readString();
+                    numberType = NumberType.BIG_DECIMAL;
+                    _currToken = JsonToken.VALUE_NUMBER_FLOAT;
+                    break;
+
+                case TOKEN_TRUE:
+                    _currToken = JsonToken.VALUE_TRUE;
+                    break;
+
+                case TOKEN_FALSE:
+                    _currToken = JsonToken.VALUE_FALSE;
+                    break;
+
+                case TOKEN_NULL:
+                    _currToken = JsonToken.VALUE_NULL;
+                    break;
+
+                default:
+                    throw new JsonParseException(this, "unexpected token type " + tag + " at offset " + (pos - 1));
+            }
+
+            return _currToken;
+        }
+
+        @Override
+        public String getCurrentName() {
+            if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+                JsonReadContext parent = context.getParent();
+
+                return parent != null ? parent.getCurrentName() : null;
+            }
+
+            return context.getCurrentName();
+        }
+
+        @Override
+        public void overrideCurrentName(String name) {
+            JsonReadContext ctx = (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) ? context.getParent() : context;
+
+            if (ctx != null) {
+                try {
+                    ctx.setCurrentName(name);
+                } catch (IOException excp) {
+                    throw new IllegalStateException(excp);
+                }
+            }
+        }
+
+        @Override
+        public String getText() {
+            if (_currToken == null) {
+                return null;
+            }
+
+            switch (_currToken) {
+                case FIELD_NAME:
+                    return context.getCurrentName();
+
+                case VALUE_STRING:
+                    return textValue;
+
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return textValue != null ? textValue : String.valueOf(getNumberValue());
+
+                default:
+                    return _currToken.asString();
+            }
+        }
+
+        @Override
+        public char[] getTextCharacters() {
+            String text = getText();
+
+            return text != null ? text.toCharArray() : null;
+        }
+
+        @Override
+        public boolean hasTextCharacters() {
+            return false;
+        }
+
+        @Override
+        public int getTextLength() {
+            String text = getText();
+
+            return text != null ? text.length() : 0;
+        }
+
+        @Override
+        public int getTextOffset() {
+            return 0;
+        }
+
+        @Override
+        public byte[] getBinaryValue(Base64Variant variant) throws IOException {
+            if (_currToken != JsonToken.VALUE_STRING) {
+                throw new JsonParseException(this, "current token " + _currToken + " is not a binary value");
+            }
+
+            return variant.decode(textValue);
+        }
+
+        @Override
+        public Number getNumberValue() {
+            switch (numberType) {
+                case INT:
+                    return (int) longValue;
+
+                case LONG:
+                    return longValue;
+
+                case BIG_INTEGER:
+                    return new BigInteger(textValue);
+
+                case FLOAT:
+                    return (float) doubleValue;
+
+                case DOUBLE:
+                    return doubleValue;
+
+                default:
+                    return new BigDecimal(textValue);
+            }
+        }
+
+        @Override
+        public NumberType getNumberType() {
+            return numberType;
+        }
+
+        @Override
+        public int getIntValue() {
+            return getNumberValue().intValue();
+        }
+
+        @Override
+        public long getLongValue() {
+            return getNumberValue().longValue();
+        }
+
+        @Override
+        public BigInteger getBigIntegerValue() {
+            Number number = getNumberValue();
+
+            if (number instanceof BigInteger) {
+                return (BigInteger) number;
+            } else if (number instanceof BigDecimal) {
+                return ((BigDecimal) number).toBigInteger();
+            }
+
+            return numberType == NumberType.INT || numberType == NumberType.LONG ? BigInteger.valueOf(longValue) : BigDecimal.valueOf(doubleValue).toBigInteger();
+        }
+
+        @Override
+        public float getFloatValue() {
+            return getNumberValue().floatValue();
+        }
+
+        @Override
+        public double getDoubleValue() {
+            return getNumberValue().doubleValue();
+        }
+
+        @Override
+        public BigDecimal getDecimalValue() {
+            Number number = getNumberValue();
+
+            if (number instanceof BigDecimal) {
+                return (BigDecimal) number;
+            } else if (number instanceof BigInteger) {
+                return new BigDecimal((BigInteger) number);
+            }
+
+            return numberType == NumberType.INT || numberType == NumberType.LONG ? BigDecimal.valueOf(longValue) : BigDecimal.valueOf(doubleValue);
+        }
+
+        @Override
+        public ObjectCodec getCodec() {
+            return codec;
+        }
+
+        @Override
+        public void setCodec(ObjectCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public Version version() {
+            return Version.unknownVersion();
+        }
+
+        @Override
+        public JsonStreamContext getParsingContext() {
+            return context;
+        }
+
+        @Override
+        public JsonLocation getCurrentLocation() {
+            return JsonLocation.NA;
+        }
+
+        @Override
+        public JsonLocation getTokenLocation() {
+            return JsonLocation.NA;
+        }
+
+        @Override
+        public void close() {
+            isClosed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return isClosed;
+        }
+
+        @Override
+        protected void _handleEOF() throws JsonParseException {
+            if (!context.inRoot()) {
+                throw new JsonParseException(this, "unexpected end of binary cache file");
+            }
+        }
+
+        private String readString() throws IOException {
+            final int idx = (int) readVarLong();
+            String    ret = strings[idx];
+
+            if (ret == null) {
+                final int offset = stringOffsets[idx];
+                final int length = stringLengths[idx];
+
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+
+                for (int i = 0; i < length; i++) {
+                    scratch[i] = buffer.get(offset + i);
+                }
+
+                ret          = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                strings[idx] = ret;
+            }
+
+            return ret;
+        }
+
+        private long readVarLong() throws IOException {
+            long ret   = 0;
+            int  shift = 0;
+
+            while (shift < 64) {
+                byte b = buffer.get(pos++);
+
+                ret |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return ret;
+                }
+
+                shift += 7;
+            }
+
+            throw new IOException("malformed varint in binary cache file");
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class RangerCommonConstants {
     public static final String RANGER_ADMIN_SUFFIX_IN_PLACE_TAG_UPDATES     = ".supports.in.place.tag.updates";
     public static final String PLUGIN_CONFIG_SUFFIX_IN_PLACE_TAG_UPDATES    = ".supports.in.place.tag.updates";
     public static final String PLUGIN_CONFIG_SUFFIX_NAME_TRANSFORMATION     = ".supports.name.transformation";
+    public static final String PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT     = ".policy.cache.binary.format";
 
     public static final String  PLUGINS_CONF_USERNAME_CASE_CONVERSION_PARAM          = "ranger.plugins.conf.ldap.username.caseconversion";
     public static final String  PLUGINS_CONF_GROUPNAME_CASE_CONVERSION_PARAM         = "ranger.plugins.conf.ldap.groupname.caseconversion";
@@ -48,6 +49,7 @@ public class RangerCommonConstants {
     public static final boolean PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES_DEFAULT = false;
     public static final boolean RANGER_ADMIN_SUFFIX_IN_PLACE_TAG_UPDATES_DEFAULT     = false;
     public static final boolean PLUGIN_CONFIG_SUFFIX_IN_PLACE_TAG_UPDATES_DEFAULT    = false;
+    public static final boolean PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT_DEFAULT     = false;
     public static final boolean RANGER_SUPPORTS_TAGS_DEDUP_DEFAULT                   = true;
     public static final boolean POLICY_REST_CLIENT_SESSION_COOKIE_ENABLED            = true;
     public static final String  SCRIPT_OPTION_ENABLE_JSON_CTX                        = "enableJsonCtx";
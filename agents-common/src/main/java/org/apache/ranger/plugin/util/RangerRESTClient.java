@@ -28,6 +28,7 @@
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
 import com.sun.jersey.client.urlconnection.HTTPSProperties;
 import org.apache.commons.lang3.StringUtils;
@@ -106,6 +107,7 @@ public class RangerRESTClient {
     private          int          maxRetryAttempts;
     private          int          retryIntervalMs;
     private          int          lastKnownActiveUrlIndex;
+    private          boolean      isGzipEnabled;
     private volatile Client       client;
     private volatile Client       cookieAuthClient;
     private          JwtProvider  jwtProvider;
@@ -375,6 +377,13 @@ public ClientResponse get(String relativeUrl, Map<String, String> params) throws
     }
 
     public ClientResponse get(String relativeUrl, Map<String, String> params, Cookie sessionId) throws Exception {
+        return get(relativeUrl, params, sessionId, -1);
+    }
+
+    /**
+     * @param readTimeoutMs read timeout for this request; a negative value uses the read timeout configured for the client
+     */
+    public ClientResponse get(String relativeUrl, Map<String, String> params, Cookie sessionId, int readTimeoutMs) throws Exception {
         ClientResponse finalResponse = null;
         int            startIndex    = this.lastKnownActiveUrlIndex;
         int            retryAttempt  = 0;
@@ -383,7 +392,7 @@ public ClientResponse get(String relativeUrl, Map<String, String> params, Cookie
             int currentIndex = (startIndex + index) % configuredURLs.size();
 
             try {
-                WebResource.Builder br = createWebResource(currentIndex, relativeUrl, params, sessionId);
+                WebResource.Builder br = createWebResource(currentIndex, relativeUrl, params, sessionId, readTimeoutMs);
 
                 finalResponse = br.accept(RangerRESTUtils.REST_EXPECTED_MIME_TYPE).type(RangerRESTUtils.REST_MIME_TYPE_JSON).get(ClientResponse.class);
 
@@ -649,15 +658,20 @@ protected WebResource.Builder createWebResource(int currentIndex, String relativ
     }
 
     protected WebResource.Builder createWebResource(int currentIndex, String relativeURL, Map<String, String> params, Cookie sessionId) {
-        if (sessionId == null) {
-            return createWebResource(currentIndex, relativeURL, params);
-        } else {
-            WebResource webResource = getCookieAuthClient().resource(configuredURLs.get(currentIndex) + relativeURL);
+        return createWebResource(currentIndex, relativeURL, params, sessionId, -1);
+    }
 
-            webResource = setQueryParams(webResource, params);
+    protected WebResource.Builder createWebResource(int currentIndex, String relativeURL, Map<String, String> params, Cookie sessionId, int readTimeoutMs) {
+        Client      client      = sessionId == null ? getClient() : getCookieAuthClient();
+        WebResource webResource = client.resource(configuredURLs.get(currentIndex) + relativeURL);
 
-            return webResource.getRequestBuilder().cookie(sessionId);
+        if (readTimeoutMs >= 0) {
+            webResource.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, readTimeoutMs);
         }
+
+        webResource = setQueryParams(webResource, params);
+
+        return sessionId == null ? webResource.getRequestBuilder() : webResource.getRequestBuilder().cookie(sessionId);
     }
 
     protected boolean shouldRetry(String currentUrl, int index, int retryAttemptCount, Exception ex) throws Exception {
@@ -770,6 +784,11 @@ private Client buildClient() {
             client.addFilter(authFilter);
         }
 
+        // accept gzip encoded responses; Ranger admin compresses policies, tags, roles, etc. downloaded by plugins
+        if (isGzipEnabled) {
+            client.addFilter(new GZIPContentEncodingFilter(false));
+        }
+
         // Set Connection Timeout and ReadTime for the PolicyRefresh
         client.setConnectTimeout(mRestClientConnTimeOutMs);
         client.setReadTimeout(mRestClientReadTimeOutMs);
@@ -836,6 +855,8 @@ private void init(Configuration config) {
         String username    = config.get(propertyPrefix + ".policy.rest.client.username");
         String password    = config.get(propertyPrefix + ".policy.rest.client.password");
 
+        isGzipEnabled = config.getBoolean(propertyPrefix + ".policy.rest.client.gzip.enabled", true);
+
         setJWTFilter();
 
         if (StringUtils.isNotBlank(username) && StringUtils.isNotBlank(password)) {
@@ -70,6 +70,10 @@ public class RangerRESTUtils {
     public static final  String REST_PARAM_ZONE_NAME                              = "zoneName";
     public static final  String REST_PARAM_EXEC_USER                              = "execUser";
     public static final  String REST_PARAM_CAPABILITIES                           = "pluginCapabilities";
+    public static final  String REST_URL_SERVICE_WAIT_FOR_CHANGES                 = "/service/plugins/changes/";
+    public static final  String REST_URL_SERVICE_SECURE_WAIT_FOR_CHANGES          = "/service/plugins/secure/changes/";
+    public static final  String REST_PARAM_LAST_KNOWN_TAG_VERSION                 = "lastKnownTagVersion";
+    public static final  String REST_PARAM_WAIT_TIMEOUT_MS                        = "waitTimeoutMs";
     private static final Logger LOG                                               = LoggerFactory.getLogger(RangerRESTUtils.class);
     private static final int    MAX_PLUGIN_ID_LEN                                 = 255;
 
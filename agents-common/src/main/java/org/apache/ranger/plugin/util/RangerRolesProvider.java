@@ -46,6 +46,7 @@ public class RangerRolesProvider {
     private final String            cacheFileNamePrefix;
     private final String            cacheDir;
     private final boolean           disableCacheIfServiceNotFound;
+    private final boolean           isBinaryCacheFormat;
     private       long              lastActivationTimeInMillis;
     private       long              lastKnownRoleVersion = -1L;
     private       boolean           rangerUserGroupRolesSetInPlugin;
@@ -75,6 +76,7 @@ public RangerRolesProvider(String serviceType, String appId, String serviceName,
         String propertyPrefix = config.getPropertyPrefix();
 
         disableCacheIfServiceNotFound = config.getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+        isBinaryCacheFormat           = config.getBoolean(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_BINARY_CACHE_FORMAT_DEFAULT);
 
         LOG.debug("<== RangerRolesProvider(serviceName={}).RangerRolesProvider()", serviceName);
     }
@@ -183,22 +185,28 @@ public void saveToCache(RangerRoles roles) {
                     perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerRolesProvider.saveToCache(serviceName=" + serviceName + ")");
                 }
 
-                Writer writer = null;
+                if (isBinaryCacheFormat) {
+                    RangerBinaryCacheFormat.writeCacheFile(cacheFile, roles, JsonUtils.getMapper());
+                } else {
+                    Writer writer = null;
 
-                try {
-                    writer = new FileWriter(cacheFile);
+                    try {
+                        writer = new FileWriter(cacheFile);
 
-                    JsonUtils.objectToWriter(writer, roles);
-                } catch (Exception excp) {
-                    LOG.error("failed to save roles to cache file '{}'", cacheFile.getAbsolutePath(), excp);
-                } finally {
-                    if (writer != null) {
-                        try {
-                            writer.close();
-                        } catch (Exception excp) {
-                            LOG.error("error while closing opened cache file '{}'", cacheFile.getAbsolutePath(), excp);
+                        JsonUtils.objectToWriter(writer, roles);
+                    } catch (Exception excp) {
+                        LOG.error("failed to save roles to cache file '{}'", cacheFile.getAbsolutePath(), excp);
+                    } finally {
+                        if (writer != null) {
+                            try {
+                                writer.close();
+                            } catch (Exception excp) {
+                                LOG.error("error while closing opened cache file '{}'", cacheFile.getAbsolutePath(), excp);
+                            }
                         }
                     }
+
+                    RangerBinaryCacheFormat.deleteCacheFile(cacheFile);
                 }
 
                 RangerPerfTracer.log(perf);
@@ -259,7 +267,27 @@ private RangerRoles loadUserGroupRolesFromCache() {
 
         File cacheFile = cacheDir == null ? null : new File(cacheDir + File.separator + cacheFileName);
 
-        if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
+        if (cacheFile != null && isBinaryCacheFormat) {
+            RangerPerfTracer perf = null;
+
+            if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerRolesProvider.loadUserGroupRolesFromCache(serviceName=" + serviceName + ", format=binary)");
+            }
+
+            roles = RangerBinaryCacheFormat.readCacheFile(cacheFile, RangerRoles.class, JsonUtils.getMapper());
+
+            RangerPerfTracer.log(perf);
+        }
+
+        if (roles != null) {
+            if (!StringUtils.equals(serviceName, roles.getServiceName())) {
+                LOG.warn("ignoring unexpected serviceName '{}' in cache file '{}'", roles.getServiceName(), RangerBinaryCacheFormat.getBinaryCacheFile(cacheFile).getAbsolutePath());
+
+                roles.setServiceName(serviceName);
+            }
+
+            lastKnownRoleVersion = roles.getRoleVersion() == null ? -1 : roles.getRoleVersion().longValue();
+        } else if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
             Reader           reader = null;
             RangerPerfTracer perf   = null;
 
@@ -328,6 +356,10 @@ private void disableCache() {
             LOG.debug("No local RangerRoles cache found. No need to disable it!");
         }
 
+        if (cacheFile != null) {
+            RangerBinaryCacheFormat.disableCacheFile(cacheFile);
+        }
+
         LOG.debug("<== RangerRolesProvider.disableCache(serviceName={})", serviceName);
     }
 }
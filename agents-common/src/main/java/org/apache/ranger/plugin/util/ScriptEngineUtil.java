@@ -25,6 +25,10 @@
 
 import javax.script.ScriptEngine;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class ScriptEngineUtil {
     private static final Logger LOG = LoggerFactory.getLogger(ScriptEngineUtil.class);
 
@@ -36,6 +40,8 @@ public class ScriptEngineUtil {
     private static final int      JVM_MAJOR_CLASS_VERSION_JDK15  = 59;
     private static final int      JVM_MAJOR_CLASS_VERSION        = getJVMMajorClassVersion();
 
+    private static final Map<String, ScriptEngine> SHARED_SCRIPT_ENGINES = new ConcurrentHashMap<>();
+
     private static volatile ScriptEngineCreator scriptEngineCreator;
     private static volatile boolean             scriptEngineCreatorInitialized;
 
@@ -79,6 +85,15 @@ public static ScriptEngine createScriptEngine(String serviceType) {
         return ret;
     }
 
+    /**
+     * Returns the script engine shared by all evaluations for the given service type, creating it on first call.
+     * Scripts are evaluated with Bindings created per request, each of which has its own global scope, so that the engine
+     * can be used concurrently; sharing the engine lets scripts compiled once be evaluated for every request.
+     */
+    public static ScriptEngine getSharedScriptEngine(String serviceType) {
+        return SHARED_SCRIPT_ENGINES.computeIfAbsent(Objects.toString(serviceType, ""), key -> createScriptEngine(serviceType));
+    }
+
     private static ScriptEngineCreator getScriptEngineCreator(String serviceType) {
         boolean isInitialized = scriptEngineCreatorInitialized;
 
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.admin.client.RangerAdminClient;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.contextenricher.RangerGdsEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+
+/**
+ * Waits in Ranger Admin for changes in policies, tags, roles and GDS info of the service, and triggers download of
+ * the changed ones as soon as a change is reported. This makes changes reach the plugin without waiting for the
+ * next poll. The periodic download then only recovers from missed notifications, hence runs every
+ * policy.change.wait.fallback.pollIntervalMs instead of pollIntervalMs - see getPollingIntervalMs(). While waiting in
+ * Ranger Admin fails, like when it doesn't support waiting for changes, this thread triggers the downloads every
+ * retryIntervalMs instead.
+ */
+public class ServiceVersionWatcher extends Thread {
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceVersionWatcher.class);
+
+    public static final String CONFIG_SUFFIX_CHANGE_WAIT_ENABLED                = ".policy.change.wait.enabled";
+    public static final String CONFIG_SUFFIX_CHANGE_WAIT_TIMEOUT_MS             = ".policy.change.wait.timeout.ms";
+    public static final String CONFIG_SUFFIX_CHANGE_WAIT_FALLBACK_POLL_INTERVAL = ".policy.change.wait.fallback.pollIntervalMs";
+    public static final long   DEFAULT_CHANGE_WAIT_TIMEOUT_MS                   = 60 * 1000L;
+    public static final long   DEFAULT_CHANGE_WAIT_FALLBACK_POLL_INTERVAL_MS    = 15 * 60 * 1000L;
+
+    private final RangerBasePlugin  plugIn;
+    private final PolicyRefresher   policyRefresher;
+    private final RangerAdminClient rangerAdmin;
+    private final long              waitTimeoutMs;
+    private final long              retryIntervalMs;
+    private       ServiceVersions   lastKnown;
+
+    public ServiceVersionWatcher(RangerBasePlugin plugIn, PolicyRefresher policyRefresher, RangerAdminClient rangerAdmin, long waitTimeoutMs, long retryIntervalMs) {
+        this.plugIn          = plugIn;
+        this.policyRefresher = policyRefresher;
+        this.rangerAdmin     = rangerAdmin;
+        this.waitTimeoutMs   = waitTimeoutMs;
+        this.retryIntervalMs = retryIntervalMs;
+
+        setName("ServiceVersionWatcher(serviceName=" + plugIn.getServiceName() + ")-" + getId());
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        LOG.debug("==> ServiceVersionWatcher(serviceName={}).run()", plugIn.getServiceName());
+
+        while (!isInterrupted()) {
+            long            startTimeMs = System.currentTimeMillis();
+            ServiceVersions current     = null;
+            boolean         isChanged   = false;
+
+            try {
+                current = rangerAdmin.waitForServiceVersionChange(lastKnown, waitTimeoutMs);
+
+                if (current != null) {
+                    isChanged = current.isChangedFrom(lastKnown);
+
+                    if (isChanged && lastKnown != null) {
+                        onVersionChange(lastKnown, current);
+                    }
+
+                    lastKnown = current;
+                }
+            } catch (InterruptedException excp) {
+                break;
+            } catch (Exception excp) {
+                LOG.warn("ServiceVersionWatcher(serviceName={}): failed to wait for changes", plugIn.getServiceName(), excp);
+            }
+
+            if (!isChanged) {
+                // avoid calling Ranger Admin in a tight loop when it fails to wait, or responds without waiting - like when it has too many waiting requests
+                long sleepTimeMs = retryIntervalMs - (System.currentTimeMillis() - startTimeMs);
+
+                try {
+                    if (sleepTimeMs > 0) {
+                        Thread.sleep(sleepTimeMs);
+                    }
+
+                    if (current == null) {
+                        // the periodic download runs less often while waiting is enabled; download as often as it would otherwise
+                        triggerDownloads(true, true, true);
+                    }
+                } catch (InterruptedException excp) {
+                    break;
+                }
+            }
+        }
+
+        LOG.debug("<== ServiceVersionWatcher(serviceName={}).run()", plugIn.getServiceName());
+    }
+
+    /**
+     * @return interval for the periodic download of policies, tags or GDS info configured to run every pollingIntervalMs:
+     *         when waiting for changes is enabled, the larger of pollingIntervalMs and the fallback poll interval
+     */
+    public static long getPollingIntervalMs(RangerPluginConfig pluginConfig, long pollingIntervalMs) {
+        long ret = pollingIntervalMs;
+
+        if (pluginConfig != null && pluginConfig.getBoolean(pluginConfig.getPropertyPrefix() + CONFIG_SUFFIX_CHANGE_WAIT_ENABLED, false)) {
+            ret = Math.max(pollingIntervalMs, pluginConfig.getLong(pluginConfig.getPropertyPrefix() + CONFIG_SUFFIX_CHANGE_WAIT_FALLBACK_POLL_INTERVAL, DEFAULT_CHANGE_WAIT_FALLBACK_POLL_INTERVAL_MS));
+        }
+
+        return ret;
+    }
+
+    public void stopWatcher() {
+        // the thread might be waiting for a response from Ranger Admin; don't wait for it to exit
+        interrupt();
+    }
+
+    private void onVersionChange(ServiceVersions lastKnown, ServiceVersions current) throws InterruptedException {
+        LOG.debug("ServiceVersionWatcher(serviceName={}): lastKnown={}, current={}", plugIn.getServiceName(), lastKnown, current);
+
+        boolean isPolicyChanged = !Objects.equals(lastKnown.getPolicyVersion(), current.getPolicyVersion()) || !Objects.equals(lastKnown.getRoleVersion(), current.getRoleVersion());
+        boolean isTagChanged    = !Objects.equals(lastKnown.getTagVersion(), current.getTagVersion());
+        boolean isGdsChanged    = !Objects.equals(lastKnown.getGdsVersion(), current.getGdsVersion());
+
+        triggerDownloads(isPolicyChanged, isTagChanged, isGdsChanged);
+    }
+
+    private void triggerDownloads(boolean policies, boolean tags, boolean gdsInfo) throws InterruptedException {
+        if (policies) {
+            policyRefresher.syncPoliciesWithAdmin(new DownloadTrigger());
+        }
+
+        if (tags) {
+            RangerTagEnricher tagEnricher = plugIn.getTagEnricher();
+
+            if (tagEnricher != null) {
+                tagEnricher.syncTagsWithAdmin(new DownloadTrigger());
+            }
+        }
+
+        if (gdsInfo) {
+            RangerGdsEnricher gdsEnricher = plugIn.getGdsEnricher();
+
+            if (gdsEnricher != null) {
+                gdsEnricher.syncGdsInfoWithAdmin(new DownloadTrigger());
+            }
+        }
+    }
+}
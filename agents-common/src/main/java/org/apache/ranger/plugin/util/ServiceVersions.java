@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Objects;
+
+/**
+ * Versions of policies, tags, roles and GDS info of a service; returned by Ranger Admin to plugins waiting for
+ * changes in any of these.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ServiceVersions implements java.io.Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String serviceName;
+    private Long   policyVersion;
+    private Long   tagVersion;
+    private Long   roleVersion;
+    private Long   gdsVersion;
+
+    public ServiceVersions() {
+    }
+
+    public ServiceVersions(String serviceName, Long policyVersion, Long tagVersion, Long roleVersion, Long gdsVersion) {
+        this.serviceName   = serviceName;
+        this.policyVersion = policyVersion;
+        this.tagVersion    = tagVersion;
+        this.roleVersion   = roleVersion;
+        this.gdsVersion    = gdsVersion;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public Long getPolicyVersion() {
+        return policyVersion;
+    }
+
+    public void setPolicyVersion(Long policyVersion) {
+        this.policyVersion = policyVersion;
+    }
+
+    public Long getTagVersion() {
+        return tagVersion;
+    }
+
+    public void setTagVersion(Long tagVersion) {
+        this.tagVersion = tagVersion;
+    }
+
+    public Long getRoleVersion() {
+        return roleVersion;
+    }
+
+    public void setRoleVersion(Long roleVersion) {
+        this.roleVersion = roleVersion;
+    }
+
+    public Long getGdsVersion() {
+        return gdsVersion;
+    }
+
+    public void setGdsVersion(Long gdsVersion) {
+        this.gdsVersion = gdsVersion;
+    }
+
+    /**
+     * Checks if these versions differ from the ones known to a client. Only the versions the client knows, i.e. not
+     * null in lastKnown, are compared; when the client knows none of the versions, it is treated as a change.
+     */
+    public boolean isChangedFrom(ServiceVersions lastKnown) {
+        if (lastKnown == null || lastKnown.isEmpty()) {
+            return true;
+        }
+
+        return isChanged(lastKnown.policyVersion, policyVersion) ||
+                isChanged(lastKnown.tagVersion, tagVersion) ||
+                isChanged(lastKnown.roleVersion, roleVersion) ||
+                isChanged(lastKnown.gdsVersion, gdsVersion);
+    }
+
+    public boolean isEmpty() {
+        return policyVersion == null && tagVersion == null && roleVersion == null && gdsVersion == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serviceName, policyVersion, tagVersion, roleVersion, gdsVersion);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        ServiceVersions other = (ServiceVersions) obj;
+
+        return Objects.equals(serviceName, other.serviceName) &&
+                Objects.equals(policyVersion, other.policyVersion) &&
+                Objects.equals(tagVersion, other.tagVersion) &&
+                Objects.equals(roleVersion, other.roleVersion) &&
+                Objects.equals(gdsVersion, other.gdsVersion);
+    }
+
+    @Override
+    public String toString() {
+        return toString(new StringBuilder()).toString();
+    }
+
+    public StringBuilder toString(StringBuilder sb) {
+        sb.append("ServiceVersions={");
+        sb.append("serviceName={").append(serviceName).append("} ");
+        sb.append("policyVersion={").append(policyVersion).append("} ");
+        sb.append("tagVersion={").append(tagVersion).append("} ");
+        sb.append("roleVersion={").append(roleVersion).append("} ");
+        sb.append("gdsVersion={").append(gdsVersion).append("} ");
+        sb.append("}");
+
+        return sb;
+    }
+
+    private static boolean isChanged(Long lastKnownVersion, Long currentVersion) {
+        return lastKnownVersion != null && !lastKnownVersion.equals(currentVersion);
+    }
+}
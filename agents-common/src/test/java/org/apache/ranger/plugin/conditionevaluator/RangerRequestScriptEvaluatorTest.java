@@ -33,6 +33,7 @@
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.script.Compilable;
 import javax.script.ScriptEngine;
 
 import java.io.File;
@@ -531,6 +532,35 @@ public void testGetAllTagTypes() {
         Assertions.assertEquals(new HashSet<>(Arrays.asList("PCI", "PII")), evaluator.evaluateScript("ctx.getAllTagTypes()"));
     }
 
+    @Test
+    public void testPreparedScripts() {
+        RangerAccessRequest          request   = createRequest("test-user", Collections.singleton("test-group1"), Collections.singleton("test-role1"), Collections.emptyList());
+        RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, true);
+
+        String[] simpleScripts = {"IS_IN_GROUP('test-group1')", "!IS_IN_GROUP('test-group1')", "IS_IN_ROLE('notExists')", "IS_IN_ANY_GROUP", "IS_NOT_IN_ANY_ROLE", "USER.state == 'CA'", "USER['state'] !== 'CA'", "USER.state", "USER.notExists"};
+
+        for (String script : simpleScripts) {
+            RangerRequestScriptEvaluator.PreparedScript preparedScript = RangerRequestScriptEvaluator.prepareScript(script, scriptEngine);
+
+            Assertions.assertTrue(preparedScript.isSimpleExpression(), "test: " + script + " is simple");
+            Assertions.assertEquals(evaluator.evaluateScript(preparedScript), new RangerRequestScriptEvaluator(request, scriptEngine, true).evaluateScript(script), "test: " + script);
+        }
+
+        Assertions.assertEquals(true, evaluator.evaluateScript(RangerRequestScriptEvaluator.prepareScript("IS_IN_GROUP('test-group1')", scriptEngine)));
+        Assertions.assertEquals("CA", evaluator.evaluateScript(RangerRequestScriptEvaluator.prepareScript("USER.state", scriptEngine)));
+
+        String[] complexScripts = {"USER.state = 'NY'", "UG['test-group1'].dept == 'ENGG'", "IS_IN_GROUP('test-group1') && IS_IN_ROLE('test-role1')", "USER.state == 'C\\'A'"};
+
+        for (String script : complexScripts) {
+            RangerRequestScriptEvaluator.PreparedScript preparedScript = RangerRequestScriptEvaluator.prepareScript(script, scriptEngine);
+
+            Assertions.assertFalse(preparedScript.isSimpleExpression(), "test: " + script + " is not simple");
+            Assertions.assertEquals(scriptEngine instanceof Compilable, preparedScript.isCompiled(), "test: " + script + " is compiled");
+        }
+
+        Assertions.assertEquals(true, evaluator.evaluateScript(RangerRequestScriptEvaluator.prepareScript("IS_IN_GROUP('test-group1') && IS_IN_ROLE('test-role1')", scriptEngine)));
+    }
+
     RangerAccessRequest createRequest(String userName, Set<String> userGroups, Set<String> userRoles, List<RangerTag> resourceTags) {
         RangerAccessResource resource = mock(RangerAccessResource.class);
 
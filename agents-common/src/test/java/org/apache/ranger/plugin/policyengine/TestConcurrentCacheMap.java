@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConcurrentCacheMap {
+    @Test
+    public void testPutGetRemove() {
+        ConcurrentCacheMap<String, String> cache = new ConcurrentCacheMap<>(64, 4);
+
+        for (int i = 0; i < 16; i++) {
+            cache.put(String.valueOf(i), "value-" + i);
+        }
+
+        assertEquals(16, cache.size());
+        assertEquals("value-3", cache.get("3"));
+        assertEquals("value-3", cache.put("3", "new-value-3"));
+        assertEquals("new-value-3", cache.get("3"));
+        assertEquals("new-value-3", cache.remove("3"));
+        assertNull(cache.get("3"));
+        assertFalse(cache.containsKey("3"));
+        assertEquals(15, cache.size());
+        assertEquals(15, cache.entrySet().size());
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictionPrefersUnreferencedEntries() {
+        ConcurrentCacheMap<String, String> cache = new ConcurrentCacheMap<>(8, 1);
+
+        for (int i = 0; i < 8; i++) {
+            cache.put(String.valueOf(i), String.valueOf(i));
+        }
+
+        // reference the first half; the unreferenced second half must be evicted first
+        for (int i = 0; i < 4; i++) {
+            cache.get(String.valueOf(i));
+        }
+
+        for (int i = 8; i < 12; i++) {
+            cache.put(String.valueOf(i), String.valueOf(i));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(String.valueOf(i), cache.get(String.valueOf(i)));
+        }
+
+        for (int i = 4; i < 8; i++) {
+            assertNull(cache.get(String.valueOf(i)));
+        }
+
+        assertEquals(8, cache.size());
+        assertEquals(4, cache.getEvictionCount());
+        assertEquals(8, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testRemoveKeepsCapacity() {
+        ConcurrentCacheMap<String, String> cache = new ConcurrentCacheMap<>(4, 1);
+
+        for (int i = 0; i < 4; i++) {
+            cache.put(String.valueOf(i), String.valueOf(i));
+        }
+
+        cache.remove("1");
+        cache.put("4", "4");
+
+        assertEquals(4, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+
+        cache.put("5", "5");
+
+        assertEquals(4, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testConcurrentAccessStaysBounded() throws Exception {
+        final int                                  capacity = 1024;
+        final ConcurrentCacheMap<Integer, Integer> cache    = new ConcurrentCacheMap<>(capacity);
+        final ExecutorService                      executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>>                      futures  = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int key = (i * 31 + seed) % (4 * capacity);
+
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    } else if (i % 101 == 0) {
+                        cache.remove(key);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(cache.size() <= capacity, "size=" + cache.size());
+        assertTrue(cache.getEvictionCount() > 0);
+
+        for (Integer key : cache.keySet()) {
+            assertEquals(key, cache.get(key));
+        }
+    }
+}
@@ -29,6 +29,11 @@
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -66,7 +71,9 @@ public class TestPathResourceTrie {
             EVAL_TMPdTXT,
             EVAL_TMPA_B);
 
-    private final RangerResourceTrie<RangerResourceEvaluator> trie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+    private final RangerResourceTrie<RangerResourceEvaluator> trie             = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+    private final RangerResourceTrie<RangerResourceEvaluator> compactTrie      = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, false, false, true, null);
+    private final RangerResourceTrie<RangerResourceEvaluator> compactSpaceTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, false, true, true, null);
 
     @Test
     public void testChildrenScope() {
@@ -113,11 +120,173 @@ public void testSelfScope() {
         verifyEvaluators("invalid: does-not-begin-with-sep", scope);
     }
 
+    @Test
+    public void testCompactTrieUpdate() {
+        final RangerResourceEvaluator evalTmpAbc = getEvaluator("/tmp/abc");
+        final RangerResourceEvaluator evalHome   = getEvaluator("/home/*");
+
+        RangerResourceTrie<RangerResourceEvaluator> updatedTrie = new RangerResourceTrie<>(compactTrie);
+
+        updatedTrie.delete(EVAL_TMP_AB.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), EVAL_TMP_AB);
+        updatedTrie.add(evalTmpAbc.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalTmpAbc);
+        updatedTrie.add(evalHome.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalHome);
+        updatedTrie.wrapUpUpdate();
+
+        List<RangerResourceEvaluator> updatedEvaluators = new ArrayList<>(EVALUATORS);
+
+        updatedEvaluators.remove(EVAL_TMP_AB);
+        updatedEvaluators.add(evalTmpAbc);
+        updatedEvaluators.add(evalHome);
+
+        RangerResourceTrie<RangerResourceEvaluator> expectedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, updatedEvaluators);
+
+        for (String resource : Arrays.asList("/", "/tmp", "/tmp/", "/tmp/ab", "/tmp/abc", "/home", "/home/user1", "/unmatched")) {
+            for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                assertEquals(expectedTrie.getEvaluatorsForResource(resource, scope), updatedTrie.getEvaluatorsForResource(resource, scope), "incorrect evaluators for resource " + resource + ", scope " + scope);
+            }
+        }
+
+        // the trie that was copied must be unchanged
+        verifyEvaluators("/tmp/ab", ResourceElementMatchingScope.SELF, EVAL_, EVAL_TMP_AB);
+    }
+
+    @Test
+    public void testCompactTrieUpdateWithEqualWildcardEvaluators() {
+        // after setup, wildcardEvaluators of /data/ and /data/x/ are equal sets, but not shared: compact() interns both to one instance
+        final RangerResourceEvaluator       evalData   = new TestPolicyResourceEvaluator(new RangerPolicyResource(Arrays.asList("/data/*", "/data/x/*"), false, true));
+        final RangerResourceEvaluator       evalDataX  = getEvaluator("/data/x/*");
+        final List<RangerResourceEvaluator> evaluators = Collections.singletonList(evalData);
+        final List<String>                  resources  = Arrays.asList("/data", "/data/", "/data/y", "/data/x", "/data/x/", "/data/x/y");
+
+        RangerResourceTrie<RangerResourceEvaluator> updatedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, evaluators, false, false, true, null);
+
+        updatedTrie.add(evalDataX.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalDataX);
+        updatedTrie.wrapUpUpdate();
+
+        RangerResourceTrie<RangerResourceEvaluator> expectedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, Arrays.asList(evalData, evalDataX));
+
+        for (String resource : resources) {
+            for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                assertEquals(expectedTrie.getEvaluatorsForResource(resource, scope), updatedTrie.getEvaluatorsForResource(resource, scope), "incorrect evaluators for resource " + resource + ", scope " + scope);
+            }
+        }
+
+        updatedTrie.delete(evalDataX.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalDataX);
+        updatedTrie.wrapUpUpdate();
+
+        expectedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, evaluators);
+
+        for (String resource : resources) {
+            for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                assertEquals(expectedTrie.getEvaluatorsForResource(resource, scope), updatedTrie.getEvaluatorsForResource(resource, scope), "incorrect evaluators after delete for resource " + resource + ", scope " + scope);
+            }
+        }
+    }
+
+    @Test
+    public void testCopyOnWriteTrieUpdate() {
+        final RangerResourceEvaluator evalTmpAbc = getEvaluator("/tmp/abc");
+        final RangerResourceEvaluator evalTmpAll   = getEvaluator("/tmp/*");
+        final RangerResourceEvaluator evalHome   = getEvaluator("/home/*");
+        final List<String>            resources  = Arrays.asList("/", "/tmp", "/tmp/", "/tmp/a", "/tmp/ab", "/tmp/abc", "/tmp/ac/d/e", "/tmpfile", "/home", "/home/user1", "/unmatched");
+
+        List<RangerResourceEvaluator> updatedEvaluators = new ArrayList<>(EVALUATORS);
+
+        updatedEvaluators.remove(EVAL_);
+        updatedEvaluators.remove(EVAL_TMP_AB);
+        updatedEvaluators.remove(EVAL_TMP_nr);
+        updatedEvaluators.add(evalTmpAbc);
+        updatedEvaluators.add(evalTmpAll);
+        updatedEvaluators.add(evalHome);
+
+        for (boolean isOptimizedForRetrieval : new boolean[] {false, true}) {
+            for (boolean isOptimizedForSpace : new boolean[] {false, true}) {
+                for (boolean isCompactLayout : new boolean[] {false, true}) {
+                    final String layout = "optimizedForRetrieval=" + isOptimizedForRetrieval + ", optimizedForSpace=" + isOptimizedForSpace + ", compactLayout=" + isCompactLayout;
+
+                    RangerResourceTrie<RangerResourceEvaluator> originalTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout, null);
+                    RangerResourceTrie<RangerResourceEvaluator> expectedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout, null);
+
+                    // set up nodes of the original trie that are not set up at init
+                    for (String resource : resources) {
+                        originalTrie.getEvaluatorsForResource(resource, ResourceElementMatchingScope.SELF_OR_CHILD);
+                    }
+
+                    RangerResourceTrie<RangerResourceEvaluator> updatedTrie = new RangerResourceTrie<>(originalTrie, true);
+
+                    updatedTrie.delete(EVAL_.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), EVAL_);
+                    updatedTrie.delete(EVAL_TMP_AB.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), EVAL_TMP_AB);
+                    updatedTrie.delete(EVAL_TMP_nr.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), EVAL_TMP_nr);
+                    updatedTrie.add(evalTmpAbc.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalTmpAbc);
+                    updatedTrie.add(evalTmpAll.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalTmpAll);
+                    updatedTrie.add(evalHome.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evalHome);
+                    updatedTrie.wrapUpUpdate();
+
+                    RangerResourceTrie<RangerResourceEvaluator> expectedUpdatedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, updatedEvaluators, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout, null);
+
+                    for (String resource : resources) {
+                        for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                            assertEquals(expectedUpdatedTrie.getEvaluatorsForResource(resource, scope), updatedTrie.getEvaluatorsForResource(resource, scope), layout + ": incorrect evaluators for resource " + resource + ", scope " + scope);
+
+                            // the trie that was copied must be unchanged
+                            assertEquals(expectedTrie.getEvaluatorsForResource(resource, scope), originalTrie.getEvaluatorsForResource(resource, scope), layout + ": incorrect evaluators in original trie for resource " + resource + ", scope " + scope);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTrieSnapshot() throws Exception {
+        final List<String>                  resources  = Arrays.asList("/", "/tmp", "/tmp/", "/tmp/a", "/tmp/ab", "/tmp/abc", "/tmp/ac/d/e", "/tmpfile", "/home", "/home/user1", "/unmatched");
+        final List<RangerResourceEvaluator> evaluators = new ArrayList<>(EVALUATORS);
+
+        evaluators.add(getEvaluator("/tmp/*"));
+        evaluators.add(getEvaluator("/home/*"));
+
+        for (boolean isOptimizedForRetrieval : new boolean[] {false, true}) {
+            for (boolean isOptimizedForSpace : new boolean[] {false, true}) {
+                for (boolean isCompactLayout : new boolean[] {false, true}) {
+                    final String layout = "optimizedForRetrieval=" + isOptimizedForRetrieval + ", optimizedForSpace=" + isOptimizedForSpace + ", compactLayout=" + isCompactLayout;
+
+                    RangerResourceTrie<RangerResourceEvaluator> trie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, evaluators, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout, null);
+
+                    // set up nodes that are not set up at init, as the snapshot must not include evaluators added by setup
+                    for (String resource : resources.subList(0, 5)) {
+                        trie.getEvaluatorsForResource(resource, ResourceElementMatchingScope.SELF_OR_CHILD);
+                    }
+
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+                    try (DataOutputStream out = new DataOutputStream(bytes)) {
+                        trie.writeSnapshot(out, evaluators::indexOf);
+                    }
+
+                    RangerResourceTrie<RangerResourceEvaluator> loadedTrie;
+
+                    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                        loadedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, in, evaluators::get, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout);
+                    }
+
+                    RangerResourceTrie<RangerResourceEvaluator> expectedTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, evaluators, isOptimizedForRetrieval, isOptimizedForSpace, isCompactLayout, null);
+
+                    for (String resource : resources) {
+                        for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+                            assertEquals(expectedTrie.getEvaluatorsForResource(resource, scope), loadedTrie.getEvaluatorsForResource(resource, scope), layout + ": incorrect evaluators for resource " + resource + ", scope " + scope);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private void verifyEvaluators(String resource, ResourceElementMatchingScope scope, RangerResourceEvaluator... evaluators) {
         Set<RangerResourceEvaluator> expected = evaluators.length == 0 ? null : new HashSet<>(Arrays.asList(evaluators));
-        Set<RangerResourceEvaluator> result   = trie.getEvaluatorsForResource(resource, scope);
 
-        assertEquals(expected, result, "incorrect evaluators for resource " + resource);
+        assertEquals(expected, trie.getEvaluatorsForResource(resource, scope), "incorrect evaluators for resource " + resource);
+        assertEquals(expected, compactTrie.getEvaluatorsForResource(resource, scope), "incorrect evaluators for resource " + resource + " in compact trie");
+        assertEquals(expected, compactSpaceTrie.getEvaluatorsForResource(resource, scope), "incorrect evaluators for resource " + resource + " in compact trie optimized for space");
     }
 
     private static RangerResourceDef getPathResourceDef() {
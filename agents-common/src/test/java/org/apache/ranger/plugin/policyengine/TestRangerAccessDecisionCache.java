@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerValiditySchedule;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerAccessDecisionCache {
+    private static final String SERVICE_TYPE = "hive";
+    private static final String SERVICE_NAME = "test-decision-cache";
+
+    @Test
+    public void testSizeIsBounded() {
+        RangerAccessDecisionCache            cache      = new RangerAccessDecisionCache(256, 4);
+        RangerAccessDecisionCache.Generation generation = cache.getGeneration();
+
+        for (int i = 0; i < 10_000; i++) {
+            generation.put("key-" + i, createResult(i));
+        }
+
+        assertTrue(cache.size() <= cache.getMaxSize(), "size=" + cache.size());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testFrequentlyUsedEntriesSurviveScan() {
+        RangerAccessDecisionCache            cache      = new RangerAccessDecisionCache(1000, 1);
+        RangerAccessDecisionCache.Generation generation = cache.getGeneration();
+
+        for (int i = 0; i < 100; i++) {
+            generation.put("hot-" + i, createResult(i));
+        }
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertNotNull(generation.get("hot-" + i));
+            }
+        }
+
+        // a scan of keys that are seen only once must not flush the frequently used keys
+        for (int i = 0; i < 5000; i++) {
+            generation.put("cold-" + i, createResult(i));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(generation.get("hot-" + i), "hot-" + i);
+        }
+    }
+
+    @Test
+    public void testInvalidateDiscardsCachedDecisions() {
+        RangerAccessDecisionCache            cache         = new RangerAccessDecisionCache(100);
+        RangerAccessDecisionCache.Generation oldGeneration = cache.getGeneration();
+
+        oldGeneration.put("key", createResult(1));
+
+        cache.invalidate();
+
+        // decision computed before the invalidation, stored after it
+        oldGeneration.put("late-key", createResult(2));
+
+        assertNotSame(oldGeneration, cache.getGeneration());
+        assertNull(cache.getGeneration().get("key"));
+        assertNull(cache.getGeneration().get("late-key"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testSignature() {
+        RangerAccessRequestImpl request1 = createRequest("user1", new HashSet<>(Arrays.asList("g1", "g2")), "db1", "tbl1", "select");
+        RangerAccessRequestImpl request2 = createRequest("user1", new HashSet<>(Arrays.asList("g2", "g1")), "db1", "tbl1", "select");
+
+        assertEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(request2, 1, 1));
+        assertNotEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(request1, 2, 1));
+        assertNotEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(request1, 1, 2));
+        assertNotEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(createRequest("user2", null, "db1", "tbl1", "select"), 1, 1));
+        assertNotEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(createRequest("user1", request1.getUserGroups(), "db1", "tbl1", "update"), 1, 1));
+
+        // audit filters can match on action
+        RangerAccessRequestImpl request3 = createRequest("user1", request1.getUserGroups(), "db1", "tbl1", "select");
+
+        request3.setAction("drop");
+
+        assertNotEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(request3, 1, 1));
+
+        request2.setClientIPAddress("10.0.0.1");
+
+        assertNotEquals(RangerAccessDecisionCache.getSignature(request1, 1, 1), RangerAccessDecisionCache.getSignature(request2, 1, 1));
+
+        RangerAccessRequestUtil.setAllRequestedAccessTypes(request1.getContext(), new HashSet<>(Arrays.asList("select", "update")));
+
+        assertNull(RangerAccessDecisionCache.getSignature(request1, 1, 1));
+    }
+
+    @Test
+    public void testPolicyEngineUsesDecisionCache() throws Exception {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.disablePolicyRefresher    = true;
+        options.disableTagRetriever       = true;
+        options.disableUserStoreRetriever = true;
+        options.disableGdsInfoRetriever   = true;
+        options.enableDecisionCache       = true;
+
+        RangerPluginContext       pluginContext = new RangerPluginContext(new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, "test", "cl1", "on-prem", options));
+        RangerAccessDecisionCache decisionCache = pluginContext.getDecisionCache();
+
+        assertNotNull(decisionCache);
+
+        RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(createServicePolicies(1L, true), pluginContext, null);
+
+        RangerAccessResult result1 = policyEngine.evaluatePolicies(createRequest("user1", null, "db1", "tbl1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+        RangerAccessResult result2 = policyEngine.evaluatePolicies(createRequest("user1", null, "db1", "tbl1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+        assertTrue(result1.getIsAllowed());
+        assertTrue(result2.getIsAllowed());
+        assertEquals(result1.getPolicyId(), result2.getPolicyId());
+        assertEquals(1, decisionCache.getHitCount());
+        assertEquals(1, decisionCache.getMissCount());
+
+        // a new engine with a newer policy version must not see decisions made by the previous one
+        policyEngine = new RangerPolicyEngineImpl(createServicePolicies(2L, false), pluginContext, null);
+
+        RangerAccessResult result3 = policyEngine.evaluatePolicies(createRequest("user1", null, "db1", "tbl1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+        assertFalse(result3.getIsAllowed());
+        assertEquals(1, decisionCache.getHitCount());
+
+        pluginContext.notifyAuthContextChanged();
+
+        assertEquals(0, decisionCache.size());
+    }
+
+    @Test
+    public void testValidityScheduleBypassesDecisionCache() throws Exception {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.disablePolicyRefresher    = true;
+        options.disableTagRetriever       = true;
+        options.disableUserStoreRetriever = true;
+        options.disableGdsInfoRetriever   = true;
+        options.enableDecisionCache       = true;
+
+        RangerPluginContext       pluginContext   = new RangerPluginContext(new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, "test", "cl1", "on-prem", options));
+        RangerAccessDecisionCache decisionCache   = pluginContext.getDecisionCache();
+        ServicePolicies           servicePolicies = createServicePolicies(1L, true);
+
+        servicePolicies.getPolicies().get(0).setValiditySchedules(Collections.singletonList(new RangerValiditySchedule("2020/01/01 00:00:00", "2030/01/01 00:00:00", "GMT", null)));
+
+        RangerPolicyEngineImpl engine = new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+
+        assertTrue(engine.getPolicyEngine().hasConditionalAccessPolicies());
+
+        SimpleDateFormat        dateFormat = new SimpleDateFormat(RangerValiditySchedule.VALIDITY_SCHEDULE_DATE_STRING_SPECIFICATION);
+        RangerAccessRequestImpl request1   = createRequest("user1", null, "db1", "tbl1", "select");
+        RangerAccessRequestImpl request2   = createRequest("user1", null, "db1", "tbl1", "select");
+
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        request1.setAccessTime(dateFormat.parse("2025/06/01 00:00:00"));
+        request2.setAccessTime(dateFormat.parse("2031/06/01 00:00:00"));
+
+        // requests differ only in accessTime, which is not part of the signature; the decision for the first must not be reused after the policy expires
+        assertTrue(engine.evaluatePolicies(request1, RangerPolicy.POLICY_TYPE_ACCESS, null).getIsAllowed());
+        assertFalse(engine.evaluatePolicies(request2, RangerPolicy.POLICY_TYPE_ACCESS, null).getIsAllowed());
+        assertEquals(0, decisionCache.getHitCount());
+        assertEquals(0, decisionCache.getMissCount());
+        assertEquals(0, decisionCache.size());
+    }
+
+    private static RangerAccessResult createResult(long policyId) {
+        RangerAccessResult ret = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, SERVICE_NAME, null, null);
+
+        ret.setIsAllowed(true);
+        ret.setPolicyId(policyId);
+
+        return ret;
+    }
+
+    private static RangerAccessRequestImpl createRequest(String user, Set<String> groups, String database, String table, String accessType) {
+        Map<String, Object> resource = new HashMap<>();
+
+        resource.put("database", database);
+        resource.put("table", table);
+
+        RangerAccessRequestImpl ret = new RangerAccessRequestImpl(new RangerAccessResourceImpl(resource), accessType, user, groups, null);
+
+        ret.setAction(accessType);
+
+        return ret;
+    }
+
+    private static ServicePolicies createServicePolicies(long version, boolean isAllow) throws Exception {
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceName(SERVICE_NAME);
+        ret.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(SERVICE_TYPE));
+        ret.setPolicyVersion(version);
+
+        Map<String, RangerPolicy.RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicy.RangerPolicyResource("db1"));
+        resources.put("table", new RangerPolicy.RangerPolicyResource("*"));
+        resources.put("column", new RangerPolicy.RangerPolicyResource("*"));
+
+        RangerPolicy.RangerPolicyItem item = new RangerPolicy.RangerPolicyItem();
+
+        item.setUsers(Collections.singletonList("user1"));
+        item.setAccesses(Collections.singletonList(new RangerPolicy.RangerPolicyItemAccess("select")));
+
+        RangerPolicy policy = new RangerPolicy();
+
+        policy.setId(version);
+        policy.setName("policy-" + version);
+        policy.setService(SERVICE_NAME);
+        policy.setIsEnabled(true);
+        policy.setResources(resources);
+
+        if (isAllow) {
+            policy.setPolicyItems(Collections.singletonList(item));
+        } else {
+            policy.setDenyPolicyItems(Collections.singletonList(item));
+        }
+
+        ret.setPolicies(Collections.singletonList(policy));
+
+        return ret;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerPolicyEngineBatchEvaluation {
+    private static final String SERVICE_TYPE = "hive";
+    private static final String SERVICE_NAME = "test-batch-evaluation";
+
+    @Test
+    public void testBatchEvaluationMatchesSequentialEvaluation() throws Exception {
+        RangerPluginContext batchContext      = createPluginContext(true);
+        RangerPluginContext sequentialContext = createPluginContext(false);
+
+        assertNotNull(batchContext.getBatchEvaluationPool());
+        assertNull(sequentialContext.getBatchEvaluationPool());
+
+        RangerPolicyEngine batchEngine      = new RangerPolicyEngineImpl(createServicePolicies(), batchContext, null);
+        RangerPolicyEngine sequentialEngine = new RangerPolicyEngineImpl(createServicePolicies(), sequentialContext, null);
+
+        List<RangerAccessRequest> batchRequests      = createRequests();
+        List<RangerAccessRequest> sequentialRequests = createRequests();
+        List<RangerAccessResult>  processed          = new ArrayList<>();
+
+        Collection<RangerAccessResult> batchResults      = batchEngine.evaluatePolicies(batchRequests, RangerPolicy.POLICY_TYPE_ACCESS, new TestResultProcessor(processed));
+        Collection<RangerAccessResult> sequentialResults = sequentialEngine.evaluatePolicies(sequentialRequests, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+        assertEquals(batchRequests.size(), batchResults.size());
+        assertEquals(sequentialResults.size(), batchResults.size());
+        assertEquals(new ArrayList<>(batchResults), processed);
+
+        Iterator<RangerAccessRequest> iterRequests   = batchRequests.iterator();
+        Iterator<RangerAccessResult>  iterSequential = sequentialResults.iterator();
+
+        for (RangerAccessResult result : batchResults) {
+            RangerAccessResult expected = iterSequential.next();
+
+            assertSame(iterRequests.next(), result.getAccessRequest());
+            assertEquals(expected.getIsAllowed(), result.getIsAllowed(), result.getAccessRequest().toString());
+            assertEquals(expected.getIsAccessDetermined(), result.getIsAccessDetermined());
+            assertEquals(expected.getPolicyId(), result.getPolicyId());
+            assertEquals(expected.getIsAudited(), result.getIsAudited());
+        }
+    }
+
+    @Test
+    public void testRequestsDifferingInActionAreNotDeduplicated() throws Exception {
+        ServicePolicies servicePolicies = createServicePolicies();
+
+        servicePolicies.setServiceConfig(Collections.singletonMap(RangerPolicyEngine.PLUGIN_AUDIT_FILTER, "[ {'actions': ['drop'], 'isAudited': false} ]"));
+
+        RangerPolicyEngineImpl    engine   = new RangerPolicyEngineImpl(servicePolicies, createPluginContext(true), null);
+        List<RangerAccessRequest> requests = new ArrayList<>();
+
+        assertFalse(engine.getPolicyEngine().hasConditionalAccessPolicies());
+
+        // same user, resource and access type; only the action differs
+        for (int i = 0; i < 20; i++) {
+            RangerAccessRequestImpl request = (RangerAccessRequestImpl) createRequest("user1", "db1", "tbl1", "col" + (i % 2), "select");
+
+            request.setAction(i % 4 < 2 ? "select" : "drop");
+
+            requests.add(request);
+        }
+
+        for (RangerAccessResult result : engine.evaluatePolicies(requests, RangerPolicy.POLICY_TYPE_ACCESS, null)) {
+            assertTrue(result.getIsAllowed());
+            assertEquals(!"drop".equals(result.getAccessRequest().getAction()), result.getIsAudited(), result.getAccessRequest().toString());
+        }
+    }
+
+    private static RangerPluginContext createPluginContext(boolean enableParallelBatchEvaluation) {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.disablePolicyRefresher        = true;
+        options.disableTagRetriever           = true;
+        options.disableUserStoreRetriever     = true;
+        options.disableGdsInfoRetriever       = true;
+        options.enableParallelBatchEvaluation = enableParallelBatchEvaluation;
+
+        RangerPluginConfig config = new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, "test", "cl1", "on-prem", options);
+
+        config.setInt(config.getPropertyPrefix() + RangerPluginContext.BATCH_EVALUATION_PARALLELISM_SUFFIX, 4);
+        config.setInt(config.getPropertyPrefix() + RangerPluginContext.BATCH_EVALUATION_MIN_SIZE_SUFFIX, 8);
+
+        return new RangerPluginContext(config);
+    }
+
+    private static List<RangerAccessRequest> createRequests() {
+        List<RangerAccessRequest> ret = new ArrayList<>();
+
+        // tables interleaved, with every request repeated, to exercise both re-ordering and de-duplication
+        for (int round = 0; round < 2; round++) {
+            for (int col = 0; col < 50; col++) {
+                for (String table : new String[] {"tbl1", "tbl2", "secret"}) {
+                    for (String user : new String[] {"user1", "user2"}) {
+                        ret.add(createRequest(user, "db1", table, "col" + col, "select"));
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static RangerAccessRequest createRequest(String user, String database, String table, String column, String accessType) {
+        Map<String, Object> resource = new HashMap<>();
+
+        resource.put("database", database);
+        resource.put("table", table);
+        resource.put("column", column);
+
+        RangerAccessRequestImpl ret = new RangerAccessRequestImpl(new RangerAccessResourceImpl(resource), accessType, user, null, null);
+
+        ret.setAction(accessType);
+
+        return ret;
+    }
+
+    private static ServicePolicies createServicePolicies() throws Exception {
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceName(SERVICE_NAME);
+        ret.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(SERVICE_TYPE));
+        ret.setPolicyVersion(1L);
+
+        List<RangerPolicy> policies = new ArrayList<>();
+
+        policies.add(createPolicy(1L, "tbl*", "user1", false));
+        policies.add(createPolicy(2L, "*", "user2", false));
+        policies.add(createPolicy(3L, "secret", "user2", true));
+
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+
+    private static RangerPolicy createPolicy(long id, String table, String user, boolean isDeny) {
+        Map<String, RangerPolicy.RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicy.RangerPolicyResource("db1"));
+        resources.put("table", new RangerPolicy.RangerPolicyResource(table));
+        resources.put("column", new RangerPolicy.RangerPolicyResource("*"));
+
+        RangerPolicy.RangerPolicyItem item = new RangerPolicy.RangerPolicyItem();
+
+        item.setUsers(Collections.singletonList(user));
+        item.setAccesses(Collections.singletonList(new RangerPolicy.RangerPolicyItemAccess("select")));
+
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setService(SERVICE_NAME);
+        ret.setIsEnabled(true);
+        ret.setResources(resources);
+
+        if (isDeny) {
+            ret.setDenyPolicyItems(Collections.singletonList(item));
+        } else {
+            ret.setPolicyItems(Collections.singletonList(item));
+        }
+
+        return ret;
+    }
+
+    private static class TestResultProcessor implements RangerAccessResultProcessor {
+        private final List<RangerAccessResult> processed;
+
+        TestResultProcessor(List<RangerAccessResult> processed) {
+            this.processed = processed;
+        }
+
+        @Override
+        public void processResult(RangerAccessResult result) {
+            processed.add(result);
+        }
+
+        @Override
+        public void processResults(Collection<RangerAccessResult> results) {
+            processed.addAll(results);
+        }
+    }
+}
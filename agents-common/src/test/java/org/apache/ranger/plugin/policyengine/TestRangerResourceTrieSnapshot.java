@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerResourceTrieSnapshot {
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testSnapshotSaveAndLoad() throws Exception {
+        RangerPluginContext    pluginContext = createPluginContext();
+        ServicePolicies        policies      = createServicePolicies(10L, "db1");
+        RangerPolicyRepository builtRepo     = new RangerPolicyRepository(policies, pluginContext);
+        File                   snapshotFile  = new File(tempDir, "hive_dev_hive" + RangerResourceTrieSnapshot.FILE_SUFFIX);
+
+        assertTrue(snapshotFile.isFile(), "snapshot must be saved after building tries");
+
+        RangerPolicyRepository loadedRepo = new RangerPolicyRepository(policies, pluginContext);
+
+        assertNotNull(getSnapshot(pluginContext, 10L).load(loadedRepo.getServiceDef(), getEvaluatorLists(loadedRepo)), "snapshot must match the policies it was saved for");
+
+        for (String database : Arrays.asList("db1", "db2", "finance", "unmatched")) {
+            for (String table : Arrays.asList("tbl1", "tmp_tbl", "unmatched")) {
+                RangerAccessRequest request = createRequest(builtRepo.getServiceDef(), database, table);
+
+                assertEquals(getPolicyIds(builtRepo.getLikelyMatchPolicyEvaluators(request)), getPolicyIds(loadedRepo.getLikelyMatchPolicyEvaluators(request)), "incorrect policies for " + database + "." + table);
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotMismatch() throws Exception {
+        RangerPluginContext    pluginContext = createPluginContext();
+        RangerPolicyRepository repo          = new RangerPolicyRepository(createServicePolicies(10L, "db1"), pluginContext);
+
+        // different policy version
+        assertNull(getSnapshot(pluginContext, 11L).load(repo.getServiceDef(), getEvaluatorLists(repo)));
+
+        // same policy version, with different resources
+        RangerPolicyRepository updatedRepo = new RangerPolicyRepository(createServicePolicies(10L, "db9"), pluginContext);
+
+        assertNull(getSnapshot(pluginContext, 10L).load(updatedRepo.getServiceDef(), getEvaluatorLists(repo)));
+
+        // the snapshot is replaced after building tries for updatedRepo
+        assertNotNull(getSnapshot(pluginContext, 10L).load(updatedRepo.getServiceDef(), getEvaluatorLists(updatedRepo)));
+        assertEquals(new TreeSet<>(Arrays.asList(1L, 4L)), getPolicyIds(updatedRepo.getLikelyMatchPolicyEvaluators(createRequest(updatedRepo.getServiceDef(), "db9", "tbl1"))));
+    }
+
+    private RangerPluginContext createPluginContext() {
+        Properties properties = new Properties();
+
+        properties.setProperty("ranger.plugin.hive.policy.cache.dir", tempDir.getAbsolutePath());
+        properties.setProperty("ranger.plugin.hive.policyengine.option.enable.trie.snapshot", "true");
+        properties.setProperty("ranger.plugin.hive.policyengine.option.optimize.trie.for.retrieval", "true");
+
+        return new RangerPluginContext(new RangerPluginConfig("hive", "dev_hive", "hive", properties));
+    }
+
+    private static RangerResourceTrieSnapshot getSnapshot(RangerPluginContext pluginContext, long policyVersion) {
+        return RangerResourceTrieSnapshot.getSnapshot(pluginContext, pluginContext.getConfig().getPolicyEngineOptions(), "dev_hive", "dev_hive", null, policyVersion);
+    }
+
+    private static List<List<RangerPolicyEvaluator>> getEvaluatorLists(RangerPolicyRepository repo) {
+        return Arrays.asList(repo.getPolicyEvaluators(), repo.getDataMaskPolicyEvaluators(), repo.getRowFilterPolicyEvaluators(), repo.getAuditPolicyEvaluators());
+    }
+
+    private static ServicePolicies createServicePolicies(long policyVersion, String firstDatabase) throws Exception {
+        ServicePolicies    ret      = new ServicePolicies();
+        List<RangerPolicy> policies = new ArrayList<>();
+
+        policies.add(createPolicy(1L, firstDatabase, "*"));
+        policies.add(createPolicy(2L, "db2", "tbl1"));
+        policies.add(createPolicy(3L, "db*", "tmp_*"));
+        policies.add(createPolicy(4L, "*", "*"));
+        policies.add(createPolicy(5L, "fin*", "tbl?"));
+
+        ret.setServiceName("dev_hive");
+        ret.setPolicyVersion(policyVersion);
+        ret.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hive"));
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+
+    private static RangerPolicy createPolicy(long id, String database, String table) {
+        RangerPolicy                      ret       = new RangerPolicy();
+        Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicyResource(database));
+        resources.put("table", new RangerPolicyResource(table));
+        resources.put("column", new RangerPolicyResource("*"));
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setService("dev_hive");
+        ret.setResources(resources);
+        ret.setPolicyItems(Collections.singletonList(new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user1"), null, null, null, false)));
+
+        return ret;
+    }
+
+    private static RangerAccessRequest createRequest(RangerServiceDef serviceDef, String database, String table) {
+        Map<String, Object> elements = new HashMap<>();
+
+        elements.put("database", database);
+        elements.put("table", table);
+        elements.put("column", "col1");
+
+        RangerAccessResourceImpl resource = new RangerAccessResourceImpl(elements);
+
+        resource.setServiceDef(serviceDef);
+
+        return new RangerAccessRequestImpl(resource, "select", "user1", null, null);
+    }
+
+    private static Set<Long> getPolicyIds(List<RangerPolicyEvaluator> evaluators) {
+        Set<Long> ret = new TreeSet<>();
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            ret.add(evaluator.getPolicyId());
+        }
+
+        return ret;
+    }
+}
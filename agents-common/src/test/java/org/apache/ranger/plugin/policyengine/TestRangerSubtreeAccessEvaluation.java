@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerSubtreeAccessEvaluation {
+    private static final String SERVICE_TYPE = "hdfs";
+    private static final String SERVICE_NAME = "test-subtree-evaluation";
+
+    private static RangerPolicyEngine policyEngine;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        List<RangerPolicy> policies = new ArrayList<>();
+
+        policies.add(createPolicy(1L, "/data", true, "user1", false));
+        policies.add(createPolicy(2L, "/data/secret/file.txt", false, "user1", true));
+        policies.add(createPolicy(3L, "/data/logs/*.log", false, "user2", false));
+        policies.add(createPolicy(4L, "/data/tmp/?", true, "user1", true));
+        policies.add(createPolicy(5L, "/home", true, RangerPolicyEngine.RESOURCE_OWNER, false));
+
+        policyEngine = createPolicyEngine(policies);
+    }
+
+    @Test
+    public void testUniformSubtree() {
+        RangerAccessResult result = evaluate("/data/public", "user1");
+
+        assertNotNull(result);
+        assertTrue(result.getIsAccessDetermined());
+        assertTrue(result.getIsAllowed());
+        assertTrue(result.getPolicyId() == 1L);
+
+        // no policy applies to user2 anywhere under /data/public
+        result = evaluate("/data/public/", "user2");
+
+        assertNotNull(result);
+        assertFalse(result.getIsAccessDetermined());
+
+        // no policy applies anywhere under /other
+        result = evaluate("/other", "user1");
+
+        assertNotNull(result);
+        assertFalse(result.getIsAccessDetermined());
+    }
+
+    @Test
+    public void testSubtreeWithPoliciesOnDescendants() {
+        assertNull(evaluate("/", "user1"));
+        assertNull(evaluate("/data", "user1"));
+        assertNull(evaluate("/data/secret", "user1"));
+        assertNull(evaluate("/data/logs", "user2"));
+        assertNull(evaluate("/data/tmp", "user1"));
+    }
+
+    @Test
+    public void testSubtreeWithOwnerPolicy() {
+        assertNull(evaluate("/home/user1", "user1"));
+    }
+
+    @Test
+    public void testSubtreeWithExcludePolicy() throws Exception {
+        RangerPolicy excludePolicy = createPolicy(1L, "/data/x/secret", true, "user1", false);
+
+        excludePolicy.getResources().get("path").setIsExcludes(true);
+
+        RangerPolicyEngine engine = createPolicyEngine(Collections.singletonList(excludePolicy));
+
+        // policy allows user1 access to everything other than /data/x/secret; hence /data/x/secret must be checked individually
+        assertNull(evaluate(engine, "/data/x", "user1"));
+        assertNull(evaluate(engine, "/data", "user1"));
+        assertNull(evaluate(engine, "/other", "user1"));
+    }
+
+    private static RangerAccessResult evaluate(String path, String user) {
+        return evaluate(policyEngine, path, user);
+    }
+
+    private static RangerAccessResult evaluate(RangerPolicyEngine engine, String path, String user) {
+        Map<String, Object> resource = new HashMap<>();
+
+        resource.put("path", path);
+
+        RangerAccessRequestImpl request = new RangerAccessRequestImpl(new RangerAccessResourceImpl(resource, "owner1"), "read", user, Collections.singleton("group1"), null);
+
+        request.setAction("delete");
+
+        return engine.evaluatePoliciesForDescendants(request, RangerPolicy.POLICY_TYPE_ACCESS);
+    }
+
+    private static RangerPolicyEngine createPolicyEngine(List<RangerPolicy> policies) throws Exception {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.disablePolicyRefresher    = true;
+        options.disableTagRetriever       = true;
+        options.disableUserStoreRetriever = true;
+        options.disableGdsInfoRetriever   = true;
+
+        RangerPluginConfig config          = new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, "test", "cl1", "on-prem", options);
+        ServicePolicies    servicePolicies = new ServicePolicies();
+
+        servicePolicies.setServiceName(SERVICE_NAME);
+        servicePolicies.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(SERVICE_TYPE));
+        servicePolicies.setPolicyVersion(1L);
+        servicePolicies.setPolicies(new ArrayList<>(policies));
+
+        return new RangerPolicyEngineImpl(servicePolicies, new RangerPluginContext(config), null);
+    }
+
+    private static RangerPolicy createPolicy(long id, String path, boolean isRecursive, String user, boolean isDeny) {
+        Map<String, RangerPolicy.RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("path", new RangerPolicy.RangerPolicyResource(path, false, isRecursive));
+
+        RangerPolicy.RangerPolicyItem item = new RangerPolicy.RangerPolicyItem();
+
+        item.setUsers(Collections.singletonList(user));
+        item.setAccesses(Collections.singletonList(new RangerPolicy.RangerPolicyItemAccess("read")));
+
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setService(SERVICE_NAME);
+        ret.setIsEnabled(true);
+        ret.setResources(resources);
+
+        if (isDeny) {
+            ret.setDenyPolicyItems(Collections.singletonList(item));
+        } else {
+            ret.setPolicyItems(Collections.singletonList(item));
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerBinaryCacheFormat {
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testWriteReadServicePolicies() throws Exception {
+        ServicePolicies policies = createServicePolicies(100);
+        File            jsonFile = new File(tempDir, "hiveServer2_dev_hive.json");
+        File            binFile  = RangerBinaryCacheFormat.getBinaryCacheFile(jsonFile);
+
+        Files.write(jsonFile.toPath(), JsonUtils.objectToJson(policies).getBytes());
+
+        assertEquals(new File(tempDir, "hiveServer2_dev_hive.bin"), binFile);
+        assertTrue(RangerBinaryCacheFormat.writeCacheFile(jsonFile, policies, JsonUtils.getMapper()));
+        assertTrue(binFile.exists());
+        assertFalse(jsonFile.exists(), "JSON cache file must be removed once the binary cache file is written");
+
+        ServicePolicies loaded   = RangerBinaryCacheFormat.readCacheFile(jsonFile, ServicePolicies.class, JsonUtils.getMapper());
+        ServicePolicies fromJson = JsonUtils.jsonToObject(JsonUtils.objectToJson(policies), ServicePolicies.class);
+
+        assertNotNull(loaded);
+        assertEquals(JsonUtils.objectToJson(fromJson), JsonUtils.objectToJson(loaded));
+
+        // repeated strings are stored once in the string table, so the binary file is smaller than the JSON
+        assertTrue(binFile.length() < JsonUtils.objectToJson(policies).length(), "binFileLength=" + binFile.length());
+    }
+
+    @Test
+    public void testReadMissingOrInvalidFile() throws Exception {
+        File jsonFile = new File(tempDir, "dev_s3.json");
+        File binFile  = RangerBinaryCacheFormat.getBinaryCacheFile(jsonFile);
+
+        assertNull(RangerBinaryCacheFormat.readCacheFile(jsonFile, ServicePolicies.class, JsonUtils.getMapper()));
+
+        assertTrue(RangerBinaryCacheFormat.writeCacheFile(jsonFile, createServicePolicies(2), JsonUtils.getMapper()));
+
+        try (RandomAccessFile raf = new RandomAccessFile(binFile, "rw")) {
+            raf.seek(4); // version follows the magic
+            raf.write(RangerBinaryCacheFormat.FORMAT_VERSION + 1);
+        }
+
+        assertNull(RangerBinaryCacheFormat.readCacheFile(jsonFile, ServicePolicies.class, JsonUtils.getMapper()));
+
+        try (RandomAccessFile raf = new RandomAccessFile(binFile, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        assertNull(RangerBinaryCacheFormat.readCacheFile(jsonFile, ServicePolicies.class, JsonUtils.getMapper()));
+
+        RangerBinaryCacheFormat.disableCacheFile(jsonFile);
+
+        assertFalse(binFile.exists());
+    }
+
+    @Test
+    public void testWriteReadServiceTags() {
+        ServiceTags tags = new ServiceTags();
+
+        tags.setServiceName("dev_hive");
+        tags.setTagVersion(5L);
+        tags.setIsDelta(Boolean.FALSE);
+
+        File jsonFile = new File(tempDir, "hiveServer2_dev_hive_tag.json");
+
+        assertTrue(RangerBinaryCacheFormat.writeCacheFile(jsonFile, tags, JsonUtils.getMapper()));
+
+        ServiceTags loaded = RangerBinaryCacheFormat.readCacheFile(jsonFile, ServiceTags.class, JsonUtils.getMapper());
+
+        assertNotNull(loaded);
+        assertEquals(JsonUtils.objectToJson(tags), JsonUtils.objectToJson(loaded));
+
+        RangerBinaryCacheFormat.deleteCacheFile(jsonFile);
+
+        assertFalse(RangerBinaryCacheFormat.getBinaryCacheFile(jsonFile).exists());
+    }
+
+    private static ServicePolicies createServicePolicies(int policyCount) {
+        ServicePolicies    ret      = new ServicePolicies();
+        RangerServiceDef   svcDef   = new RangerServiceDef();
+        List<RangerPolicy> policies = new ArrayList<>();
+
+        svcDef.setName("hive");
+        svcDef.setId(3L);
+
+        for (int i = 0; i < policyCount; i++) {
+            RangerPolicy     policy = new RangerPolicy();
+            RangerPolicyItem item   = new RangerPolicyItem();
+
+            policy.setId((long) i);
+            policy.setName("policy-" + i);
+            policy.setService("dev_hive");
+            policy.setIsAuditEnabled(i % 2 == 0);
+            policy.getResources().put("database", new RangerPolicyResource("db" + (i % 10)));
+            policy.getResources().put("table", new RangerPolicyResource(Arrays.asList("tbl" + i, "tmp_*"), false, i % 3 == 0));
+            policy.getResources().put("column", new RangerPolicyResource("*"));
+
+            item.setUsers(Arrays.asList("user" + (i % 5), "hive"));
+            item.setGroups(Collections.singletonList("public"));
+            item.setAccesses(Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update", Boolean.FALSE)));
+            item.setDelegateAdmin(i % 7 == 0);
+
+            policy.getPolicyItems().add(item);
+
+            policies.add(policy);
+        }
+
+        ret.setServiceName("dev_hive");
+        ret.setServiceId(1L);
+        ret.setPolicyVersion(42L);
+        ret.setPolicyUpdateTime(new Date(1700000000000L));
+        ret.setServiceDef(svcDef);
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+}
@@ -53,12 +53,41 @@ private AuditServerConstants() {}
     public static final String PROP_CONSUMER_MAX_POLL_INTERVAL_MS          = "consumer.max.poll.interval.ms";
     public static final String PROP_CONSUMER_HEARTBEAT_INTERVAL_MS         = "consumer.heartbeat.interval.ms";
     public static final String PROP_CONSUMER_PARTITION_ASSIGNMENT_STRATEGY = "consumer.partition.assignment.strategy";
+    public static final String PROP_CONSUMER_WRITE_MAX_ATTEMPTS            = "consumer.write.max.attempts";
+    public static final String PROP_CONSUMER_RECOVERY_SPOOL_DIR            = "consumer.recovery.spool.dir";
+    public static final String PROP_CONSUMER_RECOVERY_RETRY_INTERVAL_MS    = "consumer.recovery.retry.interval.ms";
+    public static final String PROP_CONSUMER_MAX_PENDING_RETRY_RECORDS     = "consumer.max.pending.retry.records";
+    public static final String PROP_CONSUMER_MAX_INFLIGHT_RECORDS          = "consumer.max.inflight.records";
     public static final String PROP_AUDIT_SERVICE_PRINCIPAL                = "kerberos.principal";
     public static final String PROP_AUDIT_SERVICE_KEYTAB                   = "kerberos.keytab";
     public static final String PROP_KAFKA_PROP_PREFIX                      = "xasecure.audit.destination.kafka";
     public static final String PROP_KAFKA_STARTUP_MAX_RETRIES              = "kafka.startup.max.retries";
     public static final String PROP_KAFKA_STARTUP_RETRY_DELAY_MS           = "kafka.startup.retry.delay.ms";
 
+    // Kafka producer tuning
+    public static final String PROP_PRODUCER_LINGER_MS                     = "producer.linger.ms";
+    public static final String PROP_PRODUCER_BATCH_SIZE                    = "producer.batch.size";
+    public static final String PROP_PRODUCER_BUFFER_MEMORY                 = "producer.buffer.memory";
+    public static final String PROP_PRODUCER_MAX_BLOCK_MS                  = "producer.max.block.ms";
+    public static final String PROP_PRODUCER_COMPRESSION_TYPE              = "producer.compression.type";
+    public static final String PROP_PRODUCER_WAIT_FOR_ACK                  = "producer.wait.for.ack";
+    public static final String PROP_PRODUCER_ACK_TIMEOUT_MS                = "producer.ack.timeout.ms";
+    public static final String PROP_PRODUCER_MAX_INFLIGHT_BYTES            = "producer.max.inflight.bytes";
+    public static final String PROP_PRODUCER_WAL_DIR                       = "producer.wal.dir";
+    public static final String PROP_PRODUCER_WAL_SEGMENT_MAX_BYTES         = "producer.wal.segment.max.bytes";
+    public static final String PROP_PRODUCER_WAL_SYNC                      = "producer.wal.sync";
+    public static final int    DEFAULT_PRODUCER_LINGER_MS                  = 10;
+    public static final int    DEFAULT_PRODUCER_BATCH_SIZE                 = 128 * 1024;
+    public static final long   DEFAULT_PRODUCER_BUFFER_MEMORY              = 128L * 1024 * 1024;
+    public static final long   DEFAULT_PRODUCER_MAX_BLOCK_MS               = 5000;
+    public static final String DEFAULT_PRODUCER_COMPRESSION_TYPE           = "lz4";
+    public static final boolean DEFAULT_PRODUCER_WAIT_FOR_ACK              = false;
+    public static final long   DEFAULT_PRODUCER_ACK_TIMEOUT_MS             = 30000;
+    public static final long   DEFAULT_PRODUCER_MAX_INFLIGHT_BYTES         = 64L * 1024 * 1024;
+    public static final String DEFAULT_PRODUCER_WAL_DIR                    = "/var/log/ranger/ranger-audit-server/audit/wal";
+    public static final long   DEFAULT_PRODUCER_WAL_SEGMENT_MAX_BYTES      = 64L * 1024 * 1024;
+    public static final boolean DEFAULT_PRODUCER_WAL_SYNC                  = true;
+
     // ranger_audits topic configuration
     public static final String PROP_TOPIC_PARTITIONS                       = "topic.partitions";
     public static final String PROP_PARTITIONER_CLASS                      = "partitioner.class";
@@ -97,6 +126,13 @@ private AuditServerConstants() {}
     public static final long   DEFAULT_OFFSET_COMMIT_INTERVAL_MS        = 30000; // 30 seconds
     public static final int    DEFAULT_MAX_POLL_RECORDS                 = 500;   // Kafka default batch size
 
+    // Records failing to be written by a consumer this many times are moved to its local recovery spool, to be written again from there
+    public static final int    DEFAULT_CONSUMER_WRITE_MAX_ATTEMPTS         = 10;
+    public static final String DEFAULT_CONSUMER_RECOVERY_SPOOL_DIR         = "/var/log/audit-consumer-hdfs/recovery";
+    public static final long   DEFAULT_CONSUMER_RECOVERY_RETRY_INTERVAL_MS = 60000; // 1 minute
+    public static final int    DEFAULT_CONSUMER_MAX_PENDING_RETRY_RECORDS  = 10000;
+    public static final int    DEFAULT_CONSUMER_MAX_INFLIGHT_RECORDS       = 50000;
+
     // Kafka consumer rebalancing timeouts (for subscribe mode)
     public static final int    DEFAULT_SESSION_TIMEOUT_MS               = 60000;  // 60 seconds - failure detection
     public static final int    DEFAULT_MAX_POLL_INTERVAL_MS             = 300000; // 5 minutes - max processing time
@@ -41,7 +41,10 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -52,6 +55,8 @@ public class AuditHDFSConsumer extends AuditConsumerBase {
     private static final Logger LOG = LoggerFactory.getLogger(AuditHDFSConsumer.class);
 
     private static final String RANGER_AUDIT_HDFS_CONSUMER_GROUP = AuditServerConstants.DEFAULT_RANGER_AUDIT_HDFS_CONSUMER_GROUP;
+    private static final long   FAILED_WRITE_RETRY_DELAY_MS      = 1000;
+    private static final long   SHUTDOWN_DRAIN_TIMEOUT_MS        = 10000;
 
     // Register AuditHDFSConsumer factory in the audit consumer registry
     static {
@@ -67,8 +72,14 @@ public class AuditHDFSConsumer extends AuditConsumerBase {
     private final Map<String, ConsumerWorker> consumerWorkers = new ConcurrentHashMap<>();
     private final AuditRouterHDFS             auditRouterHDFS;
 
-    private ExecutorService consumerThreadPool;
-    private int             consumerThreadCount  = 1;
+    private ExecutorService     consumerThreadPool;
+    private AuditHDFSRetrySpool retrySpool;
+    private int                 consumerThreadCount     = 1;
+    private int                 writeMaxAttempts        = AuditServerConstants.DEFAULT_CONSUMER_WRITE_MAX_ATTEMPTS;
+    private String              recoverySpoolDir        = AuditServerConstants.DEFAULT_CONSUMER_RECOVERY_SPOOL_DIR;
+    private long                recoveryRetryIntervalMs = AuditServerConstants.DEFAULT_CONSUMER_RECOVERY_RETRY_INTERVAL_MS;
+    private int                 maxPendingRetryRecords  = AuditServerConstants.DEFAULT_CONSUMER_MAX_PENDING_RETRY_RECORDS;
+    private int                 maxInFlightRecords      = AuditServerConstants.DEFAULT_CONSUMER_MAX_INFLIGHT_RECORDS;
 
     // Offset management configuration (batch or manual only supported)
     private String offsetCommitStrategy = AuditServerConstants.DEFAULT_OFFSET_COMMIT_STRATEGY;
@@ -112,21 +123,28 @@ public void shutdown() {
         // Stop consumer threads
         running.set(false);
 
-        // Shutdown consumer workers
+        // Shutdown consumer workers; workers stop polling once running is false, and wait for records in flight to be written before committing offsets
         if (consumerThreadPool != null) {
-            consumerThreadPool.shutdownNow();
+            consumerThreadPool.shutdown();
             try {
                 if (!consumerThreadPool.awaitTermination(30, java.util.concurrent.TimeUnit.SECONDS)) {
                     LOG.warn("HDFS consumer thread pool did not terminate within 30 seconds");
+
+                    consumerThreadPool.shutdownNow();
                 }
             } catch (InterruptedException e) {
                 LOG.warn("Interrupted while waiting for HDFS consumer thread pool to terminate", e);
+                consumerThreadPool.shutdownNow();
                 Thread.currentThread().interrupt();
             }
         }
 
         consumerWorkers.clear();
 
+        if (retrySpool != null) {
+            retrySpool.stop();
+        }
+
         // Shutdown destination handler
         if (auditRouterHDFS != null) {
             try {
@@ -163,11 +181,12 @@ private void init(Properties props, String propPrefix) throws Exception {
         // Initialize destination handler for message processing
         auditRouterHDFS.init(props, AuditProviderFactory.AUDIT_DEST_BASE + "." + AuditServerConstants.PROP_HDFS_DEST_PREFIX);
 
-        LOG.info("<== AuditHDFSConsumer.init(): AuditHDFSConsumer initialized successfully");
-    }
+        // Records that repeatedly fail to be written are spooled locally, and written to HDFS from there
+        retrySpool = new AuditHDFSRetrySpool(recoverySpoolDir, auditRouterHDFS, recoveryRetryIntervalMs);
 
-    private void processMessage(String message, String partitionKey) throws Exception {
-        auditRouterHDFS.routeAuditMessage(message, partitionKey);
+        retrySpool.start();
+
+        LOG.info("<== AuditHDFSConsumer.init(): AuditHDFSConsumer initialized successfully");
     }
 
     private void initializeRangerUGI(Properties props, String propPrefix) throws Exception {
@@ -246,6 +265,17 @@ private void initConsumerConfig(Properties props, String propPrefix) {
         this.consumerThreadCount = MiscUtil.getIntProperty(props, propPrefix + "." + AuditServerConstants.PROP_CONSUMER_THREAD_COUNT, 1);
         LOG.info("HDFS consumer thread count: {}", consumerThreadCount);
 
+        // Records failing to be written after these many attempts are moved to the recovery spool
+        this.writeMaxAttempts        = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + AuditServerConstants.PROP_CONSUMER_WRITE_MAX_ATTEMPTS, AuditServerConstants.DEFAULT_CONSUMER_WRITE_MAX_ATTEMPTS));
+        this.recoverySpoolDir        = MiscUtil.getStringProperty(props, propPrefix + "." + AuditServerConstants.PROP_CONSUMER_RECOVERY_SPOOL_DIR, AuditServerConstants.DEFAULT_CONSUMER_RECOVERY_SPOOL_DIR);
+        this.recoveryRetryIntervalMs = MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_CONSUMER_RECOVERY_RETRY_INTERVAL_MS, AuditServerConstants.DEFAULT_CONSUMER_RECOVERY_RETRY_INTERVAL_MS);
+        LOG.info("HDFS consumer write max attempts: {}, recovery spool dir: {}, recovery retry interval: {}ms", writeMaxAttempts, recoverySpoolDir, recoveryRetryIntervalMs);
+
+        // Consumption of a worker is paused while it has these many records not yet written, or pending retry
+        this.maxInFlightRecords     = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + AuditServerConstants.PROP_CONSUMER_MAX_INFLIGHT_RECORDS, AuditServerConstants.DEFAULT_CONSUMER_MAX_INFLIGHT_RECORDS));
+        this.maxPendingRetryRecords = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + AuditServerConstants.PROP_CONSUMER_MAX_PENDING_RETRY_RECORDS, AuditServerConstants.DEFAULT_CONSUMER_MAX_PENDING_RETRY_RECORDS));
+        LOG.info("HDFS consumer max in-flight records: {}, max pending retry records: {}", maxInFlightRecords, maxPendingRetryRecords);
+
         // Initialize offset management configuration
         initializeOffsetManagement(props, propPrefix);
 
@@ -304,6 +334,13 @@ private void startConsumerWorkers() {
         LOG.info("<== AuditHDFSConsumer.startConsumerWorkers(): All {} workers started in SUBSCRIBE mode", consumerThreadCount);
     }
 
+    /**
+     * Polls records and submits them to AuditRouterHDFS, which writes them in the background, so that polling is not
+     * blocked by HDFS writes. Results of writes are reported back to the worker's thread through a completion queue;
+     * offsets of a partition are committed only up to its first record that is not yet durable in HDFS - i.e. at
+     * file-durability checkpoints. Records that fail to be written are retried, and moved to the local retry spool
+     * after writeMaxAttempts, so that they don't hold back the offsets of their partition indefinitely.
+     */
     private class ConsumerWorker implements Runnable {
         private final String workerId;
         private final List<Integer> assignedPartitions;
@@ -314,6 +351,12 @@ private class ConsumerWorker implements Runnable {
         private final AtomicLong lastCommitTime = new AtomicLong(System.currentTimeMillis());
         private final AtomicInteger messagesProcessedSinceLastCommit = new AtomicInteger(0);
 
+        // Records not yet durable in HDFS; offsets are not committed past these
+        private final AuditPendingRecords                      pendingRecords = new AuditPendingRecords();
+        private final Queue<AuditPendingRecords.PendingRecord> completions    = new ConcurrentLinkedQueue<>();
+        private final List<AuditPendingRecords.PendingRecord>  retryRecords   = new ArrayList<>();
+        private       long                                     nextRetryTime;
+
         public ConsumerWorker(String workerId, List<Integer> assignedPartitions) {
             this.workerId = workerId;
             this.assignedPartitions = assignedPartitions;
@@ -357,16 +400,32 @@ public void run() {
                 while (running.get()) {
                     ConsumerRecords<String, String> records = workerConsumer.poll(Duration.ofMillis(100));
 
+                    // records of partitions no longer assigned will be redelivered to the new owner, as offsets were not committed past them
+                    Set<TopicPartition> assignment = workerConsumer.assignment();
+
+                    pendingRecords.retainPartitions(assignment);
+                    retryRecords.removeIf(pendingRecords::isRemoved);
+                    pendingOffsets.keySet().retainAll(assignment);
+
                     if (!records.isEmpty()) {
-                        processRecordBatch(records);
-                        // Handle offset committing based on strategy
-                        handleOffsetCommitting();
+                        submitRecords(records);
                     }
+
+                    processCompletions();
+                    submitRetryRecords();
+                    applyBackPressure(assignment);
+
+                    // Handle offset committing based on strategy
+                    handleOffsetCommitting();
                 }
             } catch (Exception e) {
                 LOG.error("Error in HDFS consumer worker '{}'", workerId, e);
             } finally {
-                // Final offset commit before shutdown
+                // Wait for records in flight to be written, and commit offsets up to them, before shutdown
+                if (workerConsumer != null) {
+                    drainPendingRecords();
+                }
+
                 commitPendingOffsets(true);
 
                 if (workerConsumer != null) {
@@ -394,29 +453,161 @@ private void configureOffsetManagement(Properties consumerProps) {
             LOG.debug("HDFS worker '{}' configured for manual offset commit with strategy: {}", workerId, offsetCommitStrategy);
         }
 
-        private void processRecordBatch(ConsumerRecords<String, String> records) {
+        private void submitRecords(ConsumerRecords<String, String> records) {
+            List<AuditPendingRecords.PendingRecord> batch = new ArrayList<>(records.count());
+
             for (ConsumerRecord<String, String> record : records) {
-                try {
-                    LOG.debug("HDFS worker '{}' consumed: partition={}, key={}, offset={}",
-                            workerId, record.partition(), record.key(), record.offset());
-
-                    // Process the message using the destination handler
-                    // The partition key (record.key()) contains the appId for HDFS path routing
-                    processMessage(record.value(), record.key());
-
-                    // Track offset for manual commit strategies
-                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
-                    pendingOffsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
-                    messagesProcessedSinceLastCommit.incrementAndGet();
-                } catch (Exception e) {
-                    LOG.error("Error processing message in HDFS worker '{}': partition={}, key={}, offset={}",
-                            workerId, record.partition(), record.key(), record.offset(), e);
-
-                    // On error, track offset to prevent reprocessing
-                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
-                    pendingOffsets.put(partition, new OffsetAndMetadata(record.offset()));
+                LOG.debug("HDFS worker '{}' consumed: partition={}, key={}, offset={}",
+                        workerId, record.partition(), record.key(), record.offset());
+
+                batch.add(pendingRecords.add(record, completions));
+                messagesProcessedSinceLastCommit.incrementAndGet();
+            }
+
+            submit(batch);
+        }
+
+        private void submit(List<AuditPendingRecords.PendingRecord> batch) {
+            List<String> messages = new ArrayList<>(batch.size());
+            List<String> keys     = new ArrayList<>(batch.size());
+
+            for (AuditPendingRecords.PendingRecord pending : batch) {
+                // The partition key (record.key()) contains the appId for HDFS path routing
+                messages.add(pending.record.value());
+                keys.add(pending.record.key());
+            }
+
+            auditRouterHDFS.submit(messages, keys, batch);
+        }
+
+        /**
+         * Processes results of writes reported by writer threads: written records become durable, and failed records
+         * are kept for retry or, after writeMaxAttempts, moved to the retry spool. Then updates the offsets to commit.
+         */
+        private void processCompletions() {
+            List<AuditPendingRecords.PendingRecord> poisonRecords = new ArrayList<>();
+            int                                     failedCount   = 0;
+
+            for (AuditPendingRecords.PendingRecord pending = completions.poll(); pending != null; pending = completions.poll()) {
+                if (pendingRecords.isRemoved(pending)) {
+                    continue;
+                }
+
+                if (pending.written) {
+                    pendingRecords.markDurable(pending);
+
+                    continue;
+                }
+
+                failedCount++;
+                pending.attempts++;
+
+                LOG.error("Error processing message in HDFS worker '{}': partition={}, key={}, offset={}, attempts={}",
+                        workerId, pending.record.partition(), pending.record.key(), pending.record.offset(), pending.attempts);
+
+                if (pending.attempts >= writeMaxAttempts) {
+                    poisonRecords.add(pending);
+                } else {
+                    retryRecords.add(pending);
                 }
             }
+
+            if (!poisonRecords.isEmpty()) {
+                if (moveToRetrySpool(poisonRecords)) {
+                    poisonRecords.forEach(pendingRecords::markDurable);
+                } else {
+                    retryRecords.addAll(poisonRecords); // never drop a record; keep retrying until it is written or spooled
+                }
+            }
+
+            if (failedCount > 0) {
+                nextRetryTime = System.currentTimeMillis() + FAILED_WRITE_RETRY_DELAY_MS;
+
+                LOG.warn("HDFS worker '{}': {} records failed to be written. {} records pending retry", workerId, failedCount, retryRecords.size());
+            }
+
+            pendingOffsets.putAll(pendingRecords.getCheckpoints());
+        }
+
+        private void submitRetryRecords() {
+            if (!retryRecords.isEmpty() && System.currentTimeMillis() >= nextRetryTime) {
+                List<AuditPendingRecords.PendingRecord> batch = new ArrayList<>(retryRecords);
+
+                retryRecords.clear();
+
+                submit(batch);
+            }
+        }
+
+        // bound the records held by the worker: stop fetching while too many are not yet written, or pending retry
+        private void applyBackPressure(Set<TopicPartition> assignment) {
+            if (pendingRecords.size() >= maxInFlightRecords || retryRecords.size() >= maxPendingRetryRecords) {
+                if (workerConsumer.paused().isEmpty() && !assignment.isEmpty()) {
+                    LOG.warn("HDFS worker '{}': {} records not yet written, {} pending retry - pausing consumption", workerId, pendingRecords.size(), retryRecords.size());
+
+                    workerConsumer.pause(assignment);
+                }
+            } else if (!workerConsumer.paused().isEmpty()) {
+                LOG.info("HDFS worker '{}': {} records not yet written, {} pending retry - resuming consumption", workerId, pendingRecords.size(), retryRecords.size());
+
+                workerConsumer.resume(workerConsumer.paused());
+            }
+        }
+
+        /**
+         * Waits up to SHUTDOWN_DRAIN_TIMEOUT_MS for records in flight to be written; failed records are not retried,
+         * as Kafka redelivers them after restart.
+         */
+        private void drainPendingRecords() {
+            long deadline = System.currentTimeMillis() + SHUTDOWN_DRAIN_TIMEOUT_MS;
+
+            retryRecords.clear();
+
+            auditRouterHDFS.flush();
+
+            try {
+                while (true) {
+                    processCompletions();
+
+                    retryRecords.clear();
+
+                    if (pendingRecords.size() == 0 || System.currentTimeMillis() >= deadline) {
+                        break;
+                    }
+
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (pendingRecords.size() > 0) {
+                LOG.warn("HDFS worker '{}': {} records not written before shutdown; Kafka will redeliver them", workerId, pendingRecords.size());
+            }
+        }
+
+        /**
+         * Writes the given records to the local retry spool, from where they are written to HDFS in the background.
+         * These records are never replayed to Kafka, as other consumers of the topic have already processed them.
+         */
+        private boolean moveToRetrySpool(List<AuditPendingRecords.PendingRecord> records) {
+            List<String> messages = new ArrayList<>(records.size());
+            List<String> keys     = new ArrayList<>(records.size());
+
+            for (AuditPendingRecords.PendingRecord pending : records) {
+                messages.add(pending.record.value());
+                keys.add(pending.record.key());
+            }
+
+            boolean ret = retrySpool.spool(messages, keys, workerId);
+
+            if (ret) {
+                LOG.error("HDFS worker '{}': moved {} records that failed to be written after {} attempts to retry spool directory {}", workerId, records.size(), writeMaxAttempts, recoverySpoolDir);
+            } else {
+                LOG.error("HDFS worker '{}': failed to move {} records to retry spool directory {}. Will retry writing them to HDFS", workerId, records.size(), recoverySpoolDir);
+            }
+
+            return ret;
         }
 
         private void handleOffsetCommitting() {
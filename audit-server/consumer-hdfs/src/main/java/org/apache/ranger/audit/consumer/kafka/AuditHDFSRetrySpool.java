@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.consumer.kafka;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AuditHDFSRetrySpool - local spool for audit records that repeatedly failed to be written to HDFS, so that they don't
+ * hold back Kafka offsets of their partitions. A background thread writes the spooled records to HDFS every
+ * retryIntervalMs, until each of them is written.
+ *
+ * Spooled records are written only to HDFS, and never sent to Kafka again: other consumers of the audit topic, like
+ * Solr, have already processed them. Hence spool files are named hdfs_retry_*.failed, and must not be placed in the
+ * audit server's recovery spool directory. Each line of a spool file has the format: timestamp|key|message
+ */
+public class AuditHDFSRetrySpool {
+    private static final Logger LOG = LoggerFactory.getLogger(AuditHDFSRetrySpool.class);
+
+    static final String SPOOL_FILE_PREFIX = "hdfs_retry_";
+    static final String SPOOL_FILE_SUFFIX = ".failed";
+    static final String TMP_FILE_SUFFIX   = ".tmp";
+
+    private final Path            spoolDir;
+    private final AuditRouterHDFS auditRouterHDFS;
+    private final long            retryIntervalMs;
+    private final AtomicInteger   fileCount = new AtomicInteger();
+
+    private ScheduledExecutorService retryExecutor;
+
+    public AuditHDFSRetrySpool(String spoolDir, AuditRouterHDFS auditRouterHDFS, long retryIntervalMs) {
+        this.spoolDir        = Paths.get(spoolDir);
+        this.auditRouterHDFS = auditRouterHDFS;
+        this.retryIntervalMs = Math.max(1000, retryIntervalMs);
+    }
+
+    public void start() throws IOException {
+        LOG.info("==> AuditHDFSRetrySpool.start(spoolDir={}, retryIntervalMs={})", spoolDir, retryIntervalMs);
+
+        Files.createDirectories(spoolDir);
+
+        // a .tmp file is left over by a crash while spooling; offsets of its records were not committed, so Kafka redelivers them
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir, SPOOL_FILE_PREFIX + "*" + TMP_FILE_SUFFIX)) {
+            for (Path file : files) {
+                LOG.warn("Deleting incomplete HDFS retry spool file {}", file);
+
+                Files.delete(file);
+            }
+        }
+
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AuditHDFSRetrySpool");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        retryExecutor.scheduleWithFixedDelay(this::retrySpooledRecords, retryIntervalMs, retryIntervalMs, TimeUnit.MILLISECONDS);
+
+        LOG.info("<== AuditHDFSRetrySpool.start()");
+    }
+
+    public void stop() {
+        LOG.info("==> AuditHDFSRetrySpool.stop()");
+
+        if (retryExecutor != null) {
+            retryExecutor.shutdownNow();
+
+            try {
+                if (!retryExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    LOG.warn("HDFS retry spool thread did not terminate within 30 seconds");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            retryExecutor = null;
+        }
+
+        LOG.info("<== AuditHDFSRetrySpool.stop()");
+    }
+
+    /**
+     * Writes the given records to a new spool file; the file is complete when this method returns true
+     * @param messages JSON audit messages
+     * @param keys partition keys of the messages, one for each message
+     * @param source name of the caller, to include in the file name
+     * @return true if the records were spooled
+     */
+    public boolean spool(List<String> messages, List<String> keys, String source) {
+        boolean ret;
+        String  fileName = SPOOL_FILE_PREFIX + new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date()) + "_" + source + "_" + fileCount.incrementAndGet();
+        Path    tmpPath  = spoolDir.resolve(fileName + TMP_FILE_SUFFIX);
+
+        try {
+            writeSpoolFile(tmpPath, messages, keys);
+
+            // rename to .failed only after the file is complete, for it to be picked up for retry
+            Files.move(tmpPath, spoolDir.resolve(fileName + SPOOL_FILE_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+            LOG.warn("Moved {} records that failed to be written to HDFS to retry spool file {}{}", messages.size(), fileName, SPOOL_FILE_SUFFIX);
+
+            ret = true;
+        } catch (IOException e) {
+            LOG.error("Failed to move {} records to HDFS retry spool directory {}", messages.size(), spoolDir, e);
+
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (IOException excp) {
+                LOG.warn("Failed to delete incomplete HDFS retry spool file {}", tmpPath, excp);
+            }
+
+            ret = false;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Writes records of each spool file to HDFS. A file is deleted once all its records are written; otherwise it is
+     * replaced with the records that failed to be written, to be retried later.
+     * @return number of records remaining in spool files
+     */
+    int retrySpooledRecords() {
+        int ret = 0;
+
+        try {
+            List<Path> spoolFiles = new ArrayList<>();
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir, SPOOL_FILE_PREFIX + "*" + SPOOL_FILE_SUFFIX)) {
+                for (Path file : files) {
+                    spoolFiles.add(file);
+                }
+            }
+
+            Collections.sort(spoolFiles);
+
+            for (Path file : spoolFiles) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                ret += retrySpoolFile(file);
+            }
+        } catch (Exception e) {
+            LOG.error("Error writing records of HDFS retry spool directory {}", spoolDir, e);
+        }
+
+        return ret;
+    }
+
+    private int retrySpoolFile(Path file) throws IOException {
+        List<String> messages = new ArrayList<>();
+        List<String> keys     = new ArrayList<>();
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int keyStart = line.indexOf('|');
+            int keyEnd   = keyStart >= 0 ? line.indexOf('|', keyStart + 1) : -1;
+
+            if (keyEnd < 0) {
+                LOG.warn("Skipping malformed line in HDFS retry spool file {}", file);
+
+                continue;
+            }
+
+            String key = line.substring(keyStart + 1, keyEnd);
+
+            keys.add(key.isEmpty() ? null : key);
+            messages.add(line.substring(keyEnd + 1));
+        }
+
+        BitSet failed = messages.isEmpty() ? new BitSet() : auditRouterHDFS.routeAuditMessages(messages, keys);
+
+        if (failed.isEmpty()) {
+            Files.delete(file);
+
+            LOG.info("Wrote {} records of HDFS retry spool file {}", messages.size(), file);
+        } else {
+            List<String> failedMessages = new ArrayList<>(failed.cardinality());
+            List<String> failedKeys     = new ArrayList<>(failed.cardinality());
+
+            for (int i = failed.nextSetBit(0); i >= 0; i = failed.nextSetBit(i + 1)) {
+                failedMessages.add(messages.get(i));
+                failedKeys.add(keys.get(i));
+            }
+
+            Path tmpPath = file.resolveSibling(file.getFileName() + TMP_FILE_SUFFIX);
+
+            writeSpoolFile(tmpPath, failedMessages, failedKeys);
+
+            Files.move(tmpPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            LOG.warn("{} of {} records of HDFS retry spool file {} failed to be written; will retry in {}ms", failedMessages.size(), messages.size(), file, retryIntervalMs);
+        }
+
+        return failed.cardinality();
+    }
+
+    private static void writeSpoolFile(Path path, List<String> messages, List<String> keys) throws IOException {
+        long timestamp = System.currentTimeMillis();
+
+        try (FileOutputStream out = new FileOutputStream(path.toFile()); BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (int i = 0; i < messages.size(); i++) {
+                String key = keys.get(i);
+
+                writer.write(timestamp + "|" + (key != null ? key : "") + "|" + messages.get(i));
+                writer.newLine();
+            }
+
+            // offsets of spooled records are committed, so the file must survive a crash
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.consumer.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * AuditPendingRecords - records consumed by a worker that are not yet durable, i.e. neither written and flushed to
+ * HDFS nor moved to the retry spool, tracked per partition in offset order. Offsets of a partition are checkpointed
+ * only up to its first record that is not durable, so that committed offsets never skip a record that is not in HDFS.
+ *
+ * Not thread-safe: used only by the worker's thread. Writer threads report results of writes by adding the record to
+ * the completion queue given to its constructor, for the worker to process.
+ */
+class AuditPendingRecords {
+    private final Map<TopicPartition, ArrayDeque<PendingRecord>> partitionRecords = new HashMap<>();
+    private final Map<TopicPartition, Long>                      nextOffsets      = new HashMap<>();
+    private final Map<TopicPartition, Long>                      checkpoints      = new HashMap<>();
+    private final Set<TopicPartition>                            updated          = new HashSet<>();
+    private       int                                            pendingCount;
+
+    PendingRecord add(ConsumerRecord<String, String> record, Queue<PendingRecord> completions) {
+        PendingRecord ret = new PendingRecord(record, completions);
+
+        partitionRecords.computeIfAbsent(ret.partition, partition -> new ArrayDeque<>()).add(ret);
+        nextOffsets.put(ret.partition, record.offset() + 1);
+        updated.add(ret.partition);
+
+        pendingCount++;
+
+        return ret;
+    }
+
+    /**
+     * Marks the record as durable. Ignored for records of partitions removed by retainPartitions().
+     */
+    void markDurable(PendingRecord record) {
+        if (!record.durable && !record.removed) {
+            record.durable = true;
+
+            updated.add(record.partition);
+
+            pendingCount--;
+        }
+    }
+
+    boolean isRemoved(PendingRecord record) {
+        return record.removed;
+    }
+
+    /**
+     * @return number of records that are not yet durable
+     */
+    int size() {
+        return pendingCount;
+    }
+
+    /**
+     * Removes records of partitions that are not in the given assignment, as Kafka redelivers them to the new owner.
+     */
+    void retainPartitions(Collection<TopicPartition> assignment) {
+        for (Iterator<Map.Entry<TopicPartition, ArrayDeque<PendingRecord>>> iter = partitionRecords.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<TopicPartition, ArrayDeque<PendingRecord>> entry = iter.next();
+
+            if (!assignment.contains(entry.getKey())) {
+                for (PendingRecord record : entry.getValue()) {
+                    if (!record.durable) {
+                        pendingCount--;
+                    }
+
+                    record.removed = true;
+                }
+
+                iter.remove();
+            }
+        }
+
+        nextOffsets.keySet().retainAll(assignment);
+        checkpoints.keySet().retainAll(assignment);
+        updated.retainAll(assignment);
+    }
+
+    /**
+     * @return for partitions whose checkpoint advanced since the last call, the offset up to which all records are durable
+     */
+    Map<TopicPartition, OffsetAndMetadata> getCheckpoints() {
+        Map<TopicPartition, OffsetAndMetadata> ret = new HashMap<>();
+
+        for (TopicPartition partition : updated) {
+            ArrayDeque<PendingRecord> records = partitionRecords.get(partition);
+
+            while (records != null && !records.isEmpty() && records.peekFirst().durable) {
+                records.pollFirst();
+            }
+
+            Long offset = (records == null || records.isEmpty()) ? nextOffsets.get(partition) : Long.valueOf(records.peekFirst().record.offset());
+
+            if (offset != null && !offset.equals(checkpoints.get(partition))) {
+                checkpoints.put(partition, offset);
+                ret.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+
+        updated.clear();
+
+        return ret;
+    }
+
+    static class PendingRecord implements AuditRouterHDFS.WriteCallback {
+        final         ConsumerRecord<String, String> record;
+        final         TopicPartition                 partition;
+        private final Queue<PendingRecord>           completions;
+        int                                          attempts;
+        volatile      boolean                        written;
+        private       boolean                        durable;
+        private       boolean                        removed;
+
+        PendingRecord(ConsumerRecord<String, String> record, Queue<PendingRecord> completions) {
+            this.record      = record;
+            this.partition   = new TopicPartition(record.topic(), record.partition());
+            this.completions = completions;
+        }
+
+        @Override
+        public void onComplete(boolean success) {
+            written = success;
+
+            completions.add(this);
+        }
+    }
+}
@@ -27,17 +27,42 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Router class that routes audit messages to different HDFSAuditDestination instances
  * based on the app_id.
  * Each app_id gets its own HDFSAuditDestination instance for separate path configuration.
- * Writes are synchronous to ensure Kafka offset commits only happen after successful HDFS writes,
- * enabling automatic recovery via Kafka redelivery on failures.
+ *
+ * Messages submitted with submit() are written by a pipeline, so that the consumer's poll thread never waits for HDFS:
+ * - decode: a pool of decoder.thread.count threads parses each message for app_id, serviceType, agent hostname and
+ *   the hour of its event time, and buffers the message in the writer for its (serviceType, app_id, hour)
+ * - group commit: messages buffered in a writer are written with one logJSON() call - hence one hflush - by a pool of
+ *   writer.thread.count threads, every writer.flush.interval.ms or once writer.flush.max.records are buffered; messages
+ *   arriving while a write is in progress are written together by the next write of the writer
+ * The callback of a message is called once the write of its group completes. Kafka offsets are committed only up to
+ * messages whose write succeeded, i.e. up to a file-durability checkpoint, enabling recovery via Kafka redelivery on
+ * failures. Messages of different batches may be written in an order different from the one they were submitted in.
+ *
+ * routeAuditMessages() writes a batch synchronously, with one logJSON() call per app_id.
  *
  * This router writes audits to HDFS as the rangerauditserver user. The audit folder in HDFS
  * should be configured with appropriate permissions to allow rangerauditserver to write audits
@@ -46,10 +71,22 @@
 public class AuditRouterHDFS {
     private static final Logger LOG = LoggerFactory.getLogger(AuditRouterHDFS.class);
 
+    public static final String PROP_WRITER_THREAD_COUNT      = "writer.thread.count";
+    public static final String PROP_DECODER_THREAD_COUNT     = "decoder.thread.count";
+    public static final String PROP_WRITER_FLUSH_INTERVAL_MS = "writer.flush.interval.ms";
+    public static final String PROP_WRITER_FLUSH_MAX_RECORDS = "writer.flush.max.records";
+
+    private static final long WRITER_IDLE_TIMEOUT_MS = 10 * 60 * 1000L; // writers of past hours are removed once idle this long
+
     private final Map<String, HDFSAuditDestination> destinationMap = new ConcurrentHashMap<>();
+    private final Map<WriterKey, HourlyWriter>      writers        = new ConcurrentHashMap<>();
     private final ObjectMapper                      jsonMapper     = new ObjectMapper();
     private       Properties                        props;
     private       String                            hdfsPropPrefix;
+    private       int                               flushMaxRecords;
+    private       ExecutorService                   decoderPool;
+    private       ExecutorService                   writerPool;
+    private       ScheduledExecutorService          flushTimer;
 
     public AuditRouterHDFS() {
     }
@@ -61,7 +98,51 @@ public void init(Properties props, String hdfsPropPrefix) {
         this.props.putAll(props);
         this.hdfsPropPrefix = hdfsPropPrefix;
 
-        LOG.info("<== AuditRouterHDFS.init()");
+        int  writerThreadCount  = Math.max(1, MiscUtil.getIntProperty(props, hdfsPropPrefix + "." + PROP_WRITER_THREAD_COUNT, 4));
+        int  decoderThreadCount = Math.max(1, MiscUtil.getIntProperty(props, hdfsPropPrefix + "." + PROP_DECODER_THREAD_COUNT, 2));
+        long flushIntervalMs    = Math.max(1, MiscUtil.getLongProperty(props, hdfsPropPrefix + "." + PROP_WRITER_FLUSH_INTERVAL_MS, 1000));
+
+        this.flushMaxRecords = Math.max(1, MiscUtil.getIntProperty(props, hdfsPropPrefix + "." + PROP_WRITER_FLUSH_MAX_RECORDS, 5000));
+        this.decoderPool     = Executors.newFixedThreadPool(decoderThreadCount, newThreadFactory("AuditRouterHDFS-decoder-"));
+        this.writerPool      = Executors.newFixedThreadPool(writerThreadCount, newThreadFactory("AuditRouterHDFS-writer-"));
+        this.flushTimer      = Executors.newSingleThreadScheduledExecutor(newThreadFactory("AuditRouterHDFS-flush-timer-"));
+
+        flushTimer.scheduleWithFixedDelay(this::flushWriters, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        LOG.info("<== AuditRouterHDFS.init(): writerThreadCount={}, decoderThreadCount={}, flushIntervalMs={}, flushMaxRecords={}", writerThreadCount, decoderThreadCount, flushIntervalMs, flushMaxRecords);
+    }
+
+    /**
+     * Submits a batch of audit messages to be written to HDFS, and returns without waiting for the writes. The callback
+     * of each message is called, from a writer thread, once the message is written and flushed to HDFS or failed to be
+     * written. Messages without app_id are skipped, and are reported as written.
+     * @param messages JSON audit messages
+     * @param partitionKeys The partition keys from Kafka (used as app_id), one for each message
+     * @param callbacks callbacks to notify of the result of the write, one for each message
+     */
+    public void submit(List<String> messages, List<String> partitionKeys, List<? extends WriteCallback> callbacks) {
+        LOG.debug("==> AuditRouterHDFS:submit(): count={}", messages.size());
+
+        try {
+            decoderPool.execute(() -> decodeAndBuffer(messages, partitionKeys, callbacks));
+        } catch (RejectedExecutionException e) {
+            LOG.error("AuditRouterHDFS:submit(): router is shut down, failed to write {} audit messages", messages.size());
+
+            for (WriteCallback callback : callbacks) {
+                complete(callback, false);
+            }
+        }
+
+        LOG.debug("<== AuditRouterHDFS:submit(): count={}", messages.size());
+    }
+
+    /**
+     * Starts writing the messages buffered in all writers, without waiting for the flush interval
+     */
+    public void flush() {
+        for (HourlyWriter writer : writers.values()) {
+            writer.scheduleFlush();
+        }
     }
 
     /**
@@ -72,53 +153,199 @@ public void init(Properties props, String hdfsPropPrefix) {
     public void routeAuditMessage(String message, String partitionKey) throws Exception {
         LOG.debug("==> AuditRouterHDFS:routeAuditMessage(): Message => {}, partitionKey => {}", message, partitionKey);
 
-        try {
-            String appId         = extractAppId(message, partitionKey);
-            String serviceType   = extractServiceType(message);
-            String agentHostname = extractAgentHostname(message);
+        BitSet failed = routeAuditMessages(Collections.singletonList(message), Collections.singletonList(partitionKey));
+
+        if (!failed.isEmpty()) {
+            throw new Exception("Error routing audit message to HDFS");
+        }
 
-            LOG.debug("Routing audit message for app_id: {}, serviceType: {}, agentHostname: {}", appId, serviceType, agentHostname);
+        LOG.debug("<== AuditRouterHDFS:routeAuditMessage()");
+    }
 
-            // Get or create HDFSAuditDestination for the appId
-            if (appId != null) {
-                HDFSAuditDestination hdfsAuditDestination = getHdfsAuditDestination(appId, serviceType, agentHostname);
+    /**
+     * Routes a batch of audit messages to HDFSAuditDestination instances based on app_id. Messages of each app_id are
+     * written, in order, with a single call to the destination; writes for different app_ids run in parallel. Returns
+     * after all writes complete.
+     * Messages without app_id are skipped, and are not reported as failed.
+     * @param messages JSON audit messages
+     * @param partitionKeys The partition keys from Kafka (used as app_id), one for each message
+     * @return indices of messages that failed to be written
+     */
+    public BitSet routeAuditMessages(List<String> messages, List<String> partitionKeys) {
+        LOG.debug("==> AuditRouterHDFS:routeAuditMessages(): count={}", messages.size());
 
-                boolean success = hdfsAuditDestination.logJSON(Collections.singletonList(message));
+        BitSet                    ret    = new BitSet(messages.size());
+        Map<String, MessageGroup> groups = new LinkedHashMap<>();
 
-                if (!success) {
-                    throw new Exception("Failed to write audit to HDFS for app_id: " + appId);
+        for (int i = 0; i < messages.size(); i++) {
+            String         message = messages.get(i);
+            DecodedMessage decoded = decode(message, partitionKeys.get(i));
+
+            if (decoded != null) {
+                MessageGroup group = groups.get(decoded.key.appId);
+
+                if (group == null) {
+                    group = new MessageGroup(decoded.key.appId, decoded.key.serviceType, decoded.agentHostname);
+
+                    groups.put(decoded.key.appId, group);
                 }
 
-                LOG.debug("Successfully wrote audit for app_id: {}", appId);
+                group.add(i, message);
             } else {
                 LOG.warn("Unable to extract app_id from message, skipping audit write");
             }
+        }
+
+        if (groups.size() == 1) {
+            for (MessageGroup group : groups.values()) {
+                if (!writeMessages(group.appId, group.serviceType, group.agentHostname, group.messages)) {
+                    group.setFailed(ret);
+                }
+            }
+        } else {
+            Map<MessageGroup, Future<Boolean>> results = new LinkedHashMap<>();
+
+            for (MessageGroup group : groups.values()) {
+                try {
+                    results.put(group, writerPool.submit(() -> writeMessages(group.appId, group.serviceType, group.agentHostname, group.messages)));
+                } catch (RejectedExecutionException e) {
+                    LOG.error("AuditRouterHDFS:routeAuditMessages(): router is shut down, failed to write audits for app_id: {}", group.appId);
+
+                    group.setFailed(ret);
+                }
+            }
+
+            for (Map.Entry<MessageGroup, Future<Boolean>> entry : results.entrySet()) {
+                boolean success;
+
+                try {
+                    success = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    LOG.error("AuditRouterHDFS:routeAuditMessages(): Error writing audits for app_id: {}", entry.getKey().appId, e.getCause());
+
+                    success = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    success = false;
+                }
+
+                if (!success) {
+                    entry.getKey().setFailed(ret);
+                }
+            }
+        }
+
+        LOG.debug("<== AuditRouterHDFS:routeAuditMessages(): count={}, appIds={}, failed={}", messages.size(), groups.size(), ret.cardinality());
+
+        return ret;
+    }
+
+    private void decodeAndBuffer(List<String> messages, List<String> partitionKeys, List<? extends WriteCallback> callbacks) {
+        for (int i = 0; i < messages.size(); i++) {
+            String         message  = messages.get(i);
+            WriteCallback  callback = callbacks.get(i);
+            DecodedMessage decoded  = decode(message, partitionKeys.get(i));
+
+            if (decoded == null) {
+                LOG.warn("Unable to extract app_id from message, skipping audit write");
+
+                complete(callback, true);
+
+                continue;
+            }
+
+            // buffer within compute(), so that an idle writer is not removed between its lookup and the append
+            HourlyWriter writer = writers.compute(decoded.key, (key, existing) -> {
+                HourlyWriter ret = existing != null ? existing : new HourlyWriter(key, decoded.agentHostname);
+
+                ret.append(message, callback);
+
+                return ret;
+            });
+
+            if (writer.getBufferedCount() >= flushMaxRecords) {
+                writer.scheduleFlush();
+            }
+        }
+    }
+
+    // runs on flushTimer: writes buffered messages of each writer, and removes writers idle for long
+    private void flushWriters() {
+        try {
+            long now = System.currentTimeMillis();
+
+            for (WriterKey key : writers.keySet()) {
+                writers.computeIfPresent(key, (k, writer) -> {
+                    if (writer.isIdle(now)) {
+                        LOG.debug("AuditRouterHDFS:flushWriters(): removing idle writer {}", k);
+
+                        return null;
+                    }
+
+                    writer.scheduleFlush();
+
+                    return writer;
+                });
+            }
+        } catch (Exception e) {
+            LOG.error("AuditRouterHDFS:flushWriters(): error flushing audit writers", e);
+        }
+    }
+
+    private boolean writeMessages(String appId, String serviceType, String agentHostname, List<String> messages) {
+        boolean ret;
+
+        LOG.debug("Routing {} audit messages for app_id: {}, serviceType: {}, agentHostname: {}", messages.size(), appId, serviceType, agentHostname);
+
+        try {
+            HDFSAuditDestination hdfsAuditDestination = getHdfsAuditDestination(appId, serviceType, agentHostname);
+
+            ret = hdfsAuditDestination.logJSON(messages);
+
+            if (ret) {
+                LOG.debug("Successfully wrote {} audits for app_id: {}", messages.size(), appId);
+            } else {
+                LOG.error("AuditRouterHDFS:writeMessages(): Failed to write {} audits to HDFS for app_id: {}", messages.size(), appId);
+            }
         } catch (Exception e) {
-            String errorMessage = "Error routing audit message to HDFS";
-            LOG.error("AuditRouterHDFS:routeAuditMessage(): Error routing audit message: {}", message, e);
-            throw new Exception(errorMessage, e);
+            LOG.error("AuditRouterHDFS:writeMessages(): Error routing {} audit messages for app_id: {}", messages.size(), appId, e);
+
+            ret = false;
         }
 
-        LOG.debug("<== AuditRouterHDFS:routeAuditMessage()");
+        return ret;
+    }
+
+    private DecodedMessage decode(String message, String partitionKey) {
+        JsonNode rootNode = parseMessage(message);
+        String   appId    = extractAppId(rootNode, partitionKey);
+
+        return appId != null ? new DecodedMessage(new WriterKey(extractServiceType(rootNode), appId, extractEventHour(rootNode)), extractAgentHostname(rootNode)) : null;
+    }
+
+    private JsonNode parseMessage(String message) {
+        try {
+            return jsonMapper.readTree(message);
+        } catch (Exception e) {
+            LOG.debug("AuditRouterHDFS:parseMessage(): Failed to parse JSON message: {}", e.getMessage());
+
+            return null;
+        }
     }
 
     /**
      * Extract app_id from audit message. First tries partition key, then falls back to parsing JSON.
      */
-    private String extractAppId(String message, String partitionKey) {
+    private String extractAppId(JsonNode rootNode, String partitionKey) {
         // First try to use partition key as app_id if available
         if (partitionKey != null && !partitionKey.trim().isEmpty()) {
             return partitionKey;
         }
         // Fall back to extracting from JSON message
-        try {
-            JsonNode rootNode    = jsonMapper.readTree(message);
-            JsonNode agentIdNode = rootNode.get("agent");
-            if (agentIdNode != null) {
-                return agentIdNode.asText();
-            }
-        } catch (Exception e) {
-            LOG.debug("AuditRouterHDFS:extractAppId(): Failed to parse JSON message for app_id extraction: {}", e.getMessage());
+        JsonNode agentIdNode = rootNode != null ? rootNode.get("agent") : null;
+        if (agentIdNode != null) {
+            return agentIdNode.asText();
         }
         return null;
     }
@@ -126,9 +353,8 @@ private String extractAppId(String message, String partitionKey) {
     /**
      * Extract serviceType from audit message additional_info
      */
-    private String extractServiceType(String message) {
+    private String extractServiceType(JsonNode rootNode) {
         try {
-            JsonNode rootNode           = jsonMapper.readTree(message);
             JsonNode additionalInfoNode = rootNode.get("additional_info");
             JsonNode additionalInfoJson = jsonMapper.readTree(additionalInfoNode.asText());
             JsonNode serviceTypeNode = additionalInfoJson.get("serviceType");
@@ -141,18 +367,23 @@ private String extractServiceType(String message) {
         return null;
     }
 
+    /**
+     * Extract the hour of event time, formatted as yyyy-MM-dd HH:mm:ss.SSS, from audit message
+     */
+    private String extractEventHour(JsonNode rootNode) {
+        JsonNode evtTimeNode = rootNode != null ? rootNode.get("evtTime") : null;
+        String   evtTime     = evtTimeNode != null ? evtTimeNode.asText() : null;
+
+        return evtTime != null && evtTime.length() >= 13 ? evtTime.substring(0, 13) : "";
+    }
+
     /**
      * Extract agentHostname from audit message
      */
-    private String extractAgentHostname(String message) {
-        try {
-            JsonNode rootNode      = jsonMapper.readTree(message);
-            JsonNode agentHostNode = rootNode.get("agentHost");
-            if (agentHostNode != null) {
-                return agentHostNode.asText();
-            }
-        } catch (Exception e) {
-            LOG.debug("AuditRouterHDFS:extractAgentHostname(): Failed to parse JSON message for agentHostname extraction: {}", e.getMessage());
+    private String extractAgentHostname(JsonNode rootNode) {
+        JsonNode agentHostNode = rootNode != null ? rootNode.get("agentHost") : null;
+        if (agentHostNode != null) {
+            return agentHostNode.asText();
         }
         return null;
     }
@@ -181,7 +412,7 @@ private synchronized HDFSAuditDestination getHdfsAuditDestination(String appId,
     /**
      * Create and initialize HDFSAuditDestination with app_id specific configuration
      */
-    private HDFSAuditDestination createHDFSDestination(String appId, String serviceType, String agentHostname) throws Exception {
+    HDFSAuditDestination createHDFSDestination(String appId, String serviceType, String agentHostname) throws Exception {
         LOG.debug("==> AuditRouterHDFS:createHDFSDestination(): Creating new HDFSAuditDestination for app_id: {}, serviceType: {}, agentHostname: {}", appId, serviceType, agentHostname);
 
         HDFSAuditDestination destination = new HDFSAuditDestination();
@@ -302,6 +533,19 @@ private String getUniqueInstanceIdentifier() {
     public void shutdown() {
         LOG.info("==> AuditRouterHDFS.shutdown()");
 
+        // let submitted messages be decoded, and buffered messages be written, before stopping the destinations
+        shutdownPool(decoderPool, "decoder");
+
+        if (flushTimer != null) {
+            flushTimer.shutdownNow();
+        }
+
+        flush();
+
+        shutdownPool(writerPool, "writer");
+
+        writers.clear();
+
         // Stop all destinations
         for (Map.Entry<String, HDFSAuditDestination> entry : destinationMap.entrySet()) {
             String appId = entry.getKey();
@@ -319,4 +563,214 @@ public void shutdown() {
 
         LOG.info("<== AuditRouterHDFS.shutdown()");
     }
+
+    private static void shutdownPool(ExecutorService pool, String name) {
+        if (pool != null) {
+            pool.shutdown();
+
+            try {
+                if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+                    LOG.warn("HDFS audit {} threads did not terminate within 30 seconds", name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ThreadFactory newThreadFactory(String namePrefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+    private static void complete(WriteCallback callback, boolean success) {
+        try {
+            callback.onComplete(success);
+        } catch (Exception e) {
+            LOG.error("AuditRouterHDFS: error in write callback", e);
+        }
+    }
+
+    /**
+     * Callback for messages submitted with submit()
+     */
+    public interface WriteCallback {
+        /**
+         * @param success true if the message was written and flushed to HDFS
+         */
+        void onComplete(boolean success);
+    }
+
+    /**
+     * Buffers messages of a (serviceType, app_id, hour) and writes them with group commits: at most one write of a
+     * writer is scheduled or in progress at any time, and it writes all messages buffered when it starts.
+     */
+    private class HourlyWriter {
+        private final WriterKey           key;
+        private final String              agentHostname;
+        private final AtomicBoolean       flushScheduled = new AtomicBoolean();
+        private       List<String>        messages       = new ArrayList<>();
+        private       List<WriteCallback> callbacks      = new ArrayList<>();
+        private       long                lastAppendTime = System.currentTimeMillis();
+
+        HourlyWriter(WriterKey key, String agentHostname) {
+            this.key           = key;
+            this.agentHostname = agentHostname;
+        }
+
+        synchronized void append(String message, WriteCallback callback) {
+            messages.add(message);
+            callbacks.add(callback);
+
+            lastAppendTime = System.currentTimeMillis();
+        }
+
+        synchronized int getBufferedCount() {
+            return messages.size();
+        }
+
+        synchronized boolean isIdle(long now) {
+            return messages.isEmpty() && !flushScheduled.get() && (now - lastAppendTime) > WRITER_IDLE_TIMEOUT_MS;
+        }
+
+        void scheduleFlush() {
+            if (getBufferedCount() > 0 && flushScheduled.compareAndSet(false, true)) {
+                submitFlush();
+            }
+        }
+
+        private void submitFlush() {
+            try {
+                writerPool.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                List<WriteCallback> toFail;
+
+                synchronized (this) {
+                    toFail    = callbacks;
+                    messages  = new ArrayList<>();
+                    callbacks = new ArrayList<>();
+
+                    flushScheduled.set(false);
+                }
+
+                LOG.error("AuditRouterHDFS: router is shut down, failed to write {} audit messages for {}", toFail.size(), key);
+
+                for (WriteCallback callback : toFail) {
+                    complete(callback, false);
+                }
+            }
+        }
+
+        private void flush() {
+            List<String>        toWrite;
+            List<WriteCallback> toComplete;
+
+            synchronized (this) {
+                toWrite    = messages;
+                toComplete = callbacks;
+                messages   = new ArrayList<>();
+                callbacks  = new ArrayList<>();
+            }
+
+            if (!toWrite.isEmpty()) {
+                boolean success = writeMessages(key.appId, key.serviceType, agentHostname, toWrite);
+
+                for (WriteCallback callback : toComplete) {
+                    complete(callback, success);
+                }
+            }
+
+            boolean hasMore;
+
+            synchronized (this) {
+                hasMore = !messages.isEmpty();
+
+                if (!hasMore) {
+                    flushScheduled.set(false);
+                }
+            }
+
+            // resubmit instead of looping, for a busy writer not to hold a writer thread
+            if (hasMore) {
+                submitFlush();
+            }
+        }
+    }
+
+    private static class WriterKey {
+        final String serviceType;
+        final String appId;
+        final String hour;
+
+        WriterKey(String serviceType, String appId, String hour) {
+            this.serviceType = serviceType;
+            this.appId       = appId;
+            this.hour        = hour;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof WriterKey)) {
+                return false;
+            }
+
+            WriterKey other = (WriterKey) obj;
+
+            return Objects.equals(serviceType, other.serviceType) && Objects.equals(appId, other.appId) && Objects.equals(hour, other.hour);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceType, appId, hour);
+        }
+
+        @Override
+        public String toString() {
+            return "{serviceType=" + serviceType + ", appId=" + appId + ", hour=" + hour + "}";
+        }
+    }
+
+    private static class DecodedMessage {
+        final WriterKey key;
+        final String    agentHostname;
+
+        DecodedMessage(WriterKey key, String agentHostname) {
+            this.key           = key;
+            this.agentHostname = agentHostname;
+        }
+    }
+
+    private static class MessageGroup {
+        final String        appId;
+        final String        serviceType;
+        final String        agentHostname;
+        final List<Integer> indices  = new ArrayList<>();
+        final List<String>  messages = new ArrayList<>();
+
+        MessageGroup(String appId, String serviceType, String agentHostname) {
+            this.appId         = appId;
+            this.serviceType   = serviceType;
+            this.agentHostname = agentHostname;
+        }
+
+        void add(int index, String message) {
+            indices.add(index);
+            messages.add(message);
+        }
+
+        void setFailed(BitSet failed) {
+            for (Integer index : indices) {
+                failed.set(index);
+            }
+        }
+    }
 }
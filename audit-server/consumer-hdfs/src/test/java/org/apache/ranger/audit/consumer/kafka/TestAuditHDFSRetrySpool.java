@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.consumer.kafka;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+public class TestAuditHDFSRetrySpool {
+    @TempDir
+    File tempDir;
+
+    private AuditRouterHDFS     router;
+    private AuditHDFSRetrySpool retrySpool;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        router     = Mockito.mock(AuditRouterHDFS.class);
+        retrySpool = new AuditHDFSRetrySpool(tempDir.getPath(), router, 3600000);
+
+        retrySpool.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        retrySpool.stop();
+    }
+
+    @Test
+    public void testSpooledRecordsAreWrittenToHDFSOnly() throws Exception {
+        List<String> messages = Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+
+        Assertions.assertTrue(retrySpool.spool(messages, Arrays.asList("app1", null, "app2"), "hdfs-worker-0"));
+
+        File spoolFile = getSpoolFile();
+
+        // must not be picked up by the audit server's recovery, which replays spool_audit_*.failed files to Kafka
+        Assertions.assertTrue(spoolFile.getName().startsWith(AuditHDFSRetrySpool.SPOOL_FILE_PREFIX));
+        Assertions.assertFalse(spoolFile.getName().startsWith("spool_audit_"));
+
+        BitSet failed = new BitSet();
+
+        failed.set(1);
+
+        Mockito.when(router.routeAuditMessages(Mockito.anyList(), Mockito.anyList())).thenReturn(failed, new BitSet());
+
+        // record that failed to be written again is kept in the file
+        Assertions.assertEquals(1, retrySpool.retrySpooledRecords());
+        Mockito.verify(router).routeAuditMessages(messages, Arrays.asList("app1", null, "app2"));
+
+        List<String> lines = Files.readAllLines(spoolFile.toPath(), StandardCharsets.UTF_8);
+
+        Assertions.assertEquals(1, lines.size());
+        Assertions.assertTrue(lines.get(0).endsWith("||{\"id\":2}"));
+
+        // file is deleted once all its records are written
+        Assertions.assertEquals(0, retrySpool.retrySpooledRecords());
+        Assertions.assertFalse(spoolFile.exists());
+    }
+
+    @Test
+    public void testIncompleteSpoolFilesAreDeletedOnStart() throws Exception {
+        File tmpFile = new File(tempDir, AuditHDFSRetrySpool.SPOOL_FILE_PREFIX + "20261018_101500_000_hdfs-worker-0_1" + AuditHDFSRetrySpool.TMP_FILE_SUFFIX);
+
+        Files.write(tmpFile.toPath(), "1700000000000|app1|{\"id\":".getBytes(StandardCharsets.UTF_8));
+
+        retrySpool.stop();
+        retrySpool.start();
+
+        Assertions.assertFalse(tmpFile.exists());
+        Assertions.assertEquals(0, retrySpool.retrySpooledRecords());
+        Mockito.verifyNoInteractions(router);
+    }
+
+    private File getSpoolFile() {
+        File[] files = tempDir.listFiles((dir, name) -> name.endsWith(AuditHDFSRetrySpool.SPOOL_FILE_SUFFIX));
+
+        Assertions.assertNotNull(files);
+        Assertions.assertEquals(1, files.length);
+
+        return files[0];
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.consumer.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class TestAuditPendingRecords {
+    private static final String         TOPIC       = "ranger_audits";
+    private static final TopicPartition PARTITION_0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition(TOPIC, 1);
+
+    private final Queue<AuditPendingRecords.PendingRecord> completions = new ConcurrentLinkedQueue<>();
+
+    @Test
+    public void testCheckpointStopsAtFirstRecordNotDurable() {
+        AuditPendingRecords               pendingRecords = new AuditPendingRecords();
+        AuditPendingRecords.PendingRecord record10       = pendingRecords.add(record(0, 10), completions);
+        AuditPendingRecords.PendingRecord record11       = pendingRecords.add(record(0, 11), completions);
+        AuditPendingRecords.PendingRecord record12       = pendingRecords.add(record(0, 12), completions);
+
+        Assertions.assertEquals(3, pendingRecords.size());
+
+        // nothing is durable yet: checkpoint stays at the first consumed record
+        Assertions.assertEquals(Collections.singletonMap(PARTITION_0, new OffsetAndMetadata(10)), pendingRecords.getCheckpoints());
+
+        // writes complete out of order: offset 12 is durable, but 11 is not
+        pendingRecords.markDurable(record10);
+        pendingRecords.markDurable(record12);
+
+        Assertions.assertEquals(Collections.singletonMap(PARTITION_0, new OffsetAndMetadata(11)), pendingRecords.getCheckpoints());
+        Assertions.assertEquals(1, pendingRecords.size());
+
+        pendingRecords.markDurable(record11);
+
+        Assertions.assertEquals(Collections.singletonMap(PARTITION_0, new OffsetAndMetadata(13)), pendingRecords.getCheckpoints());
+        Assertions.assertEquals(0, pendingRecords.size());
+
+        // no progress since the last checkpoint
+        Assertions.assertTrue(pendingRecords.getCheckpoints().isEmpty());
+    }
+
+    @Test
+    public void testPartitionsAreCheckpointedIndependently() {
+        AuditPendingRecords               pendingRecords = new AuditPendingRecords();
+        AuditPendingRecords.PendingRecord record0        = pendingRecords.add(record(0, 5), completions);
+        AuditPendingRecords.PendingRecord record1        = pendingRecords.add(record(1, 7), completions);
+
+        pendingRecords.getCheckpoints();
+        pendingRecords.markDurable(record1);
+
+        Map<TopicPartition, OffsetAndMetadata> checkpoints = pendingRecords.getCheckpoints();
+
+        Assertions.assertEquals(Collections.singletonMap(PARTITION_1, new OffsetAndMetadata(8)), checkpoints);
+        Assertions.assertFalse(record0.written);
+    }
+
+    @Test
+    public void testRevokedPartitionsAreRemoved() {
+        AuditPendingRecords               pendingRecords = new AuditPendingRecords();
+        AuditPendingRecords.PendingRecord record0        = pendingRecords.add(record(0, 5), completions);
+
+        pendingRecords.add(record(1, 7), completions);
+        pendingRecords.getCheckpoints();
+
+        pendingRecords.retainPartitions(Collections.singleton(PARTITION_1));
+
+        Assertions.assertEquals(1, pendingRecords.size());
+        Assertions.assertTrue(pendingRecords.isRemoved(record0));
+
+        // a write completing after the partition is revoked is ignored
+        pendingRecords.markDurable(record0);
+
+        Assertions.assertEquals(1, pendingRecords.size());
+        Assertions.assertTrue(pendingRecords.getCheckpoints().isEmpty());
+    }
+
+    @Test
+    public void testWriteResultIsQueuedForWorker() {
+        AuditPendingRecords               pendingRecords = new AuditPendingRecords();
+        AuditPendingRecords.PendingRecord record         = pendingRecords.add(record(0, 5), completions);
+
+        record.onComplete(true);
+
+        Assertions.assertSame(record, completions.poll());
+        Assertions.assertTrue(record.written);
+    }
+
+    private static ConsumerRecord<String, String> record(int partition, long offset) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, "app1", "{\"id\":" + offset + "}");
+    }
+}
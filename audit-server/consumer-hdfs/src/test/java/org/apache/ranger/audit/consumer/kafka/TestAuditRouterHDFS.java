@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.consumer.kafka;
+
+import org.apache.ranger.audit.destination.HDFSAuditDestination;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestAuditRouterHDFS {
+    private static final String PROP_PREFIX = "xasecure.audit.destination.hdfs";
+
+    private final Map<String, HDFSAuditDestination> destinations = new ConcurrentHashMap<>();
+
+    private AuditRouterHDFS router;
+
+    @AfterEach
+    public void tearDown() {
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmittedMessagesAreWrittenPerServiceAppIdAndHour() throws Exception {
+        router = createRouter(60000, 100, true);
+
+        List<String> messages = Arrays.asList(
+                message("app1", "2026-10-18 10:15:00.000"),
+                message("app2", "2026-10-18 10:20:00.000"),
+                message("app1", "2026-10-18 10:45:00.000"),
+                message("app1", "2026-10-18 11:05:00.000"));
+        Callbacks callbacks = new Callbacks(messages.size());
+
+        router.submit(messages, Arrays.asList("app1", "app2", "app1", "app1"), callbacks.list);
+
+        // messages are buffered until the flush interval, or until flushed
+        Assertions.assertFalse(callbacks.await(200));
+
+        router.flush();
+
+        Assertions.assertTrue(callbacks.await(5000));
+        Assertions.assertEquals(Arrays.asList(true, true, true, true), callbacks.results());
+
+        // one write - hence one hflush - per (serviceType, app_id, hour)
+        List<Collection<String>> app1Writes = captureWrites("app1", 2);
+        List<Collection<String>> app2Writes = captureWrites("app2", 1);
+
+        Assertions.assertTrue(app1Writes.contains(Arrays.asList(messages.get(0), messages.get(2))));
+        Assertions.assertTrue(app1Writes.contains(Collections.singletonList(messages.get(3))));
+        Assertions.assertEquals(Collections.singletonList(messages.get(1)), app2Writes.get(0));
+    }
+
+    @Test
+    public void testWriterIsFlushedOnMaxRecords() throws Exception {
+        router = createRouter(60000, 2, true);
+
+        Callbacks callbacks = new Callbacks(2);
+
+        router.submit(Arrays.asList(message("app1", "2026-10-18 10:15:00.000"), message("app1", "2026-10-18 10:16:00.000")), Arrays.asList("app1", "app1"), callbacks.list);
+
+        Assertions.assertTrue(callbacks.await(5000));
+        Assertions.assertEquals(Arrays.asList(true, true), callbacks.results());
+
+        captureWrites("app1", 1);
+    }
+
+    @Test
+    public void testFailedWriteIsReportedToCallbacks() throws Exception {
+        router = createRouter(50, 100, false);
+
+        Callbacks callbacks = new Callbacks(2);
+
+        router.submit(Arrays.asList(message("app1", "2026-10-18 10:15:00.000"), message("app1", "2026-10-18 10:16:00.000")), Arrays.asList("app1", "app1"), callbacks.list);
+
+        // written by the flush timer
+        Assertions.assertTrue(callbacks.await(5000));
+        Assertions.assertEquals(Arrays.asList(false, false), callbacks.results());
+    }
+
+    @Test
+    public void testRouteAuditMessagesReportsFailedMessages() throws Exception {
+        router = createRouter(60000, 100, true);
+
+        Mockito.when(getDestination("app2").logJSON(Mockito.anyCollection())).thenReturn(false);
+
+        List<String> messages = Arrays.asList(message("app1", "2026-10-18 10:15:00.000"), message("app2", "2026-10-18 10:15:00.000"), message("app1", "2026-10-18 10:16:00.000"));
+
+        BitSet failed = router.routeAuditMessages(messages, Arrays.asList("app1", "app2", "app1"));
+
+        Assertions.assertEquals(1, failed.cardinality());
+        Assertions.assertTrue(failed.get(1));
+        captureWrites("app1", 1);
+    }
+
+    private AuditRouterHDFS createRouter(long flushIntervalMs, int flushMaxRecords, boolean writeSucceeds) {
+        Properties props = new Properties();
+
+        props.setProperty(PROP_PREFIX + "." + AuditRouterHDFS.PROP_WRITER_FLUSH_INTERVAL_MS, Long.toString(flushIntervalMs));
+        props.setProperty(PROP_PREFIX + "." + AuditRouterHDFS.PROP_WRITER_FLUSH_MAX_RECORDS, Integer.toString(flushMaxRecords));
+
+        AuditRouterHDFS ret = new AuditRouterHDFS() {
+            @Override
+            HDFSAuditDestination createHDFSDestination(String appId, String serviceType, String agentHostname) {
+                return getDestination(appId);
+            }
+        };
+
+        for (String appId : Arrays.asList("app1", "app2")) {
+            Mockito.when(getDestination(appId).logJSON(Mockito.anyCollection())).thenReturn(writeSucceeds);
+        }
+
+        ret.init(props, PROP_PREFIX);
+
+        return ret;
+    }
+
+    private HDFSAuditDestination getDestination(String appId) {
+        return destinations.computeIfAbsent(appId, k -> Mockito.mock(HDFSAuditDestination.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Collection<String>> captureWrites(String appId, int count) {
+        ArgumentCaptor<Collection<String>> writes = ArgumentCaptor.forClass(Collection.class);
+
+        Mockito.verify(getDestination(appId), Mockito.times(count)).logJSON(writes.capture());
+
+        List<Collection<String>> ret = new ArrayList<>();
+
+        for (Collection<String> write : writes.getAllValues()) {
+            ret.add(new ArrayList<>(write));
+        }
+
+        return ret;
+    }
+
+    private static String message(String appId, String evtTime) {
+        return "{\"agent\":\"" + appId + "\",\"agentHost\":\"host1\",\"evtTime\":\"" + evtTime + "\",\"additional_info\":\"{\\\"serviceType\\\":\\\"hdfs\\\"}\"}";
+    }
+
+    private static class Callbacks {
+        final List<AuditRouterHDFS.WriteCallback> list = new ArrayList<>();
+        final Boolean[]                           results;
+        final CountDownLatch                      latch;
+
+        Callbacks(int count) {
+            results = new Boolean[count];
+            latch   = new CountDownLatch(count);
+
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+
+                list.add(success -> {
+                    results[index] = success;
+
+                    latch.countDown();
+                });
+            }
+        }
+
+        boolean await(long timeoutMs) throws InterruptedException {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        List<Boolean> results() {
+            return Arrays.asList(results);
+        }
+    }
+}
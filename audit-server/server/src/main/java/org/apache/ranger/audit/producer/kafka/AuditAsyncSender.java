@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.producer.kafka;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuditAsyncSender - sends audit messages to Kafka without waiting for acknowledgements. Messages are first appended
+ * to the write-ahead log, so send() returns once the messages are on local disk, instead of after a Kafka round trip.
+ *
+ * Size of messages not yet acknowledged by Kafka is bounded by maxInFlightBytes: once the limit is reached, send()
+ * waits up to maxBlockMs for messages in flight to complete. Messages that Kafka fails to accept are handed to the
+ * recovery writer from the producer callback, without blocking the producer's I/O thread; these messages remain
+ * counted as in flight until the recovery writer writes them to the spool file, which bounds the recovery writer's
+ * queue as well. A message that can't be handed to the recovery writer remains in the write-ahead log, to be recovered
+ * on next start.
+ */
+public class AuditAsyncSender {
+    private static final Logger LOG = LoggerFactory.getLogger(AuditAsyncSender.class);
+
+    private final Producer<String, String> producer;
+    private final String                   topicName;
+    private final AuditWriteAheadLog       writeAheadLog;
+    private final AuditRecoveryManager     recoveryManager;
+    private final int                      maxInFlightBytes;
+    private final long                     maxBlockMs;
+    private final Semaphore                inFlightBytes;
+
+    public AuditAsyncSender(Producer<String, String> producer, String topicName, AuditWriteAheadLog writeAheadLog, AuditRecoveryManager recoveryManager, long maxInFlightBytes, long maxBlockMs) {
+        this.producer         = producer;
+        this.topicName        = topicName;
+        this.writeAheadLog    = writeAheadLog;
+        this.recoveryManager  = recoveryManager;
+        this.maxInFlightBytes = (int) Math.max(1, Math.min(maxInFlightBytes, Integer.MAX_VALUE));
+        this.maxBlockMs       = maxBlockMs;
+        this.inFlightBytes    = new Semaphore(this.maxInFlightBytes);
+    }
+
+    /**
+     * Append messages to the write-ahead log and send them to Kafka, without waiting for acknowledgements.
+     *
+     * @throws AuditProducer.BatchSendException with the messages not sent to Kafka, when the in-flight limit is not
+     *         freed within maxBlockMs or the producer fails to accept a message; these messages are not retained in
+     *         the write-ahead log, and must be spooled for recovery by the caller
+     * @throws Exception if the messages couldn't be written to the write-ahead log; none of them was sent
+     */
+    public void send(String key, List<String> messages) throws Exception {
+        AuditWriteAheadLog.Segment segment = writeAheadLog.append(key, messages);
+
+        for (int i = 0; i < messages.size(); i++) {
+            final String message = messages.get(i);
+            final int    bytes   = Math.max(1, Math.min(message.length(), maxInFlightBytes));
+            String       error   = null;
+
+            if (!inFlightBytes.tryAcquire(bytes, maxBlockMs, TimeUnit.MILLISECONDS)) {
+                error = "in-flight limit of " + maxInFlightBytes + " bytes not freed within " + maxBlockMs + "ms";
+            } else {
+                try {
+                    producer.send(new ProducerRecord<>(topicName, key, message), (metadata, e) -> {
+                        if (e == null) {
+                            inFlightBytes.release(bytes);
+                            segment.complete(1);
+                        } else {
+                            LOG.error("Error sending audit event to Kafka: {}", e.getMessage());
+
+                            handOffToRecovery(key, message, bytes, segment);
+                        }
+                    });
+                } catch (Exception e) {
+                    inFlightBytes.release(bytes);
+
+                    error = e.getMessage();
+                }
+            }
+
+            if (error != null) {
+                int failedCount = messages.size() - i;
+
+                LOG.error("Failed to queue audit events for sending: {}. {}/{} events of the batch were not sent", error, failedCount, messages.size());
+
+                segment.complete(failedCount);
+
+                throw new AuditProducer.BatchSendException("Failed to queue " + failedCount + "/" + messages.size() + " events for sending: " + error, messages.subList(i, messages.size()));
+            }
+        }
+    }
+
+    /**
+     * @return approximate size of messages not yet acknowledged by Kafka or written to the recovery spool
+     */
+    public long getInFlightBytes() {
+        return maxInFlightBytes - inFlightBytes.availablePermits();
+    }
+
+    private void handOffToRecovery(String key, String message, int bytes, AuditWriteAheadLog.Segment segment) {
+        boolean handedOff = recoveryManager != null && recoveryManager.offerFailedMessage(key, message, () -> {
+            inFlightBytes.release(bytes);
+            segment.complete(1);
+        });
+
+        if (!handedOff) {
+            inFlightBytes.release(bytes);
+
+            LOG.error("Recovery system is not running; audit event retained in write-ahead log segment {}, to be recovered on next start. key={}", segment.getPath(), key);
+        }
+    }
+}
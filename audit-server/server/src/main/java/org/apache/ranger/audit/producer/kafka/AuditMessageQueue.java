@@ -24,28 +24,42 @@
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.server.AuditServerConstants;
 import org.apache.ranger.audit.utils.AuditMessageQueueUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.UndeclaredThrowableException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
 /**
  * AuditMessageQueue creates the necessary kafka queue for http post to relay the audit events into kafka.
  * It creates the necessary audit topics, producer threads and recovery threads.
+ *
+ * By default, log() returns once the events are written to a local write-ahead log (producer.wal.dir), without waiting
+ * for Kafka to acknowledge them; see AuditAsyncSender. Size of unacknowledged events is bounded by
+ * producer.max.inflight.bytes, and events that Kafka fails to accept are handed to the recovery system. With
+ * producer.wait.for.ack=true, log() returns only after Kafka acknowledges the events, waiting up to
+ * producer.ack.timeout.ms. As events that Kafka fails to accept can't be recovered without the recovery system,
+ * producer.wait.for.ack=false is ignored when recovery is disabled or the write-ahead log can't be opened.
  */
 public class AuditMessageQueue extends AuditDestination {
-    public KafkaProducer<String, String> kafkaProducer;
-    public AuditProducer                 auditProducerRunnable;
-    public AuditMessageQueueUtils        auditMessageQueueUtils;
-    public String                        topicName;
-
-    private Thread                       producerThread;
-    private AuditRecoveryManager         recoveryManager;
+    public volatile KafkaProducer<String, String> kafkaProducer;
+    public AuditProducer                          auditProducerRunnable;
+    public AuditMessageQueueUtils                 auditMessageQueueUtils;
+    public volatile String                        topicName;
+
+    private Thread                                producerThread;
+    private volatile AuditRecoveryManager         recoveryManager;
+    private volatile AuditAsyncSender             asyncSender;
+    private AuditWriteAheadLog                    writeAheadLog;
+    private boolean                               waitForAck;
+    private long                                  ackTimeoutMs;
 
     private static final Logger LOG = LoggerFactory.getLogger(AuditMessageQueue.class);
 
@@ -56,13 +70,27 @@ public void init(Properties props, String propPrefix) {
         super.init(props, propPrefix);
 
         auditMessageQueueUtils = new AuditMessageQueueUtils(props);
+        waitForAck             = MiscUtil.getBooleanProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_WAIT_FOR_ACK, AuditServerConstants.DEFAULT_PRODUCER_WAIT_FOR_ACK);
+        ackTimeoutMs           = MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_ACK_TIMEOUT_MS, AuditServerConstants.DEFAULT_PRODUCER_ACK_TIMEOUT_MS);
 
         createAuditsTopic(props, propPrefix);
         createKafkaProducer(props, propPrefix);
         createRecoveryManager(props, propPrefix);
 
-        LOG.info("<== AuditMessageQueue.init() [CORE AUDIT SERVER]: created topic: {}, producer: {}",
-                topicName, (kafkaProducer != null) ? kafkaProducer.getClass() : "");
+        if (!waitForAck && (recoveryManager == null || !recoveryManager.isRecoveryEnabled())) {
+            LOG.warn("Recovery is disabled; {}.{}=false is ignored, as events that Kafka fails to accept couldn't be recovered", propPrefix, AuditServerConstants.PROP_PRODUCER_WAIT_FOR_ACK);
+
+            waitForAck = true;
+        }
+
+        if (!waitForAck) {
+            createAsyncSender(props, propPrefix);
+
+            waitForAck = asyncSender == null;
+        }
+
+        LOG.info("<== AuditMessageQueue.init() [CORE AUDIT SERVER]: created topic: {}, producer: {}, waitForAck: {}",
+                topicName, (kafkaProducer != null) ? kafkaProducer.getClass() : "", waitForAck);
     }
 
     @Override
@@ -126,11 +154,16 @@ public void stop() {
             }
         }
 
+        // Close write-ahead log after the producer, so that segments of events acknowledged during close are deleted
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+
         LOG.info("<== AuditMessageQueue.stop() [CORE AUDIT SERVER]");
     }
 
     @Override
-    public synchronized boolean log(final AuditEventBase event) {
+    public boolean log(final AuditEventBase event) {
         boolean ret = false;
         if (event instanceof AuthzAuditEvent) {
             AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
@@ -156,14 +189,9 @@ Partition key is agentId (aka plugin ID). AuditPartitioner allocates configured
             final String message = MiscUtil.stringify(event);
 
             try {
-                if (topicName == null || kafkaProducer == null) {
-                    init(props, propPrefix);
-                }
+                initIfNeeded();
                 if (kafkaProducer != null) {
-                    MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
-                        AuditProducer.send(kafkaProducer, topicName, key, message);
-                        return null;
-                    });
+                    send(key, Collections.singletonList(message));
                     ret = true;
                 } else {
                     // Kafka producer not available - spool to file for recovery
@@ -180,12 +208,12 @@ Partition key is agentId (aka plugin ID). AuditPartitioner allocates configured
     }
 
     @Override
-    public synchronized boolean log(final Collection<AuditEventBase> events) {
+    public boolean log(final Collection<AuditEventBase> events) {
         return log(events, null);
     }
 
     @Override
-    public synchronized boolean log(final Collection<AuditEventBase> events, String batchKey) {
+    public boolean log(final Collection<AuditEventBase> events, String batchKey) {
         if (events == null || events.isEmpty()) {
             return true;
         }
@@ -240,22 +268,19 @@ public synchronized boolean log(final Collection<AuditEventBase> events, String
         LOG.debug("Batch of {} events will be committed with batch key (appId): {}", authzEvents.size(), batchKey);
 
         try {
-            if (topicName == null || kafkaProducer == null) {
-                init(props, propPrefix);
-            }
+            initIfNeeded();
 
             if (kafkaProducer != null) {
                 // Send entire batch to Kafka with same batch key (appId) for all events
                 // With custom partitioning: events distributed round-robin for load balancing
                 // Without custom partitioning: all events to same partition for ordering
                 final String finalBatchKey = batchKey;
-                MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
-                    AuditProducer.sendBatch(kafkaProducer, topicName, finalBatchKey, messages);
-                    return null;
-                });
+
+                send(finalBatchKey, messages);
+
                 successCount = authzEvents.size();
                 allSuccess   = true;
-                LOG.debug("ranger-audit-server/ranger-audit-server-service/src/main/java/org/apache/ranger/audit/producer/kafka/AuditMessageQueue.javaSuccessfully sent batch of {} events to Kafka topic: {} with key: {}", successCount, topicName, finalBatchKey);
+                LOG.debug("Successfully sent batch of {} events to Kafka topic: {} with key: {}", successCount, topicName, finalBatchKey);
             } else {
                 LOG.warn("Kafka producer not available, spooling batch of {} messages to recovery", authzEvents.size());
                 for (String message : messages) {
@@ -294,6 +319,41 @@ public synchronized boolean log(final Collection<AuditEventBase> events, String
         return allSuccess;
     }
 
+    /**
+     * Send messages to Kafka: via the write-ahead log without waiting for acknowledgements, or wait for
+     * acknowledgements when producer.wait.for.ack=true
+     */
+    private void send(String key, List<String> messages) throws Exception {
+        AuditAsyncSender asyncSender = this.asyncSender;
+
+        try {
+            if (asyncSender != null) {
+                MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
+                    asyncSender.send(key, messages);
+                    return null;
+                });
+            } else {
+                MiscUtil.executePrivilegedAction((PrivilegedExceptionAction<Void>) () -> {
+                    AuditProducer.sendBatch(kafkaProducer, topicName, key, messages, ackTimeoutMs);
+                    return null;
+                });
+            }
+        } catch (UndeclaredThrowableException e) {
+            // UserGroupInformation.doAs() wraps checked exceptions like BatchSendException, which callers need to retry only failed messages
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private void initIfNeeded() {
+        if (topicName == null || kafkaProducer == null) {
+            synchronized (this) {
+                if (topicName == null || kafkaProducer == null) {
+                    init(props, propPrefix);
+                }
+            }
+        }
+    }
+
     private void startRangerAuditRecoveryThread() {
         LOG.info("==> AuditMessageQueue.startRangerAuditRecoveryThread()");
 
@@ -362,6 +422,29 @@ private void createRecoveryManager(final Properties props, final String propPref
         }
     }
 
+    private void createAsyncSender(final Properties props, final String propPrefix) {
+        if (asyncSender == null && kafkaProducer != null) {
+            String  walDir          = MiscUtil.getStringProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_WAL_DIR, AuditServerConstants.DEFAULT_PRODUCER_WAL_DIR);
+            long    maxSegmentBytes = MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_WAL_SEGMENT_MAX_BYTES, AuditServerConstants.DEFAULT_PRODUCER_WAL_SEGMENT_MAX_BYTES);
+            boolean sync            = MiscUtil.getBooleanProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_WAL_SYNC, AuditServerConstants.DEFAULT_PRODUCER_WAL_SYNC);
+            long    maxInFlight     = MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_MAX_INFLIGHT_BYTES, AuditServerConstants.DEFAULT_PRODUCER_MAX_INFLIGHT_BYTES);
+            long    maxBlockMs      = MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_MAX_BLOCK_MS, AuditServerConstants.DEFAULT_PRODUCER_MAX_BLOCK_MS);
+
+            try {
+                AuditWriteAheadLog wal = new AuditWriteAheadLog(walDir, recoveryManager.getSpoolDir(), maxSegmentBytes, sync);
+
+                wal.open();
+
+                writeAheadLog = wal;
+                asyncSender   = new AuditAsyncSender(kafkaProducer, topicName, wal, recoveryManager, maxInFlight, maxBlockMs);
+
+                LOG.info("Created async sender: walDir={}, maxInFlightBytes={}", walDir, maxInFlight);
+            } catch (Exception e) {
+                LOG.error("Failed to open write-ahead log in {}; {}.{}=false is ignored", walDir, propPrefix, AuditServerConstants.PROP_PRODUCER_WAIT_FOR_ACK, e);
+            }
+        }
+    }
+
     /**
      * Spool failed audit message to recovery system
      */
@@ -66,8 +66,12 @@ public AuditProducer(Properties props, String propPrefix) throws Exception {
             producerProps.put(AuditServerConstants.PROP_SASL_JAAS_CONFIG, auditMessageQueueUtils.getJAASConfig(props, propPrefix));
         }
 
-        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
-        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 32 * 1024);
+        // buffer.memory bounds the bytes of records not yet acknowledged by Kafka; once full, send() blocks for up to max.block.ms
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, MiscUtil.getIntProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_LINGER_MS, AuditServerConstants.DEFAULT_PRODUCER_LINGER_MS));
+        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, MiscUtil.getIntProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_BATCH_SIZE, AuditServerConstants.DEFAULT_PRODUCER_BATCH_SIZE));
+        producerProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_BUFFER_MEMORY, AuditServerConstants.DEFAULT_PRODUCER_BUFFER_MEMORY));
+        producerProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, MiscUtil.getLongProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_MAX_BLOCK_MS, AuditServerConstants.DEFAULT_PRODUCER_MAX_BLOCK_MS));
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, MiscUtil.getStringProperty(props, propPrefix + "." + AuditServerConstants.PROP_PRODUCER_COMPRESSION_TYPE, AuditServerConstants.DEFAULT_PRODUCER_COMPRESSION_TYPE));
 
         // Check if configured.plugins is set to determine partitioning strategy
         // 1) configured.plugins is set then Custom AuditPartitioner is used, it allocates predefined set of partitions to each appId.
@@ -166,6 +170,20 @@ public void onCompletion(RecordMetadata metadata, Exception e) {
      * @throws Exception if batch send fails
      */
     public static void sendBatch(KafkaProducer<String, String> producer, String topic, String batchKey, List<String> values) throws Exception {
+        sendBatch(producer, topic, batchKey, values, AuditServerConstants.DEFAULT_PRODUCER_ACK_TIMEOUT_MS);
+    }
+
+    /**
+     * Send a batch of audit events to Kafka and wait up to ackTimeoutMs for all of them to be acknowledged.
+     *
+     * @param producer Kafka producer instance
+     * @param topic Topic to send to
+     * @param batchKey Single key (appId) to use for ALL events in the batch
+     * @param values List of serialized event messages
+     * @param ackTimeoutMs max time to wait for acknowledgements
+     * @throws Exception if batch send fails
+     */
+    public static void sendBatch(KafkaProducer<String, String> producer, String topic, String batchKey, List<String> values, long ackTimeoutMs) throws Exception {
         int batchSize = values.size();
         LOG.debug("==> AuditProducer.sendBatch(): Sending batch of {} events to topic: {} with single key: {}", batchSize, topic, batchKey);
 
@@ -215,10 +233,10 @@ public void onCompletion(RecordMetadata metadata, Exception e) {
         }
 
         // max wait time before timeout
-        boolean completed = latch.await(30, TimeUnit.SECONDS);
+        boolean completed = latch.await(ackTimeoutMs, TimeUnit.MILLISECONDS);
 
         if (!completed) {
-            String errorMsg = String.format("Batch send timed out after 30 seconds. %d/%d events still pending", latch.getCount(), batchSize);
+            String errorMsg = String.format("Batch send timed out after %d ms. %d/%d events still pending", ackTimeoutMs, latch.getCount(), batchSize);
             LOG.error(errorMsg);
             throw new Exception(errorMsg);
         }
@@ -168,6 +168,37 @@ public boolean addFailedMessage(String key, String message) {
         return ret;
     }
 
+    /**
+     * Hand over a failed audit message to the recovery writer, without waiting for space in the recovery queue
+     * @param key The partition key (agentId)
+     * @param message The serialized audit message
+     * @param onSpooled called after the message is written to the spool file
+     * @return true if message was handed over; false if recovery is disabled or stopped
+     */
+    public boolean offerFailedMessage(String key, String message, Runnable onSpooled) {
+        boolean ret;
+        if (recoveryWriter == null || !recoveryWriter.isEnabled()) {
+            ret = false;
+        } else  {
+            ret = recoveryWriter.offerFailedMessage(key, message, onSpooled);
+        }
+        return ret;
+    }
+
+    /**
+     * Check if failed messages can be spooled for recovery
+     */
+    public boolean isRecoveryEnabled() {
+        return recoveryWriter != null && recoveryWriter.isEnabled();
+    }
+
+    /**
+     * Directory where failed messages are spooled for retry
+     */
+    public String getSpoolDir() {
+        return recoveryWriter != null ? recoveryWriter.getSpoolDir() : null;
+    }
+
     /**
      * Get recovery statistics for monitoring
      */
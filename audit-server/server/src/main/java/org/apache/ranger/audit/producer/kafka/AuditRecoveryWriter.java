@@ -32,9 +32,13 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -55,6 +59,7 @@ public class AuditRecoveryWriter implements Runnable {
     private static final int     DEFAULT_MAX_MESSAGES_PER_FILE      = 10000;
 
     private final BlockingQueue<FailedAuditMessage> messageQueue = new LinkedBlockingQueue<>(100000);
+    private final Queue<FailedAuditMessage>         handOffQueue = new ConcurrentLinkedQueue<>();
     private final Properties props;
     private final String propPrefix;
 
@@ -104,7 +109,7 @@ public boolean addFailedMessage(String key, String message) {
             ret = false;
         } else {
             try {
-                FailedAuditMessage failedMsg = new FailedAuditMessage(key, message, System.currentTimeMillis());
+                FailedAuditMessage failedMsg = new FailedAuditMessage(key, message, System.currentTimeMillis(), null);
                 boolean added = messageQueue.offer(failedMsg, 1, TimeUnit.SECONDS);
                 if (!added) {
                     LOG.warn("Failed to add message to recovery queue - queue is full");
@@ -120,6 +125,29 @@ public boolean addFailedMessage(String key, String message) {
         return ret;
     }
 
+    /**
+     * Hand over a failed audit message for writing to spool file, without waiting. Used from threads that must not
+     * block, like Kafka producer callbacks; the number of messages handed over is to be bounded by the caller, which
+     * is notified once the message is written to the spool file. Messages handed over are not written after
+     * shutdown(); the caller is to retain them until notified.
+     * @param onSpooled called from this writer's thread after the message is written and flushed to the spool file;
+     *                  not called if the message couldn't be written
+     * @return true if the message was accepted; false if recovery is disabled or stopped
+     */
+    public boolean offerFailedMessage(String key, String message, Runnable onSpooled) {
+        boolean ret;
+
+        if (!enabled || !running) {
+            ret = false;
+        } else {
+            handOffQueue.add(new FailedAuditMessage(key, message, System.currentTimeMillis(), onSpooled));
+
+            ret = true;
+        }
+
+        return ret;
+    }
+
     @Override
     public void run() {
         if (!enabled) {
@@ -140,8 +168,10 @@ public void run() {
 
             while (running) {
                 try {
+                    writeHandedOffMessages();
+
                     // Poll for messages with timeout
-                    FailedAuditMessage failedMsg = messageQueue.poll(1, TimeUnit.SECONDS);
+                    FailedAuditMessage failedMsg = messageQueue.poll(100, TimeUnit.MILLISECONDS);
 
                     if (failedMsg != null) {
                         writeMessageToFile(failedMsg);
@@ -206,7 +236,29 @@ private void createDirectories() throws IOException {
         }
     }
 
-    private void writeMessageToFile(FailedAuditMessage failedMsg) {
+    private void writeHandedOffMessages() {
+        List<FailedAuditMessage> written = new ArrayList<>();
+
+        for (FailedAuditMessage failedMsg = handOffQueue.poll(); failedMsg != null; failedMsg = handOffQueue.poll()) {
+            if (writeMessageToFile(failedMsg)) {
+                written.add(failedMsg);
+            }
+        }
+
+        if (!written.isEmpty() && flushCurrentFile()) {
+            for (FailedAuditMessage failedMsg : written) {
+                try {
+                    failedMsg.onSpooled.run();
+                } catch (Exception e) {
+                    LOG.error("Error notifying that message was written to spool file", e);
+                }
+            }
+        }
+    }
+
+    private boolean writeMessageToFile(FailedAuditMessage failedMsg) {
+        boolean ret = false;
+
         try {
             // Open new file if needed
             if (currentWriter == null) {
@@ -223,11 +275,31 @@ private void writeMessageToFile(FailedAuditMessage failedMsg) {
             if (currentFileMessageCount % 100 == 0) {
                 currentWriter.flush();
             }
+
+            ret = true;
         } catch (IOException e) {
             LOG.error("Error writing message to spool file: {}", currentFileName, e);
             // Try to close and reopen file
             closeCurrentFile();
         }
+
+        return ret;
+    }
+
+    private boolean flushCurrentFile() {
+        boolean ret = true;
+
+        if (currentWriter != null) {
+            try {
+                currentWriter.flush();
+            } catch (IOException e) {
+                LOG.error("Error flushing spool file: {}", currentFileName, e);
+
+                ret = false;
+            }
+        }
+
+        return ret;
     }
 
     private void openNewFile() throws IOException {
@@ -296,17 +368,23 @@ private void closeCurrentFile() {
     private static class FailedAuditMessage {
         final String key;
         final String message;
-        final long   timestamp;
+        final long     timestamp;
+        final Runnable onSpooled;
 
-        FailedAuditMessage(String key, String message, long timestamp) {
+        FailedAuditMessage(String key, String message, long timestamp, Runnable onSpooled) {
             this.key       = key;
             this.message   = message;
             this.timestamp = timestamp;
+            this.onSpooled = onSpooled;
         }
     }
 
     public int getQueueSize() {
-        return messageQueue.size();
+        return messageQueue.size() + handOffQueue.size();
+    }
+
+    public String getSpoolDir() {
+        return spoolDir;
     }
 
     public String getCurrentFileName() {
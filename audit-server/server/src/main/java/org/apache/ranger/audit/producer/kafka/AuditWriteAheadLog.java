@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.producer.kafka;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AuditWriteAheadLog - append-only local log of audit messages, written before the messages are sent to Kafka; this
+ * lets the audit server acknowledge a request once its messages are in the log, without waiting for Kafka.
+ * Messages are written in the format of recovery spool files: timestamp|key|message
+ *
+ * Concurrent appends are committed together: one of the appending threads flushes - and, with sync enabled, syncs -
+ * the log for all of them. The log is written to segment files of up to maxSegmentBytes; a segment is deleted once it
+ * is full and each of its messages is either acknowledged by Kafka or written to the recovery spool. Segments left
+ * over from an earlier run, like after a crash, are moved to the recovery spool directory by open(), for
+ * AuditRecoveryRetry to send them to Kafka; messages that Kafka acknowledged before the crash are then sent again.
+ */
+public class AuditWriteAheadLog {
+    private static final Logger LOG = LoggerFactory.getLogger(AuditWriteAheadLog.class);
+
+    static final String SEGMENT_FILE_PREFIX = "wal_audit_";
+    static final String SEGMENT_FILE_SUFFIX = ".log";
+
+    private final Path    walDir;
+    private final Path    spoolDir;
+    private final long    maxSegmentBytes;
+    private final boolean sync;
+    private final Object  commitLock = new Object();
+
+    private Segment       currentSegment;
+    private long          appendCount;
+    private int           segmentCount;
+    private boolean       closed = true;
+    private volatile long commitCount;
+
+    public AuditWriteAheadLog(String walDir, String spoolDir, long maxSegmentBytes, boolean sync) {
+        this.walDir          = Paths.get(walDir);
+        this.spoolDir        = Paths.get(spoolDir);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.sync            = sync;
+    }
+
+    public synchronized void open() throws IOException {
+        LOG.info("==> AuditWriteAheadLog.open(walDir={}, spoolDir={}, maxSegmentBytes={}, sync={})", walDir, spoolDir, maxSegmentBytes, sync);
+
+        Files.createDirectories(walDir);
+        Files.createDirectories(spoolDir);
+
+        recoverSegments();
+
+        closed = false;
+
+        LOG.info("<== AuditWriteAheadLog.open()");
+    }
+
+    /**
+     * Append messages to the log, and wait until they are committed
+     * @return segment the messages are written to; Segment.complete() must be called for each of the messages
+     */
+    public Segment append(String key, List<String> messages) throws IOException {
+        Segment ret;
+        long    appendNumber;
+
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("write-ahead log is closed");
+            }
+
+            if (currentSegment == null || currentSegment.size >= maxSegmentBytes) {
+                rollSegment();
+            }
+
+            ret = currentSegment;
+
+            String prefix = System.currentTimeMillis() + "|" + (key != null ? key : "") + "|";
+
+            ret.pendingCount.addAndGet(messages.size());
+
+            try {
+                for (String message : messages) {
+                    ret.writer.write(prefix);
+                    ret.writer.write(message);
+                    ret.writer.write('\n');
+
+                    ret.size += prefix.length() + message.length() + 1;
+                }
+            } catch (IOException e) {
+                ret.complete(messages.size());
+
+                throw e;
+            }
+
+            appendNumber = ++appendCount;
+        }
+
+        try {
+            commit(appendNumber);
+        } catch (IOException e) {
+            ret.complete(messages.size());
+
+            throw e;
+        }
+
+        return ret;
+    }
+
+    public synchronized void close() {
+        LOG.info("==> AuditWriteAheadLog.close()");
+
+        closed = true;
+
+        if (currentSegment != null) {
+            try {
+                currentSegment.close(sync);
+            } catch (IOException e) {
+                LOG.error("Error closing write-ahead log segment {}", currentSegment.path, e);
+            }
+
+            currentSegment = null;
+        }
+
+        LOG.info("<== AuditWriteAheadLog.close()");
+    }
+
+    // appends committed earlier are already flushed to the segment they were written to, as a segment is flushed on roll
+    private void commit(long appendNumber) throws IOException {
+        if (commitCount < appendNumber) {
+            synchronized (commitLock) {
+                if (commitCount < appendNumber) {
+                    Segment segment;
+                    long    lastAppendNumber;
+
+                    synchronized (this) {
+                        segment          = currentSegment;
+                        lastAppendNumber = appendCount;
+
+                        if (segment == null) {
+                            throw new IOException("write-ahead log is closed");
+                        }
+
+                        segment.writer.flush();
+                    }
+
+                    if (sync) {
+                        try {
+                            segment.channel.force(false);
+                        } catch (ClosedChannelException e) {
+                            LOG.debug("Segment {} was rolled after flush; it was synced before close", segment.path);
+                        }
+                    }
+
+                    commitCount = lastAppendNumber;
+                }
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        if (currentSegment != null) {
+            currentSegment.close(sync);
+
+            currentSegment = null;
+        }
+
+        String fileName = SEGMENT_FILE_PREFIX + new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date()) + "_" + (++segmentCount) + SEGMENT_FILE_SUFFIX;
+
+        currentSegment = new Segment(walDir.resolve(fileName));
+
+        LOG.debug("Opened write-ahead log segment {}", currentSegment.path);
+    }
+
+    private void recoverSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(walDir, SEGMENT_FILE_PREFIX + "*" + SEGMENT_FILE_SUFFIX)) {
+            for (Path file : files) {
+                truncatePartialLine(file);
+
+                if (Files.size(file) == 0) {
+                    Files.delete(file);
+                } else {
+                    String fileName  = file.getFileName().toString();
+                    Path   spoolFile = spoolDir.resolve("spool_audit_" + fileName.substring(0, fileName.length() - SEGMENT_FILE_SUFFIX.length()) + ".failed");
+
+                    Files.move(file, spoolFile);
+
+                    LOG.warn("Moved write-ahead log segment {} from an earlier run to recovery spool {}; its messages will be sent to Kafka again", file, spoolFile);
+                }
+            }
+        }
+    }
+
+    // a crash while appending can leave a partially written message, which was not acknowledged to the client
+    private static void truncatePartialLine(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long       size   = channel.size();
+            long       length = size;
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+
+            while (length > 0) {
+                buffer.clear();
+                channel.read(buffer, length - 1);
+
+                if (buffer.get(0) == '\n') {
+                    break;
+                }
+
+                length--;
+            }
+
+            if (length < size) {
+                LOG.warn("Truncating partially written message at the end of write-ahead log segment {}: {} bytes", file, size - length);
+
+                channel.truncate(length);
+            }
+        }
+    }
+
+    public static class Segment {
+        private final Path          path;
+        private final FileChannel   channel;
+        private final Writer        writer;
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean deleted      = new AtomicBoolean();
+        private volatile boolean    closed;
+        private long                size;
+
+        Segment(Path path) throws IOException {
+            FileOutputStream out = new FileOutputStream(path.toFile(), true);
+
+            this.path    = path;
+            this.channel = out.getChannel();
+            this.writer  = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Mark messages of this segment as done - i.e. acknowledged by Kafka or written to the recovery spool
+         */
+        public void complete(int count) {
+            if (pendingCount.addAndGet(-count) == 0 && closed) {
+                delete();
+            }
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public int getPendingCount() {
+            return pendingCount.get();
+        }
+
+        void close(boolean sync) throws IOException {
+            try {
+                writer.flush();
+
+                if (sync) {
+                    channel.force(false);
+                }
+            } finally {
+                writer.close();
+
+                closed = true;
+
+                if (pendingCount.get() == 0) {
+                    delete();
+                }
+            }
+        }
+
+        private void delete() {
+            if (deleted.compareAndSet(false, true)) {
+                try {
+                    Files.deleteIfExists(path);
+
+                    LOG.debug("Deleted write-ahead log segment {}", path);
+                } catch (IOException e) {
+                    LOG.error("Error deleting write-ahead log segment {}", path, e);
+                }
+            }
+        }
+    }
+}
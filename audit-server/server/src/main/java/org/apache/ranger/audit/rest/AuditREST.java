@@ -19,6 +19,8 @@
 
 package org.apache.ranger.audit.rest;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.security.authentication.util.KerberosName;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
@@ -26,6 +28,7 @@
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.audit.server.AuditServerConfig;
 import org.apache.ranger.audit.server.AuditServerConstants;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,19 +38,25 @@
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import static org.apache.ranger.audit.server.AuditServerConstants.PROP_PREFIX_AUDIT_SERVER_SERVICE;
 import static org.apache.ranger.audit.server.AuditServerConstants.PROP_SUFFIX_ALLOWED_USERS;
@@ -58,6 +67,9 @@
 public class AuditREST {
     private static final Logger LOG = LoggerFactory.getLogger(AuditREST.class);
 
+    private static final String CONTENT_ENCODING_GZIP     = "gzip";
+    private static final String CONTENT_ENCODING_IDENTITY = "identity";
+
     private static final Map<String, Set<String>> allowedServiceUsers;
 
     static {
@@ -149,17 +161,21 @@ public Response getStatus() {
 
     /**
      *  Access Audits producer endpoint.
+     *  The request body is a JSON array of audit events, gzip compressed when Content-Encoding is gzip. The whole body
+     *  is decoded before any event is sent to the audit destination, so that a malformed or truncated body is rejected
+     *  without ingesting any of its events: the client resends all events of a rejected request.
      *  @param serviceName Required query parameter to identify the source service (hdfs, hive, kafka, solr, etc.)
      *  @param appId Optional query parameter for batch processing - identifies the application instance
-     *  @param accessAudits List of audit events to process
+     *  @param contentEncoding Content-Encoding of the request body: gzip or identity
+     *  @param accessAudits Request body, with the list of audit events to process
      *  @param request HTTP request to extract authenticated user
      */
     @POST
     @Path("/access")
     @Consumes("application/json")
     @Produces("application/json")
-    public Response logAccessAudit(@QueryParam("serviceName") String serviceName, @QueryParam("appId") String appId, List<AuthzAuditEvent> accessAudits, @Context HttpServletRequest request) {
-        LOG.debug("==> AuditREST.logAccessAudit(serviceName={}, appId={}, auditsCount={}}", serviceName, appId, accessAudits != null ? accessAudits.size() : 0);
+    public Response logAccessAudit(@QueryParam("serviceName") String serviceName, @QueryParam("appId") String appId, @HeaderParam(HttpHeaders.CONTENT_ENCODING) String contentEncoding, InputStream accessAudits, @Context HttpServletRequest request) {
+        LOG.debug("==> AuditREST.logAccessAudit(serviceName={}, appId={}, contentEncoding={})", serviceName, appId, contentEncoding);
 
         Response ret;
         String authenticatedUser = getAuthenticatedUser(request);
@@ -170,12 +186,6 @@ public Response logAccessAudit(@QueryParam("serviceName") String serviceName, @Q
             ret = Response.status(Response.Status.SERVICE_UNAVAILABLE)
                     .entity(buildErrorResponse("Audit service not available"))
                     .build();
-        } else if (accessAudits == null || accessAudits.isEmpty()) {
-            LOG.warn("Empty or null audit events batch received from serviceName: {}, user: {}", serviceName, authenticatedUser);
-
-            ret = Response.status(Response.Status.BAD_REQUEST)
-                    .entity(buildErrorResponse("Audit events cannot be empty"))
-                    .build();
         } else if (StringUtils.isBlank(serviceName)) {
             LOG.error("serviceName query parameter is required. Rejecting audit request.");
 
@@ -194,16 +204,28 @@ public Response logAccessAudit(@QueryParam("serviceName") String serviceName, @Q
             ret = Response.status(Response.Status.FORBIDDEN)
                     .entity(buildErrorResponse("User is not authorized to send audit events"))
                     .build();
+        } else if (StringUtils.isNotEmpty(contentEncoding) && !CONTENT_ENCODING_GZIP.equalsIgnoreCase(contentEncoding) && !CONTENT_ENCODING_IDENTITY.equalsIgnoreCase(contentEncoding)) {
+            LOG.error("Unsupported Content-Encoding {} from serviceName: {}. Rejecting audit request.", contentEncoding, serviceName);
+
+            ret = Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE)
+                    .entity(buildErrorResponse("Unsupported Content-Encoding: " + contentEncoding))
+                    .build();
         } else {
             try {
-                LOG.debug("Processing {} audit events from service: {}, appId: {}", accessAudits.size(), serviceName, appId);
+                LOG.debug("Processing audit events from service: {}, appId: {}", serviceName, appId);
 
-                boolean success = auditDestinationMgr.logBatch(accessAudits, appId);
+                List<AuthzAuditEvent> events = readAuditEvents(accessAudits, contentEncoding);
 
-                if (success) {
+                if (events.isEmpty()) {
+                    LOG.warn("Empty audit events batch received from serviceName: {}, user: {}", serviceName, authenticatedUser);
+
+                    ret = Response.status(Response.Status.BAD_REQUEST)
+                            .entity(buildErrorResponse("Audit events cannot be empty"))
+                            .build();
+                } else if (auditDestinationMgr.logBatch(events, appId)) {
                     Map<String, Object> response = new HashMap<>();
 
-                    response.put("total", accessAudits.size());
+                    response.put("total", events.size());
                     response.put("timestamp", System.currentTimeMillis());
                     response.put("serviceName", serviceName);
 
@@ -221,7 +243,7 @@ public Response logAccessAudit(@QueryParam("serviceName") String serviceName, @Q
                             .entity(jsonString)
                             .build();
                 } else {
-                    LOG.warn("Batch processing failed for {} events from serviceName: {}, appId: {}. Events spooled to recovery.", accessAudits.size(), serviceName, appId);
+                    LOG.warn("Batch processing failed for {} events from serviceName: {}, appId: {}. Events spooled to recovery.", events.size(), serviceName, appId);
 
                     ret = Response.status(Response.Status.ACCEPTED)
                             .entity(buildErrorResponse("Batch processing failed. Events have been queued for retry."))
@@ -241,6 +263,34 @@ public Response logAccessAudit(@QueryParam("serviceName") String serviceName, @Q
         return ret;
     }
 
+    private static List<AuthzAuditEvent> readAuditEvents(InputStream in, String contentEncoding) throws IOException {
+        List<AuthzAuditEvent> ret = new ArrayList<>();
+
+        try (JsonParser parser = createParser(in, contentEncoding)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("request body must be a JSON array of audit events");
+            }
+
+            JsonToken token;
+
+            for (token = parser.nextToken(); token == JsonToken.START_OBJECT; token = parser.nextToken()) {
+                ret.add(parser.readValueAs(AuthzAuditEvent.class));
+            }
+
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException("unexpected token " + token + " in the list of audit events");
+            }
+        }
+
+        return ret;
+    }
+
+    private static JsonParser createParser(InputStream in, String contentEncoding) throws IOException {
+        InputStream body = CONTENT_ENCODING_GZIP.equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(in) : in;
+
+        return JsonUtilsV2.getMapper().getFactory().createParser(body);
+    }
+
     private String buildResponse(Map<String, Object> respMap) {
         try {
             return MiscUtil.getMapper().writeValueAsString(respMap);
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.producer.kafka;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestAuditAsyncSender {
+    private static final String TOPIC = "ranger_audits";
+
+    @TempDir
+    File tempDir;
+
+    private MockProducer<String, String> producer;
+    private AuditRecoveryManager         recoveryManager;
+    private AuditWriteAheadLog           writeAheadLog;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        producer        = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        recoveryManager = Mockito.mock(AuditRecoveryManager.class);
+        writeAheadLog   = new AuditWriteAheadLog(new File(tempDir, "wal").getPath(), new File(tempDir, "spool").getPath(), 1024 * 1024, true);
+
+        writeAheadLog.open();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writeAheadLog.close();
+    }
+
+    @Test
+    public void testSendReturnsBeforeKafkaAcks() throws Exception {
+        AuditAsyncSender sender   = new AuditAsyncSender(producer, TOPIC, writeAheadLog, recoveryManager, 1024 * 1024, 1000);
+        List<String>     messages = Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}");
+
+        sender.send("hdfs", messages);
+
+        // events are in the write-ahead log and sent to Kafka, but not yet acknowledged
+        Path segment = getSegmentFile();
+
+        Assertions.assertEquals(3, producer.history().size());
+        Assertions.assertEquals(3, Files.readAllLines(segment, StandardCharsets.UTF_8).size());
+        Assertions.assertTrue(sender.getInFlightBytes() > 0);
+
+        for (int i = 0; i < messages.size(); i++) {
+            Assertions.assertTrue(producer.completeNext());
+        }
+
+        Assertions.assertEquals(0, sender.getInFlightBytes());
+        Mockito.verifyNoInteractions(recoveryManager);
+
+        // segment is deleted once it is rolled, as all its events are acknowledged
+        writeAheadLog.close();
+
+        Assertions.assertFalse(Files.exists(segment));
+    }
+
+    @Test
+    public void testFailedSendIsHandedToRecovery() throws Exception {
+        AuditAsyncSender         sender    = new AuditAsyncSender(producer, TOPIC, writeAheadLog, recoveryManager, 1024 * 1024, 1000);
+        ArgumentCaptor<Runnable> onSpooled = ArgumentCaptor.forClass(Runnable.class);
+
+        Mockito.when(recoveryManager.offerFailedMessage(Mockito.eq("hdfs"), Mockito.eq("{\"id\":1}"), onSpooled.capture())).thenReturn(true);
+
+        sender.send("hdfs", Collections.singletonList("{\"id\":1}"));
+
+        Path segment = getSegmentFile();
+
+        Assertions.assertTrue(producer.errorNext(new RuntimeException("broker not available")));
+
+        // event remains in flight, and in the write-ahead log, until the recovery writer spools it
+        Assertions.assertTrue(sender.getInFlightBytes() > 0);
+
+        onSpooled.getValue().run();
+
+        Assertions.assertEquals(0, sender.getInFlightBytes());
+
+        writeAheadLog.close();
+
+        Assertions.assertFalse(Files.exists(segment));
+    }
+
+    @Test
+    public void testFailedSendIsRetainedWhenRecoveryIsStopped() throws Exception {
+        AuditAsyncSender sender = new AuditAsyncSender(producer, TOPIC, writeAheadLog, recoveryManager, 1024 * 1024, 1000);
+
+        Mockito.when(recoveryManager.offerFailedMessage(Mockito.anyString(), Mockito.anyString(), Mockito.any(Runnable.class))).thenReturn(false);
+
+        sender.send("hdfs", Collections.singletonList("{\"id\":1}"));
+
+        Path segment = getSegmentFile();
+
+        Assertions.assertTrue(producer.errorNext(new RuntimeException("broker not available")));
+        Assertions.assertEquals(0, sender.getInFlightBytes());
+
+        writeAheadLog.close();
+
+        Assertions.assertTrue(Files.exists(segment));
+    }
+
+    @Test
+    public void testInFlightBytesAreBounded() throws Exception {
+        AuditAsyncSender sender = new AuditAsyncSender(producer, TOPIC, writeAheadLog, recoveryManager, 16, 10);
+
+        sender.send("hdfs", Collections.singletonList("{\"id\":1}"));
+
+        AuditProducer.BatchSendException excp = Assertions.assertThrows(AuditProducer.BatchSendException.class, () -> sender.send("hdfs", Arrays.asList("{\"id\":2}", "{\"id\":3}", "{\"id\":4}")));
+
+        // first event of the batch fit in the limit; the others are returned to the caller for recovery
+        Assertions.assertEquals(Arrays.asList("{\"id\":3}", "{\"id\":4}"), excp.getFailedMessages());
+        Assertions.assertEquals(2, producer.history().size());
+
+        producer.completeNext();
+        producer.completeNext();
+
+        Assertions.assertEquals(0, sender.getInFlightBytes());
+
+        sender.send("hdfs", Collections.singletonList("{\"id\":5}"));
+
+        Assertions.assertEquals(3, producer.history().size());
+    }
+
+    private Path getSegmentFile() throws Exception {
+        File[] files = new File(tempDir, "wal").listFiles();
+
+        Assertions.assertNotNull(files);
+        Assertions.assertEquals(1, files.length);
+
+        return files[0].toPath();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.producer.kafka;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestAuditWriteAheadLog {
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testSegmentsAreRolledAndDeleted() throws Exception {
+        File               walDir = new File(tempDir, "wal");
+        AuditWriteAheadLog wal    = new AuditWriteAheadLog(walDir.getPath(), new File(tempDir, "spool").getPath(), 10, false);
+
+        wal.open();
+
+        AuditWriteAheadLog.Segment segment1 = wal.append("hdfs", Collections.singletonList("{\"id\":1}"));
+        AuditWriteAheadLog.Segment segment2 = wal.append("hdfs", Collections.singletonList("{\"id\":2}"));
+
+        Assertions.assertNotSame(segment1, segment2);
+        Assertions.assertTrue(Files.exists(segment1.getPath()));
+
+        segment1.complete(1);
+
+        Assertions.assertFalse(Files.exists(segment1.getPath()));
+
+        segment2.complete(1);
+
+        // current segment is deleted only once it is closed
+        Assertions.assertTrue(Files.exists(segment2.getPath()));
+
+        wal.close();
+
+        Assertions.assertFalse(Files.exists(segment2.getPath()));
+    }
+
+    @Test
+    public void testPendingSegmentsAreMovedToRecoverySpool() throws Exception {
+        File               walDir   = new File(tempDir, "wal");
+        File               spoolDir = new File(tempDir, "spool");
+        AuditWriteAheadLog wal      = new AuditWriteAheadLog(walDir.getPath(), spoolDir.getPath(), 1024 * 1024, true);
+
+        wal.open();
+
+        AuditWriteAheadLog.Segment segment = wal.append("hdfs", Arrays.asList("{\"id\":1}", "{\"id\":2}"));
+
+        segment.complete(1);
+
+        // simulate a crash while appending the next event
+        Files.write(segment.getPath(), "1700000000000|hdfs|{\"id\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        wal.close();
+
+        Assertions.assertTrue(Files.exists(segment.getPath()));
+
+        wal = new AuditWriteAheadLog(walDir.getPath(), spoolDir.getPath(), 1024 * 1024, true);
+
+        wal.open();
+
+        File[] spoolFiles = spoolDir.listFiles((dir, name) -> name.startsWith("spool_audit_") && name.endsWith(".failed"));
+
+        Assertions.assertNotNull(spoolFiles);
+        Assertions.assertEquals(1, spoolFiles.length);
+        Assertions.assertFalse(Files.exists(segment.getPath()));
+
+        List<String> lines = Files.readAllLines(spoolFiles[0].toPath(), StandardCharsets.UTF_8);
+
+        Assertions.assertEquals(2, lines.size());
+        Assertions.assertTrue(lines.get(0).endsWith("|hdfs|{\"id\":1}"));
+        Assertions.assertTrue(lines.get(1).endsWith("|hdfs|{\"id\":2}"));
+
+        wal.close();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.rest;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.producer.AuditDestinationMgr;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class TestAuditREST {
+    private static final String SERVICE_NAME = "dev_hdfs";
+    private static final String SERVICE_USER = "hdfs";
+    private static final String APP_ID       = "hdfs-namenode";
+
+    private AuditREST           auditREST;
+    private AuditDestinationMgr auditDestinationMgr;
+    private HttpServletRequest  request;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Principal principal = Mockito.mock(Principal.class);
+
+        Mockito.when(principal.getName()).thenReturn(SERVICE_USER);
+
+        request             = Mockito.mock(HttpServletRequest.class);
+        auditDestinationMgr = Mockito.mock(AuditDestinationMgr.class);
+        auditREST           = new AuditREST();
+
+        auditREST.auditDestinationMgr = auditDestinationMgr;
+
+        Mockito.when(request.getUserPrincipal()).thenReturn(principal);
+        Mockito.when(auditDestinationMgr.logBatch(Mockito.anyCollection(), Mockito.any())).thenReturn(true);
+    }
+
+    @Test
+    public void testGzipBodyIsDecoded() throws Exception {
+        List<AuthzAuditEvent> events = createEvents(3);
+        Response              resp   = auditREST.logAccessAudit(SERVICE_NAME, APP_ID, "gzip", new ByteArrayInputStream(gzip(toJson(events))), request);
+
+        Assertions.assertEquals(Response.Status.OK.getStatusCode(), resp.getStatus());
+        Assertions.assertEquals(Arrays.asList("event-0", "event-1", "event-2"), getEventIds(captureLogBatch()));
+    }
+
+    @Test
+    public void testUncompressedBodyIsDecoded() throws Exception {
+        List<AuthzAuditEvent> events = createEvents(2);
+        Response              resp   = auditREST.logAccessAudit(SERVICE_NAME, APP_ID, null, new ByteArrayInputStream(toJson(events)), request);
+
+        Assertions.assertEquals(Response.Status.OK.getStatusCode(), resp.getStatus());
+        Assertions.assertEquals(Arrays.asList("event-0", "event-1"), getEventIds(captureLogBatch()));
+    }
+
+    @Test
+    public void testPartiallyDeliveredGzipBodyIsRejected() throws Exception {
+        byte[]   body = gzip(toJson(createEvents(100)));
+        Response resp = auditREST.logAccessAudit(SERVICE_NAME, APP_ID, "gzip", new ByteArrayInputStream(Arrays.copyOf(body, body.length / 2)), request);
+
+        // no event of a rejected request is ingested, as the client resends all of them
+        Assertions.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), resp.getStatus());
+        Mockito.verify(auditDestinationMgr, Mockito.never()).logBatch(Mockito.anyCollection(), Mockito.any());
+    }
+
+    @Test
+    public void testPartiallyDeliveredBodyIsRejected() throws Exception {
+        byte[]   body = toJson(createEvents(100));
+        Response resp = auditREST.logAccessAudit(SERVICE_NAME, APP_ID, null, new ByteArrayInputStream(Arrays.copyOf(body, body.length - 10)), request);
+
+        Assertions.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), resp.getStatus());
+        Mockito.verify(auditDestinationMgr, Mockito.never()).logBatch(Mockito.anyCollection(), Mockito.any());
+    }
+
+    @Test
+    public void testUnsupportedContentEncodingIsRejected() throws Exception {
+        Response resp = auditREST.logAccessAudit(SERVICE_NAME, APP_ID, "zstd", new ByteArrayInputStream(toJson(createEvents(1))), request);
+
+        Assertions.assertEquals(Response.Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode(), resp.getStatus());
+        Mockito.verify(auditDestinationMgr, Mockito.never()).logBatch(Mockito.anyCollection(), Mockito.any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<AuthzAuditEvent> captureLogBatch() throws Exception {
+        ArgumentCaptor<Collection<AuthzAuditEvent>> events = ArgumentCaptor.forClass(Collection.class);
+
+        Mockito.verify(auditDestinationMgr).logBatch(events.capture(), Mockito.eq(APP_ID));
+
+        return events.getValue();
+    }
+
+    private static List<AuthzAuditEvent> createEvents(int count) {
+        List<AuthzAuditEvent> ret = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setEventId("event-" + i);
+            event.setRepositoryName(SERVICE_NAME);
+            event.setUser("user1");
+            event.setResourcePath("/data/file-" + i);
+            event.setAccessType("read");
+            event.setAccessResult((short) 1);
+
+            ret.add(event);
+        }
+
+        return ret;
+    }
+
+    private static List<String> getEventIds(Collection<AuthzAuditEvent> events) {
+        List<String> ret = new ArrayList<>(events.size());
+
+        for (AuthzAuditEvent event : events) {
+            ret.add(event.getEventId());
+        }
+
+        return ret;
+    }
+
+    private static byte[] toJson(List<AuthzAuditEvent> events) throws Exception {
+        return JsonUtilsV2.getMapper().writeValueAsBytes(events);
+    }
+
+    private static byte[] gzip(byte[] data) throws Exception {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+
+        try (OutputStream out = new GZIPOutputStream(ret)) {
+            out.write(data);
+        }
+
+        return ret.toByteArray();
+    }
+}
@@ -38,6 +38,7 @@
 import org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants;
 import org.apache.ranger.authorization.hadoop.exceptions.RangerAccessControlException;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerAccessResultProcessor;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.slf4j.Logger;
@@ -312,7 +313,7 @@ private void checkRangerPermission(String fsOwner, String superGroup, UserGroupI
                 if (authzStatus == AuthzStatus.ALLOW && subAccess != null && inode != null && inode.isDirectory()) {
                     Stack<SubAccessData> directories = new Stack<>();
 
-                    for (directories.push(new SubAccessData(inode.asDirectory(), resourcePath, inodes, inodeAttrs)); !directories.isEmpty(); ) {
+                    for (directories.push(new SubAccessData(inode.asDirectory(), resourcePath, inodes, inodeAttrs, false)); !directories.isEmpty(); ) {
                         SubAccessData       data  = directories.pop();
                         ReadOnlyList<INode> cList = data.dir.getChildrenList(snapshotId);
 
@@ -394,8 +395,20 @@ private void checkRangerPermission(String fsOwner, String superGroup, UserGroupI
 
                             AuthzStatus subDirAuthStatus             = AuthzStatus.NOT_DETERMINED;
                             boolean     optimizeSubAccessAuthEnabled = plugin.isOptimizeSubAccessAuthEnabled();
+                            boolean     isSubtreeUniform             = data.isSubtreeUniform;
 
-                            if (optimizeSubAccessAuthEnabled) {
+                            // when policies apply uniformly to the subtree, evaluate all descendants at once; a uniform result
+                            // other than ALLOW still requires each directory to be checked, but not for uniformity again
+                            if (!isSubtreeUniform && plugin.isSubtreeAuthzEnabled()) {
+                                AuthzStatus subtreeAuthStatus = isAccessAllowedForDescendants(data.dir, dirAttribs, data.resourcePath, subAccess, context);
+
+                                if (subtreeAuthStatus != null) {
+                                    subDirAuthStatus = subtreeAuthStatus;
+                                    isSubtreeUniform = true;
+                                }
+                            }
+
+                            if (!isSubtreeUniform && optimizeSubAccessAuthEnabled) {
                                 subDirAuthStatus = isAccessAllowedForHierarchy(data.dir, dirAttribs, data.resourcePath, subAccess, context);
                             }
 
@@ -403,9 +416,9 @@ private void checkRangerPermission(String fsOwner, String superGroup, UserGroupI
                                 for (INode child : cList) {
                                     if (child.isDirectory()) {
                                         if (data.resourcePath.endsWith(Path.SEPARATOR)) {
-                                            directories.push(new SubAccessData(child.asDirectory(), data.resourcePath + child.getLocalName(), dirINodes, dirINodeAttrs));
+                                            directories.push(new SubAccessData(child.asDirectory(), data.resourcePath + child.getLocalName(), dirINodes, dirINodeAttrs, isSubtreeUniform));
                                         } else {
-                                            directories.push(new SubAccessData(child.asDirectory(), data.resourcePath + Path.SEPARATOR_CHAR + child.getLocalName(), dirINodes, dirINodeAttrs));
+                                            directories.push(new SubAccessData(child.asDirectory(), data.resourcePath + Path.SEPARATOR_CHAR + child.getLocalName(), dirINodes, dirINodeAttrs, isSubtreeUniform));
                                         }
                                     }
                                 }
@@ -527,7 +540,7 @@ private AuthzStatus isAccessAllowedForTraversal(INode inode, INodeAttributes ino
         LOG.debug("==> RangerAccessControlEnforcer.isAccessAllowedForTraversal({}, {}, {}, {}, {})", path, access, context.user, skipAuditOnAllow, context.operationName);
 
         RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, path, pathOwner, access, EXECUTE_ACCCESS_TYPE, operation, context.user, context.userGroups);
-        RangerAccessResult      result  = plugin.isAccessAllowed(request, null);
+        RangerAccessResult      result  = isAccessAllowed(request, access, inode != null && inode.isFile(), null);
 
         context.saveResult(result);
 
@@ -666,7 +679,7 @@ private AuthzStatus isAccessAllowed(INode inode, INodeAttributes inodeAttribs, S
                 }
             }
 
-            RangerAccessResult result = plugin.isAccessAllowed(request, context.auditHandler);
+            RangerAccessResult result = isAccessAllowed(request, access, inode != null && inode.isFile(), context.auditHandler);
 
             context.saveResult(result);
 
@@ -737,7 +750,7 @@ private AuthzStatus isAccessAllowedForHierarchy(INode inode, INodeAttributes ino
                     }
                 }
 
-                RangerAccessResult result = plugin.isAccessAllowed(request, null);
+                RangerAccessResult result = isAccessAllowed(request, access, false, null);
 
                 context.saveResult(result);
 
@@ -760,6 +773,66 @@ private AuthzStatus isAccessAllowedForHierarchy(INode inode, INodeAttributes ino
         return ret;
     }
 
+    /*
+        Evaluates access to all descendants of the given directory with a single policy evaluation. Returns null when
+        different policies, tags or security-zones can apply to descendants, in which case each must be checked.
+        The result is not audited, as it is for a placeholder descendant; ALLOW skips audit of descendants, as in
+        isAccessAllowedForHierarchy().
+     */
+    private AuthzStatus isAccessAllowedForDescendants(INode inode, INodeAttributes inodeAttribs, String path, FsAction access, AuthzContext context) {
+        AuthzStatus ret       = null;
+        String      pathOwner = inodeAttribs != null ? inodeAttribs.getUserName() : null;
+
+        if (pathOwner == null && inode != null) {
+            pathOwner = inode.getUserName();
+        }
+
+        if (RangerHadoopConstants.HDFS_ROOT_FOLDER_PATH_ALT.equals(path)) {
+            path = HDFS_ROOT_FOLDER_PATH;
+        }
+
+        LOG.debug("==> RangerAccessControlEnforcer.isAccessAllowedForDescendants({}, {}, {})", path, access, context.user);
+
+        Set<String> accessTypes = path != null ? ACCESS_TO_ACTIONS.get(access) : null;
+
+        if (accessTypes != null && !accessTypes.isEmpty()) {
+            RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(null, path, pathOwner, access, accessTypes.iterator().next(), context.operationName, context.user, context.userGroups);
+
+            if (accessTypes.size() > 1) {
+                Set<Set<String>> allAccessTypeGroups = accessTypes.stream().map(Collections::singleton).collect(toSet());
+
+                RangerAccessRequestUtil.setAllRequestedAccessTypeGroups(request, allAccessTypeGroups);
+                RangerAccessRequestUtil.setAllRequestedAccessTypes(request.getContext(), accessTypes);
+
+                if (accessTypes.contains(EXECUTE_ACCCESS_TYPE)) {
+                    RangerAccessRequestUtil.setIgnoreIfNotDeniedAccessTypes(request.getContext(), ACCESS_TO_ACTIONS.get(FsAction.EXECUTE));
+                }
+            }
+
+            RangerAccessResult result = plugin.isAccessAllowedForDescendants(request);
+
+            if (result != null) {
+                if (!result.getIsAccessDetermined()) {
+                    ret = AuthzStatus.NOT_DETERMINED;
+                } else if (!result.getIsAllowed()) { // explicit deny
+                    ret = AuthzStatus.DENY;
+                } else { // allowed
+                    ret = AuthzStatus.ALLOW;
+                }
+            }
+        }
+
+        LOG.debug("<== RangerAccessControlEnforcer.isAccessAllowedForDescendants({}, {}, {}): {}", path, access, context.user, ret);
+
+        return ret;
+    }
+
+    private RangerAccessResult isAccessAllowed(RangerHdfsAccessRequest request, FsAction access, boolean isFile, RangerAccessResultProcessor resultProcessor) {
+        RangerHdfsAuthzCache authzCache = plugin.getAuthzCache();
+
+        return authzCache != null ? authzCache.isAccessAllowed(request, access, isFile, resultProcessor) : plugin.isAccessAllowed(request, resultProcessor);
+    }
+
     public enum AuthzStatus { ALLOW, DENY, NOT_DETERMINED }
 
     /*
@@ -844,12 +917,14 @@ private static class SubAccessData {
         final String            resourcePath;
         final INode[]           inodes;
         final INodeAttributes[] iNodeAttributes;
-
-        SubAccessData(INodeDirectory dir, String resourcePath, INode[] inodes, INodeAttributes[] iNodeAttributes) {
-            this.dir             = dir;
-            this.resourcePath    = resourcePath;
-            this.iNodeAttributes = iNodeAttributes;
-            this.inodes          = inodes;
+        final boolean           isSubtreeUniform;
+
+        SubAccessData(INodeDirectory dir, String resourcePath, INode[] inodes, INodeAttributes[] iNodeAttributes, boolean isSubtreeUniform) {
+            this.dir              = dir;
+            this.resourcePath     = resourcePath;
+            this.iNodeAttributes  = iNodeAttributes;
+            this.inodes           = inodes;
+            this.isSubtreeUniform = isSubtreeUniform;
         }
     }
 
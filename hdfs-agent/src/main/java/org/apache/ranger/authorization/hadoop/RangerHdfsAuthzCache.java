@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hadoop;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerAccessResultProcessor;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NameNode-wide cache of results of the policy engine, shared by all RangerAccessControlEnforcer instances - i.e. by
+ * all permission checks - so that ancestors, parents and directories of large trees checked by subsequent RPCs are
+ * not evaluated again.
+ *
+ * Results are cached by (user, groups, client IP, path, path owner, FsAction, isFile, action), i.e. every input of the
+ * HDFS access request other than the access time; the action is included as audit filters can match on it. All
+ * entries are dropped when the version of policies, roles, tags or user-store changes; an entry is also dropped after
+ * the configured TTL.
+ *
+ * The cache is bypassed while any access policy has conditions or validity schedules, and results involving tags with
+ * validity periods are not cached: such results depend on the time of access or other request context, hence can't
+ * be reused for other requests.
+ *
+ * A cached result is returned as a copy that references the current request, and is given to the result processor
+ * as the policy engine would, so that audit logs of cached and evaluated results are the same.
+ */
+class RangerHdfsAuthzCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerHdfsAuthzCache.class);
+
+    private final RangerHdfsPlugin          plugin;
+    private final int                       maxEntries;
+    private final long                      ttlMs;
+    private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private volatile Versions versions = new Versions(-1, -1, -1, -1);
+
+    RangerHdfsAuthzCache(RangerHdfsPlugin plugin, int maxEntries, long ttlMs) {
+        this.plugin     = plugin;
+        this.maxEntries = maxEntries;
+        this.ttlMs      = ttlMs;
+
+        LOG.info("RangerHdfsAuthzCache(maxEntries={}, ttlMs={})", maxEntries, ttlMs);
+    }
+
+    RangerAccessResult isAccessAllowed(RangerHdfsAccessRequest request, FsAction access, boolean isFile, RangerAccessResultProcessor resultProcessor) {
+        if (plugin.hasConditionalAccessPolicies()) {
+            LOG.debug("RangerHdfsAuthzCache.isAccessAllowed(): policies have conditions - not using cache; request={}", request);
+
+            return plugin.isAccessAllowed(request, resultProcessor);
+        }
+
+        Versions           currentVersions = getCurrentVersions();
+        CacheKey           key             = new CacheKey(request, access, isFile);
+        CacheEntry         entry           = cache.get(key);
+        long               now             = System.currentTimeMillis();
+        RangerAccessResult ret;
+
+        if (entry != null && entry.versions == currentVersions && (now - entry.createTime) < ttlMs) {
+            ret = entry.getResult(request);
+
+            LOG.debug("RangerHdfsAuthzCache.isAccessAllowed(): found in cache; request={}, result={}", request, ret);
+
+            if (resultProcessor != null) {
+                resultProcessor.processResult(ret);
+            }
+        } else {
+            ret = plugin.isAccessAllowed(request, resultProcessor);
+
+            if (ret != null && isCacheable(ret)) {
+                if (cache.size() >= maxEntries) {
+                    LOG.debug("RangerHdfsAuthzCache.isAccessAllowed(): cache has {} entries - clearing", cache.size());
+
+                    cache.clear();
+                }
+
+                cache.put(key, new CacheEntry(ret, currentVersions, now));
+            }
+        }
+
+        return ret;
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    // tags with validity periods apply only during those periods, i.e. depend on the time of access
+    private static boolean isCacheable(RangerAccessResult result) {
+        Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(result.getAccessRequest().getContext());
+
+        if (tags != null) {
+            for (RangerTagForEval tag : tags) {
+                if (CollectionUtils.isNotEmpty(tag.getValidityPeriods())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private Versions getCurrentVersions() {
+        Versions ret              = versions;
+        long     policyVersion    = plugin.getPoliciesVersion();
+        long     roleVersion      = plugin.getRolesVersion();
+        long     tagVersion       = plugin.getTagsVersion();
+        long     userStoreVersion = plugin.getUserStoreVersion();
+
+        if (!ret.equals(policyVersion, roleVersion, tagVersion, userStoreVersion)) {
+            synchronized (this) {
+                ret = versions;
+
+                if (!ret.equals(policyVersion, roleVersion, tagVersion, userStoreVersion)) {
+                    LOG.info("RangerHdfsAuthzCache: clearing {} entries; policyVersion={}, roleVersion={}, tagVersion={}, userStoreVersion={}", cache.size(), policyVersion, roleVersion, tagVersion, userStoreVersion);
+
+                    ret = new Versions(policyVersion, roleVersion, tagVersion, userStoreVersion);
+
+                    versions = ret;
+
+                    cache.clear();
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static class Versions {
+        final long policyVersion;
+        final long roleVersion;
+        final long tagVersion;
+        final long userStoreVersion;
+
+        Versions(long policyVersion, long roleVersion, long tagVersion, long userStoreVersion) {
+            this.policyVersion    = policyVersion;
+            this.roleVersion      = roleVersion;
+            this.tagVersion       = tagVersion;
+            this.userStoreVersion = userStoreVersion;
+        }
+
+        boolean equals(long policyVersion, long roleVersion, long tagVersion, long userStoreVersion) {
+            return this.policyVersion == policyVersion && this.roleVersion == roleVersion && this.tagVersion == tagVersion && this.userStoreVersion == userStoreVersion;
+        }
+    }
+
+    private static class CacheKey {
+        final String      user;
+        final Set<String> userGroups;
+        final String      clientIp;
+        final String      path;
+        final String      pathOwner;
+        final FsAction    access;
+        final boolean     isFile;
+        final String      action;
+        final int         hashCode;
+
+        CacheKey(RangerAccessRequest request, FsAction access, boolean isFile) {
+            RangerAccessResource resource = request.getResource();
+
+            this.user       = request.getUser();
+            this.userGroups = request.getUserGroups();
+            this.clientIp   = request.getClientIPAddress();
+            this.path       = resource.getAsString();
+            this.pathOwner  = resource.getOwnerUser();
+            this.access     = access;
+            this.isFile     = isFile;
+            this.action     = request.getAction();
+            this.hashCode   = Objects.hash(user, userGroups, clientIp, path, pathOwner, access, isFile, action);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+
+            return hashCode == other.hashCode && isFile == other.isFile && access == other.access &&
+                    Objects.equals(path, other.path) &&
+                    Objects.equals(action, other.action) &&
+                    Objects.equals(user, other.user) &&
+                    Objects.equals(pathOwner, other.pathOwner) &&
+                    Objects.equals(clientIp, other.clientIp) &&
+                    Objects.equals(userGroups, other.userGroups);
+        }
+    }
+
+    private static class CacheEntry {
+        final RangerAccessResult    result;
+        final Set<RangerTagForEval> tags;
+        final Versions              versions;
+        final long                  createTime;
+
+        CacheEntry(RangerAccessResult result, Versions versions, long createTime) {
+            // copy, as the caller can update the result, for example after checking with the default enforcer
+            this.result     = copyResult(result, null);
+            this.tags       = RangerAccessRequestUtil.getRequestTagsFromContext(result.getAccessRequest().getContext());
+            this.versions   = versions;
+            this.createTime = createTime;
+        }
+
+        RangerAccessResult getResult(RangerAccessRequest request) {
+            if (tags != null) {
+                RangerAccessRequestUtil.setRequestTagsInContext(request.getContext(), tags);
+            }
+
+            return copyResult(result, request);
+        }
+
+        private static RangerAccessResult copyResult(RangerAccessResult result, RangerAccessRequest request) {
+            RangerAccessResult ret = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), request);
+
+            ret.setAccessResultFrom(result);
+            ret.setAuditResultFrom(result);
+
+            return ret;
+        }
+    }
+}
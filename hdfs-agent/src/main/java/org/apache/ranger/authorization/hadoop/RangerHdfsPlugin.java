@@ -36,13 +36,15 @@ public class RangerHdfsPlugin extends RangerBasePlugin {
 
     private static String fileNameExtensionSeparator = RangerHdfsAuthorizer.DEFAULT_FILENAME_EXTENSION_SEPARATOR;
 
-    private final boolean     authzOptimizationEnabled;
-    private final boolean     hadoopAuthEnabled;
-    private final boolean     optimizeSubAccessAuthEnabled;
-    private final String      randomizedWildcardPathName;
-    private final String      hadoopModuleName;
-    private final Set<String> excludeUsers = new HashSet<>();
-    private final boolean     useLegacySubAccessAuthorization;
+    private final boolean              authzOptimizationEnabled;
+    private final boolean              hadoopAuthEnabled;
+    private final boolean              optimizeSubAccessAuthEnabled;
+    private final String               randomizedWildcardPathName;
+    private final String               hadoopModuleName;
+    private final Set<String>          excludeUsers = new HashSet<>();
+    private final boolean              useLegacySubAccessAuthorization;
+    private final boolean              subtreeAuthzEnabled;
+    private final RangerHdfsAuthzCache authzCache;
 
     public RangerHdfsPlugin(Path addlConfigFile) {
         super("hdfs", "hdfs");
@@ -69,6 +71,16 @@ public RangerHdfsPlugin(Path addlConfigFile) {
         String excludeUserList = config.get(RangerHadoopConstants.AUDITLOG_HDFS_EXCLUDE_LIST_PROP, RangerHadoopConstants.AUDITLOG_EMPTY_STRING);
 
         this.useLegacySubAccessAuthorization = config.getBoolean(RangerHadoopConstants.RANGER_USE_LEGACY_SUBACCESS_AUTHORIZATION_PROP, RangerHadoopConstants.RANGER_USE_LEGACY_SUBACCESS_AUTHORIZATION_DEFAULT);
+        this.subtreeAuthzEnabled             = config.getBoolean(RangerHadoopConstants.RANGER_HDFS_SUBTREE_AUTHZ_ENABLED_PROP, RangerHadoopConstants.RANGER_HDFS_SUBTREE_AUTHZ_ENABLED_DEFAULT);
+
+        if (config.getBoolean(RangerHadoopConstants.RANGER_HDFS_AUTHZ_CACHE_ENABLED_PROP, RangerHadoopConstants.RANGER_HDFS_AUTHZ_CACHE_ENABLED_DEFAULT)) {
+            int  maxEntries = config.getInt(RangerHadoopConstants.RANGER_HDFS_AUTHZ_CACHE_MAX_ENTRIES_PROP, RangerHadoopConstants.RANGER_HDFS_AUTHZ_CACHE_MAX_ENTRIES_DEFAULT);
+            long ttlMs      = config.getLong(RangerHadoopConstants.RANGER_HDFS_AUTHZ_CACHE_TTL_MS_PROP, RangerHadoopConstants.RANGER_HDFS_AUTHZ_CACHE_TTL_MS_DEFAULT);
+
+            this.authzCache = new RangerHdfsAuthzCache(this, maxEntries, ttlMs);
+        } else {
+            this.authzCache = null;
+        }
 
         if (excludeUserList != null && !excludeUserList.trim().isEmpty()) {
             for (String excludeUser : excludeUserList.trim().split(",")) {
@@ -81,6 +93,8 @@ public RangerHdfsPlugin(Path addlConfigFile) {
         }
 
         LOG.info("AUTHZ_OPTIMIZATION_ENABLED:[{}]", authzOptimizationEnabled);
+        LOG.info("AUTHZ_CACHE_ENABLED:[{}]", authzCache != null);
+        LOG.info("SUBTREE_AUTHZ_ENABLED:[{}]", subtreeAuthzEnabled);
     }
 
     public static String getFileNameExtensionSeparator() {
@@ -115,6 +129,17 @@ public boolean isUseLegacySubAccessAuthorization() {
         return useLegacySubAccessAuthorization;
     }
 
+    public boolean isSubtreeAuthzEnabled() {
+        return subtreeAuthzEnabled;
+    }
+
+    /**
+     * @return NameNode-wide cache of authorization results; null if the cache is not enabled
+     */
+    RangerHdfsAuthzCache getAuthzCache() {
+        return authzCache;
+    }
+
     // Build random string of length between 56 and 112 characters
     private static String generateString(String source) {
         SecureRandom rng   = new SecureRandom();
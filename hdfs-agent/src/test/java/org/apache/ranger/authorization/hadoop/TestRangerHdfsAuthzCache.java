@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hadoop;
+
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerValiditySchedule;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerAccessResultProcessor;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TimeZone;
+
+@ExtendWith(MockitoExtension.class)
+public class TestRangerHdfsAuthzCache {
+    @Test
+    public void testCachedResultIsReplayed() {
+        RangerHdfsPlugin            plugin    = mockPlugin();
+        RangerAccessResultProcessor processor = Mockito.mock(RangerAccessResultProcessor.class);
+        RangerHdfsAuthzCache        cache     = new RangerHdfsAuthzCache(plugin, 10, 60000);
+        RangerHdfsAccessRequest     request1  = createRequest("/data/file1", "user1");
+        RangerHdfsAccessRequest     request2  = createRequest("/data/file1", "user1");
+
+        RangerAccessResult result1 = cache.isAccessAllowed(request1, FsAction.READ, true, processor);
+        RangerAccessResult result2 = cache.isAccessAllowed(request2, FsAction.READ, true, processor);
+
+        Mockito.verify(plugin, Mockito.times(1)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+        Mockito.verify(processor).processResult(result2);
+
+        Assertions.assertNotSame(result1, result2);
+        Assertions.assertSame(request2, result2.getAccessRequest());
+        Assertions.assertTrue(result2.getIsAllowed());
+        Assertions.assertEquals(result1.getPolicyId(), result2.getPolicyId());
+
+        // different path, user or access are evaluated by the policy engine
+        cache.isAccessAllowed(createRequest("/data/file2", "user1"), FsAction.READ, true, null);
+        cache.isAccessAllowed(createRequest("/data/file1", "user2"), FsAction.READ, true, null);
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.WRITE, true, null);
+
+        Mockito.verify(plugin, Mockito.times(4)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+    }
+
+    @Test
+    public void testCacheIsClearedOnVersionChange() {
+        RangerHdfsPlugin     plugin = mockPlugin();
+        RangerHdfsAuthzCache cache  = new RangerHdfsAuthzCache(plugin, 10, 60000);
+
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.READ, true, null);
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.READ, true, null);
+
+        Mockito.verify(plugin, Mockito.times(1)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+
+        Mockito.when(plugin.getPoliciesVersion()).thenReturn(2L);
+
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.READ, true, null);
+
+        Mockito.verify(plugin, Mockito.times(2)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+
+        Mockito.when(plugin.getRolesVersion()).thenReturn(2L);
+
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.READ, true, null);
+
+        Mockito.verify(plugin, Mockito.times(3)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        RangerHdfsPlugin     plugin = mockPlugin();
+        RangerHdfsAuthzCache cache  = new RangerHdfsAuthzCache(plugin, 5, 60000);
+
+        for (int i = 0; i < 20; i++) {
+            cache.isAccessAllowed(createRequest("/data/file" + i, "user1"), FsAction.READ, true, null);
+
+            Assertions.assertTrue(cache.size() <= 5);
+        }
+    }
+
+    @Test
+    public void testExpiredEntryIsEvaluated() {
+        RangerHdfsPlugin     plugin = mockPlugin();
+        RangerHdfsAuthzCache cache  = new RangerHdfsAuthzCache(plugin, 10, 0);
+
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.READ, true, null);
+        cache.isAccessAllowed(createRequest("/data/file1", "user1"), FsAction.READ, true, null);
+
+        Mockito.verify(plugin, Mockito.times(2)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+    }
+
+    @Test
+    public void testTimeBoundPolicyBypassesCache() throws Exception {
+        ServicePolicies servicePolicies = createServicePolicies(null);
+
+        servicePolicies.getPolicies().get(0).setValiditySchedules(Collections.singletonList(new RangerValiditySchedule("2020/01/01 00:00:00", "2030/01/01 00:00:00", "GMT", null)));
+
+        RangerHdfsPlugin        plugin     = createPlugin(servicePolicies);
+        RangerHdfsAuthzCache    cache      = new RangerHdfsAuthzCache(plugin, 10, 60000);
+        SimpleDateFormat        dateFormat = new SimpleDateFormat(RangerValiditySchedule.VALIDITY_SCHEDULE_DATE_STRING_SPECIFICATION);
+        RangerHdfsAccessRequest request1   = createRequest("/data/file1", "user1");
+        RangerHdfsAccessRequest request2   = createRequest("/data/file1", "user1");
+
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        request1.setAccessTime(dateFormat.parse("2025/06/01 00:00:00"));
+        request2.setAccessTime(dateFormat.parse("2031/06/01 00:00:00"));
+
+        Assertions.assertTrue(cache.isAccessAllowed(request1, FsAction.READ, true, null).getIsAllowed());
+        Assertions.assertFalse(cache.isAccessAllowed(request2, FsAction.READ, true, null).getIsAllowed());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testActionBasedAuditFilter() throws Exception {
+        RangerHdfsPlugin     plugin = createPlugin(createServicePolicies("[ {'actions': ['delete'], 'isAudited': false} ]"));
+        RangerHdfsAuthzCache cache  = new RangerHdfsAuthzCache(plugin, 10, 60000);
+
+        for (int i = 0; i < 2; i++) {
+            RangerAccessResult openResult   = cache.isAccessAllowed(new RangerHdfsAccessRequest(null, "/data/file1", "owner", FsAction.READ, "read", "open", "user1", Collections.singleton("group1")), FsAction.READ, true, null);
+            RangerAccessResult deleteResult = cache.isAccessAllowed(new RangerHdfsAccessRequest(null, "/data/file1", "owner", FsAction.READ, "read", "delete", "user1", Collections.singleton("group1")), FsAction.READ, true, null);
+
+            Assertions.assertTrue(openResult.getIsAllowed());
+            Assertions.assertTrue(openResult.getIsAudited());
+            Assertions.assertTrue(deleteResult.getIsAllowed());
+            Assertions.assertFalse(deleteResult.getIsAudited());
+        }
+
+        // second round was served from the cache
+        Mockito.verify(plugin, Mockito.times(2)).isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    private static RangerHdfsPlugin mockPlugin() {
+        RangerHdfsPlugin plugin = Mockito.mock(RangerHdfsPlugin.class);
+
+        Mockito.lenient().when(plugin.getPoliciesVersion()).thenReturn(1L);
+        Mockito.lenient().when(plugin.getRolesVersion()).thenReturn(1L);
+        Mockito.lenient().when(plugin.getTagsVersion()).thenReturn(-1L);
+        Mockito.lenient().when(plugin.getUserStoreVersion()).thenReturn(1L);
+        Mockito.when(plugin.isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any())).thenAnswer(inv -> {
+            RangerAccessResult result = new RangerAccessResult(0, "hdfs", null, inv.getArgument(0));
+
+            result.setIsAccessDetermined(true);
+            result.setIsAllowed(true);
+            result.setPolicyId(11L);
+
+            return result;
+        });
+
+        return plugin;
+    }
+
+    // plugin that evaluates requests with a policy engine built from the given policies
+    private static RangerHdfsPlugin createPlugin(ServicePolicies servicePolicies) {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.disablePolicyRefresher    = true;
+        options.disableTagRetriever       = true;
+        options.disableUserStoreRetriever = true;
+        options.disableGdsInfoRetriever   = true;
+
+        RangerPluginConfig     config = new RangerPluginConfig("hdfs", servicePolicies.getServiceName(), "test", "cl1", "on-prem", options);
+        RangerPolicyEngineImpl engine = new RangerPolicyEngineImpl(servicePolicies, new RangerPluginContext(config), null);
+        RangerHdfsPlugin       plugin = Mockito.mock(RangerHdfsPlugin.class);
+
+        Mockito.lenient().when(plugin.getPoliciesVersion()).thenReturn(1L);
+        Mockito.lenient().when(plugin.getRolesVersion()).thenReturn(1L);
+        Mockito.lenient().when(plugin.getTagsVersion()).thenReturn(-1L);
+        Mockito.lenient().when(plugin.getUserStoreVersion()).thenReturn(1L);
+        Mockito.when(plugin.hasConditionalAccessPolicies()).thenAnswer(inv -> engine.getPolicyEngine().hasConditionalAccessPolicies());
+        Mockito.when(plugin.isAccessAllowed(Mockito.any(RangerAccessRequest.class), Mockito.any())).thenAnswer(inv -> {
+            RangerAccessResult          ret       = engine.evaluatePolicies(inv.getArgument(0), RangerPolicy.POLICY_TYPE_ACCESS, null);
+            RangerAccessResultProcessor processor = inv.getArgument(1);
+
+            engine.evaluateAuditPolicies(ret);
+
+            if (processor != null) {
+                processor.processResult(ret);
+            }
+
+            return ret;
+        });
+
+        return plugin;
+    }
+
+    private static ServicePolicies createServicePolicies(String auditFilters) throws Exception {
+        RangerPolicy.RangerPolicyItem item = new RangerPolicy.RangerPolicyItem();
+
+        item.setUsers(Collections.singletonList("user1"));
+        item.setAccesses(Collections.singletonList(new RangerPolicy.RangerPolicyItemAccess("read")));
+
+        RangerPolicy policy = new RangerPolicy();
+
+        policy.setId(1L);
+        policy.setName("policy-1");
+        policy.setService("test-authz-cache");
+        policy.setIsEnabled(true);
+        policy.setResources(Collections.singletonMap("path", new RangerPolicy.RangerPolicyResource("/data", false, true)));
+        policy.setPolicyItems(Collections.singletonList(item));
+
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceName("test-authz-cache");
+        ret.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hdfs"));
+        ret.setPolicyVersion(1L);
+        ret.setPolicies(new ArrayList<>(Collections.singletonList(policy)));
+
+        if (auditFilters != null) {
+            ret.setServiceConfig(Collections.singletonMap(RangerPolicyEngine.PLUGIN_AUDIT_FILTER, auditFilters));
+        }
+
+        return ret;
+    }
+
+    private static RangerHdfsAccessRequest createRequest(String path, String user) {
+        return new RangerHdfsAccessRequest(null, path, "owner", FsAction.READ, "read", "open", user, Collections.singleton("group1"));
+    }
+}
@@ -23,11 +23,9 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsAction;
-import org.apache.hadoop.hive.common.FileUtils;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.Database;
@@ -57,6 +55,7 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.thirdparty.com.google.common.collect.Sets;
 import org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants;
+import org.apache.ranger.authorization.hive.authorizer.RangerHiveURIAccessChecker.URIAccess;
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
@@ -97,7 +96,6 @@
 public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
     private static final Logger LOG                       = LoggerFactory.getLogger(RangerHiveAuthorizer.class);
     private static final Logger PERF_HIVEAUTH_REQUEST_LOG = RangerPerfTracer.getPerfLogger("hiveauth.request");
-    private static final Logger PERF_HIVEAUTH_COARSEURI_LOG = RangerPerfTracer.getPerfLogger("hiveauth.coarsecheck");
 
     private static final char        COLUMN_SEP                    = ',';
     private static final String      HIVE_CONF_VAR_QUERY_STRING    = "hive.query.string";
@@ -741,7 +739,8 @@ public void checkPrivileges(HiveOperationType hiveOpType, List<HivePrivilegeObje
                 perf = RangerPerfTracer.getPerfTracer(PERF_HIVEAUTH_REQUEST_LOG, "RangerHiveAuthorizer.checkPrivileges(hiveOpType=" + hiveOpType + ")");
             }
 
-            List<RangerHiveAccessRequest> requests = new ArrayList<>();
+            List<RangerHiveAccessRequest> requests    = new ArrayList<>();
+            List<URIAccess>               uriAccesses = new ArrayList<>();
 
             if (!CollectionUtils.isEmpty(inputHObjs)) {
                 for (HivePrivilegeObject hiveObj : inputHObjs) {
@@ -780,9 +779,7 @@ public void checkPrivileges(HiveOperationType hiveOpType, List<HivePrivilegeObje
                         }
 
                         if (shouldCheckAccess) {
-                            if (!isURIAccessAllowed(user, permission, path, fs)) {
-                                throw new HiveAccessControlException(String.format("Permission denied: user [%s] does not have [%s] privilege on [%s]", user, permission.name(), path));
-                            }
+                            uriAccesses.add(new URIAccess(user, permission, path, fs, !RangerHivePlugin.uriPermissionCoarseCheck));
 
                             continue;
                         }
@@ -909,9 +906,7 @@ public void checkPrivileges(HiveOperationType hiveOpType, List<HivePrivilegeObje
                         }
 
                         if (shouldCheckAccess) {
-                            if (!isURIAccessAllowed(user, permission, path, fs)) {
-                                throw new HiveAccessControlException(String.format("Permission denied: user [%s] does not have [%s] privilege on [%s]", user, permission.name(), path));
-                            }
+                            uriAccesses.add(new URIAccess(user, permission, path, fs, !RangerHivePlugin.uriPermissionCoarseCheck));
 
                             continue;
                         }
@@ -954,6 +949,15 @@ public void checkPrivileges(HiveOperationType hiveOpType, List<HivePrivilegeObje
                 }
             }
 
+            // check file-system permissions of all URIs together, to avoid checking the same URI more than once
+            if (!uriAccesses.isEmpty()) {
+                URIAccess deniedAccess = hivePlugin.getURIAccessChecker().getFirstDeniedAccess(uriAccesses);
+
+                if (deniedAccess != null) {
+                    throw new HiveAccessControlException(String.format("Permission denied: user [%s] does not have [%s] privilege on [%s]", user, deniedAccess.action.name(), deniedAccess.path));
+                }
+            }
+
             buildRequestContextWithAllAccessedResources(requests);
 
             for (RangerHiveAccessRequest request : requests) {
@@ -2264,56 +2268,6 @@ private String buildPathForException(String path, HiveOperationType hiveOpType)
         return ret;
     }
 
-    private boolean isURIAccessAllowed(String userName, FsAction action, Path filePath, FileSystem fs) {
-        return isURIAccessAllowed(userName, action, filePath, fs, RangerHivePlugin.uriPermissionCoarseCheck);
-    }
-
-    private boolean isURIAccessAllowed(String userName, FsAction action, Path filePath, FileSystem fs, boolean coarseCheck) {
-        boolean ret;
-        boolean recurse = !coarseCheck;
-
-        RangerPerfTracer perf = null;
-        if (RangerPerfTracer.isPerfTraceEnabled(PERF_HIVEAUTH_COARSEURI_LOG)) {
-            perf = RangerPerfTracer.getPerfTracer(PERF_HIVEAUTH_COARSEURI_LOG, "RangerHiveAuthorizer.isURIAccessAllowed(userName=" + userName + " filePath=" + filePath + " coarseCheck=" + coarseCheck + ")");
-        }
-
-        if (action == FsAction.NONE) {
-            ret = true;
-        } else {
-            try {
-                FileStatus[] filestat = fs.globStatus(filePath);
-
-                if (filestat != null && filestat.length > 0) {
-                    boolean isDenied = false;
-
-                    for (FileStatus file : filestat) {
-                        if (FileUtils.isOwnerOfFileHierarchy(fs, file, userName, recurse) || FileUtils.isActionPermittedForFileHierarchy(fs, file, userName, action, recurse)) {
-                            continue;
-                        } else {
-                            isDenied = true;
-                            break;
-                        }
-                    }
-
-                    ret = !isDenied;
-                } else { // if given path does not exist then check for parent
-                    FileStatus file = FileUtils.getPathOrParentThatExists(fs, filePath);
-
-                    FileUtils.checkFileAccessWithImpersonation(fs, file, action, userName);
-
-                    ret = true;
-                }
-            } catch (Exception excp) {
-                ret = false;
-
-                LOG.error("Error getting permissions for {}", filePath, excp);
-            }
-        }
-
-        RangerPerfTracer.log(perf);
-        return ret;
-    }
-
     private boolean isPathInFSScheme(String uri) {
         // This is to find if HIVE URI operation done is for hdfs,file scheme
         // else it may be for s3 which needs another set of authorization calls.
@@ -3387,7 +3341,8 @@ private static class RangerHivePlugin extends RangerBasePlugin {
         public static boolean blockUpdateIfRowfilterColumnMaskSpecified = RangerHadoopConstants.HIVE_BLOCK_UPDATE_IF_ROWFILTER_COLUMNMASK_SPECIFIED_DEFAULT_VALUE;
         public static String  describeShowTableAuth                     = RangerHadoopConstants.HIVE_DESCRIBE_TABLE_SHOW_COLUMNS_AUTH_OPTION_PROP_DEFAULT_VALUE;
 
-        private String[] fsScheme;
+        private String[]                   fsScheme;
+        private RangerHiveURIAccessChecker uriAccessChecker = new RangerHiveURIAccessChecker(this, 0, 0, 1);
 
         public RangerHivePlugin(String appType) {
             super("hive", appType);
@@ -3402,6 +3357,13 @@ public void init() {
             RangerHivePlugin.blockUpdateIfRowfilterColumnMaskSpecified = getConfig().getBoolean(RangerHadoopConstants.HIVE_BLOCK_UPDATE_IF_ROWFILTER_COLUMNMASK_SPECIFIED_PROP, RangerHadoopConstants.HIVE_BLOCK_UPDATE_IF_ROWFILTER_COLUMNMASK_SPECIFIED_DEFAULT_VALUE);
             RangerHivePlugin.describeShowTableAuth                     = getConfig().get(RangerHadoopConstants.HIVE_DESCRIBE_TABLE_SHOW_COLUMNS_AUTH_OPTION_PROP, RangerHadoopConstants.HIVE_DESCRIBE_TABLE_SHOW_COLUMNS_AUTH_OPTION_PROP_DEFAULT_VALUE);
 
+            boolean uriCacheEnabled    = getConfig().getBoolean(RangerHadoopConstants.HIVE_URI_PERMISSION_CACHE_ENABLED_PROP, RangerHadoopConstants.HIVE_URI_PERMISSION_CACHE_ENABLED_DEFAULT_VALUE);
+            int     uriCacheMaxEntries = getConfig().getInt(RangerHadoopConstants.HIVE_URI_PERMISSION_CACHE_MAX_ENTRIES_PROP, RangerHadoopConstants.HIVE_URI_PERMISSION_CACHE_MAX_ENTRIES_DEFAULT_VALUE);
+            long    uriCacheTtlMs      = getConfig().getLong(RangerHadoopConstants.HIVE_URI_PERMISSION_CACHE_TTL_MS_PROP, RangerHadoopConstants.HIVE_URI_PERMISSION_CACHE_TTL_MS_DEFAULT_VALUE);
+            int     uriCheckThreads    = getConfig().getInt(RangerHadoopConstants.HIVE_URI_PERMISSION_CHECK_THREADS_PROP, RangerHadoopConstants.HIVE_URI_PERMISSION_CHECK_THREADS_DEFAULT_VALUE);
+
+            uriAccessChecker = new RangerHiveURIAccessChecker(this, uriCacheEnabled ? uriCacheMaxEntries : 0, uriCacheTtlMs, uriCheckThreads);
+
             String fsSchemesString = getConfig().get(RANGER_PLUGIN_HIVE_ULRAUTH_FILESYSTEM_SCHEMES, RANGER_PLUGIN_HIVE_ULRAUTH_FILESYSTEM_SCHEMES_DEFAULT);
 
             fsScheme = StringUtils.split(fsSchemesString, FILESYSTEM_SCHEMES_SEPARATOR_CHAR);
@@ -3416,5 +3378,9 @@ public void init() {
         public String[] getFSScheme() {
             return fsScheme;
         }
+
+        public RangerHiveURIAccessChecker getURIAccessChecker() {
+            return uriAccessChecker;
+        }
     }
 }
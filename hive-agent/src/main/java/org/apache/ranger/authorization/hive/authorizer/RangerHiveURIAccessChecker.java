@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hive.authorizer;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks file-system permissions of URIs referenced in Hive statements, like locations in DDL and paths in LOAD/EXPORT.
+ *
+ * Each check can list a directory tree in a remote file-system, hence:
+ *  - URIs referenced more than once in a statement are checked once
+ *  - URIs of a statement are checked in parallel, when more than one thread is configured
+ *  - results are cached, when enabled, by (user, qualified URI, FsAction, recurse). All entries are dropped when the
+ *    version of policies changes; an entry is also dropped after the configured TTL, which bounds how long changes to
+ *    file-system permissions can go unnoticed. Failed checks are not cached
+ */
+class RangerHiveURIAccessChecker {
+    private static final Logger LOG                         = LoggerFactory.getLogger(RangerHiveURIAccessChecker.class);
+    private static final Logger PERF_HIVEAUTH_COARSEURI_LOG = RangerPerfTracer.getPerfLogger("hiveauth.coarsecheck");
+
+    private final RangerBasePlugin          plugin;
+    private final int                       maxEntries;
+    private final long                      ttlMs;
+    private final ExecutorService           executor;
+    private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private volatile long policyVersion = -1;
+
+    RangerHiveURIAccessChecker(RangerBasePlugin plugin, int maxEntries, long ttlMs, int threadCount) {
+        this.plugin     = plugin;
+        this.maxEntries = maxEntries;
+        this.ttlMs      = ttlMs;
+
+        if (threadCount > 1) {
+            AtomicInteger threadIndex = new AtomicInteger();
+
+            this.executor = Executors.newFixedThreadPool(threadCount, r -> {
+                Thread ret = new Thread(r, "ranger-hive-uri-check-" + threadIndex.incrementAndGet());
+
+                ret.setDaemon(true);
+
+                return ret;
+            });
+        } else {
+            this.executor = null;
+        }
+
+        LOG.info("RangerHiveURIAccessChecker(maxEntries={}, ttlMs={}, threadCount={})", maxEntries, ttlMs, threadCount);
+    }
+
+    /**
+     * @return the first of the given URI accesses, in the given order, that is not allowed; null if all are allowed
+     */
+    URIAccess getFirstDeniedAccess(List<URIAccess> accesses) {
+        LOG.debug("==> RangerHiveURIAccessChecker.getFirstDeniedAccess({})", accesses);
+
+        URIAccess                ret          = null;
+        Map<CacheKey, URIAccess> uniqAccesses = new LinkedHashMap<>();
+
+        for (URIAccess access : accesses) {
+            uniqAccesses.putIfAbsent(access.getCacheKey(), access);
+        }
+
+        if (executor == null || uniqAccesses.size() == 1) {
+            for (URIAccess access : uniqAccesses.values()) {
+                if (!isAccessAllowed(access)) {
+                    ret = access;
+
+                    break;
+                }
+            }
+        } else {
+            ret = getFirstDeniedAccess(uniqAccesses.values());
+        }
+
+        LOG.debug("<== RangerHiveURIAccessChecker.getFirstDeniedAccess({}): ret={}", accesses, ret);
+
+        return ret;
+    }
+
+    boolean isAccessAllowed(URIAccess access) {
+        boolean    ret;
+        CacheKey   key   = access.getCacheKey();
+        CacheEntry entry = maxEntries > 0 ? getCacheEntry(key) : null;
+
+        if (entry != null) {
+            ret = entry.isAllowed;
+
+            LOG.debug("RangerHiveURIAccessChecker.isAccessAllowed(): found in cache; access={}, ret={}", access, ret);
+        } else {
+            long    createTime = System.currentTimeMillis();
+            long    version    = policyVersion;
+            Boolean isAllowed  = checkFileSystemAccess(access);
+
+            ret = Boolean.TRUE.equals(isAllowed);
+
+            if (isAllowed != null && maxEntries > 0 && version == policyVersion) {
+                if (cache.size() >= maxEntries) {
+                    LOG.debug("RangerHiveURIAccessChecker.isAccessAllowed(): cache has {} entries - clearing", cache.size());
+
+                    cache.clear();
+                }
+
+                cache.put(key, new CacheEntry(ret, createTime));
+            }
+        }
+
+        return ret;
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private URIAccess getFirstDeniedAccess(Collection<URIAccess> accesses) {
+        URIAccess             ret     = null;
+        List<Future<Boolean>> futures = new ArrayList<>(accesses.size());
+        List<URIAccess>       pending = new ArrayList<>(accesses.size());
+
+        for (URIAccess access : accesses) {
+            futures.add(executor.submit(() -> isAccessAllowed(access)));
+            pending.add(access);
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            boolean isAllowed;
+
+            try {
+                isAllowed = futures.get(i).get();
+            } catch (InterruptedException excp) {
+                LOG.warn("RangerHiveURIAccessChecker: interrupted while checking access to {}", pending.get(i).path);
+
+                Thread.currentThread().interrupt();
+
+                isAllowed = false;
+            } catch (ExecutionException excp) {
+                LOG.error("Error getting permissions for {}", pending.get(i).path, excp);
+
+                isAllowed = false;
+            }
+
+            if (!isAllowed) {
+                ret = pending.get(i);
+
+                for (int j = i + 1; j < futures.size(); j++) {
+                    futures.get(j).cancel(true);
+                }
+
+                break;
+            }
+        }
+
+        return ret;
+    }
+
+    private CacheEntry getCacheEntry(CacheKey key) {
+        long currentPolicyVersion = plugin.getPoliciesVersion();
+
+        if (currentPolicyVersion != policyVersion) {
+            synchronized (this) {
+                if (currentPolicyVersion != policyVersion) {
+                    LOG.info("RangerHiveURIAccessChecker: clearing {} entries; policyVersion={}", cache.size(), currentPolicyVersion);
+
+                    policyVersion = currentPolicyVersion;
+
+                    cache.clear();
+                }
+            }
+        }
+
+        CacheEntry ret = cache.get(key);
+
+        if (ret != null && (System.currentTimeMillis() - ret.createTime) >= ttlMs) {
+            cache.remove(key, ret);
+
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return null if permissions could not be retrieved
+     */
+    private static Boolean checkFileSystemAccess(URIAccess access) {
+        Boolean          ret;
+        RangerPerfTracer perf = null;
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_HIVEAUTH_COARSEURI_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_HIVEAUTH_COARSEURI_LOG, "RangerHiveURIAccessChecker.checkFileSystemAccess(userName=" + access.user + " filePath=" + access.path + " coarseCheck=" + !access.recurse + ")");
+        }
+
+        if (access.action == FsAction.NONE) {
+            ret = true;
+        } else {
+            try {
+                FileStatus[] filestat = access.fs.globStatus(access.path);
+
+                if (filestat != null && filestat.length > 0) {
+                    boolean isDenied = false;
+
+                    for (FileStatus file : filestat) {
+                        if (!FileUtils.isOwnerOfFileHierarchy(access.fs, file, access.user, access.recurse) && !FileUtils.isActionPermittedForFileHierarchy(access.fs, file, access.user, access.action, access.recurse)) {
+                            isDenied = true;
+
+                            break;
+                        }
+                    }
+
+                    ret = !isDenied;
+                } else { // if given path does not exist then check for parent
+                    FileStatus file = FileUtils.getPathOrParentThatExists(access.fs, access.path);
+
+                    FileUtils.checkFileAccessWithImpersonation(access.fs, file, access.action, access.user);
+
+                    ret = true;
+                }
+            } catch (Exception excp) {
+                ret = null;
+
+                LOG.error("Error getting permissions for {}", access.path, excp);
+            }
+        }
+
+        RangerPerfTracer.log(perf);
+
+        return ret;
+    }
+
+    static class URIAccess {
+        final String     user;
+        final FsAction   action;
+        final Path       path;
+        final FileSystem fs;
+        final boolean    recurse;
+
+        private CacheKey cacheKey;
+
+        URIAccess(String user, FsAction action, Path path, FileSystem fs, boolean recurse) {
+            this.user    = user;
+            this.action  = action;
+            this.path    = path;
+            this.fs      = fs;
+            this.recurse = recurse;
+        }
+
+        CacheKey getCacheKey() {
+            if (cacheKey == null) {
+                String uri;
+
+                try {
+                    uri = fs.makeQualified(path).toString();
+                } catch (IllegalArgumentException excp) {
+                    uri = path.toString();
+                }
+
+                cacheKey = new CacheKey(user, uri, action, recurse);
+            }
+
+            return cacheKey;
+        }
+
+        @Override
+        public String toString() {
+            return "URIAccess={user=" + user + ", action=" + action + ", path=" + path + ", recurse=" + recurse + "}";
+        }
+    }
+
+    private static class CacheKey {
+        final String   user;
+        final String   uri;
+        final FsAction action;
+        final boolean  recurse;
+        final int      hashCode;
+
+        CacheKey(String user, String uri, FsAction action, boolean recurse) {
+            this.user     = user;
+            this.uri      = uri;
+            this.action   = action;
+            this.recurse  = recurse;
+            this.hashCode = Objects.hash(user, uri, action, recurse);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+
+            return hashCode == other.hashCode && recurse == other.recurse && action == other.action && Objects.equals(uri, other.uri) && Objects.equals(user, other.user);
+        }
+    }
+
+    private static class CacheEntry {
+        final boolean isAllowed;
+        final long    createTime;
+
+        CacheEntry(boolean isAllowed, long createTime) {
+            this.isAllowed  = isAllowed;
+            this.createTime = createTime;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hive.authorizer;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.hive.common.FileUtils;
+import org.apache.ranger.authorization.hive.authorizer.RangerHiveURIAccessChecker.URIAccess;
+import org.apache.ranger.plugin.service.RangerBasePlugin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TestRangerHiveURIAccessChecker {
+    @Test
+    public void testDuplicateURIsAreCheckedOnce() throws Exception {
+        RangerHiveURIAccessChecker checker = new RangerHiveURIAccessChecker(mockPlugin(), 0, 0, 1);
+        FileSystem                 fs      = mockFileSystem();
+        URIAccess                  access1 = new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true);
+        URIAccess                  access2 = new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true);
+        URIAccess                  access3 = new URIAccess("user2", FsAction.READ, new Path("/data/dir1"), fs, true);
+        URIAccess                  access4 = new URIAccess("user1", FsAction.READ, new Path("/data/dir2"), fs, true);
+
+        try (MockedStatic<FileUtils> fileUtils = mockFileUtils()) {
+            assertNull(checker.getFirstDeniedAccess(Arrays.asList(access1, access2)));
+
+            verify(fs, times(1)).globStatus(new Path("/data/dir1"));
+
+            // user2 is denied; checks after the first denied one are skipped
+            assertSame(access3, checker.getFirstDeniedAccess(Arrays.asList(access1, access3, access4)));
+
+            verify(fs, never()).globStatus(new Path("/data/dir2"));
+        }
+    }
+
+    @Test
+    public void testCachedResultIsReused() throws Exception {
+        RangerBasePlugin           plugin  = mockPlugin();
+        RangerHiveURIAccessChecker checker = new RangerHiveURIAccessChecker(plugin, 10, 60000, 1);
+        FileSystem                 fs      = mockFileSystem();
+
+        try (MockedStatic<FileUtils> fileUtils = mockFileUtils()) {
+            assertTrue(checker.isAccessAllowed(new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true)));
+            assertTrue(checker.isAccessAllowed(new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true)));
+            assertFalse(checker.isAccessAllowed(new URIAccess("user2", FsAction.READ, new Path("/data/dir1"), fs, true)));
+            assertFalse(checker.isAccessAllowed(new URIAccess("user2", FsAction.READ, new Path("/data/dir1"), fs, true)));
+
+            verify(fs, times(2)).globStatus(new Path("/data/dir1"));
+
+            // change in policy version drops cached results
+            when(plugin.getPoliciesVersion()).thenReturn(2L);
+
+            assertTrue(checker.isAccessAllowed(new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true)));
+
+            verify(fs, times(3)).globStatus(new Path("/data/dir1"));
+        }
+    }
+
+    @Test
+    public void testExpiredAndFailedResultsAreNotReused() throws Exception {
+        RangerHiveURIAccessChecker checker = new RangerHiveURIAccessChecker(mockPlugin(), 10, 0, 1);
+        FileSystem                 fs      = mockFileSystem();
+
+        lenient().when(fs.globStatus(new Path("/data/error"))).thenThrow(new IOException("test"));
+
+        try (MockedStatic<FileUtils> fileUtils = mockFileUtils()) {
+            checker.isAccessAllowed(new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true));
+            checker.isAccessAllowed(new URIAccess("user1", FsAction.READ, new Path("/data/dir1"), fs, true));
+
+            verify(fs, times(2)).globStatus(new Path("/data/dir1"));
+        }
+
+        checker = new RangerHiveURIAccessChecker(mockPlugin(), 10, 60000, 1);
+
+        assertFalse(checker.isAccessAllowed(new URIAccess("user1", FsAction.READ, new Path("/data/error"), fs, true)));
+        assertEquals(0, checker.size());
+    }
+
+    private static RangerBasePlugin mockPlugin() {
+        RangerBasePlugin plugin = mock(RangerBasePlugin.class);
+
+        lenient().when(plugin.getPoliciesVersion()).thenReturn(1L);
+
+        return plugin;
+    }
+
+    private static FileSystem mockFileSystem() throws IOException {
+        FileSystem fs = mock(FileSystem.class);
+
+        lenient().when(fs.makeQualified(any(Path.class))).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(fs.globStatus(any(Path.class))).thenReturn(new FileStatus[] {new FileStatus()});
+
+        return fs;
+    }
+
+    private static MockedStatic<FileUtils> mockFileUtils() {
+        MockedStatic<FileUtils> ret = mockStatic(FileUtils.class);
+
+        // user1 owns all files; no permission for other users
+        ret.when(() -> FileUtils.isOwnerOfFileHierarchy(any(FileSystem.class), any(FileStatus.class), eq("user1"), anyBoolean())).thenReturn(true);
+
+        return ret;
+    }
+}
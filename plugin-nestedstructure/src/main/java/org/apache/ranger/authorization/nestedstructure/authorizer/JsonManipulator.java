@@ -18,133 +18,88 @@
 
 package org.apache.ranger.authorization.nestedstructure.authorizer;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
-import com.jayway.jsonpath.Configuration;
-import com.jayway.jsonpath.DocumentContext;
+import com.google.gson.JsonPrimitive;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.Option;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
- * Accepts a json string, parses it into a {@link DocumentContext}.
- * Individual fields can be updated in the {@link DocumentContext}.
+ * Accepts a json string, parses it - once - into a tree of {@link JsonElement}.
+ * Individual fields can be updated in the tree.
  * And a new json string can be obtained.
  **/
 public class JsonManipulator {
-    /**
-     the overall document
-     **/
-    private final DocumentContext documentContext;
+    private static final String FIELD_SEPARATOR = ".";
+    private static final String ARRAY_ELEMENTS  = "*";
 
     /**
-     a {@link DocumentContext} that specializes in returning field names (not values)
+     the overall document
      **/
-    private final DocumentContext fieldContextDocument;
+    private final JsonElement document;
 
-    private final Set<String> fields;
+    private final Set<String> fields = new HashSet<>();
 
     /**
      *
      * @param jsonString json to be parsed and masked
      */
     public JsonManipulator(String jsonString) {
-        checkIsValidJson(jsonString);
-
-        documentContext = JsonPath.parse(jsonString);
-
-        //"$..*" - give me everything
-        Configuration conf = Configuration.builder().options(Option.AS_PATH_LIST).build();
-
-        fieldContextDocument = JsonPath.using(conf).parse(jsonString);
-
-        List<String> leafPathList = fieldContextDocument.read("$..*");
-
-        //remove non-leaf nodes from the list
-        //if element n starts with element n-1, then n-1 is a leaf node and should be removed
-        Collections.sort(leafPathList);
-
-        List<String> filteredList = new ArrayList<>();
-
-        for (int i = 0; i < leafPathList.size(); i++) {
-            String current = leafPathList.get(i);
-
-            if ((i + 1) < leafPathList.size()) {
-                String next = leafPathList.get(i + 1);
-
-                if (!next.startsWith(current)) {
-                    filteredList.add(current);
-                }
-            } else {
-                filteredList.add(current);
-            }
+        try {
+            document = JsonParser.parseString(jsonString);
+        } catch (JsonParseException e) {
+            throw new MaskingException("invalid input json; unable to mask", e);
         }
 
-        leafPathList = filteredList;
-
-        Stream<String> newList = leafPathList.stream().map(path -> {
-            return path.replaceAll("\\[[0-9]+\\]", ".*") //removes "[0]" replaces with .*
-                    .replaceAll("\\$\\['", "") //removes "$['"
-                    .replaceAll("'\\]\\['", ".") //removes "']['"
-                    .replaceAll("\\*\\['", "*.") //removes *['
-                    .replaceAll("'\\]", ""); //removes trailing "']"
-        });
-
-        fields = newList.collect(Collectors.toSet());
+        collectFields(document, "");
     }
 
     /**
      *
-     * @return The names of all the edge fields in the {@link DocumentContext}.
+     * @return The names of all the edge fields in the document.
      * Note that is a value is nested (ie it is of type map) that it is not returned.
      * For example if the full field set was Set(address, address.city, address.street, address.state),
-     * only Set(address.city, address.street, address.state) would be returned
+     * only Set(address.city, address.street, address.state) would be returned.
+     * Elements of arrays are named "*", for example: address.phones.*
      */
     public Set<String> getFields() {
         return fields;
     }
 
     /**
-     * Does the actual masking of values.
+     * Does the actual masking of values, in a single walk over the document for all the given fields.
      * @param fieldAccess
      */
     public void maskFields(List<FieldLevelAccess> fieldAccess) {
-        Stream<FieldLevelAccess> maskedFields = fieldAccess.stream().filter(fa -> fa.hasAccess && fa.isMasked);
-
-        maskedFields.forEach(fa -> {
-            //System.out.println( " attribute " + fa.field + " masked ? " + (fa.isMasked? "yes":"no"));
-
-            getMatchingFields(fa.field).forEach(fullFieldPath -> {
-                final Object realValue = documentContext.read(fullFieldPath);
-                final Object maskedValue;
-
-                //I know I could use polymorphism to not have different methods but I prefer the readability and the clarity of different method names
-                if (realValue instanceof String) {
-                    maskedValue = DataMasker.maskString((String) realValue, fa.maskType, fa.customMaskedValue);
-                } else if (realValue instanceof Number) {
-                    maskedValue = DataMasker.maskNumber((Number) realValue, fa.maskType, fa.customMaskedValue);
-                } else if (realValue instanceof Boolean) {
-                    maskedValue = DataMasker.maskBoolean((Boolean) realValue, fa.maskType, fa.customMaskedValue);
-                } else {
-                    throw new MaskingException("unable to determine field type: " + realValue);
-                }
-
-                documentContext.set(fullFieldPath, maskedValue);
-            });
-        });
+        Map<String, List<FieldLevelAccess>> maskedFields = new HashMap<>();
+
+        for (FieldLevelAccess fa : fieldAccess) {
+            if (fa.hasAccess && fa.isMasked) {
+                maskedFields.computeIfAbsent(fa.field, k -> new ArrayList<>()).add(fa);
+            }
+        }
+
+        if (!maskedFields.isEmpty()) {
+            maskFields(document, "", maskedFields);
+        }
     }
 
     /**
-     * @return the current/updated json string of the {@link DocumentContext} that is being worked on
+     * @return the current/updated json string of the document that is being worked on
      */
     public String getJsonString() {
-        return documentContext.jsonString();
+        return document.toString();
     }
 
     /**
@@ -153,18 +108,85 @@ public String getJsonString() {
      * @return the value at a specific path
      */
     String readString(String fullPath) {
-        return documentContext.read(fullPath).toString();
+        return JsonPath.parse(getJsonString()).read(fullPath).toString();
     }
 
-    private void checkIsValidJson(String jsonString) {
-        try {
-            JsonParser.parseString(jsonString);
-        } catch (JsonSyntaxException e) {
-            throw new MaskingException("invalid input json; unable to mask", e);
+    private void collectFields(JsonElement element, String path) {
+        if (element.isJsonObject() && element.getAsJsonObject().size() > 0) {
+            for (Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                collectFields(member.getValue(), getChildPath(path, member.getKey()));
+            }
+        } else if (element.isJsonArray() && element.getAsJsonArray().size() > 0) {
+            String elementsPath = getChildPath(path, ARRAY_ELEMENTS);
+
+            for (JsonElement arrayElement : element.getAsJsonArray()) {
+                collectFields(arrayElement, elementsPath);
+            }
+        } else if (!path.isEmpty()) {
+            fields.add(path);
         }
     }
 
-    private List<String> getMatchingFields(String fieldPath) {
-        return fieldContextDocument.read("$." + fieldPath);
+    /**
+     * Replaces the values of fields to be masked, in the subtree of the given element
+     * @return the element to replace the given element with
+     */
+    private JsonElement maskFields(JsonElement element, String path, Map<String, List<FieldLevelAccess>> maskedFields) {
+        List<FieldLevelAccess> masks = maskedFields.get(path);
+        JsonElement            ret   = element;
+
+        if (masks != null) {
+            for (FieldLevelAccess fa : masks) {
+                ret = maskValue(ret, fa);
+            }
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+
+            for (Entry<String, JsonElement> member : object.entrySet()) {
+                member.setValue(maskFields(member.getValue(), getChildPath(path, member.getKey()), maskedFields));
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array        = element.getAsJsonArray();
+            String    elementsPath = getChildPath(path, ARRAY_ELEMENTS);
+
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, maskFields(array.get(i), elementsPath, maskedFields));
+            }
+        }
+
+        return ret;
+    }
+
+    private static JsonElement maskValue(JsonElement realValue, FieldLevelAccess fa) {
+        final Object maskedValue;
+
+        //I know I could use polymorphism to not have different methods but I prefer the readability and the clarity of different method names
+        if (realValue.isJsonPrimitive() && realValue.getAsJsonPrimitive().isString()) {
+            maskedValue = DataMasker.maskString(realValue.getAsString(), fa.maskType, fa.customMaskedValue);
+        } else if (realValue.isJsonPrimitive() && realValue.getAsJsonPrimitive().isNumber()) {
+            maskedValue = DataMasker.maskNumber(realValue.getAsNumber(), fa.maskType, fa.customMaskedValue);
+        } else if (realValue.isJsonPrimitive() && realValue.getAsJsonPrimitive().isBoolean()) {
+            maskedValue = DataMasker.maskBoolean(realValue.getAsBoolean(), fa.maskType, fa.customMaskedValue);
+        } else {
+            throw new MaskingException("unable to determine field type: " + realValue);
+        }
+
+        final JsonElement ret;
+
+        if (maskedValue == null) {
+            ret = JsonNull.INSTANCE;
+        } else if (maskedValue instanceof String) {
+            ret = new JsonPrimitive((String) maskedValue);
+        } else if (maskedValue instanceof Number) {
+            ret = new JsonPrimitive((Number) maskedValue);
+        } else {
+            ret = new JsonPrimitive((Boolean) maskedValue);
+        }
+
+        return ret;
+    }
+
+    private static String getChildPath(String path, String name) {
+        return path.isEmpty() ? name : (path + FIELD_SEPARATOR + name);
     }
 }
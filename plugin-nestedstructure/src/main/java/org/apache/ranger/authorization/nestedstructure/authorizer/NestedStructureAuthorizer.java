@@ -31,7 +31,9 @@
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -109,42 +111,117 @@ public AccessResult authorize(String schema, String user, Set<String> userGroups
         return ret;
     }
 
+    /**
+     * Authorizes a batch of records of a schema, for example records consumed from a stream. Access to the schema,
+     * the row-filter policy and access to each field are evaluated once for the batch, instead of once per record;
+     * likewise, the audit log has one entry for each distinct field access or denial in the batch.
+     * @param schema atlas schema name
+     * @param user atlas user name
+     * @param userGroups atlas user groups
+     * @param jsons the json of the records to be evaluated
+     * @param accessType access type requested; must be included in NestedStructureAccessType.
+     * @return for each record, in the same order, the result as returned by authorize() for a single record
+     */
+    public List<AccessResult> authorize(String schema, String user, Set<String> userGroups, List<String> jsons, NestedStructureAccessType accessType) {
+        List<AccessResult>          ret          = new ArrayList<>(jsons.size());
+        NestedStructureAuditHandler auditHandler = new NestedStructureAuditHandler(plugin.getConfig());
+
+        try {
+            if (!hasAccessToSchemaOrAnyField(schema, user, userGroups, accessType, auditHandler)) {
+                for (int i = 0; i < jsons.size(); i++) {
+                    ret.add(new AccessResult(false, null));
+                }
+            } else {
+                RecordAccessChecker           recordAccessChecker = getRecordAccessChecker(schema, user, userGroups, accessType, auditHandler);
+                Map<String, FieldLevelAccess> fieldAccessCache    = new HashMap<>();
+
+                for (String json : jsons) {
+                    AccessResult result;
+
+                    try {
+                        if (!recordAccessChecker.hasAccessToRecord(json)) {
+                            result = new AccessResult(false, null);
+                        } else {
+                            result = authorizeFields(schema, user, userGroups, json, accessType, auditHandler, fieldAccessCache);
+                        }
+                    } catch (Exception e) {
+                        logger.warn("exception during processing, user: {}\n json: {}", user, json, e);
+
+                        result = new AccessResult(false, null).addError(e);
+                    }
+
+                    ret.add(result);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("exception during processing, user: {}", user, e);
+
+            ret.clear();
+
+            for (int i = 0; i < jsons.size(); i++) {
+                ret.add(new AccessResult(false, null).addError(e));
+            }
+        } finally {
+            auditHandler.flushAudit();
+        }
+
+        return ret;
+    }
+
     private AccessResult privateAuthorize(String schema, String user, Set<String> userGroups, String json, NestedStructureAccessType accessType, NestedStructureAuditHandler auditHandler) {
         final AccessResult ret;
 
         if (!hasAccessToSchemaOrAnyField(schema, user, userGroups, accessType, auditHandler)) {
             ret = new AccessResult(false, null);
-        } else if (!hasAccessToRecord(schema, user, userGroups, json, accessType, auditHandler)) {
+        } else if (!getRecordAccessChecker(schema, user, userGroups, accessType, auditHandler).hasAccessToRecord(json)) {
             ret = new AccessResult(false, null);
         } else {
-            boolean                accessDenied    = false;
-            JsonManipulator        jsonManipulator = new JsonManipulator(json);
-            List<FieldLevelAccess> fieldResults    = new ArrayList<>();
+            ret = authorizeFields(schema, user, userGroups, json, accessType, auditHandler, new HashMap<>());
+        }
 
-            //check each field individually - both if the user has access and if so, what masking is required
-            for (String field : jsonManipulator.getFields()) {
-                FieldLevelAccess fieldAccess = hasFieldAccess(schema, user, userGroups, field, accessType, auditHandler);
+        return ret;
+    }
 
-                fieldResults.add(fieldAccess);
+    /**
+     * Checks access to each field of the record, and masks the fields as required
+     * @param fieldAccessCache access to fields already checked, for the same schema, user and access type
+     */
+    private AccessResult authorizeFields(String schema, String user, Set<String> userGroups, String json, NestedStructureAccessType accessType, NestedStructureAuditHandler auditHandler, Map<String, FieldLevelAccess> fieldAccessCache) {
+        boolean                accessDenied    = false;
+        JsonManipulator        jsonManipulator = new JsonManipulator(json);
+        List<FieldLevelAccess> fieldResults    = new ArrayList<>();
 
-                if (!fieldAccess.hasAccess) {
-                    accessDenied = true;
+        //check each field individually - both if the user has access and if so, what masking is required
+        for (String field : jsonManipulator.getFields()) {
+            FieldLevelAccess fieldAccess = fieldAccessCache.get(field);
 
-                    break;
-                }
+            if (fieldAccess == null) {
+                fieldAccess = hasFieldAccess(schema, user, userGroups, field, accessType, auditHandler);
+
+                fieldAccessCache.put(field, fieldAccess);
             }
 
-            //the user must have access to all fields.
-            // if the user doesn't have access to one of the fields return an empty/false AccessResult
-            if (accessDenied) {
-                ret = new AccessResult(false, null);
-            } else {
-                jsonManipulator.maskFields(fieldResults);
+            fieldResults.add(fieldAccess);
+
+            if (!fieldAccess.hasAccess) {
+                accessDenied = true;
 
-                ret = new AccessResult(true, jsonManipulator.getJsonString());
+                break;
             }
         }
 
+        final AccessResult ret;
+
+        //the user must have access to all fields.
+        // if the user doesn't have access to one of the fields return an empty/false AccessResult
+        if (accessDenied) {
+            ret = new AccessResult(false, null);
+        } else {
+            jsonManipulator.maskFields(fieldResults);
+
+            ret = new AccessResult(true, jsonManipulator.getJsonString());
+        }
+
         return ret;
     }
 
@@ -209,13 +286,10 @@ private FieldLevelAccess hasFieldAccess(String schema, String user, Set<String>
      * @param schema atlas schema name
      * @param user atlas user name
      * @param userGroups atlas user groups
-     * @param jsonString the json payload that needs to be evaluated
      * @param accessType access type requested; must be included in NestedStructureAccessType.
-     * @return if the user is authorized to view this particular record
+     * @return checker of whether the user is authorized to view a particular record
      */
-
-    private boolean hasAccessToRecord(String schema, String user, Set<String> userGroups, String jsonString, NestedStructureAccessType accessType, NestedStructureAuditHandler auditHandler) {
-        boolean                 ret      = true;
+    private RecordAccessChecker getRecordAccessChecker(String schema, String user, Set<String> userGroups, NestedStructureAccessType accessType, NestedStructureAuditHandler auditHandler) {
         NestedStructureResource resource = new NestedStructureResource(Optional.of(schema));
         RangerAccessRequest     request  = new RangerAccessRequestImpl(resource, accessType.getValue(), user, userGroups, null);
         RangerAccessResult      result   = plugin.evalRowFilterPolicies(request, null);
@@ -224,22 +298,7 @@ private boolean hasAccessToRecord(String schema, String user, Set<String> userGr
             throw new MaskingException("unable to determine access");
         }
 
-        if (result.isRowFilterEnabled()) {
-            String filterExpr = result.getFilterExpr();
-
-            logger.debug("row level filter enabled with expression: {}", filterExpr);
-
-            ret = RecordFilterJavaScript.filterRow(user, filterExpr, jsonString);
-
-            // generate audit log only when row-filter denies access to the record
-            if (!ret) {
-                result.setIsAllowed(false);
-
-                auditHandler.processResult(result);
-            }
-        }
-
-        return ret;
+        return new RecordAccessChecker(user, result, auditHandler);
     }
 
     /**
@@ -272,4 +331,44 @@ private boolean hasAccessToSchemaOrAnyField(String schema, String user, Set<Stri
 
         return ret;
     }
+
+    /**
+     * Evaluates the row-filter, if any, on records of a batch
+     */
+    private static class RecordAccessChecker {
+        private final RangerAccessResult                  result;
+        private final NestedStructureAuditHandler         auditHandler;
+        private final RecordFilterJavaScript.RecordFilter recordFilter;
+        private       boolean                             isDenialAudited;
+
+        RecordAccessChecker(String user, RangerAccessResult result, NestedStructureAuditHandler auditHandler) {
+            this.result       = result;
+            this.auditHandler = auditHandler;
+
+            if (result.isRowFilterEnabled()) {
+                String filterExpr = result.getFilterExpr();
+
+                logger.debug("row level filter enabled with expression: {}", filterExpr);
+
+                recordFilter = RecordFilterJavaScript.getRecordFilter(user, filterExpr);
+            } else {
+                recordFilter = null;
+            }
+        }
+
+        boolean hasAccessToRecord(String jsonString) {
+            boolean ret = recordFilter == null || recordFilter.filterRow(jsonString);
+
+            // generate audit log only when row-filter denies access to the record
+            if (!ret && !isDenialAudited) {
+                result.setIsAllowed(false);
+
+                auditHandler.processResult(result);
+
+                isDenialAudited = true;
+            }
+
+            return ret;
+        }
+    }
 }
@@ -24,14 +24,29 @@
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Executes an injected javascript command to determine if the user has access to the selected record
+ * Executes an injected javascript command to determine if the user has access to the selected record.
+ * A single script engine is shared by all evaluations, and each filter expression is compiled once: the first time
+ * it is evaluated after being returned by a row-filter policy. Each evaluation, or batch of evaluations, has its own
+ * Bindings - i.e. its own javascript global scope.
  */
 public class RecordFilterJavaScript {
     private static final Logger logger = LoggerFactory.getLogger(RecordFilterJavaScript.class);
 
+    private static final int                         MAX_COMPILED_FILTERS = 1000;
+    private static final Map<String, CompiledScript> COMPILED_FILTERS     = new ConcurrentHashMap<>();
+
+    private static volatile ScriptEngine   engine;
+    private static volatile CompiledScript polyfill;
+
     private RecordFilterJavaScript() {
     }
 
@@ -48,36 +63,118 @@ private RecordFilterJavaScript() {
             " return false; } }); }";
 
     public static boolean filterRow(String user, String filterExpr, String jsonString) {
-        SecurityFilter securityFilter = new SecurityFilter();
-
-        if (securityFilter.containsMalware(filterExpr)) {
-            throw new MaskingException("cannot process filter expression due to security concern \"this.engine\": " + filterExpr);
-        }
+        return getRecordFilter(user, filterExpr).filterRow(jsonString);
+    }
 
-        NashornScriptEngineFactory factory = new NashornScriptEngineFactory();
-        ScriptEngine               engine  = factory.getScriptEngine(securityFilter);
+    /**
+     * @param user the user accessing the records
+     * @param filterExpr the row-filter expression
+     * @return a filter to evaluate the expression on a batch of records, reusing the same javascript global scope
+     */
+    public static RecordFilter getRecordFilter(String user, String filterExpr) {
+        CompiledScript script = getCompiledFilter(filterExpr);
 
         logger.debug("filterExpr: {}", filterExpr);
 
-        // convert the given JSON string to JavaScript object, which the filterExpr expects, and then exec the filterExpr
-        String script = " jsonAttr = JSON.parse(jsonString); " + NASHORN_POLYFILL_ARRAY_PROTOTYPE_INCLUDES + " " + filterExpr;
-
         try {
-            Bindings bindings = engine.createBindings();
+            Bindings bindings = script.getEngine().createBindings();
 
-            bindings.put("jsonString", jsonString);
             bindings.put("user", user);
 
-            boolean hasAccess = (boolean) engine.eval(script, bindings);
-
-            logger.debug("row filter access={}", hasAccess);
+            polyfill.eval(bindings);
 
-            return hasAccess;
+            return new RecordFilter(filterExpr, script, bindings);
         } catch (Exception e) {
             throw new MaskingException("unable to properly evaluate filter expression: " + filterExpr, e);
         }
     }
 
+    private static CompiledScript getCompiledFilter(String filterExpr) {
+        CompiledScript ret = COMPILED_FILTERS.get(filterExpr);
+
+        if (ret == null) {
+            SecurityFilter securityFilter = new SecurityFilter();
+
+            if (securityFilter.containsMalware(filterExpr)) {
+                throw new MaskingException("cannot process filter expression due to security concern \"this.engine\": " + filterExpr);
+            }
+
+            // convert the given JSON string to JavaScript object, which the filterExpr expects, and then exec the filterExpr
+            String script = " jsonAttr = JSON.parse(jsonString); " + filterExpr;
+
+            try {
+                ret = ((Compilable) getEngine()).compile(script);
+            } catch (ScriptException e) {
+                throw new MaskingException("unable to properly evaluate filter expression: " + filterExpr, e);
+            }
+
+            if (COMPILED_FILTERS.size() >= MAX_COMPILED_FILTERS) { // filter expressions of older policy versions
+                COMPILED_FILTERS.clear();
+            }
+
+            COMPILED_FILTERS.put(filterExpr, ret);
+        }
+
+        return ret;
+    }
+
+    private static ScriptEngine getEngine() {
+        ScriptEngine ret = engine;
+
+        if (ret == null) {
+            synchronized (RecordFilterJavaScript.class) {
+                ret = engine;
+
+                if (ret == null) {
+                    ret = new NashornScriptEngineFactory().getScriptEngine(new SecurityFilter());
+
+                    try {
+                        polyfill = ((Compilable) ret).compile(NASHORN_POLYFILL_ARRAY_PROTOTYPE_INCLUDES);
+                    } catch (ScriptException e) {
+                        throw new MaskingException("unable to compile javascript polyfill", e);
+                    }
+
+                    engine = ret;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Evaluates a row-filter expression on records of a batch. Not thread-safe: each batch should get its own instance.
+     */
+    public static class RecordFilter {
+        private final String         filterExpr;
+        private final CompiledScript script;
+        private final Bindings       bindings;
+
+        RecordFilter(String filterExpr, CompiledScript script, Bindings bindings) {
+            this.filterExpr = filterExpr;
+            this.script     = script;
+            this.bindings   = bindings;
+        }
+
+        /**
+         * @param jsonString the record
+         * @return if the user has access to the record
+         */
+        public boolean filterRow(String jsonString) {
+            try {
+                bindings.put("jsonString", jsonString);
+
+                boolean hasAccess = (boolean) script.eval(bindings);
+
+                logger.debug("row filter access={}", hasAccess);
+
+                return hasAccess;
+            } catch (Exception e) {
+                throw new MaskingException("unable to properly evaluate filter expression: " + filterExpr, e);
+            }
+        }
+    }
+
     /**
      * This class filter prevents javascript from importing, using or reflecting any java classes
      * Helps keep javascript clean of injections.  It also contains other checks to ensure that injected
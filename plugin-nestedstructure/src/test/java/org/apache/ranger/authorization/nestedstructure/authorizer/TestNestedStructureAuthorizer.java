@@ -32,6 +32,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -80,6 +81,15 @@ private void runTests(InputStreamReader reader, String testName) {
 
             assertEquals(expected.hasAccess(), result.hasAccess(), test.name + ": hasAccess doesn't match: expected=" + expected.hasAccess() + ", actual=" + result.hasAccess());
             assertEquals(expected.getJson(), result.getJson(), test.name + ": json doesn't match: expected=" + expected.getJson() + ", actual=" + result.getJson());
+
+            List<AccessResult> batchResults = authorizer.authorize(test.schema, test.user, test.userGroups, Arrays.asList(test.json, test.json), NestedStructureAccessType.getAccessType(test.accessType));
+
+            assertEquals(2, batchResults.size(), test.name + ": batch result count doesn't match");
+
+            for (AccessResult batchResult : batchResults) {
+                assertEquals(expected.hasAccess(), batchResult.hasAccess(), test.name + ": batch hasAccess doesn't match: expected=" + expected.hasAccess() + ", actual=" + batchResult.hasAccess());
+                assertEquals(expected.getJson(), batchResult.getJson(), test.name + ": batch json doesn't match: expected=" + expected.getJson() + ", actual=" + batchResult.getJson());
+            }
         }
     }
 
@@ -62,4 +62,15 @@ public void testBasicFilters() {
 
         assertFalse(RecordFilterJavaScript.filterRow("user", "jsonAttr.partner.equals('cox')", TestJsonManipulator.testString1));
     }
+
+    @Test
+    public void testRecordFilterOnBatch() {
+        RecordFilterJavaScript.RecordFilter filter = RecordFilterJavaScript.getRecordFilter("user", "jsonAttr.address.state == 'CA' && user == 'user'");
+
+        assertTrue(filter.filterRow("{\"address\": {\"state\": \"CA\"}}"));
+        assertFalse(filter.filterRow("{\"address\": {\"state\": \"WA\"}}"));
+        assertTrue(filter.filterRow("{\"address\": {\"state\": \"CA\"}}"));
+        assertThrows(MaskingException.class, () -> filter.filterRow("{\"address\": "));
+        assertFalse(RecordFilterJavaScript.getRecordFilter("user2", "jsonAttr.address.state == 'CA' && user == 'user'").filterRow("{\"address\": {\"state\": \"CA\"}}"));
+    }
 }
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServiceDefUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates deterministic, synthetic policies, tags and access requests for the benchmarks.
+ *
+ * Hive policies are spread over a fixed number of databases with one table per policy; HDFS policies are
+ * recursive policies on one directory per policy. A configurable fraction of the generated requests target
+ * resources covered by a policy, the rest miss every policy - which is the worst case for trie lookups.
+ */
+public final class BenchmarkData {
+    public static final String HIVE_SERVICE_NAME = "bench_hive";
+    public static final String HDFS_SERVICE_NAME = "bench_hdfs";
+    public static final String APP_ID            = "bench";
+
+    static final int    DATABASE_COUNT  = 100;
+    static final int    USER_COUNT      = 1000;
+    static final int    GROUP_COUNT     = 50;
+    static final int    TAG_TYPE_COUNT  = 20;
+    static final int    REQUEST_COUNT   = 1024;
+    static final double MATCH_RATE      = 0.7d;
+    static final long   RANDOM_SEED     = 20241018L;
+
+    private static final List<String> HIVE_ACCESS_TYPES = Arrays.asList("select", "update", "create", "drop", "alter");
+    private static final List<String> HDFS_ACCESS_TYPES = Arrays.asList("read", "write", "execute");
+
+    private BenchmarkData() {
+        // to block instantiation
+    }
+
+    public static RangerServiceDef getServiceDef(String serviceType) {
+        try {
+            return ServiceDefUtil.normalize(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(serviceType));
+        } catch (Exception excp) {
+            throw new IllegalStateException("failed to load service-def " + serviceType, excp);
+        }
+    }
+
+    public static RangerResourceDef getResourceDef(RangerServiceDef serviceDef, String resourceName) {
+        for (RangerResourceDef resourceDef : serviceDef.getResources()) {
+            if (resourceName.equals(resourceDef.getName())) {
+                return resourceDef;
+            }
+        }
+
+        throw new IllegalArgumentException("resource " + resourceName + " not found in service-def " + serviceDef.getName());
+    }
+
+    public static RangerPluginContext createPluginContext(String serviceType, String serviceName) {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+        options.disablePolicyRefresher    = true;
+        options.disableTagRetriever       = true;
+        options.disableUserStoreRetriever = true;
+        options.disableGdsInfoRetriever   = true;
+        options.cacheAuditResults         = false;
+
+        return new RangerPluginContext(new RangerPluginConfig(serviceType, serviceName, APP_ID, null, null, options));
+    }
+
+    public static ServicePolicies createHivePolicies(int policyCount) {
+        RangerServiceDef   serviceDef = getServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME);
+        List<RangerPolicy> policies   = new ArrayList<>(policyCount);
+
+        for (int i = 0; i < policyCount; i++) {
+            Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+            resources.put("database", new RangerPolicyResource(getDatabase(i)));
+            resources.put("table", new RangerPolicyResource(getTable(i)));
+            resources.put("column", new RangerPolicyResource((i % 4) == 0 ? "*" : getColumn(i)));
+
+            policies.add(createPolicy(i, HIVE_SERVICE_NAME, resources, HIVE_ACCESS_TYPES.subList(0, 2)));
+        }
+
+        return createServicePolicies(HIVE_SERVICE_NAME, serviceDef, policies);
+    }
+
+    public static ServicePolicies createHdfsPolicies(int policyCount) {
+        RangerServiceDef   serviceDef = getServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME);
+        List<RangerPolicy> policies   = new ArrayList<>(policyCount);
+
+        for (int i = 0; i < policyCount; i++) {
+            RangerPolicyResource path = new RangerPolicyResource(getPath(i), false, true);
+
+            policies.add(createPolicy(i, HDFS_SERVICE_NAME, Collections.singletonMap("path", path), HDFS_ACCESS_TYPES));
+        }
+
+        return createServicePolicies(HDFS_SERVICE_NAME, serviceDef, policies);
+    }
+
+    /*
+     * one tagged service-resource per table; tag types are reused across resources, as in a typical deployment
+     */
+    public static ServiceTags createHiveTags(int resourceCount) {
+        Map<Long, RangerTagDef>     tagDefs          = new HashMap<>();
+        Map<Long, RangerTag>        tags             = new HashMap<>();
+        List<RangerServiceResource> serviceResources = new ArrayList<>(resourceCount);
+        Map<Long, List<Long>>       resourceToTagIds = new HashMap<>();
+
+        for (long i = 0; i < TAG_TYPE_COUNT; i++) {
+            RangerTagDef tagDef = new RangerTagDef("TAG_" + i);
+            RangerTag    tag    = new RangerTag(tagDef.getName(), Collections.emptyMap());
+
+            tagDef.setId(i);
+            tag.setId(i);
+
+            tagDefs.put(i, tagDef);
+            tags.put(i, tag);
+        }
+
+        for (int i = 0; i < resourceCount; i++) {
+            Map<String, RangerPolicyResource> resourceElements = new HashMap<>();
+
+            resourceElements.put("database", new RangerPolicyResource(getDatabase(i)));
+            resourceElements.put("table", new RangerPolicyResource(getTable(i)));
+
+            RangerServiceResource serviceResource = new RangerServiceResource(HIVE_SERVICE_NAME, resourceElements);
+
+            serviceResource.setId((long) i);
+
+            serviceResources.add(serviceResource);
+            resourceToTagIds.put((long) i, Collections.singletonList((long) (i % TAG_TYPE_COUNT)));
+        }
+
+        ServiceTags ret = new ServiceTags();
+
+        ret.setServiceName(HIVE_SERVICE_NAME);
+        ret.setTagVersion(1L);
+        ret.setTagDefinitions(tagDefs);
+        ret.setTags(tags);
+        ret.setServiceResources(serviceResources);
+        ret.setResourceToTagIds(resourceToTagIds);
+
+        return ret;
+    }
+
+    public static List<RangerAccessRequest> createHiveRequests(int policyCount) {
+        Random                    random = new Random(RANDOM_SEED);
+        List<RangerAccessRequest> ret    = new ArrayList<>(REQUEST_COUNT);
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            int                      idx      = getResourceIndex(random, policyCount);
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setValue("database", getDatabase(idx));
+            resource.setValue("table", getTable(idx));
+            resource.setValue("column", getColumn(idx));
+
+            ret.add(createRequest(resource, HIVE_ACCESS_TYPES.get(random.nextInt(HIVE_ACCESS_TYPES.size())), idx));
+        }
+
+        return ret;
+    }
+
+    public static List<RangerAccessRequest> createHdfsRequests(int policyCount) {
+        Random                    random = new Random(RANDOM_SEED);
+        List<RangerAccessRequest> ret    = new ArrayList<>(REQUEST_COUNT);
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            int                      idx      = getResourceIndex(random, policyCount);
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setValue("path", getFilePath(idx, random.nextInt(100)));
+
+            ret.add(createRequest(resource, HDFS_ACCESS_TYPES.get(random.nextInt(HDFS_ACCESS_TYPES.size())), idx));
+        }
+
+        return ret;
+    }
+
+    public static List<String> createHdfsPaths(int policyCount) {
+        Random       random = new Random(RANDOM_SEED);
+        List<String> ret    = new ArrayList<>(REQUEST_COUNT);
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            ret.add(getFilePath(getResourceIndex(random, policyCount), random.nextInt(100)));
+        }
+
+        return ret;
+    }
+
+    static String getDatabase(int idx) {
+        return "db_" + (idx % DATABASE_COUNT);
+    }
+
+    static String getTable(int idx) {
+        return "tbl_" + idx;
+    }
+
+    static String getColumn(int idx) {
+        return "col_" + (idx % 16);
+    }
+
+    static String getPath(int idx) {
+        return "/data/dept_" + (idx % DATABASE_COUNT) + "/project_" + idx;
+    }
+
+    static String getFilePath(int idx, int fileIdx) {
+        return getPath(idx) + "/part-" + fileIdx + ".parquet";
+    }
+
+    private static int getResourceIndex(Random random, int policyCount) {
+        // indexes beyond policyCount address resources not covered by any policy
+        return random.nextDouble() < MATCH_RATE ? random.nextInt(policyCount) : (policyCount + random.nextInt(policyCount));
+    }
+
+    private static RangerAccessRequest createRequest(RangerAccessResourceImpl resource, String accessType, int idx) {
+        String      user   = "user_" + (idx % USER_COUNT);
+        Set<String> groups = new HashSet<>(Collections.singletonList("group_" + (idx % GROUP_COUNT)));
+
+        return new RangerAccessRequestImpl(resource, accessType, user, groups, null);
+    }
+
+    private static RangerPolicy createPolicy(long id, String serviceName, Map<String, RangerPolicyResource> resources, List<String> accessTypes) {
+        RangerPolicy                 policy   = new RangerPolicy();
+        RangerPolicyItem             allow    = new RangerPolicyItem();
+        List<RangerPolicyItemAccess> accesses = new ArrayList<>(accessTypes.size());
+
+        for (String accessType : accessTypes) {
+            accesses.add(new RangerPolicyItemAccess(accessType, Boolean.TRUE));
+        }
+
+        allow.setUsers(Collections.singletonList("user_" + (id % USER_COUNT)));
+        allow.setGroups(Collections.singletonList("group_" + (id % GROUP_COUNT)));
+        allow.setAccesses(accesses);
+
+        policy.setId(id);
+        policy.setGuid("policy-" + id);
+        policy.setName("policy-" + id);
+        policy.setService(serviceName);
+        policy.setIsEnabled(Boolean.TRUE);
+        policy.setIsAuditEnabled(Boolean.TRUE);
+        policy.setResources(resources);
+        policy.setPolicyItems(Collections.singletonList(allow));
+
+        // every 10th policy carries a deny item, so that deny evaluation is part of the measured path
+        if ((id % 10) == 0) {
+            RangerPolicyItem deny = new RangerPolicyItem();
+
+            deny.setUsers(Collections.singletonList("user_" + ((id + 1) % USER_COUNT)));
+            deny.setAccesses(accesses);
+
+            policy.setDenyPolicyItems(Collections.singletonList(deny));
+        }
+
+        return policy;
+    }
+
+    private static ServicePolicies createServicePolicies(String serviceName, RangerServiceDef serviceDef, List<RangerPolicy> policies) {
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceName(serviceName);
+        ret.setServiceId(1L);
+        ret.setPolicyVersion(1L);
+        ret.setServiceDef(serviceDef);
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+}
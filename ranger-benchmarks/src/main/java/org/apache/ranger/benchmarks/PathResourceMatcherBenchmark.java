@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerPathResourceMatcher.isMatch() for the common shapes of HDFS policy paths: an exact path,
+ * a recursive directory, and paths with wildcards in the middle and at the end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PathResourceMatcherBenchmark {
+    @Param({"/data/dept_1/project_1/part-1.parquet", "/data/dept_1/project_1", "/data/*/project_1*", "/data/dept_1/project_1/*.parquet"})
+    public String policyPath;
+
+    @Param({"true", "false"})
+    public boolean isRecursive;
+
+    @Param({"SELF", "SELF_OR_CHILD"})
+    public ResourceElementMatchingScope scope;
+
+    private RangerPathResourceMatcher matcher;
+    private String[]                  paths;
+    private Map<String, Object>       evalContext;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RangerServiceDef serviceDef = BenchmarkData.getServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME);
+
+        matcher     = new RangerPathResourceMatcher();
+        evalContext = new HashMap<>();
+
+        matcher.setResourceDef(BenchmarkData.getResourceDef(serviceDef, "path"));
+        matcher.setPolicyResource(new RangerPolicyResource(policyPath, false, isRecursive));
+        matcher.init();
+
+        // a small policy count keeps the paths within a handful of directories, including /data/dept_1/project_1
+        paths = BenchmarkData.createHdfsPaths(2).toArray(new String[0]);
+
+        RangerAccessRequestUtil.setCurrentUserInContext(evalContext, "user_1");
+    }
+
+    @Benchmark
+    public boolean isMatch(RequestCursor cursor) {
+        return matcher.isMatch(paths[cursor.next()], scope, evalContext);
+    }
+}
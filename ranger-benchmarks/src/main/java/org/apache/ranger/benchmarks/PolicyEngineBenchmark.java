@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerPolicyEngineImpl.evaluatePolicies() for a single access request - the call made by plugins
+ * for every authorization check. Requests are pre-processed on first use and then reused, hence the numbers
+ * reflect policy lookup and evaluation, not context enrichment.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PolicyEngineBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int policyCount;
+
+    @Param({EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME, EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME})
+    public String serviceType;
+
+    private RangerPolicyEngine    policyEngine;
+    private RangerAccessRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final boolean                   isHive   = EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME.equals(serviceType);
+        final ServicePolicies           policies = isHive ? BenchmarkData.createHivePolicies(policyCount) : BenchmarkData.createHdfsPolicies(policyCount);
+        final List<RangerAccessRequest> reqs     = isHive ? BenchmarkData.createHiveRequests(policyCount) : BenchmarkData.createHdfsRequests(policyCount);
+        final RangerPluginContext       context  = BenchmarkData.createPluginContext(serviceType, policies.getServiceName());
+
+        policyEngine = new RangerPolicyEngineImpl(policies, context, null);
+        requests     = reqs.toArray(new RangerAccessRequest[0]);
+    }
+
+    @Benchmark
+    public RangerAccessResult evaluatePolicies(RequestCursor cursor) {
+        return policyEngine.evaluatePolicies(requests[cursor.next()], RangerPolicy.POLICY_TYPE_ACCESS, null);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerDefaultPolicyResourceMatcher;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerDefaultPolicyResourceMatcher.isMatch() of Hive policies (database/table/column), with each
+ * request matched against the policy of its table - i.e. the check done for every policy returned by the trie.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PolicyResourceMatcherBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int policyCount;
+
+    private RangerAccessRequest[]         requests;
+    private RangerPolicyResourceMatcher[] matchers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServicePolicies                  policies      = BenchmarkData.createHivePolicies(policyCount);
+        RangerPluginContext              pluginContext = BenchmarkData.createPluginContext(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME, policies.getServiceName());
+        RangerPolicyEngineImpl           policyEngine  = new RangerPolicyEngineImpl(policies, pluginContext, null);
+        List<RangerAccessRequest>        reqs          = BenchmarkData.createHiveRequests(policyCount);
+        Map<Long, RangerPolicyEvaluator> evaluators    = new HashMap<>();
+
+        for (RangerPolicyEvaluator evaluator : policyEngine.getPolicyEngine().getPolicyRepository().getPolicyEvaluators()) {
+            evaluators.put(evaluator.getPolicyId(), evaluator);
+        }
+
+        requests = reqs.toArray(new RangerAccessRequest[0]);
+        matchers = new RangerPolicyResourceMatcher[requests.length];
+
+        for (int i = 0; i < requests.length; i++) {
+            String table    = requests[i].getResource().getValue("table").toString();
+            long   policyId = Long.parseLong(table.substring("tbl_".length())) % policyCount;
+
+            matchers[i] = evaluators.get(policyId).getResourceEvaluators().get(0).getPolicyResourceMatcher();
+        }
+    }
+
+    @Benchmark
+    public boolean isMatch(RequestCursor cursor) {
+        final int                 idx     = cursor.next();
+        final RangerAccessRequest request = requests[idx];
+
+        return ((RangerDefaultPolicyResourceMatcher) matchers[idx]).isMatch(request.getResource(), request.getContext());
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the standard JMH command line options, and always adds the GC
+ * profiler so that allocation rate (gc.alloc.rate.norm) is reported along with the throughput of each benchmark.
+ *
+ * Example: java -jar ranger-benchmarks.jar PolicyEngineBenchmark -p policyCount=10000 -rf json
+ */
+public final class RangerBenchmarkRunner {
+    private RangerBenchmarkRunner() {
+        // to block instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdLineOptions = new CommandLineOptions(args);
+        Options            options        = new OptionsBuilder().parent(cmdLineOptions).addProfiler(GCProfiler.class).build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerResourceTrie.getEvaluatorsForResource() on the HDFS path trie, for each of the trie layouts
+ * selectable via policy-engine options: default (lazy setup), optimized for retrieval and optimized for space.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ResourceTrieBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int policyCount;
+
+    @Param({"default", "retrieval", "space", "compact"})
+    public String trieLayout;
+
+    @Param({"SELF", "SELF_OR_CHILD"})
+    public ResourceElementMatchingScope scope;
+
+    private RangerResourceTrie<RangerPolicyResourceEvaluator> trie;
+    private String[]                                          paths;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServicePolicies             policies      = BenchmarkData.createHdfsPolicies(policyCount);
+        RangerPluginContext         pluginContext = BenchmarkData.createPluginContext(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HDFS_NAME, policies.getServiceName());
+        RangerPolicyEngineImpl      policyEngine  = new RangerPolicyEngineImpl(policies, pluginContext, null);
+        List<RangerPolicyEvaluator> evaluators    = policyEngine.getPolicyEngine().getPolicyRepository().getPolicyEvaluators();
+        RangerResourceDef           pathDef       = BenchmarkData.getResourceDef(policies.getServiceDef(), "path");
+
+        trie  = new RangerResourceTrie<>(pathDef, evaluators, "retrieval".equals(trieLayout), "space".equals(trieLayout), "compact".equals(trieLayout), pluginContext);
+        paths = BenchmarkData.createHdfsPaths(policyCount).toArray(new String[0]);
+    }
+
+    @Benchmark
+    public Set<RangerPolicyResourceEvaluator> getEvaluatorsForResource(RequestCursor cursor) {
+        return trie.getEvaluatorsForResource(paths[cursor.next()], scope);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerMutableResource;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RangerTagEnricher.enrich() - the lookup of tags associated with the resource being accessed - with
+ * the given number of tagged Hive tables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TagEnricherBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int resourceCount;
+
+    private RangerTagEnricher     tagEnricher;
+    private RangerAccessRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RangerServiceDef          serviceDef = BenchmarkData.getServiceDef(EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_HIVE_NAME);
+        List<RangerAccessRequest> reqs       = BenchmarkData.createHiveRequests(resourceCount);
+
+        tagEnricher = new RangerTagEnricher();
+
+        tagEnricher.setServiceName(BenchmarkData.HIVE_SERVICE_NAME);
+        tagEnricher.setServiceDef(serviceDef);
+        tagEnricher.setAppId(BenchmarkData.APP_ID);
+        tagEnricher.init();
+        tagEnricher.setServiceTags(BenchmarkData.createHiveTags(resourceCount));
+
+        for (RangerAccessRequest request : reqs) {
+            ((RangerMutableResource) request.getResource()).setServiceDef(serviceDef);
+        }
+
+        requests = reqs.toArray(new RangerAccessRequest[0]);
+    }
+
+    @Benchmark
+    public void enrich(RequestCursor cursor, Blackhole blackhole) {
+        RangerAccessRequest request = requests[cursor.next()];
+
+        tagEnricher.enrich(request);
+
+        blackhole.consume(request.getContext());
+    }
+}
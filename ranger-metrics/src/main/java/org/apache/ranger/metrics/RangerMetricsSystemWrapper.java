@@ -23,6 +23,7 @@
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.ranger.metrics.sink.RangerMetricsJsonSink;
 import org.apache.ranger.metrics.sink.RangerMetricsPrometheusSink;
+import org.apache.ranger.metrics.source.RangerMetricsAuditSource;
 import org.apache.ranger.metrics.source.RangerMetricsContainerSource;
 import org.apache.ranger.metrics.source.RangerMetricsJvmSource;
 import org.apache.ranger.metrics.wrapper.RangerMetricsSinkWrapper;
@@ -64,6 +65,7 @@ public void init(String serviceName, List<RangerMetricsSourceWrapper> sourceWrap
         }
         sourceWrappers.add(new RangerMetricsSourceWrapper("RangerJVM", "Ranger common metric source (RangerMetricsJvmSource)", serviceName, new RangerMetricsJvmSource(serviceName)));
         sourceWrappers.add(new RangerMetricsSourceWrapper("RangerContainer", "Ranger web container metric source (RangerMetricsContainerSource)", serviceName, new RangerMetricsContainerSource(serviceName)));
+        sourceWrappers.add(new RangerMetricsSourceWrapper("RangerAudit", "Ranger audit metric source (RangerMetricsAuditSource)", serviceName, new RangerMetricsAuditSource(serviceName)));
 
         for (RangerMetricsSourceWrapper sourceWrapper : sourceWrappers) {
             metricsSystem.register(sourceWrapper.getName(), sourceWrapper.getDescription(), sourceWrapper.getSource());
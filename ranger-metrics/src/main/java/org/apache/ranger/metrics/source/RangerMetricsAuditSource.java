@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.metrics.source;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.destination.AuditDestinationMetrics;
+import org.apache.ranger.audit.provider.AuditPipelineMetrics;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.utils.LatencyHistogram;
+import org.apache.ranger.metrics.RangerMetricsInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the metrics of the audit pipeline in this process:
+ * - RangerAuditPipeline: latency percentiles of each stage, since last collection
+ * - RangerAuditQueue[name]: depth, drops and file spool backlog of each queue
+ * - RangerAuditDestination[name]: event counts and error rate of each destination, and its bulk requests to the store
+ */
+public class RangerMetricsAuditSource extends RangerMetricsSource {
+    private static final RangerMetricsInfo QUEUE_TAG       = new RangerMetricsInfo("Queue", "Ranger audit queue name");
+    private static final RangerMetricsInfo DESTINATION_TAG = new RangerMetricsInfo("Destination", "Ranger audit destination name");
+
+    private final String                                 context;
+    private final Map<String, DestinationSnapshot>       lastSnapshots        = new HashMap<>();
+    private final Map<String, HandlerSnapshot>           lastHandlerSnapshots = new HashMap<>();
+    private       List<DestinationSnapshot>              snapshots            = new ArrayList<>();
+    private       List<HandlerSnapshot>                  handlerSnapshots     = new ArrayList<>();
+    private       List<QueueSnapshot>                    queueSnapshots       = new ArrayList<>();
+    private       Map<String, LatencyHistogram.Snapshot> latencies            = new LinkedHashMap<>();
+
+    public RangerMetricsAuditSource(String context) {
+        this.context = context;
+    }
+
+    @Override
+    protected void refresh() {
+        List<DestinationSnapshot>              snapshots        = new ArrayList<>();
+        List<HandlerSnapshot>                  handlerSnapshots = new ArrayList<>();
+        List<QueueSnapshot>                    queueSnapshots   = new ArrayList<>();
+        Map<String, LatencyHistogram.Snapshot> latencies        = new LinkedHashMap<>();
+
+        for (AuditDestinationMetrics metrics : AuditDestinationMetrics.getAll()) {
+            DestinationSnapshot snapshot = new DestinationSnapshot(metrics, lastSnapshots.get(metrics.getName()));
+
+            lastSnapshots.put(metrics.getName(), snapshot);
+            snapshots.add(snapshot);
+        }
+
+        for (AuditDestination destination : AuditPipelineMetrics.getDestinations()) {
+            HandlerSnapshot snapshot = new HandlerSnapshot(destination, lastHandlerSnapshots.get(destination.getName()));
+
+            lastHandlerSnapshots.put(destination.getName(), snapshot);
+            handlerSnapshots.add(snapshot);
+        }
+
+        for (AuditQueue queue : AuditPipelineMetrics.getQueues()) {
+            queueSnapshots.add(new QueueSnapshot(queue));
+        }
+
+        for (Map.Entry<String, LatencyHistogram> entry : AuditPipelineMetrics.getLatencies().entrySet()) {
+            latencies.put(entry.getKey(), entry.getValue().getAndReset());
+        }
+
+        this.snapshots        = snapshots;
+        this.handlerSnapshots = handlerSnapshots;
+        this.queueSnapshots   = queueSnapshots;
+        this.latencies        = latencies;
+    }
+
+    @Override
+    protected void update(MetricsCollector collector, boolean all) {
+        MetricsRecordBuilder pipeline = collector.addRecord("RangerAuditPipeline").setContext(this.context);
+
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : latencies.entrySet()) {
+            String                    stage    = entry.getKey();
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+
+            pipeline.addGauge(new RangerMetricsInfo(stage + "Count", "Ranger audit " + stage + " latency samples since last collection"), snapshot.getCount())
+                    .addGauge(new RangerMetricsInfo(stage + "P50Us", "Ranger audit " + stage + " latency 50th percentile, in microseconds"), snapshot.getPercentile(50))
+                    .addGauge(new RangerMetricsInfo(stage + "P95Us", "Ranger audit " + stage + " latency 95th percentile, in microseconds"), snapshot.getPercentile(95))
+                    .addGauge(new RangerMetricsInfo(stage + "P99Us", "Ranger audit " + stage + " latency 99th percentile, in microseconds"), snapshot.getPercentile(99))
+                    .addGauge(new RangerMetricsInfo(stage + "MaxUs", "Ranger audit " + stage + " max latency, in microseconds"), snapshot.getMax());
+        }
+
+        for (QueueSnapshot snapshot : queueSnapshots) {
+            MetricsRecordBuilder record = collector.addRecord(getRecordName("RangerAuditQueue", snapshot.name))
+                    .setContext(this.context)
+                    .tag(QUEUE_TAG, snapshot.name)
+                    .addGauge(new RangerMetricsInfo("Depth", "Ranger audit events waiting in the queue"), snapshot.depth)
+                    .addGauge(new RangerMetricsInfo("MaxDepth", "Ranger audit queue capacity"), snapshot.maxDepth)
+                    .addCounter(new RangerMetricsInfo("TotalCount", "Ranger audit events received by the queue"), snapshot.totalCount)
+                    .addCounter(new RangerMetricsInfo("DroppedCount", "Ranger audit events dropped by the queue"), snapshot.droppedCount)
+                    .addCounter(new RangerMetricsInfo("StashedCount", "Ranger audit events written to the file spool"), snapshot.stashedCount);
+
+            if (snapshot.hasSpool) {
+                record.addGauge(new RangerMetricsInfo("SpoolPendingFiles", "Ranger audit file spool files not yet sent"), snapshot.spoolPendingFiles)
+                        .addGauge(new RangerMetricsInfo("SpoolBacklogBytes", "Ranger audit file spool bytes not yet sent"), snapshot.spoolBacklogBytes);
+            }
+        }
+
+        for (HandlerSnapshot snapshot : handlerSnapshots) {
+            collector.addRecord(getRecordName("RangerAuditDestination", snapshot.name))
+                    .setContext(this.context)
+                    .tag(DESTINATION_TAG, snapshot.name)
+                    .addCounter(new RangerMetricsInfo("TotalCount", "Ranger audit events received by the destination"), snapshot.totalCount)
+                    .addCounter(new RangerMetricsInfo("SuccessCount", "Ranger audit events logged by the destination"), snapshot.successCount)
+                    .addCounter(new RangerMetricsInfo("FailedCount", "Ranger audit events failed by the destination"), snapshot.failedCount)
+                    .addCounter(new RangerMetricsInfo("DeferredCount", "Ranger audit events deferred by the destination for retry"), snapshot.deferredCount)
+                    .addGauge(new RangerMetricsInfo("ErrorRatePercent", "Ranger audit events failed or deferred since last collection, in percent"), snapshot.errorRatePercent);
+        }
+
+        for (DestinationSnapshot snapshot : snapshots) {
+            collector.addRecord(getRecordName("RangerAuditDestination", snapshot.name))
+                    .setContext(this.context)
+                    .tag(DESTINATION_TAG, snapshot.name)
+                    .addCounter(new RangerMetricsInfo("BulkRequests", "Ranger audit bulk requests sent"), snapshot.requestCount)
+                    .addCounter(new RangerMetricsInfo("FailedBulkRequests", "Ranger audit bulk requests with failed documents"), snapshot.failedRequestCount)
+                    .addCounter(new RangerMetricsInfo("ThrottledBulkRequests", "Ranger audit bulk requests rejected with 429/503"), snapshot.throttledCount)
+                    .addCounter(new RangerMetricsInfo("Retries", "Ranger audit bulk request retries"), snapshot.retryCount)
+                    .addCounter(new RangerMetricsInfo("IndexedEvents", "Ranger audit events indexed"), snapshot.eventCount)
+                    .addCounter(new RangerMetricsInfo("FailedEvents", "Ranger audit events rejected"), snapshot.failedEventCount)
+                    .addCounter(new RangerMetricsInfo("Bytes", "Ranger audit bytes sent"), snapshot.byteCount)
+                    .addGauge(new RangerMetricsInfo("InFlightBulkRequests", "Ranger audit bulk requests in flight"), snapshot.inFlightRequests)
+                    .addGauge(new RangerMetricsInfo("AvgLatencyMs", "Ranger audit bulk request average latency since last collection"), snapshot.avgLatencyMs)
+                    .addGauge(new RangerMetricsInfo("MaxLatencyMs", "Ranger audit bulk request max latency since last collection"), snapshot.maxLatencyMs);
+        }
+    }
+
+    /**
+     * Sinks key metrics by record name, so each queue/destination needs a distinct one: handler names are
+     * dot-separated paths like "solr.batch", which are converted to CamelCase - RangerAuditQueueSolrBatch.
+     */
+    static String getRecordName(String prefix, String name) {
+        StringBuilder sb = new StringBuilder(prefix);
+
+        for (String part : StringUtils.split(name, "._-/ ")) {
+            sb.append(StringUtils.capitalize(part));
+        }
+
+        return sb.toString();
+    }
+
+    private static class QueueSnapshot {
+        final String  name;
+        final int     depth;
+        final int     maxDepth;
+        final long    totalCount;
+        final long    droppedCount;
+        final long    stashedCount;
+        final boolean hasSpool;
+        final int     spoolPendingFiles;
+        final long    spoolBacklogBytes;
+
+        QueueSnapshot(AuditQueue queue) {
+            AuditFileSpool spool = queue.getFileSpooler();
+
+            name              = queue.getName();
+            depth             = queue.size();
+            maxDepth          = queue.getMaxQueueSize();
+            totalCount        = queue.getTotalCount();
+            droppedCount      = queue.getTotalDroppedCount();
+            stashedCount      = queue.getTotalStashedCount();
+            hasSpool          = spool != null;
+            spoolPendingFiles = spool != null ? spool.getPendingFileCount() : 0;
+            spoolBacklogBytes = spool != null ? spool.getBacklogBytes() : 0;
+        }
+    }
+
+    private static class HandlerSnapshot {
+        final String name;
+        final long   totalCount;
+        final long   successCount;
+        final long   failedCount;
+        final long   deferredCount;
+        final long   errorRatePercent;
+
+        HandlerSnapshot(AuditDestination destination, HandlerSnapshot previous) {
+            name          = destination.getName();
+            totalCount    = destination.getTotalCount();
+            successCount  = destination.getTotalSuccessCount();
+            failedCount   = destination.getTotalFailedCount();
+            deferredCount = destination.getTotalDeferredCount();
+
+            long intervalSuccess = previous != null ? successCount - previous.successCount : successCount;
+            long intervalErrors  = previous != null ? (failedCount + deferredCount) - (previous.failedCount + previous.deferredCount) : failedCount + deferredCount;
+            long intervalTotal   = intervalSuccess + intervalErrors;
+
+            errorRatePercent = intervalTotal > 0 ? intervalErrors * 100 / intervalTotal : 0;
+        }
+    }
+
+    private static class DestinationSnapshot {
+        final String name;
+        final long   requestCount;
+        final long   failedRequestCount;
+        final long   throttledCount;
+        final long   retryCount;
+        final long   eventCount;
+        final long   failedEventCount;
+        final long   byteCount;
+        final long   totalLatencyMs;
+        final long   avgLatencyMs;
+        final long   maxLatencyMs;
+        final int    inFlightRequests;
+
+        DestinationSnapshot(AuditDestinationMetrics metrics, DestinationSnapshot previous) {
+            name               = metrics.getName();
+            requestCount       = metrics.getRequestCount();
+            failedRequestCount = metrics.getFailedRequestCount();
+            throttledCount     = metrics.getThrottledCount();
+            retryCount         = metrics.getRetryCount();
+            eventCount         = metrics.getEventCount();
+            failedEventCount   = metrics.getFailedEventCount();
+            byteCount          = metrics.getByteCount();
+            totalLatencyMs     = metrics.getTotalLatencyMs();
+            maxLatencyMs       = metrics.getAndResetMaxLatencyMs();
+            inFlightRequests   = metrics.getInFlightRequests();
+
+            long intervalRequests = previous != null ? requestCount - previous.requestCount : requestCount;
+            long intervalLatency  = previous != null ? totalLatencyMs - previous.totalLatencyMs : totalLatencyMs;
+
+            avgLatencyMs = intervalRequests > 0 ? intervalLatency / intervalRequests : 0;
+        }
+    }
+}
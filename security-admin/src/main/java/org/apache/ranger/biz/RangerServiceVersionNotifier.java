@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.apache.ranger.plugin.util.ServiceVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Parks plugin requests waiting for a change in policies, tags, roles or GDS info of a service, until the version of
+ * any of these changes or the wait times out.
+ *
+ * A single thread reads versions of all services from the database, only while there are waiting requests. This
+ * covers changes made in other Ranger Admin instances as well; changes made in this instance wake up the thread
+ * right after they are committed, via notifyVersionChange().
+ *
+ * Requests wait either without holding a thread, via addWaiter() - used by RangerServiceVersionWaitFilter with servlet
+ * asynchronous processing, as Jersey 1.x used here has no support for asynchronous responses - or in waitForChange(),
+ * holding a Tomcat request-processing thread for up to max.wait.timeout.ms. The latter is used only when the request
+ * doesn't support asynchronous processing; hence max.waiters, which limits the number of such requests, defaults to
+ * 10% of the connector's maxThreads (ranger.service.http.connector.property.maxThreads, Tomcat's default being 200),
+ * so that policy downloads and UI/API requests are not starved of threads. Requests waiting asynchronously are
+ * limited by max.async.waiters. Requests beyond the limits are answered right away with the current versions.
+ */
+@Component
+public class RangerServiceVersionNotifier {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerServiceVersionNotifier.class);
+
+    private static final String PROP_ENABLED             = "ranger.admin.service.version.notifier.enabled";
+    private static final String PROP_POLL_INTERVAL_MS    = "ranger.admin.service.version.notifier.poll.interval.ms";
+    private static final String PROP_MAX_WAIT_TIMEOUT_MS = "ranger.admin.service.version.notifier.max.wait.timeout.ms";
+    private static final String PROP_MAX_WAITERS         = "ranger.admin.service.version.notifier.max.waiters";
+    private static final String PROP_MAX_ASYNC_WAITERS   = "ranger.admin.service.version.notifier.max.async.waiters";
+    private static final String PROP_HTTP_MAX_THREADS    = "ranger.service.http.connector.property.maxThreads";
+    private static final int    DEFAULT_HTTP_MAX_THREADS = 200;   // Tomcat default
+    private static final int    DEFAULT_WAITERS_PERCENT  = 10;    // of HTTP connector maxThreads
+
+    private static volatile RangerServiceVersionNotifier sInstance;
+
+    private final Map<String, List<Waiter>> waiters = new HashMap<>();
+
+    @Autowired
+    RangerDaoManager daoMgr;
+
+    @Autowired
+    @Qualifier(value = "transactionManager")
+    PlatformTransactionManager txManager;
+
+    private boolean             isEnabled;
+    private long                pollIntervalMs;
+    private long                maxWaitTimeoutMs;
+    private int                 maxWaiters;
+    private int                 maxAsyncWaiters;
+    private int                 waiterCount;
+    private int                 asyncWaiterCount;
+    private boolean             isChangeNotified;
+    private TransactionTemplate txTemplate;
+    private Thread              watcherThread;
+
+    public static void notifyVersionChange() {
+        final RangerServiceVersionNotifier notifier = sInstance;
+
+        if (notifier != null) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        notifier.onVersionChange();
+                    }
+                });
+            } else {
+                notifier.onVersionChange();
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        RangerAdminConfig config = RangerAdminConfig.getInstance();
+
+        isEnabled        = config.getBoolean(PROP_ENABLED, true);
+        pollIntervalMs   = config.getLong(PROP_POLL_INTERVAL_MS, 1000L);
+        maxWaitTimeoutMs = config.getLong(PROP_MAX_WAIT_TIMEOUT_MS, 60 * 1000L);
+        maxAsyncWaiters  = config.getInt(PROP_MAX_ASYNC_WAITERS, 10000);
+        txTemplate       = new TransactionTemplate(txManager);
+
+        int httpMaxThreads = config.getInt(PROP_HTTP_MAX_THREADS, DEFAULT_HTTP_MAX_THREADS);
+
+        maxWaiters = config.getInt(PROP_MAX_WAITERS, Math.max(1, httpMaxThreads * DEFAULT_WAITERS_PERCENT / 100));
+
+        if (maxWaiters > httpMaxThreads / 2) {
+            LOG.warn("RangerServiceVersionNotifier: {}={} is more than half of {}={}; waiting requests can starve other requests of threads", PROP_MAX_WAITERS, maxWaiters, PROP_HTTP_MAX_THREADS, httpMaxThreads);
+        }
+
+        txTemplate.setReadOnly(true);
+
+        if (isEnabled) {
+            watcherThread = new Thread(this::watchVersions, "RangerServiceVersionNotifier");
+
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+
+            sInstance = this;
+        }
+
+        LOG.info("RangerServiceVersionNotifier: isEnabled={}, pollIntervalMs={}, maxWaitTimeoutMs={}, maxWaiters={}, maxAsyncWaiters={}", isEnabled, pollIntervalMs, maxWaitTimeoutMs, maxWaiters, maxAsyncWaiters);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sInstance = null;
+
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+
+            watcherThread = null;
+        }
+    }
+
+    /**
+     * Waits for versions of the given service to change from lastKnown.
+     *
+     * @return current versions of the service, which would be same as lastKnown if there was no change before the
+     *         timeout; null if the service is not found
+     */
+    public ServiceVersions waitForChange(String serviceName, ServiceVersions lastKnown, long waitTimeoutMs) throws InterruptedException {
+        LOG.debug("==> RangerServiceVersionNotifier.waitForChange({}, {}, {})", serviceName, lastKnown, waitTimeoutMs);
+
+        ServiceVersions ret = txTemplate.execute(status -> toServiceVersions(serviceName, daoMgr.getXXServiceVersionInfo().findByServiceName(serviceName)));
+
+        if (ret != null && !ret.isChangedFrom(lastKnown) && isEnabled && waitTimeoutMs > 0) {
+            Waiter waiter = new Waiter(lastKnown, null);
+
+            if (addWaiter(serviceName, waiter)) {
+                try {
+                    ServiceVersions changed = waiter.await(Math.min(waitTimeoutMs, maxWaitTimeoutMs));
+
+                    if (changed != null) {
+                        ret = changed;
+                    }
+                } finally {
+                    removeWaiter(serviceName, waiter);
+                }
+            } else {
+                LOG.debug("RangerServiceVersionNotifier.waitForChange({}): too many waiting requests ({}); not waiting", serviceName, maxWaiters);
+            }
+        }
+
+        LOG.debug("<== RangerServiceVersionNotifier.waitForChange({}, {}, {}): ret={}", serviceName, lastKnown, waitTimeoutMs, ret);
+
+        return ret;
+    }
+
+    /**
+     * Registers onChange to be called, from the thread that reads service versions, once any version of the given
+     * service differs from lastKnown. Unlike waitForChange(), the calling thread doesn't wait; the caller must call
+     * removeWaiter() once it stops waiting, like on timeout.
+     *
+     * @return the registered waiter; null if waiting for changes is disabled or there are too many waiting requests
+     */
+    public Waiter addWaiter(String serviceName, ServiceVersions lastKnown, Consumer<ServiceVersions> onChange) {
+        Waiter ret = null;
+
+        if (isEnabled) {
+            Waiter waiter = new Waiter(lastKnown, onChange);
+
+            if (addWaiter(serviceName, waiter)) {
+                ret = waiter;
+            } else {
+                LOG.debug("RangerServiceVersionNotifier.addWaiter({}): too many waiting requests ({}); not waiting", serviceName, maxAsyncWaiters);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return true if the waiter was removed; false if it was already removed, like after onChange was called
+     */
+    public synchronized boolean removeWaiter(String serviceName, Waiter waiter) {
+        boolean      ret            = false;
+        List<Waiter> serviceWaiters = waiters.get(serviceName);
+
+        if (serviceWaiters != null && serviceWaiters.remove(waiter)) {
+            onWaiterRemoved(waiter);
+
+            if (serviceWaiters.isEmpty()) {
+                waiters.remove(serviceName);
+            }
+
+            ret = true;
+        }
+
+        return ret;
+    }
+
+    public long getMaxWaitTimeoutMs() {
+        return maxWaitTimeoutMs;
+    }
+
+    synchronized int getWaiterCount() {
+        return waiterCount;
+    }
+
+    int getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    void notifyWaiters(Map<String, ServiceVersions> serviceVersions) {
+        Map<Waiter, ServiceVersions> changed = new HashMap<>();
+
+        synchronized (this) {
+            for (Map.Entry<String, List<Waiter>> entry : waiters.entrySet()) {
+                ServiceVersions current = serviceVersions.get(entry.getKey());
+
+                if (current != null) {
+                    for (Iterator<Waiter> iter = entry.getValue().iterator(); iter.hasNext(); ) {
+                        Waiter waiter = iter.next();
+
+                        if (current.isChangedFrom(waiter.lastKnown)) {
+                            changed.put(waiter, current);
+
+                            iter.remove();
+                            onWaiterRemoved(waiter);
+                        }
+                    }
+                }
+            }
+
+            waiters.values().removeIf(List::isEmpty);
+        }
+
+        // outside of the lock, as onChange callbacks send responses
+        changed.forEach(Waiter::complete);
+    }
+
+    private synchronized boolean addWaiter(String serviceName, Waiter waiter) {
+        if (waiter.onChange != null ? asyncWaiterCount >= maxAsyncWaiters : (waiterCount - asyncWaiterCount) >= maxWaiters) {
+            return false;
+        }
+
+        waiters.computeIfAbsent(serviceName, k -> new ArrayList<>()).add(waiter);
+
+        waiterCount++;
+
+        if (waiter.onChange != null) {
+            asyncWaiterCount++;
+        }
+
+        notifyAll(); // wake up the watcher thread, in case it is idle
+
+        return true;
+    }
+
+    private void onWaiterRemoved(Waiter waiter) {
+        waiterCount--;
+
+        if (waiter.onChange != null) {
+            asyncWaiterCount--;
+        }
+    }
+
+    private synchronized void onVersionChange() {
+        isChangeNotified = true;
+
+        notifyAll();
+    }
+
+    private void watchVersions() {
+        LOG.info("==> RangerServiceVersionNotifier.watchVersions()");
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                synchronized (this) {
+                    while (waiterCount == 0) {
+                        isChangeNotified = false;
+
+                        wait();
+                    }
+
+                    if (!isChangeNotified) {
+                        wait(pollIntervalMs);
+                    }
+
+                    isChangeNotified = false;
+
+                    if (waiterCount == 0) {
+                        continue;
+                    }
+                }
+
+                notifyWaiters(loadServiceVersions());
+            } catch (InterruptedException excp) {
+                break;
+            } catch (Exception excp) {
+                LOG.error("RangerServiceVersionNotifier.watchVersions(): failed to load service versions", excp);
+            }
+        }
+
+        LOG.info("<== RangerServiceVersionNotifier.watchVersions()");
+    }
+
+    private Map<String, ServiceVersions> loadServiceVersions() {
+        return txTemplate.execute(status -> {
+            Map<String, ServiceVersions> ret = new HashMap<>();
+
+            for (Object[] row : daoMgr.getXXServiceVersionInfo().getAllWithServiceNames()) {
+                if (row.length == 2 && row[0] instanceof XXServiceVersionInfo && row[1] instanceof String) {
+                    String serviceName = (String) row[1];
+
+                    ret.put(serviceName, toServiceVersions(serviceName, (XXServiceVersionInfo) row[0]));
+                }
+            }
+
+            return ret;
+        });
+    }
+
+    private static ServiceVersions toServiceVersions(String serviceName, XXServiceVersionInfo versionInfo) {
+        return versionInfo == null ? null : new ServiceVersions(serviceName, versionInfo.getPolicyVersion(), versionInfo.getTagVersion(), versionInfo.getRoleVersion(), versionInfo.getGdsVersion());
+    }
+
+    public static class Waiter {
+        private final ServiceVersions           lastKnown;
+        private final Consumer<ServiceVersions> onChange;
+        private       ServiceVersions           current;
+
+        Waiter(ServiceVersions lastKnown, Consumer<ServiceVersions> onChange) {
+            this.lastKnown = lastKnown;
+            this.onChange  = onChange;
+        }
+
+        void complete(ServiceVersions current) {
+            if (onChange != null) {
+                try {
+                    onChange.accept(current);
+                } catch (Exception excp) {
+                    LOG.error("RangerServiceVersionNotifier: failed to notify change in service versions {}", current, excp);
+                }
+            } else {
+                synchronized (this) {
+                    this.current = current;
+
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized ServiceVersions await(long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+
+            while (current == null) {
+                long remainingMs = deadline - System.currentTimeMillis();
+
+                if (remainingMs <= 0) {
+                    break;
+                }
+
+                wait(remainingMs);
+            }
+
+            return current;
+        }
+    }
+}
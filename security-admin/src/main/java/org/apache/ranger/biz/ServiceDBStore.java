@@ -420,6 +420,8 @@ public static void persistVersionChange(ServiceVersionUpdater serviceVersionUpda
                 persistChangeLog(service, versionType, serviceVersionInfoDbObj.getTagVersion(), serviceVersionUpdater);
             }
         }
+
+        RangerServiceVersionNotifier.notifyVersionChange();
     }
 
     public static boolean isSupportsPolicyDeltas() {
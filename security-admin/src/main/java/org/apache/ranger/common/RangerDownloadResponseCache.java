@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerAdminConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized form of responses of the download APIs used by plugins - policies, tags, roles, userstore and
+ * GDS info. A response is identified by the entity type, service name, version and a variant that captures everything
+ * else the response depends on.
+ *
+ * Download APIs call prepareDownloadResponse() with the object they are about to return; RangerJsonProvider then
+ * writes the cached bytes instead of serializing the object again. When many plugins download the same version, the
+ * object is serialized and compressed only once.
+ *
+ * Only the gzip compressed form is kept; it is decompressed while writing the response to clients that don't accept
+ * gzip. The cache is bounded by the total size of the compressed responses (ranger.admin.download.response.cache.max.bytes),
+ * least recently used responses being evicted first. Delta responses are cached as well, their variant including the
+ * version the deltas are from (deltasFrom=lastKnownVersion): plugins of a service usually poll at the same version, so
+ * deltas from that version are requested by many of them.
+ */
+public class RangerDownloadResponseCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerDownloadResponseCache.class);
+
+    public static final String ENTITY_TYPE_POLICIES  = "policies";
+    public static final String ENTITY_TYPE_TAGS      = "tags";
+    public static final String ENTITY_TYPE_ROLES     = "roles";
+    public static final String ENTITY_TYPE_USERSTORE = "userstore";
+    public static final String ENTITY_TYPE_GDS       = "gds";
+
+    public static final String HEADER_ETAG             = "ETag";
+    public static final String HEADER_IF_NONE_MATCH    = "If-None-Match";
+    public static final String HEADER_ACCEPT_ENCODING  = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String HEADER_VARY             = "Vary";
+    public static final String ENCODING_GZIP           = "gzip";
+
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final ThreadLocal<PendingResponse> PENDING_RESPONSE = new ThreadLocal<>();
+
+    private static volatile RangerDownloadResponseCache sInstance;
+
+    private final boolean                         isEnabled;
+    private final long                            maxBytes;
+    private final Map<String, SerializedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private       long                            cachedBytes; // guarded by responses
+
+    private RangerDownloadResponseCache() {
+        this(RangerAdminConfig.getInstance().getBoolean("ranger.admin.download.response.cache.enabled", true), RangerAdminConfig.getInstance().getLong("ranger.admin.download.response.cache.max.bytes", DEFAULT_MAX_BYTES));
+    }
+
+    RangerDownloadResponseCache(boolean isEnabled, long maxBytes) {
+        this.isEnabled = isEnabled && maxBytes > 0;
+        this.maxBytes  = maxBytes;
+
+        LOG.info("RangerDownloadResponseCache: isEnabled={}, maxBytes={}", this.isEnabled, maxBytes);
+    }
+
+    public static RangerDownloadResponseCache getInstance() {
+        RangerDownloadResponseCache me = sInstance;
+
+        if (me == null) {
+            synchronized (RangerDownloadResponseCache.class) {
+                me = sInstance;
+
+                if (me == null) {
+                    me        = new RangerDownloadResponseCache();
+                    sInstance = me;
+                }
+            }
+        }
+
+        return me;
+    }
+
+    /**
+     * Returns the response registered for the current thread by prepareDownloadResponse(), if it was registered for
+     * the given entity. The registration is cleared in either case.
+     */
+    public static PendingResponse takePendingResponse(Object entity) {
+        PendingResponse ret = PENDING_RESPONSE.get();
+
+        if (ret != null) {
+            PENDING_RESPONSE.remove();
+
+            if (ret.entity != entity) {
+                ret = null;
+            }
+        }
+
+        return ret;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Registers the serialized form of a download response for the current request.
+     *
+     * @param entityType one of ENTITY_TYPE_* constants
+     * @param serviceName name of the service the response is for; null if the response is the same for all services
+     * @param version version of the entity being returned
+     * @param variant everything else, besides the version, the response depends on; like deltasFrom=lastKnownVersion
+     * @param entity the object to be returned by the REST API
+     * @param request the download request
+     * @return false if the request has If-None-Match header matching the response, in which case the caller should respond with 304 (not modified)
+     */
+    public boolean prepareDownloadResponse(String entityType, String serviceName, Long version, String variant, Object entity, HttpServletRequest request) {
+        PENDING_RESPONSE.remove();
+
+        if (!isEnabled || entity == null || version == null) {
+            return true;
+        }
+
+        final String key  = entityType + "/" + serviceName + "/" + version + "/" + variant;
+        final String eTag = "W/\"" + version + "-" + Integer.toHexString(key.hashCode()) + "\"";
+
+        if (request != null && matchesETag(request.getHeader(HEADER_IF_NONE_MATCH), eTag)) {
+            LOG.debug("prepareDownloadResponse(key={}): client already has the response, eTag={}", key, eTag);
+
+            return false;
+        }
+
+        final SerializedResponse response;
+
+        synchronized (responses) {
+            response = responses.computeIfAbsent(key, SerializedResponse::new);
+        }
+
+        PENDING_RESPONSE.set(new PendingResponse(entity, eTag, response, request != null && acceptsGzip(request.getHeader(HEADER_ACCEPT_ENCODING))));
+
+        return true;
+    }
+
+    public void clear() {
+        synchronized (responses) {
+            responses.clear();
+
+            cachedBytes = 0;
+        }
+    }
+
+    int size() {
+        synchronized (responses) {
+            return responses.size();
+        }
+    }
+
+    long getCachedBytes() {
+        synchronized (responses) {
+            return cachedBytes;
+        }
+    }
+
+    /*
+     * Accounts the size of a newly serialized response, and evicts least recently used responses to keep the total size
+     * within maxBytes. A response larger than maxBytes is evicted right away; the request that serialized it still
+     * gets its bytes.
+     */
+    private void onSerialized(SerializedResponse response) {
+        synchronized (responses) {
+            if (responses.get(response.key) != response) { // removed by clear() while being serialized
+                return;
+            }
+
+            cachedBytes += response.getSize();
+
+            for (Iterator<SerializedResponse> iter = responses.values().iterator(); cachedBytes > maxBytes && iter.hasNext(); ) {
+                SerializedResponse eldest = iter.next();
+
+                iter.remove();
+
+                cachedBytes -= eldest.getSize();
+
+                LOG.debug("RangerDownloadResponseCache: evicted {}, size={}, cachedBytes={}", eldest.key, eldest.getSize(), cachedBytes);
+            }
+        }
+    }
+
+    static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (StringUtils.isNotBlank(ifNoneMatch)) {
+            String strongETag = eTag.substring(2); // If-None-Match uses weak comparison
+
+            for (String value : ifNoneMatch.split(",")) {
+                value = value.trim();
+
+                if (value.equals("*") || value.equals(eTag) || value.equals(strongETag)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (StringUtils.isNotBlank(acceptEncoding)) {
+            for (String value : acceptEncoding.split(",")) {
+                String[] nameAndParams = value.trim().split(";");
+
+                if (ENCODING_GZIP.equalsIgnoreCase(nameAndParams[0].trim())) {
+                    return nameAndParams.length < 2 || !nameAndParams[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public interface EntityWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public static class PendingResponse {
+        private final Object             entity;
+        private final String             eTag;
+        private final SerializedResponse response;
+        private final boolean            isGzip;
+
+        PendingResponse(Object entity, String eTag, SerializedResponse response, boolean isGzip) {
+            this.entity   = entity;
+            this.eTag     = eTag;
+            this.response = response;
+            this.isGzip   = isGzip;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public boolean isGzip() {
+            return isGzip;
+        }
+
+        /**
+         * Writes the serialized entity to the given stream, gzip compressed if the client accepts it. The writer is
+         * called only for the first request of a cached response.
+         */
+        public void writeBody(EntityWriter writer, OutputStream out) throws IOException {
+            byte[] gzJson = response.getGzJson(writer);
+
+            if (isGzip) {
+                out.write(gzJson);
+            } else {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzJson))) {
+                    IOUtils.copy(in, out);
+                }
+            }
+        }
+    }
+
+    class SerializedResponse {
+        private final    String key;
+        private volatile byte[] gzJson;
+
+        SerializedResponse(String key) {
+            this.key = key;
+        }
+
+        int getSize() {
+            byte[] gzJson = this.gzJson;
+
+            return gzJson != null ? gzJson.length : 0;
+        }
+
+        byte[] getGzJson(EntityWriter writer) throws IOException {
+            byte[] ret = gzJson;
+
+            if (ret == null) {
+                boolean isSerialized = false;
+
+                synchronized (this) {
+                    ret = gzJson;
+
+                    if (ret == null) {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                        try (GZIPOutputStream gzOut = new GZIPOutputStream(out)) {
+                            writer.write(gzOut);
+                        }
+
+                        ret          = out.toByteArray();
+                        gzJson       = ret;
+                        isSerialized = true;
+                    }
+                }
+
+                if (isSerialized) {
+                    onSerialized(this);
+                }
+            }
+
+            return ret;
+        }
+    }
+}
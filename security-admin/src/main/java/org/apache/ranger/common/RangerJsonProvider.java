@@ -19,6 +19,7 @@
 package org.apache.ranger.common;
 
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
+import org.apache.ranger.common.RangerDownloadResponseCache.PendingResponse;
 import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,8 +28,14 @@
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.Provider;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
 @Provider
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -41,4 +48,23 @@ public RangerJsonProvider() {
 
         LOG.info("RangerJsonProvider() instantiated");
     }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        PendingResponse pendingResponse = RangerDownloadResponseCache.takePendingResponse(value);
+
+        if (pendingResponse == null) {
+            super.writeTo(value, type, genericType, annotations, mediaType, httpHeaders, entityStream);
+        } else {
+            httpHeaders.putSingle(RangerDownloadResponseCache.HEADER_ETAG, pendingResponse.getETag());
+            httpHeaders.putSingle(RangerDownloadResponseCache.HEADER_VARY, RangerDownloadResponseCache.HEADER_ACCEPT_ENCODING);
+
+            if (pendingResponse.isGzip()) {
+                httpHeaders.putSingle(RangerDownloadResponseCache.HEADER_CONTENT_ENCODING, RangerDownloadResponseCache.ENCODING_GZIP);
+            }
+
+            // download response: write the bytes serialized for an earlier request of the same version, if available
+            pendingResponse.writeBody(out -> super.writeTo(value, type, genericType, annotations, mediaType, httpHeaders, out), entityStream);
+        }
+    }
 }
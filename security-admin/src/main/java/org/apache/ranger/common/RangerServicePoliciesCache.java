@@ -182,6 +182,9 @@ public boolean resetCache(final String serviceName) {
             }
         }
 
+        // serialized responses are keyed by version; drop them as well, as the cache is typically reset to recover from an inconsistent state
+        RangerDownloadResponseCache.getInstance().clear();
+
         LOG.debug("<== RangerServicePoliciesCache.resetCache(): ret={}", ret);
 
         return ret;
@@ -30,6 +30,7 @@
 import org.apache.ranger.biz.ServiceDBStore;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.common.ServiceUtil;
 import org.apache.ranger.plugin.model.RangerGds;
@@ -1746,6 +1747,10 @@ public ServiceGdsInfo getServiceGdsInfoIfUpdated(@PathParam("serviceName") Strin
                     downloadedVersion = lastKnownVersion;
                     httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                     logMsg            = "No change since last update";
+                } else if (!RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_GDS, serviceName, ret.getGdsVersion(), null, ret, request)) {
+                    downloadedVersion = ret.getGdsVersion();
+                    httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                    logMsg            = "No change since last update";
                 } else {
                     downloadedVersion = ret.getGdsVersion();
                 }
@@ -1796,6 +1801,10 @@ public ServiceGdsInfo getSecureServiceGdsInfoIfUpdated(@PathParam("serviceName")
                     downloadedVersion = lastKnownVersion;
                     httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                     logMsg            = "No change since last update";
+                } else if (!RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_GDS, serviceName, ret.getGdsVersion(), null, ret, request)) {
+                    downloadedVersion = ret.getGdsVersion();
+                    httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                    logMsg            = "No change since last update";
                 } else {
                     downloadedVersion = ret.getGdsVersion();
                 }
@@ -37,6 +37,7 @@
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.common.RangerValidatorFactory;
 import org.apache.ranger.common.ServiceUtil;
@@ -1029,6 +1030,10 @@ public RangerRoles getRangerRolesIfUpdated(@PathParam("serviceName") String serv
                     downloadedVersion = lastKnownRoleVersion;
                     httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                     logMsg            = "No change since last update";
+                } else if (!RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_ROLES, serviceName, roles.getRoleVersion(), null, roles, request)) {
+                    downloadedVersion = roles.getRoleVersion();
+                    httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                    logMsg            = "No change since last update";
                 } else {
                     roles.setServiceName(serviceName);
 
@@ -1116,6 +1121,10 @@ public RangerRoles getSecureRangerRolesIfUpdated(@PathParam("serviceName") Strin
                         downloadedVersion = lastKnownRoleVersion;
                         httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                         logMsg            = "No change since last update";
+                    } else if (!RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_ROLES, serviceName, roles.getRoleVersion(), null, roles, request)) {
+                        downloadedVersion = roles.getRoleVersion();
+                        httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                        logMsg            = "No change since last update";
                     } else {
                         roles.setServiceName(serviceName);
 
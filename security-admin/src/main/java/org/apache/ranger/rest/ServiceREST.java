@@ -36,6 +36,7 @@
 import org.apache.ranger.biz.RangerBizUtil;
 import org.apache.ranger.biz.RangerPolicyAdmin;
 import org.apache.ranger.biz.RangerPolicyAdminCacheForEngineOptions;
+import org.apache.ranger.biz.RangerServiceVersionNotifier;
 import org.apache.ranger.biz.RoleDBStore;
 import org.apache.ranger.biz.SecurityZoneDBStore;
 import org.apache.ranger.biz.ServiceDBStore;
@@ -51,6 +52,7 @@
 import org.apache.ranger.common.PropertiesUtil;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerConstants;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.common.RangerValidatorFactory;
 import org.apache.ranger.common.ServiceUtil;
@@ -97,11 +99,14 @@
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerPurgeResult;
+import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.SearchFilter;
 import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceVersions;
 import org.apache.ranger.security.context.RangerAPIList;
 import org.apache.ranger.security.context.RangerContextHolder;
 import org.apache.ranger.security.web.filter.RangerCSRFPreventionFilter;
+import org.apache.ranger.security.web.filter.RangerServiceVersionWaitFilter;
 import org.apache.ranger.service.RangerPluginInfoService;
 import org.apache.ranger.service.RangerPolicyLabelsService;
 import org.apache.ranger.service.RangerPolicyService;
@@ -267,6 +272,9 @@ public class ServiceREST {
     @Autowired
     UserMgr userMgrGrantor;
 
+    @Autowired
+    RangerServiceVersionNotifier serviceVersionNotifier;
+
     private RangerPolicyEngineOptions delegateAdminOptions;
     private RangerPolicyEngineOptions policySearchAdminOptions;
     private RangerPolicyEngineOptions defaultAdminOptions;
@@ -2547,6 +2555,10 @@ public ServicePolicies getServicePoliciesIfUpdated(@PathParam("serviceName") Str
                     downloadedVersion = lastKnownVersion;
                     httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                     logMsg            = "No change since last update";
+                } else if (!prepareDownloadResponse(serviceName, ret, lastKnownVersion, !supportsPolicyDeltas, request)) {
+                    downloadedVersion = ret.getPolicyVersion();
+                    httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                    logMsg            = "No change since last update";
                 } else {
                     downloadedVersion = ret.getPolicyVersion();
                     logMsg            = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : (ret.getPolicyDeltas() != null ? ret.getPolicyDeltas().size() : 0)) + " policies. Policy version=" + ret.getPolicyVersion();
@@ -2650,6 +2662,10 @@ public ServicePolicies getSecureServicePoliciesIfUpdated(@PathParam("serviceName
                         downloadedVersion = lastKnownVersion;
                         httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                         logMsg            = "No change since last update";
+                    } else if (!prepareDownloadResponse(serviceName, ret, lastKnownVersion, !supportsPolicyDeltas, request)) {
+                        downloadedVersion = ret.getPolicyVersion();
+                        httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                        logMsg            = "No change since last update";
                     } else {
                         downloadedVersion = ret.getPolicyVersion();
                         logMsg            = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : (ret.getPolicyDeltas() != null ? ret.getPolicyDeltas().size() : 0)) + " policies. Policy version=" + ret.getPolicyVersion();
@@ -2685,6 +2701,88 @@ public ServicePolicies getSecureServicePoliciesIfUpdated(@PathParam("serviceName
         return ret;
     }
 
+    /*
+     * Long-poll API for plugins: responds when any of policy/tag/role/GDS versions of the service differs from the
+     * given lastKnown versions, or with 304 (not modified) when waitTimeoutMs elapses without a change. Runs without a
+     * transaction, so that a DB connection is not held while the request waits. The request waits without holding a
+     * thread when RangerServiceVersionWaitFilter is in the request's filter chain.
+     */
+    @GET
+    @Path("/changes/{serviceName}")
+    @Produces("application/json")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ServiceVersions waitForServiceVersionChange(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownPolicyVersion, @QueryParam("lastKnownTagVersion") Long lastKnownTagVersion, @QueryParam("lastKnownRoleVersion") Long lastKnownRoleVersion, @QueryParam("lastKnownGdsVersion") Long lastKnownGdsVersion, @DefaultValue("0") @QueryParam("waitTimeoutMs") Long waitTimeoutMs, @QueryParam("pluginId") String pluginId, @Context HttpServletRequest request)
+            throws Exception {
+        LOG.debug("==> ServiceREST.waitForServiceVersionChange({}, {}, {}, {}, {}, {}, {})", serviceName, lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion, lastKnownGdsVersion, waitTimeoutMs, pluginId);
+
+        int     httpCode = HttpServletResponse.SC_UNAUTHORIZED;
+        String  logMsg   = "Unauthorized access.";
+        boolean isValid  = false;
+
+        try {
+            bizUtil.failUnauthenticatedDownloadIfNotAllowed();
+
+            isValid = serviceUtil.isValidateHttpsAuthentication(serviceName, request);
+        } catch (WebApplicationException webException) {
+            httpCode = webException.getResponse().getStatus();
+            logMsg   = webException.getResponse().getEntity().toString();
+        } catch (Exception e) {
+            httpCode = HttpServletResponse.SC_BAD_REQUEST;
+            logMsg   = e.getMessage();
+        }
+
+        if (!isValid) {
+            throw restErrorUtil.createRESTException(httpCode, logMsg, true);
+        }
+
+        ServiceVersions ret = waitForServiceVersionChange(serviceName, new ServiceVersions(serviceName, lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion, lastKnownGdsVersion), waitTimeoutMs, request);
+
+        LOG.debug("<== ServiceREST.waitForServiceVersionChange({}, {}, {}, {}, {}, {}, {}): ret={}", serviceName, lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion, lastKnownGdsVersion, waitTimeoutMs, pluginId, ret);
+
+        return ret;
+    }
+
+    @GET
+    @Path("/secure/changes/{serviceName}")
+    @Produces("application/json")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ServiceVersions waitForSecureServiceVersionChange(@PathParam("serviceName") String serviceName, @QueryParam("lastKnownVersion") Long lastKnownPolicyVersion, @QueryParam("lastKnownTagVersion") Long lastKnownTagVersion, @QueryParam("lastKnownRoleVersion") Long lastKnownRoleVersion, @QueryParam("lastKnownGdsVersion") Long lastKnownGdsVersion, @DefaultValue("0") @QueryParam("waitTimeoutMs") Long waitTimeoutMs, @QueryParam("pluginId") String pluginId, @Context HttpServletRequest request)
+            throws Exception {
+        LOG.debug("==> ServiceREST.waitForSecureServiceVersionChange({}, {}, {}, {}, {}, {}, {})", serviceName, lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion, lastKnownGdsVersion, waitTimeoutMs, pluginId);
+
+        int     httpCode = HttpServletResponse.SC_UNAUTHORIZED;
+        String  logMsg   = "Unauthorized access.";
+        boolean isValid  = false;
+
+        request.setAttribute("downloadPolicy", "secure");
+
+        try {
+            isValid = serviceUtil.isValidService(serviceName, request);
+        } catch (WebApplicationException webException) {
+            httpCode = webException.getResponse().getStatus();
+            logMsg   = webException.getResponse().getEntity().toString();
+        } catch (Exception e) {
+            httpCode = HttpServletResponse.SC_BAD_REQUEST;
+            logMsg   = e.getMessage();
+        }
+
+        if (!isValid) {
+            throw restErrorUtil.createRESTException(httpCode, logMsg, true);
+        }
+
+        if (!isAllowedToDownload(serviceName)) {
+            LOG.error("waitForSecureServiceVersionChange({}) failed as User doesn't have permission to download Policy", serviceName);
+
+            throw restErrorUtil.createRESTException(HttpServletResponse.SC_FORBIDDEN, "User doesn't have permission to download policy", true);
+        }
+
+        ServiceVersions ret = waitForServiceVersionChange(serviceName, new ServiceVersions(serviceName, lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion, lastKnownGdsVersion), waitTimeoutMs, request);
+
+        LOG.debug("<== ServiceREST.waitForSecureServiceVersionChange({}, {}, {}, {}, {}, {}, {}): ret={}", serviceName, lastKnownPolicyVersion, lastKnownTagVersion, lastKnownRoleVersion, lastKnownGdsVersion, waitTimeoutMs, pluginId, ret);
+
+        return ret;
+    }
+
     @DELETE
     @Path("/server/policydeltas")
     @PreAuthorize("hasRole('ROLE_SYS_ADMIN')")
@@ -4024,6 +4122,72 @@ private void createPolicyDownloadAudit(String serviceName, Long lastKnownVersion
         }
     }
 
+    /**
+     * @return current versions of the service; null if RangerServiceVersionWaitFilter is to send the response, once
+     *         the versions change or the wait times out
+     */
+    private ServiceVersions waitForServiceVersionChange(String serviceName, ServiceVersions lastKnown, long waitTimeoutMs, HttpServletRequest request) {
+        // when the wait can be asynchronous, only read the current versions here
+        boolean         isAsyncWait = waitTimeoutMs > 0 && RangerServiceVersionWaitFilter.isAsyncWaitSupported(request);
+        ServiceVersions ret;
+
+        try {
+            ret = serviceVersionNotifier.waitForChange(serviceName, lastKnown, isAsyncWait ? 0 : waitTimeoutMs);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+
+            throw restErrorUtil.createRESTException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Interrupted while waiting for changes", false);
+        }
+
+        if (ret == null) {
+            throw restErrorUtil.createRESTException(HttpServletResponse.SC_NOT_FOUND, RangerServiceNotFoundException.buildExceptionMsg(serviceName), false);
+        } else if (!ret.isChangedFrom(lastKnown)) {
+            if (!isAsyncWait) {
+                throw restErrorUtil.createRESTException(HttpServletResponse.SC_NOT_MODIFIED, "No change since last update", false);
+            }
+
+            RangerServiceVersionWaitFilter.waitForChange(request, serviceName, lastKnown, waitTimeoutMs);
+
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    private boolean isAllowedToDownload(String serviceName) throws Exception {
+        XXService    xService    = daoManager.getXXService().findByName(serviceName);
+        XXServiceDef xServiceDef = xService != null ? daoManager.getXXServiceDef().getById(xService.getType()) : null;
+        boolean      isKms       = xServiceDef != null && StringUtils.equals(xServiceDef.getImplclassname(), EmbeddedServiceDefsUtil.KMS_IMPL_CLASS_NAME);
+
+        if (isKms ? bizUtil.isKeyAdmin() : bizUtil.isAdmin()) {
+            return true;
+        }
+
+        RangerService rangerService = isKms ? svcStore.getServiceByNameForDP(serviceName) : svcStore.getServiceByName(serviceName);
+
+        return rangerService != null && (bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Download) || bizUtil.isUserAllowed(rangerService, Allowed_User_List_For_Grant_Revoke));
+    }
+
+    private boolean prepareDownloadResponse(String serviceName, ServicePolicies policies, Long lastKnownVersion, boolean needsBackwardCompatibility, HttpServletRequest request) {
+        // besides the version, the response depends on: deltas vs policies, filtering of disabled policies for full download, and the service-configs added to the response
+        StringBuilder variant = new StringBuilder();
+
+        if (policies.getPolicyDeltas() != null) {
+            variant.append("deltasFrom=").append(lastKnownVersion);
+        } else {
+            variant.append("filtered=").append(lastKnownVersion == null || lastKnownVersion == -1L || needsBackwardCompatibility);
+        }
+
+        variant.append(",serviceConfig=").append(Objects.hashCode(policies.getServiceConfig()));
+
+        if (policies.getTagPolicies() != null) {
+            variant.append(",tagVersion=").append(policies.getTagPolicies().getPolicyVersion())
+                    .append(",tagServiceConfig=").append(Objects.hashCode(policies.getTagPolicies().getServiceConfig()));
+        }
+
+        return RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, serviceName, policies.getPolicyVersion(), variant.toString(), policies, request);
+    }
+
     private RangerPolicy getExactMatchPolicyForResource(String serviceName, RangerAccessResource resource, String zoneName, String user) throws Exception {
         LOG.debug("==> ServiceREST.getExactMatchPolicyForResource({}, {}, {})", resource, zoneName, user);
 
@@ -27,6 +27,7 @@
 import org.apache.ranger.biz.TagDBStore;
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.RangerSearchUtil;
 import org.apache.ranger.db.RangerDaoManager;
 import org.apache.ranger.entity.XXService;
@@ -1268,6 +1269,10 @@ public ServiceTags getServiceTagsIfUpdated(@PathParam("serviceName") String serv
                 downloadedVersion = lastKnownVersion;
                 httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                 logMsg            = "No change since last update";
+            } else if (!prepareDownloadResponse(serviceName, ret, lastKnownVersion, request)) {
+                downloadedVersion = ret.getTagVersion();
+                httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                logMsg            = "No change since last update";
             } else {
                 downloadedVersion = ret.getTagVersion();
                 logMsg            = "Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion();
@@ -1354,6 +1359,10 @@ public ServiceTags getSecureServiceTagsIfUpdated(@PathParam("serviceName") Strin
                     downloadedVersion = lastKnownVersion;
                     httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                     logMsg            = "No change since last update";
+                } else if (!prepareDownloadResponse(serviceName, ret, lastKnownVersion, request)) {
+                    downloadedVersion = ret.getTagVersion();
+                    httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                    logMsg            = "No change since last update";
                 } else {
                     downloadedVersion = ret.getTagVersion();
                     logMsg            = "Returning " + (ret.getTags() != null ? ret.getTags().size() : 0) + " tags. Tag version=" + ret.getTagVersion();
@@ -1401,4 +1410,10 @@ public void deleteTagDeltas(@DefaultValue("3") @QueryParam("days") Integer older
     TagStore getTagStore() {
         return tagStore;
     }
+
+    private boolean prepareDownloadResponse(String serviceName, ServiceTags tags, Long lastKnownVersion, HttpServletRequest request) {
+        String variant = Boolean.TRUE.equals(tags.getIsDelta()) ? ("deltasFrom=" + lastKnownVersion) : "full";
+
+        return RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_TAGS, serviceName, tags.getTagVersion(), variant, tags, request);
+    }
 }
@@ -30,6 +30,7 @@
 import org.apache.ranger.common.MessageEnums;
 import org.apache.ranger.common.RESTErrorUtil;
 import org.apache.ranger.common.RangerConstants;
+import org.apache.ranger.common.RangerDownloadResponseCache;
 import org.apache.ranger.common.SearchCriteria;
 import org.apache.ranger.common.SearchUtil;
 import org.apache.ranger.common.ServiceUtil;
@@ -1426,6 +1427,10 @@ public RangerUserStore getRangerUserStoreIfUpdated(@PathParam("serviceName") Str
                         downloadedVersion = lastKnownUserStoreVersion;
                         httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                         logMsg            = "No change since last update";
+                    } else if (!RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_USERSTORE, null, rangerUserStore.getUserStoreVersion(), null, rangerUserStore, request)) {
+                        downloadedVersion = rangerUserStore.getUserStoreVersion();
+                        httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                        logMsg            = "No change since last update";
                     } else {
                         downloadedVersion = rangerUserStore.getUserStoreVersion();
                         ret               = rangerUserStore;
@@ -1510,6 +1515,10 @@ public RangerUserStore getSecureRangerUserStoreIfUpdated(@PathParam("serviceName
                         downloadedVersion = lastKnownUserStoreVersion;
                         httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
                         logMsg            = "No change since last update";
+                    } else if (!RangerDownloadResponseCache.getInstance().prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_USERSTORE, null, rangerUserStore.getUserStoreVersion(), null, rangerUserStore, request)) {
+                        downloadedVersion = rangerUserStore.getUserStoreVersion();
+                        httpCode          = HttpServletResponse.SC_NOT_MODIFIED;
+                        logMsg            = "No change since last update";
                     } else {
                         downloadedVersion = rangerUserStore.getUserStoreVersion();
                         ret               = rangerUserStore;
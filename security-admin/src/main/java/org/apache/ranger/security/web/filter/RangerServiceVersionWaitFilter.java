@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.security.web.filter;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.biz.RangerServiceVersionNotifier;
+import org.apache.ranger.plugin.util.ServiceVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.GenericFilterBean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lets plugin requests to /service/plugins/(secure/)changes/{serviceName} wait for changes without holding a Tomcat
+ * request-processing thread, using servlet asynchronous processing; Jersey 1.x used for REST APIs has no support for
+ * asynchronous responses.
+ *
+ * ServiceREST authorizes the request as usual; if versions of the service haven't changed from those known to the
+ * plugin, it calls waitForChange() instead of waiting. The response written by Jersey is then discarded, and this
+ * filter starts asynchronous processing of the request: the response is sent once RangerServiceVersionNotifier
+ * reports a change, or with 304 (not modified) once the wait times out.
+ */
+@Component
+public class RangerServiceVersionWaitFilter extends GenericFilterBean {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerServiceVersionWaitFilter.class);
+
+    private static final String ATTR_ASYNC_WAIT_SUPPORTED = RangerServiceVersionWaitFilter.class.getName() + ".asyncWaitSupported";
+    private static final String ATTR_PENDING_WAIT         = RangerServiceVersionWaitFilter.class.getName() + ".pendingWait";
+
+    @Autowired
+    RangerServiceVersionNotifier serviceVersionNotifier;
+
+    public static boolean isAsyncWaitSupported(HttpServletRequest request) {
+        return request != null && request.getAttribute(ATTR_ASYNC_WAIT_SUPPORTED) != null;
+    }
+
+    /**
+     * Requests the response to be sent once versions of the service change from lastKnown, or waitTimeoutMs elapses.
+     * The response written by the caller is discarded. To be called only when isAsyncWaitSupported() returns true.
+     */
+    public static void waitForChange(HttpServletRequest request, String serviceName, ServiceVersions lastKnown, long waitTimeoutMs) {
+        request.setAttribute(ATTR_PENDING_WAIT, new PendingWait(serviceName, lastKnown, waitTimeoutMs));
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (request.isAsyncSupported() && request instanceof HttpServletRequest && response instanceof HttpServletResponse) {
+            HttpServletRequest  httpRequest  = (HttpServletRequest) request;
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+            httpRequest.setAttribute(ATTR_ASYNC_WAIT_SUPPORTED, Boolean.TRUE);
+
+            chain.doFilter(httpRequest, new DiscardableResponse(httpRequest, httpResponse));
+
+            PendingWait pendingWait = (PendingWait) httpRequest.getAttribute(ATTR_PENDING_WAIT);
+
+            if (pendingWait != null) {
+                startWait(httpRequest, httpResponse, pendingWait);
+            }
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private void startWait(HttpServletRequest request, HttpServletResponse response, PendingWait pendingWait) {
+        LOG.debug("==> RangerServiceVersionWaitFilter.startWait({}, {}, {})", pendingWait.serviceName, pendingWait.lastKnown, pendingWait.waitTimeoutMs);
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        AsyncWaiter  waiter       = new AsyncWaiter(asyncContext, pendingWait.serviceName);
+
+        asyncContext.setTimeout(Math.min(pendingWait.waitTimeoutMs, serviceVersionNotifier.getMaxWaitTimeoutMs()));
+        asyncContext.addListener(waiter);
+
+        waiter.notifierWaiter = serviceVersionNotifier.addWaiter(pendingWait.serviceName, pendingWait.lastKnown, waiter::onChange);
+
+        if (waiter.notifierWaiter == null) { // too many waiting requests: respond right away
+            waiter.respond(null);
+        }
+
+        LOG.debug("<== RangerServiceVersionWaitFilter.startWait({}, {}, {})", pendingWait.serviceName, pendingWait.lastKnown, pendingWait.waitTimeoutMs);
+    }
+
+    private static class PendingWait {
+        final String          serviceName;
+        final ServiceVersions lastKnown;
+        final long            waitTimeoutMs;
+
+        PendingWait(String serviceName, ServiceVersions lastKnown, long waitTimeoutMs) {
+            this.serviceName   = serviceName;
+            this.lastKnown     = lastKnown;
+            this.waitTimeoutMs = waitTimeoutMs;
+        }
+    }
+
+    private class AsyncWaiter implements AsyncListener {
+        private final    AsyncContext                        asyncContext;
+        private final    String                              serviceName;
+        private volatile RangerServiceVersionNotifier.Waiter notifierWaiter;
+        private          boolean                             isResponded;
+
+        AsyncWaiter(AsyncContext asyncContext, String serviceName) {
+            this.asyncContext = asyncContext;
+            this.serviceName  = serviceName;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            removeNotifierWaiter();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            removeNotifierWaiter();
+
+            respond(null);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            LOG.debug("RangerServiceVersionWaitFilter: error while waiting for changes in service {}", serviceName, event.getThrowable());
+
+            removeNotifierWaiter();
+
+            respond(null);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        void onChange(ServiceVersions current) {
+            try {
+                // send the response from a container thread, so that a slow client doesn't hold up the notifier
+                asyncContext.start(() -> respond(current));
+            } catch (IllegalStateException excp) {
+                LOG.debug("RangerServiceVersionWaitFilter: request waiting for changes in service {} is already complete", serviceName, excp);
+            }
+        }
+
+        /**
+         * Sends current versions, or 304 (not modified) if current is null; only the first call has effect
+         */
+        synchronized void respond(ServiceVersions current) {
+            if (isResponded) {
+                return;
+            }
+
+            isResponded = true;
+
+            try {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+                if (current != null) {
+                    byte[] body = JsonUtils.objectToJson(current).getBytes(StandardCharsets.UTF_8);
+
+                    response.setStatus(HttpServletResponse.SC_OK);
+                    response.setContentType("application/json");
+                    response.setCharacterEncoding("UTF-8");
+                    response.setContentLength(body.length);
+                    response.getOutputStream().write(body);
+                } else {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                }
+            } catch (Exception excp) {
+                LOG.warn("RangerServiceVersionWaitFilter: failed to respond to request waiting for changes in service {}", serviceName, excp);
+            } finally {
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException excp) {
+                    LOG.debug("RangerServiceVersionWaitFilter: request waiting for changes in service {} is already complete", serviceName, excp);
+                }
+            }
+        }
+
+        private void removeNotifierWaiter() {
+            RangerServiceVersionNotifier.Waiter notifierWaiter = this.notifierWaiter;
+
+            if (notifierWaiter != null) {
+                serviceVersionNotifier.removeWaiter(serviceName, notifierWaiter);
+            }
+        }
+    }
+
+    /**
+     * Discards the status, headers and body written to the response once waitForChange() is called for the request
+     */
+    private static class DiscardableResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+
+        DiscardableResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+
+            this.request = request;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            if (!isDiscarded()) {
+                super.setStatus(sc);
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            if (!isDiscarded()) {
+                super.sendError(sc, msg);
+            }
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            if (!isDiscarded()) {
+                super.sendError(sc);
+            }
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            if (!isDiscarded()) {
+                super.sendRedirect(location);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!isDiscarded()) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!isDiscarded()) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (!isDiscarded()) {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (!isDiscarded()) {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            if (!isDiscarded()) {
+                super.setDateHeader(name, date);
+            }
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            if (!isDiscarded()) {
+                super.addDateHeader(name, date);
+            }
+        }
+
+        @Override
+        public void setContentType(String type) {
+            if (!isDiscarded()) {
+                super.setContentType(type);
+            }
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            if (!isDiscarded()) {
+                super.setCharacterEncoding(charset);
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            if (!isDiscarded()) {
+                super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (!isDiscarded()) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return isDiscarded() ? new DiscardingOutputStream() : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return isDiscarded() ? new PrintWriter(new OutputStreamWriter(new DiscardingOutputStream(), StandardCharsets.UTF_8)) : super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!isDiscarded()) {
+                super.flushBuffer();
+            }
+        }
+
+        private boolean isDiscarded() {
+            return request.getAttribute(ATTR_PENDING_WAIT) != null;
+        }
+    }
+
+    private static class DiscardingOutputStream extends ServletOutputStream {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
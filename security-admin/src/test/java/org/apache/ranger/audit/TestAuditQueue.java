@@ -249,6 +249,73 @@ public void testAuditBatchQueueByTime() {
         assertNull(testConsumer.isInSequence(), "Event not in sequnce");
     }
 
+    @Test
+    public void testAuditBatchQueueWithRingBuffer() {
+        logger.debug("testAuditBatchQueueWithRingBuffer()...");
+
+        int        messageToSend = 1000;
+        String     basePropName  = "testAuditBatchQueueWithRingBuffer_" + MiscUtil.generateUniqueId();
+        Properties props         = new Properties();
+        props.put(basePropName + "." + AuditQueue.PROP_BATCH_SIZE, "" + 100);
+        props.put(basePropName + "." + AuditQueue.PROP_QUEUE_SIZE, "" + 64);
+        props.put(basePropName + "." + AuditQueue.PROP_QUEUE_TYPE, AuditQueue.QUEUE_TYPE_RING_BUFFER);
+        props.put(basePropName + "." + AuditQueue.PROP_QUEUE_WAIT_STRATEGY, "sleeping");
+
+        TestConsumer    testConsumer = new TestConsumer();
+        AuditBatchQueue queue        = new AuditBatchQueue(testConsumer);
+        queue.init(props, basePropName);
+        queue.start();
+
+        // queue is smaller than the number of messages: log() blocks until the consumer makes space
+        for (int i = 0; i < messageToSend; i++) {
+            queue.log(createEvent());
+        }
+
+        queue.waitToComplete();
+        queue.stop();
+        queue.waitToComplete();
+
+        assertEquals(messageToSend, testConsumer.getCountTotal(), "Total count");
+        assertEquals(messageToSend, testConsumer.getSumTotal(), "Total sum");
+        assertEquals(0, queue.getTotalFailedCount(), "Failed count");
+        assertNull(testConsumer.isInSequence(), "Event not in sequnce");
+    }
+
+    @Test
+    public void testAuditAsyncQueueDropOldest() {
+        logger.debug("testAuditAsyncQueueDropOldest()...");
+
+        int        queueSize     = 4;
+        int        messageToSend = 10;
+        String     basePropName  = "testAuditAsyncQueueDropOldest_" + MiscUtil.generateUniqueId();
+        Properties props         = new Properties();
+        props.put(basePropName + "." + AuditQueue.PROP_QUEUE_SIZE, "" + queueSize);
+        props.put(basePropName + "." + AuditQueue.PROP_QUEUE_TYPE, AuditQueue.QUEUE_TYPE_RING_BUFFER);
+        props.put(basePropName + "." + AuditQueue.PROP_QUEUE_OVERFLOW_POLICY, "drop_oldest");
+
+        TestConsumer    testConsumer = new TestConsumer();
+        AuditAsyncQueue queue        = new AuditAsyncQueue(testConsumer);
+        queue.init(props, basePropName);
+
+        assertEquals(AuditQueue.OverflowPolicy.DROP_OLDEST, queue.getOverflowPolicy());
+
+        // log before starting the consumer thread, so that the queue overflows
+        for (int i = 0; i < messageToSend; i++) {
+            assertTrue(queue.log(createEvent()));
+        }
+
+        assertEquals(queueSize, queue.size());
+        assertEquals(messageToSend - queueSize, queue.getTotalFailedCount(), "Failed count");
+
+        queue.start();
+        queue.stop();
+        queue.waitToComplete();
+
+        sleep(1000);
+        assertEquals(queueSize, testConsumer.getCountTotal(), "Total count");
+        assertNull(testConsumer.isInSequence(), "Event not in sequnce");
+    }
+
     @Test
     public void testAuditBatchQueueDestDown() {
         logger.debug("testAuditBatchQueueDestDown()...");
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.biz;
+
+import org.apache.ranger.db.RangerDaoManager;
+import org.apache.ranger.db.XXServiceVersionInfoDao;
+import org.apache.ranger.entity.XXServiceVersionInfo;
+import org.apache.ranger.plugin.util.ServiceVersions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerServiceVersionNotifier {
+    private static final String SERVICE_NAME = "dev_hive";
+
+    private final RangerServiceVersionNotifier notifier      = new RangerServiceVersionNotifier();
+    private final XXServiceVersionInfoDao      versionInfoDao = Mockito.mock(XXServiceVersionInfoDao.class);
+
+    @BeforeEach
+    public void setUp() {
+        notifier.daoMgr    = Mockito.mock(RangerDaoManager.class);
+        notifier.txManager = Mockito.mock(PlatformTransactionManager.class);
+
+        Mockito.when(notifier.daoMgr.getXXServiceVersionInfo()).thenReturn(versionInfoDao);
+        Mockito.when(versionInfoDao.findByServiceName(SERVICE_NAME)).thenReturn(createVersionInfo(5L, 3L));
+
+        notifier.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        notifier.destroy();
+    }
+
+    @Test
+    public void testReturnsWithoutWaitingWhenChanged() throws Exception {
+        ServiceVersions ret = notifier.waitForChange(SERVICE_NAME, new ServiceVersions(SERVICE_NAME, 4L, 3L, null, null), 60 * 1000L);
+
+        assertEquals(Long.valueOf(5L), ret.getPolicyVersion());
+        assertEquals(0, notifier.getWaiterCount());
+
+        // nothing known to the client is treated as a change
+        assertEquals(Long.valueOf(5L), notifier.waitForChange(SERVICE_NAME, new ServiceVersions(), 60 * 1000L).getPolicyVersion());
+    }
+
+    @Test
+    public void testTimeoutWithoutChange() throws Exception {
+        long            startTime = System.currentTimeMillis();
+        ServiceVersions lastKnown = new ServiceVersions(SERVICE_NAME, 5L, 3L, null, null);
+        ServiceVersions ret       = notifier.waitForChange(SERVICE_NAME, lastKnown, 300L);
+
+        assertTrue(System.currentTimeMillis() - startTime >= 300L);
+        assertFalse(ret.isChangedFrom(lastKnown));
+        assertEquals(0, notifier.getWaiterCount());
+    }
+
+    @Test
+    public void testWakesUpOnVersionChange() throws Exception {
+        Mockito.when(versionInfoDao.getAllWithServiceNames()).thenReturn(Collections.singletonList(new Object[] {createVersionInfo(5L, 4L), SERVICE_NAME}));
+
+        Thread changer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException excp) {
+                return;
+            }
+
+            RangerServiceVersionNotifier.notifyVersionChange();
+        });
+
+        long startTime = System.currentTimeMillis();
+
+        changer.start();
+
+        ServiceVersions ret = notifier.waitForChange(SERVICE_NAME, new ServiceVersions(SERVICE_NAME, 5L, 3L, null, null), 30 * 1000L);
+
+        changer.join();
+
+        assertEquals(Long.valueOf(4L), ret.getTagVersion());
+        assertTrue(System.currentTimeMillis() - startTime < 30 * 1000L);
+        assertEquals(0, notifier.getWaiterCount());
+    }
+
+    @Test
+    public void testAsyncWaiterIsNotifiedOnVersionChange() throws Exception {
+        Mockito.when(versionInfoDao.getAllWithServiceNames()).thenReturn(Collections.singletonList(new Object[] {createVersionInfo(6L, 3L), SERVICE_NAME}));
+
+        CompletableFuture<ServiceVersions>  onChange = new CompletableFuture<>();
+        RangerServiceVersionNotifier.Waiter waiter   = notifier.addWaiter(SERVICE_NAME, new ServiceVersions(SERVICE_NAME, 5L, 3L, 1L, 1L), onChange::complete);
+
+        // the caller doesn't wait
+        assertNotNull(waiter);
+        assertEquals(1, notifier.getWaiterCount());
+
+        RangerServiceVersionNotifier.notifyVersionChange();
+
+        assertEquals(Long.valueOf(6L), onChange.get(30, TimeUnit.SECONDS).getPolicyVersion());
+        assertEquals(0, notifier.getWaiterCount());
+
+        // already removed on notification
+        assertFalse(notifier.removeWaiter(SERVICE_NAME, waiter));
+    }
+
+    @Test
+    public void testRemovedAsyncWaiterIsNotNotified() throws Exception {
+        Mockito.when(versionInfoDao.getAllWithServiceNames()).thenReturn(Collections.singletonList(new Object[] {createVersionInfo(6L, 3L), SERVICE_NAME}));
+
+        CompletableFuture<ServiceVersions>  onChange = new CompletableFuture<>();
+        RangerServiceVersionNotifier.Waiter waiter   = notifier.addWaiter(SERVICE_NAME, new ServiceVersions(SERVICE_NAME, 5L, 3L, 1L, 1L), onChange::complete);
+
+        assertTrue(notifier.removeWaiter(SERVICE_NAME, waiter));
+        assertEquals(0, notifier.getWaiterCount());
+
+        RangerServiceVersionNotifier.notifyVersionChange();
+
+        Thread.sleep(300);
+
+        assertFalse(onChange.isDone());
+    }
+
+    @Test
+    public void testAsyncWaitersDontCountAgainstMaxWaiters() throws Exception {
+        ServiceVersions lastKnown = new ServiceVersions(SERVICE_NAME, 5L, 3L, 1L, 1L);
+
+        for (int i = 0; i < notifier.getMaxWaiters() + 1; i++) {
+            assertNotNull(notifier.addWaiter(SERVICE_NAME, lastKnown, current -> {}));
+        }
+
+        assertEquals(notifier.getMaxWaiters() + 1, notifier.getWaiterCount());
+    }
+
+    @Test
+    public void testDefaultMaxWaitersIsFractionOfHttpThreads() {
+        // 10% of Tomcat's default maxThreads of 200
+        assertEquals(20, notifier.getMaxWaiters());
+    }
+
+    @Test
+    public void testServiceNotFound() throws Exception {
+        assertNull(notifier.waitForChange("unknown", new ServiceVersions("unknown", 1L, null, null, null), 1000L));
+    }
+
+    private static XXServiceVersionInfo createVersionInfo(long policyVersion, long tagVersion) {
+        XXServiceVersionInfo ret = new XXServiceVersionInfo();
+
+        ret.setServiceId(1L);
+        ret.setPolicyVersion(policyVersion);
+        ret.setTagVersion(tagVersion);
+        ret.setRoleVersion(1L);
+        ret.setGdsVersion(1L);
+
+        return ret;
+    }
+}
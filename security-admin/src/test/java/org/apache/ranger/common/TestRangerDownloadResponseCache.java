@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.common;
+
+import com.sun.jersey.core.header.OutBoundHeaders;
+import org.apache.commons.io.IOUtils;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerDownloadResponseCache {
+    private final RangerJsonProvider          provider = new RangerJsonProvider();
+    private final RangerDownloadResponseCache cache    = RangerDownloadResponseCache.getInstance();
+
+    @AfterEach
+    public void clearCache() {
+        cache.clear();
+    }
+
+    @Test
+    public void testResponseIsSerializedOnce() throws Exception {
+        ServicePolicies policies = createServicePolicies(5L);
+        byte[]          expected = write(policies, new OutBoundHeaders());
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 5L, "full", policies, createRequest(null, null)));
+
+        MultivaluedMap<String, Object> headers = new OutBoundHeaders();
+
+        assertArrayEquals(expected, write(policies, headers));
+        assertNotNull(headers.getFirst(RangerDownloadResponseCache.HEADER_ETAG));
+        assertNull(headers.getFirst(RangerDownloadResponseCache.HEADER_CONTENT_ENCODING));
+
+        // changes to the object after the first download are not seen for the same key: the version must change with the content
+        policies.setServiceName("dev_hive_2");
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 5L, "full", policies, createRequest(null, null)));
+        assertArrayEquals(expected, write(policies, new OutBoundHeaders()));
+    }
+
+    @Test
+    public void testGzipResponse() throws Exception {
+        ServicePolicies policies = createServicePolicies(7L);
+        byte[]          expected = write(policies, new OutBoundHeaders());
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 7L, "full", policies, createRequest(null, "deflate, gzip")));
+
+        MultivaluedMap<String, Object> headers = new OutBoundHeaders();
+        byte[]                         body    = write(policies, headers);
+
+        assertEquals(RangerDownloadResponseCache.ENCODING_GZIP, headers.getFirst(RangerDownloadResponseCache.HEADER_CONTENT_ENCODING));
+        assertArrayEquals(expected, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(body))));
+    }
+
+    @Test
+    public void testIfNoneMatch() throws Exception {
+        ServicePolicies policies = createServicePolicies(9L);
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 9L, "full", policies, createRequest(null, null)));
+
+        MultivaluedMap<String, Object> headers = new OutBoundHeaders();
+
+        write(policies, headers);
+
+        String eTag = (String) headers.getFirst(RangerDownloadResponseCache.HEADER_ETAG);
+
+        assertFalse(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 9L, "full", policies, createRequest(eTag, null)));
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 10L, "full", policies, createRequest(eTag, null)));
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 9L, "deltasFrom=8", policies, createRequest(eTag, null)));
+    }
+
+    @Test
+    public void testDeltaResponseIsCachedPerLastKnownVersion() throws Exception {
+        ServicePolicies policies = createServicePolicies(11L);
+        byte[]          expected = write(policies, new OutBoundHeaders());
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 11L, "deltasFrom=10", policies, createRequest(null, "gzip")));
+
+        MultivaluedMap<String, Object> headers = new OutBoundHeaders();
+        byte[]                         body    = write(policies, headers);
+
+        assertEquals(RangerDownloadResponseCache.ENCODING_GZIP, headers.getFirst(RangerDownloadResponseCache.HEADER_CONTENT_ENCODING));
+        assertArrayEquals(expected, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(body))));
+        assertEquals(1, cache.size());
+
+        // other plugins polling at the same version get the cached deltas
+        policies.setServiceName("dev_hive_2");
+
+        byte[] expectedFrom9 = write(policies, new OutBoundHeaders());
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 11L, "deltasFrom=10", policies, createRequest(null, null)));
+        assertArrayEquals(expected, write(policies, new OutBoundHeaders()));
+
+        // deltas from another version are a different response, with a different ETag
+        MultivaluedMap<String, Object> headersFrom9 = new OutBoundHeaders();
+
+        assertTrue(cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 11L, "deltasFrom=9", policies, createRequest(null, null)));
+        assertArrayEquals(expectedFrom9, write(policies, headersFrom9));
+        assertNotEquals(headers.getFirst(RangerDownloadResponseCache.HEADER_ETAG), headersFrom9.getFirst(RangerDownloadResponseCache.HEADER_ETAG));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testCacheIsBoundedByBytes() throws Exception {
+        RangerDownloadResponseCache unbounded = new RangerDownloadResponseCache(true, Long.MAX_VALUE);
+
+        for (long version = 21; version <= 23; version++) {
+            ServicePolicies policies = createServicePolicies(version);
+
+            assertTrue(unbounded.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", version, "full", policies, createRequest(null, null)));
+
+            write(policies, new OutBoundHeaders());
+        }
+
+        assertEquals(3, unbounded.size());
+
+        // no room for all 3 responses: the least recently used one is evicted
+        long                        maxBytes = unbounded.getCachedBytes() - 1;
+        RangerDownloadResponseCache bounded  = new RangerDownloadResponseCache(true, maxBytes);
+
+        for (long version = 21; version <= 23; version++) {
+            ServicePolicies policies = createServicePolicies(version);
+            byte[]          expected = write(policies, new OutBoundHeaders());
+
+            assertTrue(bounded.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", version, "full", policies, createRequest(null, "gzip")));
+            assertArrayEquals(expected, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(write(policies, new OutBoundHeaders())))));
+        }
+
+        assertEquals(2, bounded.size());
+        assertTrue(bounded.getCachedBytes() > 0 && bounded.getCachedBytes() <= maxBytes);
+
+        // a response larger than the limit is written, but not kept
+        RangerDownloadResponseCache tiny     = new RangerDownloadResponseCache(true, 1);
+        ServicePolicies             policies = createServicePolicies(24L);
+        byte[]                      expected = write(policies, new OutBoundHeaders());
+
+        assertTrue(tiny.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 24L, "full", policies, createRequest(null, null)));
+        assertArrayEquals(expected, write(policies, new OutBoundHeaders()));
+        assertEquals(0, tiny.size());
+        assertEquals(0, tiny.getCachedBytes());
+    }
+
+    @Test
+    public void testPendingResponseIsForEntity() {
+        ServicePolicies policies = createServicePolicies(1L);
+
+        cache.prepareDownloadResponse(RangerDownloadResponseCache.ENTITY_TYPE_POLICIES, "dev_hive", 1L, "full", policies, createRequest(null, null));
+
+        assertNull(RangerDownloadResponseCache.takePendingResponse(createServicePolicies(1L)));
+        assertNull(RangerDownloadResponseCache.takePendingResponse(policies), "pending response must be cleared once taken");
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(RangerDownloadResponseCache.acceptsGzip("gzip"));
+        assertTrue(RangerDownloadResponseCache.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertFalse(RangerDownloadResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(RangerDownloadResponseCache.acceptsGzip("deflate"));
+        assertFalse(RangerDownloadResponseCache.acceptsGzip(null));
+    }
+
+    private byte[] write(ServicePolicies policies, MultivaluedMap<String, Object> headers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        provider.writeTo(policies, ServicePolicies.class, ServicePolicies.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, headers, out);
+
+        return out.toByteArray();
+    }
+
+    private static HttpServletRequest createRequest(String ifNoneMatch, String acceptEncoding) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+
+        Mockito.when(request.getHeader(RangerDownloadResponseCache.HEADER_IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+        Mockito.when(request.getHeader(RangerDownloadResponseCache.HEADER_ACCEPT_ENCODING)).thenReturn(acceptEncoding);
+
+        return request;
+    }
+
+    private static ServicePolicies createServicePolicies(long policyVersion) {
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceName("dev_hive");
+        ret.setServiceId(1L);
+        ret.setPolicyVersion(policyVersion);
+
+        return ret;
+    }
+}
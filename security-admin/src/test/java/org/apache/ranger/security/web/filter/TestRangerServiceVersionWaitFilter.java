@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.security.web.filter;
+
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.biz.RangerServiceVersionNotifier;
+import org.apache.ranger.plugin.util.ServiceVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRangerServiceVersionWaitFilter {
+    private static final String SERVICE_NAME = "dev_hive";
+
+    private final ServiceVersions lastKnown = new ServiceVersions(SERVICE_NAME, 5L, 3L, 1L, 1L);
+
+    private RangerServiceVersionWaitFilter      filter;
+    private RangerServiceVersionNotifier        notifier;
+    private RangerServiceVersionNotifier.Waiter notifierWaiter;
+    private MockHttpServletRequest              request;
+    private MockHttpServletResponse             response;
+
+    @BeforeEach
+    public void setUp() {
+        notifier       = Mockito.mock(RangerServiceVersionNotifier.class);
+        notifierWaiter = Mockito.mock(RangerServiceVersionNotifier.Waiter.class);
+        filter         = new RangerServiceVersionWaitFilter();
+        request        = new MockHttpServletRequest("GET", "/service/plugins/changes/" + SERVICE_NAME);
+        response       = new MockHttpServletResponse();
+
+        filter.serviceVersionNotifier = notifier;
+
+        request.setAsyncSupported(true);
+
+        Mockito.when(notifier.getMaxWaitTimeoutMs()).thenReturn(60 * 1000L);
+    }
+
+    @Test
+    public void testResponseIsSentOnChange() throws Exception {
+        Mockito.when(notifier.addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(lastKnown), Mockito.any())).thenReturn(notifierWaiter);
+
+        filter.doFilter(request, response, waitingChain(30 * 1000L));
+
+        // the request waits without holding the thread, and the response written by the REST API is discarded
+        assertTrue(request.isAsyncStarted());
+        assertFalse(response.isCommitted());
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(30 * 1000L, request.getAsyncContext().getTimeout());
+
+        ServiceVersions current = new ServiceVersions(SERVICE_NAME, 6L, 3L, 1L, 1L);
+
+        captureOnChange().accept(current);
+
+        assertFalse(request.isAsyncStarted());
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(Long.valueOf(6L), JsonUtils.jsonToObject(response.getContentAsString(), ServiceVersions.class).getPolicyVersion());
+        Mockito.verify(notifier).removeWaiter(SERVICE_NAME, notifierWaiter);
+    }
+
+    @Test
+    public void testNotModifiedOnTimeout() throws Exception {
+        Mockito.when(notifier.addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(lastKnown), Mockito.any())).thenReturn(notifierWaiter);
+
+        filter.doFilter(request, response, waitingChain(120 * 1000L));
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+
+        // wait is limited to the notifier's max wait timeout
+        assertEquals(60 * 1000L, asyncContext.getTimeout());
+
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext, request, response));
+        }
+
+        assertFalse(request.isAsyncStarted());
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        Mockito.verify(notifier, Mockito.atLeastOnce()).removeWaiter(SERVICE_NAME, notifierWaiter);
+
+        // a change reported after the timeout is ignored
+        captureOnChange().accept(new ServiceVersions(SERVICE_NAME, 6L, 3L, 1L, 1L));
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+    }
+
+    @Test
+    public void testNotModifiedWhenTooManyWaiters() throws Exception {
+        Mockito.when(notifier.addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(lastKnown), Mockito.any())).thenReturn(null);
+
+        filter.doFilter(request, response, waitingChain(30 * 1000L));
+
+        assertFalse(request.isAsyncStarted());
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+    }
+
+    @Test
+    public void testResponseWithoutWaitIsSent() throws Exception {
+        FilterChain chain = (req, resp) -> {
+            assertTrue(RangerServiceVersionWaitFilter.isAsyncWaitSupported((HttpServletRequest) req));
+
+            ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write("{}");
+        };
+
+        filter.doFilter(request, response, chain);
+
+        assertFalse(request.isAsyncStarted());
+        assertEquals("{}", response.getContentAsString());
+        Mockito.verifyNoInteractions(notifier);
+    }
+
+    @Test
+    public void testAsyncWaitNotSupported() throws Exception {
+        request.setAsyncSupported(false);
+
+        filter.doFilter(request, response, (req, resp) -> assertFalse(RangerServiceVersionWaitFilter.isAsyncWaitSupported((HttpServletRequest) req)));
+
+        assertFalse(request.isAsyncStarted());
+        Mockito.verifyNoInteractions(notifier);
+    }
+
+    private FilterChain waitingChain(long waitTimeoutMs) {
+        return (req, resp) -> {
+            RangerServiceVersionWaitFilter.waitForChange((HttpServletRequest) req, SERVICE_NAME, lastKnown, waitTimeoutMs);
+
+            // as written by Jersey for a null return value
+            ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_NO_CONTENT);
+            resp.flushBuffer();
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<ServiceVersions> captureOnChange() {
+        ArgumentCaptor<Consumer<ServiceVersions>> onChange = ArgumentCaptor.forClass(Consumer.class);
+
+        Mockito.verify(notifier).addWaiter(Mockito.eq(SERVICE_NAME), Mockito.eq(lastKnown), onChange.capture());
+
+        return onChange.getValue();
+    }
+}